@@ -80,6 +80,10 @@ public class GlobalFunctions
     globalFunctions =
       FunctionFactory.parseFunctions(WollMuxFiles.getWollmuxConf(),
         getFunctionDialogs(), null, null);
+    if (Boolean.parseBoolean(WollMuxFiles.getWollmuxConf().getString("FUNCTION_COMPILER", "false")))
+    {
+      globalFunctions.compile();
+    }
 
     /*
      * Parse global print functions.
@@ -22,7 +22,6 @@
  */
 package de.muenchen.allg.itd51.wollmux;
 
-import java.io.IOException;
 import java.net.URL;
 import java.util.Iterator;
 
@@ -426,17 +425,6 @@ public class WollMuxSingleton
     }
   }
 
-  /**
-   * Überprüft, ob von url gelesen werden kann und wirft eine IOException, falls nicht.
-   *
-   * @throws IOException
-   *           falls von url nicht gelesen werden kann.
-   */
-  public static void checkURL(URL url) throws IOException
-  {
-    url.openStream().close();
-  }
-
   public boolean isNoConfig()
   {
     return noConfig;
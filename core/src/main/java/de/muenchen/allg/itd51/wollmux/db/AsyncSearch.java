@@ -69,7 +69,45 @@ public class AsyncSearch
     });
   }
 
+  /**
+   * Start an asynchronous search, which stops after some results.
+   *
+   * @param limit
+   *          The maximum number of results. The remaining results aren't fetched from the
+   *          {@link Datasource}.
+   * @return A future with at most limit results. Never null.
+   */
+  public CompletableFuture<QueryResults> runSearchAsync(int limit)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      List<Dataset> results = new ArrayList<>();
+      try (DatasetCursor cursor = cursor())
+      {
+        while (results.size() < limit && cursor.hasNext())
+        {
+          results.add(cursor.next());
+        }
+      }
+      return new QueryResultsList(results);
+    });
+  }
+
+  private DatasetCursor cursor()
+  {
+    if (searchQuery == null || datasource == null)
+    {
+      return DatasetCursor.of(null);
+    }
+
+    return datasource.findCursor(toQueryParts(searchQuery));
+  }
+
   private QueryResults search(Map<String, String> query)
+  {
+    return datasource.find(toQueryParts(query));
+  }
+
+  private static List<QueryPart> toQueryParts(Map<String, String> query)
   {
     List<QueryPart> parts = new ArrayList<>();
 
@@ -79,7 +117,7 @@ public class AsyncSearch
       parts.add(qp);
     }
 
-    return datasource.find(parts);
+    return parts;
   }
 
 }
@@ -262,29 +262,24 @@ public class AttachDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source1, source2);
+  }
+
   private QueryResults attachColumns(QueryResults results, Predicate<Dataset> filter)
   {
     List<Dataset> resultsWithAttachments = new ArrayList<>(results.size());
+    MatchIndex attachments = new MatchIndex(results, match1, source2, match2);
 
     for (Dataset ds : results)
     {
-      List<QueryPart> query = new ArrayList<>(match1.length);
-      for (int i = 0; i < match1.length; ++i)
-      {
-        try
-        {
-          query.add(new QueryPart(match2[i], ds.get(match1[i])));
-        } catch (ColumnNotFoundException x)
-        {
-          LOGGER.error("", x);
-        }
-      }
-
-      QueryResults appendix = source2.find(query);
+      Iterator<Dataset> appendix = attachments.get(ds).iterator();
 
       Dataset newDataset;
 
-      if (appendix.size() == 0)
+      if (!appendix.hasNext())
       {
         newDataset = new ConcatDataset(ds, null);
         if (filter.test(newDataset))
@@ -293,9 +288,9 @@ public class AttachDatasource extends Datasource
         }
       } else
       {
-        for (Dataset appenixElement : appendix)
+        while (appendix.hasNext())
         {
-          newDataset = new ConcatDataset(ds, appenixElement);
+          newDataset = new ConcatDataset(ds, appendix.next());
           if (filter.test(newDataset))
           {
             resultsWithAttachments.add(newDataset);
@@ -311,29 +306,13 @@ public class AttachDatasource extends Datasource
   private QueryResults attachColumnsReversed(QueryResults results)
   {
     List<ConcatDataset> resultsWithAttachments = new ArrayList<>(results.size());
+    MatchIndex sources = new MatchIndex(results, match2, source1, match1);
 
     for (Dataset ds : results)
     {
-      List<QueryPart> query = new ArrayList<>(match1.length);
-      for (int i = 0; i < match1.length; ++i)
+      for (Dataset ds1 : sources.get(ds))
       {
-        try
-        {
-          query.add(new QueryPart(match1[i], ds.get(match2[i])));
-        } catch (ColumnNotFoundException x)
-        {
-          LOGGER.error("", x);
-        }
-      }
-
-      QueryResults prependix = source1.find(query);
-
-      if (prependix.size() > 0)
-      {
-        for (Dataset ds1 : prependix)
-        {
-          resultsWithAttachments.add(new ConcatDataset(ds1, ds));
-        }
+        resultsWithAttachments.add(new ConcatDataset(ds1, ds));
       }
     }
 
@@ -0,0 +1,228 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the results of another {@link Datasource}. Queries are normalized, so that queries which
+ * only differ in the order of their parts or keys share a cache entry. The cache is bounded by the
+ * number of entries, least recently used entries are evicted first. Entries expire after a time to
+ * live. Empty results aren't cached, because they are also returned if the datasource isn't
+ * available.
+ *
+ * A datasource is wrapped if RESULT_CACHE_TTL is defined in its configuration (see
+ * {@link Datasources#getDatasources()}).
+ */
+public class CachingDatasource extends Datasource
+{
+  /**
+   * Default maximum number of cached results.
+   */
+  static final long DEFAULT_MAX_ENTRIES = 1000;
+
+  private static final Object CONTENTS = new Object();
+
+  private static final Comparator<QueryPart> QUERY_PART_ORDER = Comparator.comparing(QueryPart::getColumnName)
+      .thenComparing(QueryPart::getSearchString);
+
+  private final Datasource source;
+
+  private final Cache<Object, List<Dataset>> results;
+
+  /**
+   * Create a new cache for a datasource.
+   *
+   * @param source
+   *          The datasource.
+   * @param ttl
+   *          Time to live of the entries in seconds.
+   * @param maxEntries
+   *          Maximum number of cached results.
+   */
+  public CachingDatasource(Datasource source, long ttl, long maxEntries)
+  {
+    this.source = source;
+    results = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttl, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Override
+  public List<String> getSchema()
+  {
+    return source.getSchema();
+  }
+
+  @Override
+  public QueryResults getDatasetsByKey(Collection<String> keys)
+  {
+    return cached(new KeysQuery(new TreeSet<>(keys)), () -> source.getDatasetsByKey(keys));
+  }
+
+  @Override
+  public QueryResults find(List<QueryPart> query)
+  {
+    return cached(findKey(query), () -> source.find(query));
+  }
+
+  /**
+   * Results of cached queries are taken from the cache. All other queries are passed to the
+   * datasource at once, so that it can combine them. Their results aren't cached, because they
+   * can't be assigned to a single query.
+   */
+  @Override
+  public QueryResults findAny(Collection<List<QueryPart>> queries)
+  {
+    Set<Dataset> datasets = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Dataset> ordered = new ArrayList<>();
+    List<List<QueryPart>> misses = new ArrayList<>();
+    for (List<QueryPart> query : queries)
+    {
+      List<Dataset> cached = results.getIfPresent(findKey(query));
+      if (cached == null)
+      {
+        misses.add(query);
+      } else
+      {
+        cached.stream().filter(datasets::add).forEach(ordered::add);
+      }
+    }
+    if (!misses.isEmpty())
+    {
+      source.findAny(misses).forEach(ds -> {
+        if (datasets.add(ds))
+        {
+          ordered.add(ds);
+        }
+      });
+    }
+    return new QueryResultsList(ordered);
+  }
+
+  @Override
+  public QueryResults getContents()
+  {
+    return cached(CONTENTS, source::getContents);
+  }
+
+  @Override
+  public String getName()
+  {
+    return source.getName();
+  }
+
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source);
+  }
+
+  /**
+   * Discard all cached results of this datasource and of the wrapped datasource.
+   */
+  @Override
+  public void invalidateCache()
+  {
+    results.invalidateAll();
+    source.invalidateCache();
+  }
+
+  /**
+   * Number of cached results.
+   */
+  long size()
+  {
+    results.cleanUp();
+    return results.size();
+  }
+
+  private QueryResults cached(Object key, Supplier<QueryResults> query)
+  {
+    List<Dataset> cached = results.getIfPresent(key);
+    if (cached != null)
+    {
+      return new QueryResultsList(cached);
+    }
+
+    List<Dataset> datasets = new ArrayList<>();
+    query.get().forEach(datasets::add);
+    if (!datasets.isEmpty())
+    {
+      results.put(key, List.copyOf(datasets));
+    }
+    return new QueryResultsList(datasets);
+  }
+
+  private static Object findKey(List<QueryPart> query)
+  {
+    List<QueryPart> normalized = new ArrayList<>(query);
+    normalized.sort(QUERY_PART_ORDER);
+    List<List<String>> key = new ArrayList<>(normalized.size());
+    for (QueryPart part : normalized)
+    {
+      key.add(Arrays.asList(part.getColumnName(), part.getSearchString()));
+    }
+    return key;
+  }
+
+  /**
+   * Key of a {@link Datasource#getDatasetsByKey(Collection)} query. Differs from the key of a
+   * {@link Datasource#find(List)} query.
+   */
+  private static final class KeysQuery
+  {
+    private final TreeSet<String> keys;
+
+    private KeysQuery(TreeSet<String> keys)
+    {
+      this.keys = keys;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return keys.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      return obj instanceof KeysQuery && keys.equals(((KeysQuery) obj).keys);
+    }
+  }
+}
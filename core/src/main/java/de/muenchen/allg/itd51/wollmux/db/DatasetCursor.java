@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Results of a query, which are fetched from the datasource while iterating. A cursor has to be
+ * closed if it isn't iterated to the end. Closing a cursor cancels the query and releases its
+ * resources (e.g. connections). After closing, {@link #hasNext()} returns false.
+ */
+public interface DatasetCursor extends Iterator<Dataset>, AutoCloseable
+{
+  /**
+   * Cancel the query and release all resources. Calling close several times has no effect.
+   */
+  @Override
+  void close();
+
+  /**
+   * A cursor over already fetched results.
+   *
+   * @param results
+   *          The results.
+   * @return A cursor, which iterates over the results.
+   */
+  static DatasetCursor of(Iterable<Dataset> results)
+  {
+    return of(results == null ? Collections.emptyIterator() : results.iterator(), () -> {
+    });
+  }
+
+  /**
+   * A cursor over an iterator.
+   *
+   * @param iterator
+   *          Iterator, which fetches the results.
+   * @param onClose
+   *          Called once, if the cursor is closed or the iterator has no more elements.
+   * @return A cursor, which iterates over the iterator.
+   */
+  static DatasetCursor of(Iterator<Dataset> iterator, Runnable onClose)
+  {
+    return new DatasetCursor()
+    {
+      private boolean closed = false;
+
+      @Override
+      public boolean hasNext()
+      {
+        if (closed)
+        {
+          return false;
+        }
+        if (!iterator.hasNext())
+        {
+          close();
+          return false;
+        }
+        return true;
+      }
+
+      @Override
+      public Dataset next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        return iterator.next();
+      }
+
+      @Override
+      public void close()
+      {
+        if (!closed)
+        {
+          closed = true;
+          onClose.run();
+        }
+      }
+    };
+  }
+}
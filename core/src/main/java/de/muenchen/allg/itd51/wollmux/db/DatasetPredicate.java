@@ -35,6 +35,12 @@ public class DatasetPredicate
 {
   public static final Predicate<Dataset> matchAll = (Dataset ds) -> true;
 
+  /**
+   * Characters which make a search string a regular expression. Search strings without them are
+   * matched literally.
+   */
+  private static final String REGEX_META_CHARS = "\\^$.|?+()[]{}";
+
   private DatasetPredicate()
   {
   }
@@ -43,27 +49,125 @@ public class DatasetPredicate
    * Matches a List of {@link QueryPart} against a given {@link Dataset}. Invalid * character in
    * QueryPart's search string are filtered out.
    *
+   * The query is compiled once. The returned predicate can be reused for any number of datasets
+   * and doesn't allocate memory for search strings without regular expression characters.
+   *
    * @param query
    *          List of {@link QueryPart}
    * @return Predicate for a dataset.
    */
   public static Predicate<Dataset> makePredicate(List<QueryPart> query)
   {
-    return query.stream().map(part -> {
-      @SuppressWarnings("squid:S1488")
-      Predicate<Dataset> pred = (Dataset ds) -> {
-        try
-        {
-          return Pattern.compile(part.getSearchString().replace("*", "").toLowerCase())
-              .matcher(ds.get(part.getColumnName()).toLowerCase())
-              .find();
-        } catch (ColumnNotFoundException ex)
+    if (query.isEmpty())
+    {
+      return matchAll;
+    }
+
+    String[] columns = new String[query.size()];
+    ValueMatcher[] matchers = new ValueMatcher[query.size()];
+    for (int i = 0; i < columns.length; i++)
+    {
+      QueryPart part = query.get(i);
+      columns[i] = part.getColumnName();
+      matchers[i] = compile(part.getSearchString());
+    }
+
+    return (Dataset ds) -> {
+      try
+      {
+        for (int i = 0; i < columns.length; i++)
         {
-          return false;
+          String value = ds.get(columns[i]);
+          if (value == null || !matchers[i].matches(value))
+          {
+            return false;
+          }
         }
-      };
+        return true;
+      } catch (ColumnNotFoundException ex)
+      {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Compiles a search string into a matcher. The search string matches every value which contains
+   * the search string ignoring case.
+   *
+   * @param searchString
+   *          The search string, may contain wildcards.
+   * @return A matcher for column values.
+   */
+  static ValueMatcher compile(String searchString)
+  {
+    String needle = searchString.replace("*", "");
+    if (needle.isEmpty())
+    {
+      return value -> true;
+    }
+
+    if (isRegex(needle))
+    {
+      Pattern pattern = Pattern.compile(needle.toLowerCase());
+      return value -> pattern.matcher(value.toLowerCase()).find();
+    }
+
+    return value -> containsIgnoreCase(value, needle);
+  }
 
-      return pred;
-    }).reduce(matchAll, Predicate::and);
+  /**
+   * Get the literal text a search string has to contain.
+   *
+   * @param searchString
+   *          The search string, may contain wildcards.
+   * @return The search string without wildcards or null if the search string is a regular
+   *         expression.
+   */
+  static String getLiteral(String searchString)
+  {
+    String needle = searchString.replace("*", "");
+    return isRegex(needle) ? null : needle;
+  }
+
+  private static boolean isRegex(String needle)
+  {
+    for (int i = 0; i < needle.length(); i++)
+    {
+      if (REGEX_META_CHARS.indexOf(needle.charAt(i)) >= 0)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsIgnoreCase(String value, String needle)
+  {
+    int max = value.length() - needle.length();
+    for (int i = 0; i <= max; i++)
+    {
+      if (value.regionMatches(true, i, needle, 0, needle.length()))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Matcher for a single column value.
+   */
+  @FunctionalInterface
+  interface ValueMatcher
+  {
+    /**
+     * Test a column value.
+     *
+     * @param value
+     *          The value, not null.
+     * @return True if the value matches, false otherwise.
+     */
+    boolean matches(String value);
   }
 }
@@ -22,8 +22,12 @@
  */
 package de.muenchen.allg.itd51.wollmux.db;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
@@ -90,6 +94,48 @@ public abstract class Datasource
    */
   public abstract QueryResults find(List<QueryPart> query);
 
+  /**
+   * Liefert alle Datensätze, die mindestens eine der Anfragen erfüllen (siehe
+   * {@link #find(List)}). Jeder Datensatz ist höchstens einmal enthalten. Die
+   * Standardimplementierung führt die Anfragen nacheinander aus. Datenquellen, bei denen jede
+   * Anfrage teuer ist (z.B. wegen eines Netzwerkzugriffs), sollten die Anfragen zusammenfassen.
+   *
+   * @param queries
+   *          Liste von Anfragen.
+   * @return Results as {@link QueryResults}
+   */
+  public QueryResults findAny(Collection<List<QueryPart>> queries)
+  {
+    Set<Dataset> results = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Dataset> ordered = new ArrayList<>();
+    for (List<QueryPart> query : queries)
+    {
+      for (Dataset ds : find(query))
+      {
+        if (results.add(ds))
+        {
+          ordered.add(ds);
+        }
+      }
+    }
+    return new QueryResultsList(ordered);
+  }
+
+  /**
+   * Wie {@link #find(List)}, aber die Datensätze werden erst beim Iterieren über den
+   * {@link DatasetCursor} geliefert. Wird der Cursor vor dem Ende geschlossen, werden die übrigen
+   * Datensätze nicht mehr von der Datenquelle geholt. Die Standardimplementierung liefert einen
+   * Cursor über das Ergebnis von {@link #find(List)}.
+   *
+   * @param query
+   *          Query to search against the main datasource.
+   * @return Results as {@link DatasetCursor}
+   */
+  public DatasetCursor findCursor(List<QueryPart> query)
+  {
+    return DatasetCursor.of(find(query));
+  }
+
   /**
    * Liefert eine implementierungsabhängige Teilmenge der Datensätze der Datenquelle. Wenn möglich
    * sollte die Datenquelle hier all ihre Datensätze zurückliefern oder zumindest soviele wie
@@ -102,6 +148,24 @@ public abstract class Datasource
    */
   public abstract String getName();
 
+  /**
+   * Liefert die Datenquellen, auf denen diese Datenquelle aufbaut. Die Standardimplementierung
+   * liefert die leere Liste.
+   */
+  public List<Datasource> getSources()
+  {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Verwirft alle Ergebnisse, die diese Datenquelle zwischengespeichert hat. Die
+   * Standardimplementierung tut nichts.
+   */
+  public void invalidateCache()
+  {
+    // nothing cached
+  }
+
   /**
    * Gets datasource value by given {@link ConfigThingy} and key.
    *
@@ -41,7 +41,7 @@ public class Datasources
 
   private static final Logger LOGGER = LoggerFactory.getLogger(Datasources.class);
 
-  private static Map<String, Datasource> datasources = null;
+  private static volatile Map<String, Datasource> datasources = null;
 
   private Datasources()
   {
@@ -60,7 +60,7 @@ public class Datasources
       return datasources;
     }
 
-    HashMap<String, Datasource> datasources = new HashMap<>();
+    HashMap<String, Datasource> nameToDatasource = new HashMap<>();
     ConfigThingy joinConf = WollMuxFiles.getWollmuxConf();
     URL context = WollMuxFiles.getDefaultContext();
 
@@ -81,31 +81,31 @@ public class Datasources
         switch (type)
         {
         case "conf":
-          ds = new ThingyDatasource(datasources, sourceDesc, context);
+          ds = new ThingyDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "union":
-          ds = new UnionDatasource(datasources, sourceDesc, context);
+          ds = new UnionDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "attach":
-          ds = new AttachDatasource(datasources, sourceDesc, context);
+          ds = new AttachDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "overlay":
-          ds = new OverlayDatasource(datasources, sourceDesc, context);
+          ds = new OverlayDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "prefer":
-          ds = new PreferDatasource(datasources, sourceDesc, context);
+          ds = new PreferDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "schema":
-          ds = new SchemaDatasource(datasources, sourceDesc, context);
+          ds = new SchemaDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "ldap":
-          ds = new LDAPDatasource(datasources, sourceDesc, context);
+          ds = new LDAPDatasource(nameToDatasource, sourceDesc, context);
           break;
         case "ooo":
-          ds = new OOoDatasource(datasources, sourceDesc);
+          ds = new OOoDatasource(nameToDatasource, sourceDesc);
           break;
         case "funky":
-          ds = new FunkyDatasource(datasources, sourceDesc);
+          ds = new FunkyDatasource(nameToDatasource, sourceDesc);
           break;
         default:
           LOGGER.error("Unsupported data source type: {}", type);
@@ -126,9 +126,107 @@ public class Datasources
          */
       }
 
-      datasources.put(name, ds);
+      if (ds != null)
+      {
+        ds = cache(ds, sourceDesc);
+      }
+
+      nameToDatasource.put(name, ds);
     }
 
+    datasources = nameToDatasource;
     return datasources;
   }
+
+  /**
+   * Marks a datasource as stale. The cached results of all datasources, which are based on it, are
+   * discarded. The datasource itself keeps its cache.
+   *
+   * The maintenance task of {@link LDAPCache} calls this method, if entries of an
+   * {@link LDAPDatasource} have expired. Nothing happens, if the datasources haven't been parsed
+   * yet.
+   *
+   * @param name
+   *          The name of the datasource.
+   */
+  public static void invalidate(String name)
+  {
+    Map<String, Datasource> current = datasources;
+    if (current != null)
+    {
+      invalidate(current, name);
+    }
+  }
+
+  /**
+   * Marks a datasource as stale (see {@link #invalidate(String)}).
+   *
+   * @param nameToDatasource
+   *          Mapping from data source name to {@link Datasource}.
+   * @param name
+   *          The name of the datasource.
+   */
+  static void invalidate(Map<String, Datasource> nameToDatasource, String name)
+  {
+    Datasource stale = nameToDatasource.get(name);
+    if (stale == null)
+    {
+      return;
+    }
+    for (Datasource ds : nameToDatasource.values())
+    {
+      if (ds != null && ds != stale && dependsOn(ds, stale))
+      {
+        ds.invalidateCache();
+      }
+    }
+  }
+
+  /**
+   * Is the datasource ds the datasource source or is it based on source?
+   */
+  private static boolean dependsOn(Datasource ds, Datasource source)
+  {
+    if (ds == source)
+    {
+      return true;
+    }
+    for (Datasource s : ds.getSources())
+    {
+      if (dependsOn(s, source))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Wraps the datasource in a {@link CachingDatasource}, if RESULT_CACHE_TTL (seconds) is
+   * configured. RESULT_CACHE_SIZE is the maximum number of cached results.
+   */
+  private static Datasource cache(Datasource ds, ConfigThingy sourceDesc)
+  {
+    String ttl = sourceDesc.getString("RESULT_CACHE_TTL");
+    if (ttl == null)
+    {
+      return ds;
+    }
+    try
+    {
+      long seconds = Long.parseLong(ttl);
+      long size = Long.parseLong(
+          sourceDesc.getString("RESULT_CACHE_SIZE", Long.toString(CachingDatasource.DEFAULT_MAX_ENTRIES)));
+      if (seconds <= 0 || size <= 0)
+      {
+        return ds;
+      }
+      return new CachingDatasource(ds, seconds, size);
+    } catch (NumberFormatException e)
+    {
+      LOGGER.error("RESULT_CACHE_TTL and RESULT_CACHE_SIZE of data source '{}' have to be integer numbers",
+          ds.getName());
+      return ds;
+    }
+  }
 }
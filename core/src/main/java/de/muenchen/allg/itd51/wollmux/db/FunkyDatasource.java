@@ -136,4 +136,10 @@ public class FunkyDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source);
+  }
+
 }
@@ -0,0 +1,330 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Cache for the results of {@link LDAPDatasource}s. All datasources with the same URL, user,
+ * password and time to live share one cache. Entries expire after the time to live.
+ *
+ * The attribute cache is bounded by the estimated size of the attributes in bytes, the dataset
+ * cache by the number of entries. Least recently used entries are evicted first.
+ *
+ * Shared caches, whose entries have all expired and which haven't been used for their time to live,
+ * are discarded by the maintenance task of {@link LDAPConnectionPool}. The task also notifies the
+ * expiry listeners of a cache, if some of its entries have expired since the last run.
+ */
+public class LDAPCache
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(LDAPCache.class);
+
+  /**
+   * Maximum estimated size of all cached attributes in bytes.
+   */
+  static final long MAX_ATTRIBUTE_BYTES = 16L * 1024 * 1024;
+
+  /**
+   * Maximum number of cached results of {@link LDAPDatasource#getDatasetsByKey(java.util.Collection)}.
+   */
+  static final long MAX_DATASET_ENTRIES = 1000;
+
+  /**
+   * Estimated memory overhead of an object in bytes.
+   */
+  private static final int OVERHEAD = 64;
+
+  private static final Map<String, LDAPCache> caches = new HashMap<>();
+
+  /**
+   * Listeners, which are notified if entries of the cache with the same key have expired.
+   */
+  private static final Map<String, List<Runnable>> expiryListeners = new HashMap<>();
+
+  static
+  {
+    LDAPConnectionPool.scheduleMaintenance(() -> pruneCaches(System.currentTimeMillis()));
+  }
+
+  private final Cache<Object, Attributes> attributes;
+
+  private final Cache<Object, List<Dataset>> datasets;
+
+  /**
+   * Time to live of the entries in milliseconds.
+   */
+  private final long ttlMillis;
+
+  /**
+   * Time of the last access by {@link #getCache(Properties, long)}.
+   */
+  private volatile long lastAccess = System.currentTimeMillis();
+
+  /**
+   * Have entries expired since the last run of {@link #pruneCaches(long)}?
+   */
+  private final AtomicBoolean expired = new AtomicBoolean();
+
+  /**
+   * Create a new cache.
+   *
+   * @param ttl
+   *          Time to live of the entries in seconds.
+   * @param maxAttributeBytes
+   *          Maximum estimated size of all cached attributes in bytes.
+   * @param maxDatasetEntries
+   *          Maximum number of cached dataset results.
+   */
+  LDAPCache(long ttl, long maxAttributeBytes, long maxDatasetEntries)
+  {
+    ttlMillis = TimeUnit.SECONDS.toMillis(ttl);
+    attributes = CacheBuilder.newBuilder()
+        .maximumWeight(maxAttributeBytes)
+        .weigher((Object key, Attributes value) -> OVERHEAD + key.toString().length() * 2 + estimateSize(value))
+        .expireAfterWrite(ttl, TimeUnit.SECONDS)
+        .removalListener(this::onRemoval)
+        .recordStats()
+        .build();
+    datasets = CacheBuilder.newBuilder()
+        .maximumSize(maxDatasetEntries)
+        .expireAfterWrite(ttl, TimeUnit.SECONDS)
+        .removalListener(this::onRemoval)
+        .recordStats()
+        .build();
+  }
+
+  private void onRemoval(RemovalNotification<Object, ?> notification)
+  {
+    if (notification.getCause() == RemovalCause.EXPIRED)
+    {
+      expired.set(true);
+    }
+  }
+
+  /**
+   * Get the cache for the URL, user and password of the environment. The cache is created if it
+   * doesn't exist.
+   *
+   * @param environment
+   *          The environment of the LDAP connections.
+   * @param ttl
+   *          Time to live of the entries in seconds.
+   * @return The cache.
+   */
+  public static synchronized LDAPCache getCache(Properties environment, long ttl)
+  {
+    LDAPCache cache = caches.computeIfAbsent(key(environment, ttl),
+        k -> new LDAPCache(ttl, MAX_ATTRIBUTE_BYTES, MAX_DATASET_ENTRIES));
+    cache.lastAccess = System.currentTimeMillis();
+    return cache;
+  }
+
+  /**
+   * Register a listener, which is notified by the maintenance task if entries of the cache for the
+   * environment have expired. The listener must not block.
+   *
+   * @param environment
+   *          The environment of the LDAP connections.
+   * @param ttl
+   *          Time to live of the entries in seconds.
+   * @param listener
+   *          The listener.
+   */
+  public static synchronized void addExpiryListener(Properties environment, long ttl, Runnable listener)
+  {
+    expiryListeners.computeIfAbsent(key(environment, ttl), k -> new ArrayList<>()).add(listener);
+  }
+
+  private static String key(Properties environment, long ttl)
+  {
+    return LDAPConnectionPool.key(environment) + "|" + ttl;
+  }
+
+  /**
+   * Notify the expiry listeners of the caches with expired entries and discard the shared caches
+   * without entries, which haven't been used for their time to live. The listeners are called
+   * outside of the lock.
+   *
+   * @param now
+   *          The current time in milliseconds.
+   */
+  static void pruneCaches(long now)
+  {
+    List<Runnable> notify = new ArrayList<>();
+    synchronized (LDAPCache.class)
+    {
+      Iterator<Map.Entry<String, LDAPCache>> iter = caches.entrySet().iterator();
+      while (iter.hasNext())
+      {
+        Map.Entry<String, LDAPCache> entry = iter.next();
+        LDAPCache cache = entry.getValue();
+        boolean unused = cache.isUnused(now);
+        if (cache.expired.getAndSet(false))
+        {
+          notify.addAll(expiryListeners.getOrDefault(entry.getKey(), List.of()));
+        }
+        if (unused)
+        {
+          iter.remove();
+        }
+      }
+    }
+    for (Runnable listener : notify)
+    {
+      try
+      {
+        listener.run();
+      } catch (RuntimeException e)
+      {
+        LOGGER.error("Expiry listener of LDAP cache failed", e);
+      }
+    }
+  }
+
+  private boolean isUnused(long now)
+  {
+    attributes.cleanUp();
+    datasets.cleanUp();
+    return attributes.size() == 0 && datasets.size() == 0 && now - lastAccess >= ttlMillis;
+  }
+
+  /**
+   * Get cached attributes.
+   *
+   * @param key
+   *          The key of the attributes.
+   * @return The attributes or null if they aren't cached.
+   */
+  public Attributes getAttributes(Object key)
+  {
+    return attributes.getIfPresent(key);
+  }
+
+  /**
+   * Cache attributes.
+   *
+   * @param key
+   *          The key of the attributes.
+   * @param value
+   *          The attributes. They must not be modified afterwards.
+   */
+  public void putAttributes(Object key, Attributes value)
+  {
+    attributes.put(key, value);
+  }
+
+  /**
+   * Get cached datasets.
+   *
+   * @param key
+   *          The key of the datasets.
+   * @return The datasets or null if they aren't cached.
+   */
+  public List<Dataset> getDatasets(Object key)
+  {
+    return datasets.getIfPresent(key);
+  }
+
+  /**
+   * Cache datasets.
+   *
+   * @param key
+   *          The key of the datasets.
+   * @param value
+   *          The datasets.
+   */
+  public void putDatasets(Object key, List<Dataset> value)
+  {
+    datasets.put(key, List.copyOf(value));
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void invalidateAll()
+  {
+    attributes.invalidateAll();
+    datasets.invalidateAll();
+    LOGGER.debug("LDAP cache invalidated");
+  }
+
+  /**
+   * Get the hit, miss and eviction counters of the attribute cache.
+   */
+  public CacheStats getAttributeStats()
+  {
+    return attributes.stats();
+  }
+
+  /**
+   * Get the hit, miss and eviction counters of the dataset cache.
+   */
+  public CacheStats getDatasetStats()
+  {
+    return datasets.stats();
+  }
+
+  private static int estimateSize(Attributes value)
+  {
+    int size = OVERHEAD;
+    NamingEnumeration<? extends Attribute> all = value.getAll();
+    try
+    {
+      while (all.hasMore())
+      {
+        Attribute attribute = all.next();
+        size += OVERHEAD + attribute.getID().length() * 2;
+        for (int i = 0; i < attribute.size(); i++)
+        {
+          Object v = attribute.get(i);
+          size += OVERHEAD + (v instanceof byte[] ? ((byte[]) v).length : String.valueOf(v).length() * 2);
+        }
+      }
+    } catch (NamingException e)
+    {
+      LOGGER.trace("", e);
+    }
+    return size;
+  }
+}
@@ -0,0 +1,558 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.InitialLdapContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.muenchen.allg.itd51.wollmux.util.L;
+
+/**
+ * A bounded pool of LDAP connections. All {@link LDAPDatasource}s with the same URL, user and
+ * password share one pool.
+ *
+ * Idle connections are closed after {@link #IDLE_TIMEOUT} and checked before they are reused if they
+ * haven't been used for {@link #VALIDATE_AFTER}. If an operation fails because of a broken
+ * connection, the idle connections are discarded and the operation is retried once with a new
+ * connection.
+ *
+ * A maintenance task closes idle connections every {@link #MAINTENANCE_INTERVAL} and discards
+ * shared pools without connections, which haven't been used for {@link #IDLE_TIMEOUT}. So pools of
+ * old configurations or passwords don't stay alive.
+ */
+public class LDAPConnectionPool
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(LDAPConnectionPool.class);
+
+  /**
+   * Maximum number of connections of a pool.
+   */
+  static final int MAX_CONNECTIONS = 8;
+
+  /**
+   * Idle connections are closed after this time in milliseconds.
+   */
+  static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Idle connections are checked before they are reused if they haven't been used for this time in
+   * milliseconds.
+   */
+  static final long VALIDATE_AFTER = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * Interval of the maintenance task in milliseconds.
+   */
+  static final long MAINTENANCE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+  private static final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("wollmux-ldap-maintenance-%d").setDaemon(true).build());
+
+  private static final Map<String, LDAPConnectionPool> pools = new HashMap<>();
+
+  static
+  {
+    scheduleMaintenance(() -> prunePools(System.currentTimeMillis()));
+  }
+
+  private final Hashtable<Object, Object> environment;
+
+  private final long idleTimeout;
+
+  private final long validateAfter;
+
+  private final Semaphore permits;
+
+  /**
+   * Idle connections, the most recently used first.
+   */
+  private final Deque<PooledContext> idle = new ArrayDeque<>();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private final AtomicLong borrowCount = new AtomicLong();
+
+  private final AtomicLong borrowNanos = new AtomicLong();
+
+  private final LongAccumulator maxBorrowNanos = new LongAccumulator(Math::max, 0);
+
+  private final AtomicLong createdCount = new AtomicLong();
+
+  /**
+   * Time of the last access by {@link #getPool(Properties)} or {@link #release(DirContext, boolean)}.
+   */
+  private volatile long lastAccess = System.currentTimeMillis();
+
+  /**
+   * Create a new pool.
+   *
+   * @param environment
+   *          The environment for new {@link InitialLdapContext}s.
+   * @param maxConnections
+   *          The maximum number of connections.
+   * @param idleTimeout
+   *          Idle connections are closed after this time in milliseconds.
+   * @param validateAfter
+   *          Idle connections are checked if they haven't been used for this time in milliseconds.
+   */
+  LDAPConnectionPool(Properties environment, int maxConnections, long idleTimeout, long validateAfter)
+  {
+    this.environment = new Hashtable<>(environment);
+    this.idleTimeout = idleTimeout;
+    this.validateAfter = validateAfter;
+    this.permits = new Semaphore(maxConnections, true);
+  }
+
+  /**
+   * Get the pool for the URL, user and password of the environment. The pool is created if it
+   * doesn't exist.
+   *
+   * @param environment
+   *          The environment of the connections.
+   * @return The pool.
+   */
+  public static synchronized LDAPConnectionPool getPool(Properties environment)
+  {
+    LDAPConnectionPool pool = pools.computeIfAbsent(key(environment),
+        k -> new LDAPConnectionPool(environment, MAX_CONNECTIONS, IDLE_TIMEOUT, VALIDATE_AFTER));
+    pool.lastAccess = System.currentTimeMillis();
+    return pool;
+  }
+
+  /**
+   * Run a task every {@link #MAINTENANCE_INTERVAL}.
+   *
+   * @param task
+   *          The task.
+   */
+  static void scheduleMaintenance(Runnable task)
+  {
+    maintenance.scheduleWithFixedDelay(task, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Close the expired idle connections of all shared pools and discard the pools without
+   * connections, which haven't been used for their idle timeout.
+   *
+   * @param now
+   *          The current time in milliseconds.
+   */
+  static void prunePools(long now)
+  {
+    List<LDAPConnectionPool> all;
+    synchronized (LDAPConnectionPool.class)
+    {
+      all = new ArrayList<>(pools.values());
+    }
+    // closing connections may block, so it's done without the lock
+    for (LDAPConnectionPool pool : all)
+    {
+      pool.evictIdle(now);
+    }
+    synchronized (LDAPConnectionPool.class)
+    {
+      pools.values().removeIf(pool -> pool.isUnused(now));
+    }
+  }
+
+  private boolean isUnused(long now)
+  {
+    return active.get() == 0 && getIdleCount() == 0 && now - lastAccess >= idleTimeout;
+  }
+
+  /**
+   * Get the key of the pools and caches of an environment. It contains a hash of the password, so
+   * that connections and results of an old password aren't reused after it has been changed.
+   *
+   * @param environment
+   *          The environment of the connections.
+   * @return The URL, the user and the hash of the password.
+   */
+  static String key(Properties environment)
+  {
+    return environment.getProperty(Context.PROVIDER_URL) + "|"
+        + environment.getProperty(Context.SECURITY_PRINCIPAL, "") + "|"
+        + hash(environment.get(Context.SECURITY_CREDENTIALS));
+  }
+
+  private static String hash(Object credentials)
+  {
+    if (credentials == null)
+    {
+      return "";
+    }
+    byte[] bytes;
+    if (credentials instanceof byte[])
+    {
+      bytes = (byte[]) credentials;
+    } else if (credentials instanceof char[])
+    {
+      bytes = new String((char[]) credentials).getBytes(StandardCharsets.UTF_8);
+    } else
+    {
+      bytes = credentials.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    return Hashing.sha256().hashBytes(bytes).toString();
+  }
+
+  /**
+   * Execute an operation with a connection of the pool. If the connection turns out to be broken
+   * the operation is retried once with a new connection.
+   *
+   * The operation must not use the connection or any object created by it after it returned.
+   *
+   * @param operation
+   *          The operation.
+   * @return The result of the operation.
+   * @throws NamingException
+   *           No connection could be established or the operation failed.
+   */
+  public <T> T execute(LDAPOperation<T> operation) throws NamingException
+  {
+    try
+    {
+      return execute(operation, false);
+    } catch (CommunicationException | ServiceUnavailableException e)
+    {
+      LOGGER.debug("LDAP connection broken, reconnecting", e);
+      clear();
+      return execute(operation, true);
+    }
+  }
+
+  private <T> T execute(LDAPOperation<T> operation, boolean fresh) throws NamingException
+  {
+    DirContext ctx = borrow(fresh);
+    boolean broken = true;
+    try
+    {
+      T result = operation.execute(ctx);
+      broken = false;
+      return result;
+    } catch (CommunicationException | ServiceUnavailableException e)
+    {
+      throw e;
+    } catch (NamingException | RuntimeException e)
+    {
+      // the connection itself is still usable
+      broken = false;
+      throw e;
+    } finally
+    {
+      release(ctx, broken);
+    }
+  }
+
+  /**
+   * Get a connection from the pool. It has to be given back by {@link #release(DirContext, boolean)}.
+   *
+   * @param fresh
+   *          If true, a new connection is established.
+   * @return A connection.
+   * @throws NamingException
+   *           No connection is available or it couldn't be established.
+   */
+  DirContext borrow(boolean fresh) throws NamingException
+  {
+    long start = System.nanoTime();
+    try
+    {
+      if (!permits.tryAcquire(Datasource.getDatasourceTimeout(), TimeUnit.MILLISECONDS))
+      {
+        throw new NamingException(
+            L.m("No LDAP connection available for {0}", environment.get(Context.PROVIDER_URL)));
+      }
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new NamingException(e.getMessage());
+    }
+
+    try
+    {
+      DirContext ctx = fresh ? null : pollIdle();
+      if (ctx == null)
+      {
+        ctx = new InitialLdapContext(environment, null);
+        createdCount.incrementAndGet();
+        LOGGER.debug("New LDAP connection to {}", environment.get(Context.PROVIDER_URL));
+      }
+      active.incrementAndGet();
+      long duration = System.nanoTime() - start;
+      borrowCount.incrementAndGet();
+      borrowNanos.addAndGet(duration);
+      maxBorrowNanos.accumulate(duration);
+      return ctx;
+    } catch (NamingException | RuntimeException e)
+    {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Give a connection back to the pool.
+   *
+   * @param ctx
+   *          The connection.
+   * @param broken
+   *          If true the connection is closed instead of being reused.
+   */
+  void release(DirContext ctx, boolean broken)
+  {
+    lastAccess = System.currentTimeMillis();
+    active.decrementAndGet();
+    try
+    {
+      if (broken)
+      {
+        close(ctx);
+      } else
+      {
+        synchronized (idle)
+        {
+          idle.addFirst(new PooledContext(ctx, System.currentTimeMillis()));
+        }
+        evictIdle(System.currentTimeMillis());
+      }
+    } finally
+    {
+      permits.release();
+    }
+  }
+
+  /**
+   * Close all idle connections.
+   */
+  public void clear()
+  {
+    while (true)
+    {
+      PooledContext pc;
+      synchronized (idle)
+      {
+        pc = idle.pollFirst();
+      }
+      if (pc == null)
+      {
+        return;
+      }
+      close(pc.ctx);
+    }
+  }
+
+  /**
+   * Get the most recently used idle connection which is still healthy.
+   */
+  private DirContext pollIdle()
+  {
+    evictIdle(System.currentTimeMillis());
+    while (true)
+    {
+      PooledContext pc;
+      synchronized (idle)
+      {
+        pc = idle.pollFirst();
+      }
+      if (pc == null)
+      {
+        return null;
+      }
+      if (System.currentTimeMillis() - pc.lastUsed < validateAfter || isHealthy(pc.ctx))
+      {
+        return pc.ctx;
+      }
+      close(pc.ctx);
+    }
+  }
+
+  /**
+   * Close idle connections which haven't been used for {@link #idleTimeout}.
+   *
+   * @param now
+   *          The current time in milliseconds.
+   */
+  private void evictIdle(long now)
+  {
+    while (true)
+    {
+      PooledContext pc;
+      synchronized (idle)
+      {
+        pc = idle.peekLast();
+        if (pc == null || now - pc.lastUsed < idleTimeout)
+        {
+          return;
+        }
+        idle.pollLast();
+      }
+      close(pc.ctx);
+    }
+  }
+
+  private boolean isHealthy(DirContext ctx)
+  {
+    try
+    {
+      ctx.getAttributes("", new String[] { "objectClass" });
+      return true;
+    } catch (NamingException e)
+    {
+      LOGGER.debug("LDAP connection is not healthy", e);
+      return false;
+    }
+  }
+
+  private void close(DirContext ctx)
+  {
+    try
+    {
+      ctx.close();
+    } catch (NamingException e)
+    {
+      LOGGER.trace("", e);
+    }
+  }
+
+  /**
+   * Get the number of connections in use.
+   */
+  public int getActiveCount()
+  {
+    return active.get();
+  }
+
+  /**
+   * Get the number of idle connections.
+   */
+  public int getIdleCount()
+  {
+    synchronized (idle)
+    {
+      return idle.size();
+    }
+  }
+
+  /**
+   * Get the number of connections established by this pool.
+   */
+  public long getCreatedCount()
+  {
+    return createdCount.get();
+  }
+
+  /**
+   * Get the number of borrowed connections.
+   */
+  public long getBorrowCount()
+  {
+    return borrowCount.get();
+  }
+
+  /**
+   * Get the average time in milliseconds it took to get a connection.
+   */
+  public double getAverageBorrowLatency()
+  {
+    long count = borrowCount.get();
+    return count == 0 ? 0 : borrowNanos.get() / (count * 1_000_000.0);
+  }
+
+  /**
+   * Get the maximum time in milliseconds it took to get a connection.
+   */
+  public double getMaxBorrowLatency()
+  {
+    return maxBorrowNanos.get() / 1_000_000.0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("LDAPConnectionPool[%s, active=%d, idle=%d, created=%d, borrowed=%d, avgLatency=%.2fms]",
+        environment.get(Context.PROVIDER_URL), getActiveCount(), getIdleCount(), getCreatedCount(),
+        getBorrowCount(), getAverageBorrowLatency());
+  }
+
+  /**
+   * An operation on a LDAP connection.
+   *
+   * @param <T>
+   *          The type of the result.
+   */
+  @FunctionalInterface
+  public interface LDAPOperation<T>
+  {
+    /**
+     * Execute the operation.
+     *
+     * @param ctx
+     *          The connection.
+     * @return The result.
+     * @throws NamingException
+     *           The operation failed.
+     */
+    T execute(DirContext ctx) throws NamingException;
+  }
+
+  private static class PooledContext
+  {
+    private final DirContext ctx;
+
+    private final long lastUsed;
+
+    PooledContext(DirContext ctx, long lastUsed)
+    {
+      this.ctx = ctx;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
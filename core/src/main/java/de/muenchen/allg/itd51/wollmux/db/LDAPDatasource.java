@@ -29,15 +29,26 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import javax.naming.Context;
+import javax.naming.InvalidNameException;
 import javax.naming.Name;
 import javax.naming.NameParser;
 import javax.naming.NamingEnumeration;
@@ -47,11 +58,14 @@ import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
-import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
 import de.muenchen.allg.itd51.wollmux.config.ConfigurationErrorException;
 import de.muenchen.allg.itd51.wollmux.config.NodeNotFoundException;
@@ -80,6 +94,18 @@ public class LDAPDatasource extends Datasource
   /** properties für die Verbindung zum LDAP-Server */
   private Properties properties = new Properties();
 
+  /**
+   * Falls true, werden die Suchen in Geschwisterknoten zu einer Suche mit ODER-Filter
+   * zusammengefasst. Der Server muss dafür Extensible-Match Filter auf DN-Attribute unterstützen.
+   */
+  private boolean batchLevelSearch;
+
+  /** Führt die Suchen einer Ebene parallel aus. */
+  private static final ExecutorService LEVEL_SEARCH_EXECUTOR = createExecutor();
+
+  /** Maximale Anzahl an Anfragen, die {@link #findAny(Collection)} in einem Filter verknüpft. */
+  private static final int MAX_QUERIES_PER_FILTER = 50;
+
   /** Separator zur Schluesselerzeugung aus mehreren Schluesselwerten */
   private static final String SEPARATOR = "&:=&:%";
 
@@ -132,9 +158,10 @@ public class LDAPDatasource extends Datasource
       + KEY_SEPARATOR_0_NON_0_RE + "([a-zA-Z_][a-zA-Z0-9_]*=.*" + SEPARATOR + ")?$");
 
   /**
-   * temporärer cache für relative Attribute (wird bei jeder neuen Suche neu angelegt)
+   * Lebensdauer der Einträge im Cache für relative Attribute und Ergebnisse von
+   * {@link #getDatasetsByKey(Collection)} in Sekunden oder 0, falls nicht gecacht wird.
    */
-  private Map<CacheKey, Attributes> attributeCache = new HashMap<>();
+  private long cacheTTL;
 
   /**
    * Erzeugt eine neue LDAPDatasource.
@@ -202,6 +229,17 @@ public class LDAPDatasource extends Datasource
       properties.put(Context.SECURITY_CREDENTIALS, password);
     }
 
+    batchLevelSearch = Boolean.parseBoolean(sourceDesc.getString("BATCH_LEVEL_SEARCH", "false"));
+
+    String cacheTTL = sourceDesc.getString("CACHE_TTL", "0");
+    try
+    {
+      this.cacheTTL = Math.max(0, Long.parseLong(cacheTTL));
+    } catch (NumberFormatException e)
+    {
+      throw new ConfigurationErrorException(errorMessage() + L.m("CACHE_TTL has to be an integer number"), e);
+    }
+
     ConfigThingy spalten = sourceDesc.query("Spalten");
 
     if (spalten.count() == 0)
@@ -328,6 +366,39 @@ public class LDAPDatasource extends Datasource
     {
       keyStatus = ABSOLUTE_AND_RELATIVE;
     }
+
+    if (this.cacheTTL > 0)
+    {
+      // Ergebnisse anderer Datenquellen, die auf abgelaufenen Einträgen beruhen, verwerfen
+      LDAPCache.addExpiryListener(properties, this.cacheTTL, () -> Datasources.invalidate(datasourceName));
+    }
+  }
+
+  /**
+   * Liefert den Pool der Verbindungen zum LDAP-Server. Der Pool wird bei jedem Zugriff geholt, da
+   * ungenutzte Pools verworfen werden.
+   */
+  private LDAPConnectionPool getPool()
+  {
+    return LDAPConnectionPool.getPool(properties);
+  }
+
+  /**
+   * Liefert den Cache dieser Datenquelle oder null, falls nicht gecacht wird. Der Cache wird bei
+   * jedem Zugriff geholt, da leere, ungenutzte Caches verworfen werden.
+   */
+  private LDAPCache getCache()
+  {
+    return cacheTTL > 0 ? LDAPCache.getCache(properties, cacheTTL) : null;
+  }
+
+  private static ExecutorService createExecutor()
+  {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(LDAPConnectionPool.MAX_CONNECTIONS,
+        LDAPConnectionPool.MAX_CONNECTIONS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("wollmux-ldap-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   /** Setzt die timeout-Properties. */
@@ -427,31 +498,54 @@ public class LDAPDatasource extends Datasource
       return new QueryResultsList(new ArrayList<Dataset>(0));
     }
 
-    List<Dataset> results = new ArrayList<>(keys.size());
-
-    try
+    List<Object> cacheKey = List.of(datasourceName, schema, keyAttributes, new HashSet<>(keys));
+    LDAPCache cache = getCache();
+    if (cache != null)
     {
-      attributeCache.clear();
+      List<Dataset> cached = cache.getDatasets(cacheKey);
+      if (cached != null)
+      {
+        return new QueryResultsList(cached);
+      }
+    }
 
-      if (keyStatus == ABSOLUTE_ONLY || keyStatus == ABSOLUTE_AND_RELATIVE)
-      { // absolute Attribute vorhanden
-        results.addAll(handleAbsoluteKeys(keys));
-      } else
-      { // nur relative Attribute
-        for (String currentKey : keys)
-        {
-          List<QueryPart> query = keyToFindQuery(currentKey);
+    List<Dataset> results = new ArrayList<>(keys.size());
 
-          QueryResults res = find(query);
-          for (Dataset ds : res)
-            results.add(ds);
-        }
+    if (keyStatus == ABSOLUTE_ONLY || keyStatus == ABSOLUTE_AND_RELATIVE)
+    { // absolute Attribute vorhanden
+      results.addAll(handleAbsoluteKeys(keys));
+    } else
+    { // nur relative Attribute
+      for (String currentKey : keys)
+      {
+        List<QueryPart> query = keyToFindQuery(currentKey);
+
+        QueryResults res = find(query);
+        for (Dataset ds : res)
+          results.add(ds);
       }
+    }
 
-      return new QueryResultsList(results);
-    } finally
+    // leere Ergebnisse können auch durch Verbindungsprobleme entstehen
+    if (cache != null && !results.isEmpty())
+    {
+      cache.putDatasets(cacheKey, results);
+    }
+
+    return new QueryResultsList(results);
+  }
+
+  /**
+   * Verwirft alle gecachten Attribute und Datensätze aller LDAP-Datenquellen, die den selben Cache
+   * benutzen.
+   */
+  @Override
+  public void invalidateCache()
+  {
+    LDAPCache cache = getCache();
+    if (cache != null)
     {
-      attributeCache.clear();
+      cache.invalidateAll();
     }
   }
 
@@ -478,22 +572,16 @@ public class LDAPDatasource extends Datasource
     searchFilter.append(")");
 
     // search LDAP
-    NamingEnumeration<SearchResult> currentResults = searchLDAP("", searchFilter.toString(),
+    List<SearchResult> currentResults = searchLDAP("", searchFilter.toString(),
         SearchControls.SUBTREE_SCOPE, true);
 
-    while (currentResults != null && currentResults.hasMoreElements())
+    Map<CacheKey, Attributes> searchAttributes = new HashMap<>();
+    for (SearchResult currentResult : currentResults)
     {
-      try
+      Dataset dataset = getDataset(currentResult, searchAttributes);
+      if (keyStatus == ABSOLUTE_ONLY || keys.contains(dataset.getKey()))
       {
-        SearchResult currentResult = currentResults.next();
-        Dataset dataset = getDataset(currentResult);
-        if (keyStatus == ABSOLUTE_ONLY || keys.contains(dataset.getKey()))
-        {
-          results.add(dataset);
-        }
-      } catch (NamingException e)
-      {
-        LOGGER.error("Error in LDAP-Directory.", e);
+        results.add(dataset);
       }
     }
     return results;
@@ -551,55 +639,41 @@ public class LDAPDatasource extends Datasource
   {
 
     List<Name> paths = null;
-    DirContext ctx = null;
 
     try
     {
-      ctx = new InitialLdapContext(properties, null);
-      NameParser np = ctx.getNameParser("");
-      int rootSize = np.parse(baseDN).size();
-      SearchControls sc = new SearchControls();
-      sc.setSearchScope(SearchControls.SUBTREE_SCOPE);
-
-      sc.setTimeLimit((int) Datasource.getDatasourceTimeout());
+      paths = getPool().execute(ctx -> {
+        NameParser np = ctx.getNameParser("");
+        int rootSize = np.parse(baseDN).size();
+        SearchControls sc = new SearchControls();
+        sc.setSearchScope(SearchControls.SUBTREE_SCOPE);
 
-      LOGGER.trace("ctx.search({}, {}, sc) mit Zeitlimit {}", baseDN, filter, sc.getTimeLimit());
-      NamingEnumeration<SearchResult> enumer = ctx.search(baseDN, filter, sc);
-      LOGGER.trace("ctx.search() abgeschlossen");
+        sc.setTimeLimit((int) Datasource.getDatasourceTimeout());
 
-      paths = new Vector<>();
+        LOGGER.trace("ctx.search({}, {}, sc) mit Zeitlimit {}", baseDN, filter, sc.getTimeLimit());
+        NamingEnumeration<SearchResult> enumer = ctx.search(baseDN, filter, sc);
+        LOGGER.trace("ctx.search() abgeschlossen");
 
-      while (enumer != null && enumer.hasMoreElements())
-      {
-        SearchResult result = enumer.nextElement();
-        String path = preparePath(result.getNameInNamespace());
-        Name pathName = np.parse(path);
-        /*
-         * ACHTUNG: hier kann NICHT (pathLength < 0 && (pathName.size()+rootLength >
-         * abs(pathLength))) getestet werden, denn Minus-Bedingungen betreffen die Nachfahren, hier
-         * muesste also die Tiefe des tiefsten Nachfahrens ausgewertet werden, die wir nicht kennen.
-         */
-        if (pathName.size() + rootSize == pathLength || pathLength < 0)
-          paths.add(pathName);
-      }
-
-      ctx.close();
+        List<Name> found = new Vector<>();
 
+        while (enumer != null && enumer.hasMoreElements())
+        {
+          SearchResult result = enumer.nextElement();
+          String path = preparePath(result.getNameInNamespace());
+          Name pathName = np.parse(path);
+          /*
+           * ACHTUNG: hier kann NICHT (pathLength < 0 && (pathName.size()+rootLength >
+           * abs(pathLength))) getestet werden, denn Minus-Bedingungen betreffen die Nachfahren, hier
+           * muesste also die Tiefe des tiefsten Nachfahrens ausgewertet werden, die wir nicht kennen.
+           */
+          if (pathName.size() + rootSize == pathLength || pathLength < 0)
+            found.add(pathName);
+        }
+        return found;
+      });
     } catch (NamingException e)
     {
       LOGGER.error("Internal error in LDAP.", e);
-    } finally
-    {
-      if (ctx != null)
-      {
-        try
-        {
-          ctx.close();
-        } catch (NamingException e)
-        {
-          LOGGER.error("", e);
-        }
-      }
     }
 
     return new RelativePaths(pathLength, paths);
@@ -613,6 +687,121 @@ public class LDAPDatasource extends Datasource
    */
   @Override
   public QueryResults find(List<QueryPart> query)
+  {
+    List<Dataset> results = new ArrayList<>();
+
+    // generate Datasets from SearchResults
+
+    Map<CacheKey, Attributes> searchAttributes = new HashMap<>();
+    for (SearchResult currentResult : findSearchResults(query))
+    {
+      results.add(getDataset(currentResult, searchAttributes));
+    }
+
+    return new QueryResultsList(results);
+  }
+
+  /**
+   * Fasst die Anfragen zu Suchfiltern zusammen, die die Filter der einzelnen Anfragen mit OR
+   * verknüpfen, so dass für bis zu {@link #MAX_QUERIES_PER_FILTER} Anfragen nur eine Suche im
+   * Verzeichnis nötig ist. Anfragen mit Spalten, deren Attribute nicht am gesuchten Knoten selbst
+   * liegen, werden einzeln ausgeführt.
+   */
+  @Override
+  public QueryResults findAny(Collection<List<QueryPart>> queries)
+  {
+    List<String> filters = new ArrayList<>();
+    for (List<QueryPart> query : queries)
+    {
+      String filter = nodeFilter(query);
+      if (filter == null)
+      {
+        return super.findAny(queries);
+      }
+      if (!filter.isEmpty())
+      {
+        filters.add(filter);
+      }
+    }
+
+    List<Dataset> results = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    Map<CacheKey, Attributes> searchAttributes = new HashMap<>();
+    for (int i = 0; i < filters.size(); i += MAX_QUERIES_PER_FILTER)
+    {
+      StringBuilder searchFilter = new StringBuilder("(|");
+      filters.subList(i, Math.min(i + MAX_QUERIES_PER_FILTER, filters.size()))
+          .forEach(searchFilter::append);
+      searchFilter.append(')');
+      for (SearchResult sr : searchLDAP("", searchFilter.toString(), SearchControls.SUBTREE_SCOPE,
+          true))
+      {
+        String name = preparePath(sr.getNameInNamespace());
+        sr.setName(name);
+        if (names.add(name))
+        {
+          results.add(getDataset(sr, searchAttributes));
+        }
+      }
+    }
+    return new QueryResultsList(results);
+  }
+
+  /**
+   * Liefert den Suchfilter für query, wenn alle Spalten Attribute des gesuchten Knotens selbst
+   * sind. Der Filter ist leer, wenn query keine Datensätze liefert. Enthält query Spalten mit
+   * relativem Pfad, wird null geliefert.
+   */
+  private String nodeFilter(List<QueryPart> query)
+  {
+    StringBuilder searchFilter = new StringBuilder("(&");
+    boolean empty = true;
+    for (QueryPart currentQuery : query)
+    {
+      ColumnDefinition colDef = columnDefinitions.get(currentQuery.getColumnName());
+      if (colDef == null)
+      {
+        return "";
+      }
+      if (colDef.relativePath != 0)
+      {
+        return null;
+      }
+      if (currentQuery.getSearchString().isEmpty())
+      {
+        continue;
+      }
+      searchFilter.append("(" + ldapEscape(colDef.attributeName) + "="
+          + ldapEscape(currentQuery.getSearchString()) + ")");
+      if (colDef.columnObjectClass != null)
+      {
+        searchFilter.append("(objectClass=" + ldapEscape(colDef.columnObjectClass) + ")");
+      }
+      empty = false;
+    }
+    return empty ? "" : searchFilter.append(')').toString();
+  }
+
+  /**
+   * Liefert die Ergebnisse der Suche nach query, während über den {@link DatasetCursor} iteriert
+   * wird. Die Suche im Verzeichnis wird sofort ausgeführt, aber die Datensätze werden erst beim
+   * Iterieren um die Daten aus anderen Knoten des Verzeichnisses vervollständigt.
+   */
+  @Override
+  public DatasetCursor findCursor(List<QueryPart> query)
+  {
+    Map<CacheKey, Attributes> searchAttributes = new HashMap<>();
+    return DatasetCursor.of(
+        findSearchResults(query).stream().map(sr -> getDataset(sr, searchAttributes)).iterator(), () -> {
+        });
+  }
+
+  /**
+   * Sucht im Verzeichnis nach Knoten, die alle Bedingungen von query erfüllen.
+   *
+   * @return die gefundenen Knoten, nie null.
+   */
+  private List<SearchResult> findSearchResults(List<QueryPart> query)
   {
     StringBuilder searchFilter = new StringBuilder();
     List<RelativePaths> positiveSubtreePathLists = new ArrayList<>();
@@ -628,7 +817,7 @@ public class LDAPDatasource extends Datasource
 
       if (colDef == null)
       {
-        return new QueryResultsList(new Vector<Dataset>(0));
+        return Collections.emptyList();
       }
 
       String attributeName = colDef.attributeName;
@@ -926,7 +1115,7 @@ public class LDAPDatasource extends Datasource
     if (searchFilter.length() == 0 && mergedPositiveSubtreePathLists == null
         && mergedNegativeSubtreePaths == null)
     {
-      return new QueryResultsList(new Vector<Dataset>(0));
+      return Collections.emptyList();
     }
 
     List<SearchResult> currentResultList = new ArrayList<>();
@@ -967,12 +1156,11 @@ public class LDAPDatasource extends Datasource
         {
           comma = "";
         }
-        NamingEnumeration<SearchResult> currentResults = searchLDAP(subTree + comma,
+        List<SearchResult> currentResults = searchLDAP(subTree + comma,
             searchFilter.toString(), SearchControls.SUBTREE_SCOPE, true);
 
-        while (currentResults != null && currentResults.hasMoreElements())
+        for (SearchResult sr : currentResults)
         {
-          SearchResult sr = currentResults.nextElement();
           String name = preparePath(sr.getNameInNamespace());
           sr.setName(name + (name.length() > 0 ? comma : "") + subTree);
           currentResultList.add(sr);
@@ -997,24 +1185,7 @@ public class LDAPDatasource extends Datasource
 
     }
 
-    List<Dataset> results = new ArrayList<>();
-
-    // generate Datasets from SearchResults
-
-    attributeCache.clear();
-
-    try
-    {
-      for (SearchResult currentResult : currentResultList)
-      {
-        results.add(getDataset(currentResult));
-      }
-    } finally
-    {
-      attributeCache.clear();
-    }
-
-    return new QueryResultsList(results);
+    return currentResultList;
   }
 
   /**
@@ -1152,46 +1323,97 @@ public class LDAPDatasource extends Datasource
       CacheKey otherKey = (CacheKey) other;
       return hash.equals(otherKey.hash);
     }
+
+    @Override
+    public String toString()
+    {
+      return hash;
+    }
   }
 
   /**
    * vervollständigt SearchResults um Daten aus dem Verzeichnis und gibt ein Dataset zurück
    *
    * @param searchResult
-   * @param endTime
+   * @param searchAttributes
+   *          die relativen Attribute, die während der aktuellen Suche schon gelesen wurden. Wird
+   *          nur verwendet, falls nicht gecacht wird.
    * @return Dataset
    * @author Max Meier (D-III-ITD 5.1)
    *
    */
-  private Dataset getDataset(SearchResult searchResult)
+  private Dataset getDataset(SearchResult searchResult, Map<CacheKey, Attributes> searchAttributes)
   {
+    try
+    {
+      return getPool().execute(ctx -> getDataset(ctx, searchResult, searchAttributes));
+    } catch (NamingException e)
+    {
+      LOGGER.error("Fehler beim Zugriff auf das LDAP-Verzeichnis.", e);
+      return getDataset(null, searchResult, searchAttributes);
+    }
+  }
+
+  /**
+   * vervollständigt SearchResults um Daten aus dem Verzeichnis und gibt ein Dataset zurück
+   *
+   * @param ctx
+   *          die Verbindung zum Verzeichnis. Ist sie null, werden nur die Attribute des
+   *          SearchResults verwendet.
+   * @param searchResult
+   * @param searchAttributes
+   *          die relativen Attribute, die während der aktuellen Suche schon gelesen wurden.
+   * @return Dataset
+   */
+  private Dataset getDataset(DirContext ctx, SearchResult searchResult,
+      Map<CacheKey, Attributes> searchAttributes)
+  {
+    LDAPCache cache = getCache();
     Attributes attributes = searchResult.getAttributes();
 
     Map<String, String> relation = new HashMap<>();
 
     Name pathName = null;
     Name rootName = null;
-    DirContext ctx = null;
 
     try
     {
       String tempPath = searchResult.getNameInNamespace();
       tempPath = preparePath(tempPath);
 
-      ctx = new InitialLdapContext(properties, null);
-      NameParser nameParser = ctx.getNameParser("");
-      pathName = nameParser.parse(tempPath);
-      rootName = nameParser.parse(baseDN); // TOD0: Das ist eine Konstante, nur
-      // einmal berechnen (ausser, dass dies
-      // nur mit funktionierender
-      // Netzanbindung moeglich ist). Testen
-      // mit rausgezogenem Netzkabel
+      if (ctx != null)
+      {
+        NameParser nameParser = ctx.getNameParser("");
+        pathName = nameParser.parse(tempPath);
+        rootName = nameParser.parse(baseDN); // TOD0: Das ist eine Konstante, nur
+        // einmal berechnen (ausser, dass dies
+        // nur mit funktionierender
+        // Netzanbindung moeglich ist). Testen
+        // mit rausgezogenem Netzkabel
+      }
 
     } catch (NamingException e)
     {
       LOGGER.error("Fehler beim Zugriff auf das LDAP-Verzeichnis.", e);
     }
 
+    if (rootName == null)
+    {
+      List<String> skipped = new ArrayList<>();
+      for (Map.Entry<String, ColumnDefinition> columnDefEntry : columnDefinitions.entrySet())
+      {
+        if (columnDefEntry.getValue().relativePath != 0)
+        {
+          skipped.add(columnDefEntry.getKey());
+        }
+      }
+      if (!skipped.isEmpty())
+      {
+        LOGGER.warn("Keine Verbindung zum LDAP-Verzeichnis. Die Spalten {} von \"{}\" bleiben leer.",
+            skipped, searchResult.getNameInNamespace());
+      }
+    }
+
     for (Map.Entry<String, ColumnDefinition> columnDefEntry : columnDefinitions.entrySet())
     {
       ColumnDefinition currentAttribute = columnDefEntry.getValue();
@@ -1214,7 +1436,7 @@ public class LDAPDatasource extends Datasource
           // do nothing (Attributwert nicht vorhanden und bleibt somit 'null')
         }
 
-      } else
+      } else if (rootName != null)
       { // value is stored somewhere else in the directory
 
         Name attributePath = (Name) rootName.clone();
@@ -1233,17 +1455,23 @@ public class LDAPDatasource extends Datasource
             attributePath.addAll(pathName.getPrefix(relativePath - rootName.size()));
           }
 
-          String[] searchAttributes = { attributeName };
+          String[] searchAttribute = { attributeName };
 
           Attributes foundAttributes;
 
-          CacheKey key = new CacheKey(attributePath, searchAttributes);
-          foundAttributes = attributeCache.get(key);
+          CacheKey key = new CacheKey(attributePath, searchAttribute);
+          foundAttributes = cache == null ? searchAttributes.get(key) : cache.getAttributes(key);
 
           if (foundAttributes == null)
           {
-            foundAttributes = ctx.getAttributes(attributePath, searchAttributes);
-            attributeCache.put(key, foundAttributes);
+            foundAttributes = ctx.getAttributes(attributePath, searchAttribute);
+            if (cache != null)
+            {
+              cache.putAttributes(key, foundAttributes);
+            } else
+            {
+              searchAttributes.put(key, foundAttributes);
+            }
           }
 
           Attribute foundAttribute = foundAttributes.get(attributeName);
@@ -1289,12 +1517,11 @@ public class LDAPDatasource extends Datasource
    * @param onlyObjectClass
    *          falls true, werden nur Knoten zurückgeliefert, deren objectClass {@link #objectClass}
    *          entspricht.
-   * @return die Suchergebnisse
+   * @return die Suchergebnisse, nie null.
    * @author Max Meier (D-III-ITD 5.1)
-   * @throws NamingException
    *
    */
-  private NamingEnumeration<SearchResult> searchLDAP(String path, String filter, int searchScope,
+  private List<SearchResult> searchLDAP(String path, String filter, int searchScope,
       boolean onlyObjectClass)
   {
     LOGGER.debug("searchLDAP({}, {}, {}, {})", path, filter, searchScope, onlyObjectClass);
@@ -1305,50 +1532,39 @@ public class LDAPDatasource extends Datasource
 
     searchControls.setTimeLimit((int) Datasource.getDatasourceTimeout());
 
+    String ldapFilter;
     if (onlyObjectClass)
     {
-      filter = "(&(objectClass=" + objectClass + ")" + filter + ")";
+      ldapFilter = "(&(objectClass=" + objectClass + ")" + filter + ")";
     } else
     {
-      filter = "(&(objectClass=" + "*" + ")" + filter + ")"; // TOD0 das
+      ldapFilter = "(&(objectClass=" + "*" + ")" + filter + ")"; // TOD0 das
       // objectClass=* ist
       // doch überflüssig
     }
 
-    Optional<NamingEnumeration<SearchResult>> result = Optional.empty();
-    DirContext ctx = null;
+    List<SearchResult> result = Collections.emptyList();
 
     try
     {
-      ctx = new InitialLdapContext(properties, null);
-      NameParser nameParser = ctx.getNameParser("");
-      Name name = nameParser.parse(path + baseDN);
-
-      LOGGER.trace("ctx.search({}, {}, searchControls) mit Zeitlimit {}", name, filter,
-          searchControls.getTimeLimit());
-      result = Optional.of(ctx.search(name, filter, searchControls));
-      LOGGER.trace("ctx.search() abgeschlossen");
+      result = getPool().execute(ctx -> {
+        NameParser nameParser = ctx.getNameParser("");
+        Name name = nameParser.parse(path + baseDN);
+
+        LOGGER.trace("ctx.search({}, {}, searchControls) mit Zeitlimit {}", name, ldapFilter,
+            searchControls.getTimeLimit());
+        NamingEnumeration<SearchResult> enumer = ctx.search(name, ldapFilter, searchControls);
+        LOGGER.trace("ctx.search() abgeschlossen");
+        return Collections.list(enumer);
+      });
     } catch (NamingException e)
     {
       LOGGER.error("", e);
-    } finally
-    {
-      if (ctx != null)
-      {
-        try
-        {
-          ctx.close();
-        } catch (NamingException e)
-        {
-          LOGGER.error("", e);
-        }
-      }
     }
 
-    result.ifPresent(r -> LOGGER
-        .debug(r.hasMoreElements() ? "Ergebnisse gefunden" : "keine Ergebnisse gefunden"));
+    LOGGER.debug(result.isEmpty() ? "keine Ergebnisse gefunden" : "Ergebnisse gefunden");
 
-    return result.orElse(null);
+    return result;
   }
 
   /**
@@ -1356,75 +1572,217 @@ public class LDAPDatasource extends Datasource
    * diesem Knoten nach Knoten, die auf die Suchanfrage filter passen. Es werden nur Objekte mit
    * objectClass = {@link #objectClass} geliefert.
    *
+   * Die Suchen einer Ebene werden parallel ausgeführt. Für die gesamte Suche gilt
+   * {@link Datasource#getDatasourceTimeout()} als Zeitlimit. Wird es überschritten, werden die bis
+   * dahin gefundenen Ergebnisse geliefert.
+   *
    * @return eine List von {@link SearchResult}s.
    * @author Max Meier (D-III-ITD 5.1)
    *
    */
   private List<SearchResult> searchLDAPLevel(String path, String filter, int level)
   {
+    long deadline = System.currentTimeMillis() + Datasource.getDatasourceTimeout();
     List<String> seeds = new ArrayList<>();
     seeds.add(path);
 
-    String comma;
-
-    for (int n = 0; n < (level - 1); n++)
+    List<SearchResult> result = new ArrayList<>();
+    try
     {
-      List<String> nextSeeds = new ArrayList<>();
-
-      for (String searchPath : seeds)
+      for (int n = 0; n < (level - 1); n++)
       {
-        comma = ",";
-        if (searchPath.isEmpty())
+        List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (String searchPath : seeds)
         {
-          comma = "";
+          tasks.add(() -> {
+            List<String> children = new ArrayList<>();
+            for (SearchResult currentResult : searchLDAP(withComma(searchPath), "",
+                SearchControls.ONELEVEL_SCOPE, false))
+            {
+              children.add(preparePath(currentResult.getNameInNamespace()));
+            }
+            return children;
+          });
         }
+        seeds = new ArrayList<>();
+        invokeAll(tasks, deadline, seeds);
+      }
 
-        NamingEnumeration<SearchResult> enumer = searchLDAP(searchPath + comma, "",
-            SearchControls.ONELEVEL_SCOPE, false);
-
-        while (enumer != null && enumer.hasMoreElements())
+      if (level > 0 && batchLevelSearch)
+      {
+        invokeAll(batchSiblings(seeds, filter), deadline, result);
+      } else
+      {
+        List<Callable<List<SearchResult>>> tasks = new ArrayList<>();
+        for (String currentPath : seeds)
         {
-          SearchResult currentResult = enumer.nextElement();
-          String subPath = preparePath(currentResult.getNameInNamespace());
-          comma = ",";
-          if (subPath.isEmpty())
-          {
-            comma = "";
-          }
-          String currentPath = subPath + comma + searchPath;
-          nextSeeds.add(currentPath);
+          tasks.add(() -> searchChildren(currentPath, filter, level));
         }
+        invokeAll(tasks, deadline, result);
       }
+    } catch (TimeoutException e)
+    {
+      LOGGER.error(L.m("Timeout while searching in LDAP-Directory {0}", datasourceName), e);
+    }
+
+    return result;
+  }
 
-      seeds = nextSeeds;
+  /**
+   * Sucht in den Kindern des Knotens currentPath (bzw. im Knoten selbst, falls level 0 ist) nach
+   * Knoten, die auf filter passen.
+   */
+  private List<SearchResult> searchChildren(String currentPath, String filter, int level)
+  {
+    String comma = currentPath.isEmpty() ? "" : ",";
+    List<SearchResult> result = searchLDAP(currentPath + comma, filter,
+        level == 0 ? SearchControls.OBJECT_SCOPE : SearchControls.ONELEVEL_SCOPE, true);
 
+    for (SearchResult sr : result)
+    {
+      String name = preparePath(sr.getNameInNamespace());
+      String actualPath = name + (name.length() > 0 ? comma : "") + currentPath;
+      sr.setName(actualPath);
     }
+    return result;
+  }
 
-    List<SearchResult> result = new ArrayList<>();
+  /**
+   * Fasst die Suchen in den Kindern von Geschwisterknoten zu einer Suche unterhalb des gemeinsamen
+   * Elternknotens zusammen. Die Geschwister werden über einen ODER-Filter aus Extensible-Match
+   * Bedingungen auf die DN-Attribute ausgewählt (RFC 4515). Ergebnisse, die keine Kinder der
+   * Geschwister sind, werden verworfen.
+   */
+  private List<Callable<List<SearchResult>>> batchSiblings(List<String> seeds, String filter)
+  {
+    Map<LdapName, List<LdapName>> siblings = new LinkedHashMap<>();
+    List<Callable<List<SearchResult>>> tasks = new ArrayList<>();
+    for (String seed : seeds)
+    {
+      try
+      {
+        LdapName seedName = new LdapName(seed);
+        if (seedName.isEmpty())
+        {
+          tasks.add(() -> searchChildren(seed, filter, 1));
+        } else
+        {
+          siblings.computeIfAbsent((LdapName) seedName.getPrefix(seedName.size() - 1),
+              k -> new ArrayList<>()).add(seedName);
+        }
+      } catch (InvalidNameException e)
+      {
+        LOGGER.trace("", e);
+        tasks.add(() -> searchChildren(seed, filter, 1));
+      }
+    }
 
-    for (String currentPath : seeds)
+    for (Map.Entry<LdapName, List<LdapName>> entry : siblings.entrySet())
     {
-      comma = ",";
-      if (currentPath.isEmpty())
+      List<LdapName> children = entry.getValue();
+      if (children.size() == 1)
       {
-        comma = "";
+        String seed = children.get(0).toString();
+        tasks.add(() -> searchChildren(seed, filter, 1));
+        continue;
       }
 
-      NamingEnumeration<SearchResult> enumer = searchLDAP(currentPath + comma, filter,
-          level == 0 ? SearchControls.OBJECT_SCOPE : SearchControls.ONELEVEL_SCOPE, true);
+      StringBuilder siblingFilter = new StringBuilder("(|");
+      for (LdapName child : children)
+      {
+        Rdn rdn = child.getRdn(child.size() - 1);
+        siblingFilter.append('(').append(ldapEscape(rdn.getType())).append(":dn:=")
+            .append(ldapEscape(rdn.getValue().toString()).replace("*", "\\2a")).append(')');
+      }
+      siblingFilter.append(')');
+
+      String parent = entry.getKey().toString();
+      String batchFilter = filter + siblingFilter;
+      tasks.add(() -> {
+        List<SearchResult> result = new ArrayList<>();
+        for (SearchResult sr : searchLDAP(withComma(parent), batchFilter,
+            SearchControls.SUBTREE_SCOPE, true))
+        {
+          String name = preparePath(sr.getNameInNamespace());
+          LdapName resultName = new LdapName(name);
+          if (resultName.size() > 1
+              && children.contains(resultName.getPrefix(resultName.size() - 1)))
+          {
+            sr.setName(name);
+            result.add(sr);
+          }
+        }
+        return result;
+      });
+    }
+    return tasks;
+  }
 
-      while (enumer != null && enumer.hasMoreElements())
+  private static String withComma(String path)
+  {
+    return path.isEmpty() ? path : path + ",";
+  }
+
+  /**
+   * Führt alle Aufgaben parallel aus und fügt ihre Ergebnisse in der Reihenfolge der Aufgaben zu
+   * results hinzu. Schlägt eine Aufgabe fehl, wird der Fehler geloggt und die Ergebnisse der
+   * übrigen Aufgaben werden trotzdem hinzugefügt.
+   *
+   * @throws TimeoutException
+   *           falls nicht alle Aufgaben bis deadline abgeschlossen sind. results enthält dann die
+   *           Ergebnisse der bis dahin abgeschlossenen Aufgaben.
+   */
+  private static <T> void invokeAll(List<Callable<List<T>>> tasks, long deadline, List<T> results)
+      throws TimeoutException
+  {
+    if (tasks.size() == 1)
+    {
+      try
       {
-        SearchResult sr = enumer.nextElement();
-        String name = preparePath(sr.getNameInNamespace());
-        String actualPath = name + (name.length() > 0 ? comma : "") + currentPath;
-        sr.setName(actualPath);
-        result.add(sr);
+        results.addAll(tasks.get(0).call());
+      } catch (Exception e)
+      {
+        LOGGER.error("", e);
       }
+      return;
+    }
 
+    List<Future<List<T>>> futures = new ArrayList<>(tasks.size());
+    boolean timedOut = false;
+    try
+    {
+      for (Callable<List<T>> task : tasks)
+      {
+        futures.add(LEVEL_SEARCH_EXECUTOR.submit(task));
+      }
+      for (Future<List<T>> future : futures)
+      {
+        // nach Ablauf der Frist werden nur noch die Ergebnisse fertiger Aufgaben übernommen
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        try
+        {
+          results.addAll(future.get(remaining, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e)
+        {
+          timedOut = true;
+        } catch (ExecutionException e)
+        {
+          LOGGER.error("", e.getCause());
+        }
+      }
+    } catch (InterruptedException e)
+    {
+      LOGGER.debug("LDAP-Suche unterbrochen", e);
+      Thread.currentThread().interrupt();
+    } finally
+    {
+      futures.forEach(f -> f.cancel(true));
     }
 
-    return result;
+    if (timedOut)
+    {
+      throw new TimeoutException();
+    }
   }
 
   /**
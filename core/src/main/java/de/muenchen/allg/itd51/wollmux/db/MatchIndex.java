@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the datasets of a partner datasource, which match the datasets of a result set by the
+ * MATCH columns of {@link OverlayDatasource} or {@link AttachDatasource}.
+ *
+ * The partners of all datasets are fetched with a single {@link Datasource#findAny(java.util.Collection)}
+ * call and are grouped by the values of their match columns (ignoring case). Datasets, whose match
+ * values are empty or contain wildcards, can't be looked up in the index. Their partners are
+ * searched with {@link Datasource#find(java.util.List)} as before.
+ */
+class MatchIndex
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(MatchIndex.class);
+
+  private final String[] columns;
+
+  private final String[] partnerColumns;
+
+  private final Datasource partner;
+
+  private final Map<List<String>, List<Dataset>> index = new HashMap<>();
+
+  /**
+   * Fetch the partners of datasets.
+   *
+   * @param datasets
+   *          The datasets to join.
+   * @param columns
+   *          The match columns of the datasets.
+   * @param partner
+   *          The datasource of the partners.
+   * @param partnerColumns
+   *          The match columns of the partners, in the same order as columns.
+   */
+  MatchIndex(Iterable<Dataset> datasets, String[] columns, Datasource partner,
+      String[] partnerColumns)
+  {
+    this.columns = columns;
+    this.partnerColumns = partnerColumns;
+    this.partner = partner;
+
+    Map<List<String>, List<QueryPart>> queries = new LinkedHashMap<>();
+    for (Dataset ds : datasets)
+    {
+      List<String> values = values(ds, columns);
+      if (values != null)
+      {
+        queries.computeIfAbsent(values, v -> query(ds));
+      }
+    }
+    if (queries.isEmpty())
+    {
+      return;
+    }
+
+    for (Dataset ds : partner.findAny(queries.values()))
+    {
+      List<String> values = values(ds, partnerColumns);
+      if (values != null)
+      {
+        index.computeIfAbsent(normalize(values), v -> new ArrayList<>(1)).add(ds);
+      }
+    }
+  }
+
+  /**
+   * The partners of a dataset.
+   *
+   * @param ds
+   *          The dataset.
+   * @return The datasets of the partner datasource, whose match columns have the same values as
+   *         the match columns of ds.
+   */
+  Iterable<Dataset> get(Dataset ds)
+  {
+    List<String> values = values(ds, columns);
+    if (values == null)
+    {
+      return partner.find(query(ds));
+    }
+    return index.getOrDefault(normalize(values), Collections.emptyList());
+  }
+
+  private List<QueryPart> query(Dataset ds)
+  {
+    List<QueryPart> query = new ArrayList<>(columns.length);
+    for (int i = 0; i < columns.length; ++i)
+    {
+      try
+      {
+        query.add(new QueryPart(partnerColumns[i], ds.get(columns[i])));
+      } catch (ColumnNotFoundException x)
+      {
+        LOGGER.error("", x);
+      }
+    }
+    return query;
+  }
+
+  /**
+   * The values of the columns or null, if a value can't be compared literally.
+   */
+  private static List<String> values(Dataset ds, String[] columns)
+  {
+    List<String> values = new ArrayList<>(columns.length);
+    for (String column : columns)
+    {
+      String value;
+      try
+      {
+        value = ds.get(column);
+      } catch (ColumnNotFoundException x)
+      {
+        return null;
+      }
+      if (value == null || value.isEmpty() || value.indexOf('*') >= 0)
+      {
+        return null;
+      }
+      values.add(value);
+    }
+    return values;
+  }
+
+  private static List<String> normalize(List<String> values)
+  {
+    List<String> normalized = new ArrayList<>(values.size());
+    for (String value : values)
+    {
+      normalized.add(value.toLowerCase());
+    }
+    return normalized;
+  }
+}
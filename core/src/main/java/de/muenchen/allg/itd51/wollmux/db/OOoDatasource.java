@@ -25,33 +25,38 @@ package de.muenchen.allg.itd51.wollmux.db;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sun.star.sdb.CommandType;
 import com.sun.star.sdb.XColumn;
+import com.sun.star.lang.DisposedException;
 import com.sun.star.sdbc.SQLException;
+import com.sun.star.sdbc.XCloseable;
 import com.sun.star.sdbc.XColumnLocate;
 import com.sun.star.sdbc.XConnection;
 import com.sun.star.sdbc.XDataSource;
+import com.sun.star.sdbc.XParameters;
+import com.sun.star.sdbc.XPreparedStatement;
 import com.sun.star.sdbc.XResultSet;
 import com.sun.star.sdbc.XRow;
-import com.sun.star.sdbc.XRowSet;
 import com.sun.star.sdbcx.XColumnsSupplier;
 import com.sun.star.sdbcx.XKeysSupplier;
+import com.sun.star.uno.UnoRuntime;
 
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.common.UnoDictionary;
 import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
 import de.muenchen.allg.itd51.wollmux.config.ConfigurationErrorException;
 import de.muenchen.allg.itd51.wollmux.util.L;
-import org.libreoffice.ext.unohelper.util.UnoComponent;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
 
 /**
@@ -68,6 +73,28 @@ public class OOoDatasource extends Datasource
    */
   private static final int LOGIN_TIMEOUT = 5;
 
+  /**
+   * Maximale Anzahl an Anfragen, die {@link #findAny(Collection)} in einem SQL-Statement
+   * zusammenfasst. Manche Datenbanken begrenzen die Länge von Statements.
+   */
+  private static final int MAX_QUERIES_PER_STATEMENT = 100;
+
+  /**
+   * Maximale Anzahl an vorbereiteten Statements, die für die Verbindung vorgehalten werden.
+   */
+  static final int MAX_CACHED_STATEMENTS = 32;
+
+  /**
+   * SQLState-Klasse für Fehler der Verbindung zur Datenbank.
+   */
+  private static final String SQL_STATE_CONNECTION_EXCEPTION = "08";
+
+  /**
+   * Property eines Statements mit der Anzahl der Zeilen, die auf einmal von der Datenbank geholt
+   * werden.
+   */
+  private static final String FETCH_SIZE = "FetchSize";
+
   /**
    * Konstante für {@link #sqlSyntax}, die angibt, dass SQL Queries in Oracle-Syntax
    * abgesetzt werden sollen.
@@ -109,12 +136,13 @@ public class OOoDatasource extends Datasource
    *
    * o**** Datensätze zu vorgegebener Schlüsselliste finden *********
    *
-   * SELECT * FROM "<id>" WHERE ("<colId>"='<colVal>' AND "<colId>"='<colVal>' AND ...) OR (...) OR
-   * ...;
+   * SELECT * FROM "<id>" WHERE ("<colId>"=? AND "<colId>"=? AND ...) OR (...) OR ...;
    *
-   * In <id> und <colId> sind Doublequotes durch <doublequote symbol> ersetzt.
+   * SELECT * FROM "<id>" WHERE "<colId>" IN (?, ?, ...); falls der Schlüssel aus einer Spalte
+   * besteht.
    *
-   * In <colVal> sind Quotes durch <quote symbol> ersetzt.
+   * In <id> und <colId> sind Doublequotes durch <doublequote symbol> ersetzt. Die Werte werden als
+   * Parameter übergeben.
    *
    * o ***** Datensätze finden, die bestimmte Kriterien erfüllen ********
    *
@@ -123,7 +151,7 @@ public class OOoDatasource extends Datasource
    * das ESCAPE-Zeichen selbst müssen im String-Ausdruck hinter LIKE escapet werden (durch
    * Voranstellen des Escape-Zeichens). Andere Zeichen dürfen nicht escapet werden.
    *
-   * SELECT * FROM "<id>" WHERE (lower("<colId>") LIKE lower('<pattern>') ESCAPE '|') AND (...) AND
+   * SELECT * FROM "<id>" WHERE (lower("<colId>") LIKE lower(?) ESCAPE '|') AND (...) AND
    * ...; In <id> und <colId> sind Doublequotes durch <doublequote symbol> ersetzt. In <pattern>
    * sind "_", "%" und "|" ersetzt durch "|_", "|%" und "||".
    *****
@@ -131,6 +159,11 @@ public class OOoDatasource extends Datasource
    *
    * SELECT * FROM "<id>"; In <id> sind Doublequotes durch <doublequote symbol> ersetzt.
    ****
+   * o ***** Seitenweise lesen (PAGE_SIZE) ********
+   *
+   * <query> ORDER BY "<keyColId>", ... OFFSET ? ROWS FETCH NEXT ? ROWS ONLY; Bei MySQL <query>
+   * ORDER BY "<keyColId>", ... LIMIT ? OFFSET ?; PervasiveSQL liest nicht seitenweise.
+   ****
    * Oracle ***** Wie ANSI MySQL ******* Wie ANSI, aber mit lcase() statt lower() PervasiveSQL
    * ******* Wie ANSI, aber rechts vom LIKE dürfen nur einfache Konstanten (also kein lower oder
    * lcase) stehen. Außerdem wird "DATENBANK.TABELLE" nicht unterstützt. Nur "DATENBANK"."TABELLE",
@@ -176,6 +209,38 @@ public class OOoDatasource extends Datasource
   @SuppressWarnings("squid:S2068")
   private String password = "";
 
+  /**
+   * Anzahl der Zeilen, die pro Seite von der Datenbank gelesen werden, oder 0, falls alle Zeilen
+   * mit einer Anfrage gelesen werden.
+   */
+  private int pageSize = 0;
+
+  /**
+   * Die Verbindung zur Datenbank, die von allen Anfragen genutzt wird, oder null, falls noch keine
+   * Verbindung besteht. Zugriff nur mit dem Lock auf {@link #statements}.
+   */
+  private XConnection connection;
+
+  /**
+   * Die vorbereiteten Statements der Verbindung zu ihrem SQL-Text. Während die Resultate eines
+   * Statements gelesen werden, ist es nicht im Cache.
+   */
+  private final Map<String, XPreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, XPreparedStatement> eldest)
+    {
+      if (size() > MAX_CACHED_STATEMENTS)
+      {
+        OOoDatasource.close(eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  };
+
   /**
    * Wie {@link #OOoDatasource(Map, ConfigThingy, boolean)}, wobei noKey==false übergeben wird.
    */
@@ -221,6 +286,15 @@ public class OOoDatasource extends Datasource
     userName = sourceDesc.getString("USER", "");
     password = sourceDesc.getString("PASSWORD", "");
 
+    try
+    {
+      pageSize = Integer.parseInt(sourceDesc.getString("PAGE_SIZE", "0"));
+    } catch (NumberFormatException e)
+    {
+      throw new ConfigurationErrorException(L.m(
+          "Data source \"{0}\": PAGE_SIZE has to be an integer number", datasourceName), e);
+    }
+
     String sqlSyntaxStr = sourceDesc.getString("SQL_SYNTAX", "");
 
     sqlSyntaxStr = sqlSyntaxStr == null || sqlSyntaxStr.isEmpty() ? "mysql" : sqlSyntaxStr;
@@ -278,6 +352,7 @@ public class OOoDatasource extends Datasource
           UNO.XDataSource(UNO.dbContext.getRegisteredObject(oooDatasourceName));
         ds.setLoginTimeout(LOGIN_TIMEOUT);
         XConnection conn = ds.getConnection(userName, password);
+        connection = conn;
 
         /*
          * Laut IDL-Doku zu "View" müssen hier auch die Views enthalten sein.
@@ -405,39 +480,94 @@ public class OOoDatasource extends Datasource
   @Override
   public QueryResults getDatasetsByKey(Collection<String> keys)
   {
-    if (keys.isEmpty()) {
-      return new QueryResultsList(new ArrayList<Dataset>(0));
-    }
-
-    StringBuilder buffy =
-        new StringBuilder(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName) + " WHERE ");
-
-    Iterator<String> iter = keys.iterator();
-    boolean first = true;
-    while (iter.hasNext())
+    /*
+     * Die Schlüssel werden nach ihren Schlüsselspalten gruppiert. Besteht der Schlüssel aus einer
+     * Spalte, werden die Werte in einer IN-Liste abgefragt, sonst werden die Bedingungen der
+     * einzelnen Schlüssel mit OR verknüpft.
+     */
+    Map<List<String>, List<List<String>>> columnsToValues = new LinkedHashMap<>();
+    for (String key : keys)
     {
-      if (!first) {
-        buffy.append(" OR ");
-      }
-      first = false;
-      String key = iter.next();
       String[] parts = key.split("#", -1);
-      buffy.append('(');
+      List<String> columns = new ArrayList<>();
+      List<String> values = new ArrayList<>();
       for (int i = 1; i < parts.length; i += 2)
       {
-        if (i > 1) {
-          buffy.append(" AND ");
+        columns.add(decode(parts[i - 1]));
+        values.add(decode(parts[i]));
+      }
+      if (!columns.isEmpty())
+      {
+        columnsToValues.computeIfAbsent(columns, c -> new ArrayList<>()).add(values);
+      }
+    }
+
+    List<Dataset> datasets = new ArrayList<>();
+    for (Map.Entry<List<String>, List<List<String>>> entry : columnsToValues.entrySet())
+    {
+      List<String> columns = entry.getKey();
+      List<List<String>> values = entry.getValue();
+      for (int start = 0; start < values.size(); start += MAX_QUERIES_PER_STATEMENT)
+      {
+        List<List<String>> batch = padBatch(
+            values.subList(start, Math.min(start + MAX_QUERIES_PER_STATEMENT, values.size())));
+        StringBuilder buffy =
+            new StringBuilder(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName) + " WHERE ");
+        List<Object> params = new ArrayList<>();
+        if (columns.size() == 1)
+        {
+          buffy.append(sqlIdentifier(columns.get(0)));
+          buffy.append(" IN (");
+          for (int i = 0; i < batch.size(); ++i)
+          {
+            buffy.append(i == 0 ? "?" : ", ?");
+            params.add(batch.get(i).get(0));
+          }
+          buffy.append(')');
+        } else
+        {
+          for (int i = 0; i < batch.size(); ++i)
+          {
+            if (i > 0) {
+              buffy.append(" OR ");
+            }
+            buffy.append('(');
+            for (int j = 0; j < columns.size(); ++j)
+            {
+              if (j > 0) {
+                buffy.append(" AND ");
+              }
+              buffy.append(sqlIdentifier(columns.get(j)));
+              buffy.append("=?");
+              params.add(batch.get(i).get(j));
+            }
+            buffy.append(')');
+          }
         }
-        buffy.append(sqlIdentifier(decode(parts[i - 1])));
-        buffy.append('=');
-        buffy.append(sqlLiteral(decode(parts[i])));
+        sqlQuery(buffy.toString(), params).forEach(datasets::add);
       }
-      buffy.append(')');
     }
 
-    buffy.append(';');
+    return new QueryResultsList(datasets);
+  }
 
-    return sqlQuery(buffy.toString());
+  /**
+   * Füllt batch durch Wiederholen des letzten Elements auf die nächste Zweierpotenz auf, damit
+   * nur wenige verschiedene Statements vorbereitet werden müssen.
+   */
+  private static <T> List<T> padBatch(List<T> batch)
+  {
+    int size = Integer.highestOneBit(batch.size());
+    if (size == batch.size())
+    {
+      return batch;
+    }
+    List<T> padded = new ArrayList<>(batch);
+    while (padded.size() < 2 * size)
+    {
+      padded.add(batch.get(batch.size() - 1));
+    }
+    return padded;
   }
 
   @Override
@@ -447,9 +577,92 @@ public class OOoDatasource extends Datasource
       return new QueryResultsList(new Vector<Dataset>(0));
     }
 
+    List<Object> params = new ArrayList<>();
+    return sqlQuery(findStatement(query, params), params);
+  }
+
+  /**
+   * Liefert die Ergebnisse der Suche nach query, während über den {@link DatasetCursor} iteriert
+   * wird. Das Statement bleibt bis zum Schließen des Cursors in Benutzung.
+   */
+  @Override
+  public DatasetCursor findCursor(List<QueryPart> query)
+  {
+    if (query.isEmpty()) {
+      return DatasetCursor.of(null);
+    }
+
+    List<Object> params = new ArrayList<>();
+    return sqlCursor(findStatement(query, params), params);
+  }
+
+  /**
+   * Fasst jeweils bis zu {@link #MAX_QUERIES_PER_STATEMENT} Anfragen zu einem SQL-Statement
+   * zusammen, dessen WHERE-Klausel die Bedingungen der einzelnen Anfragen mit OR verknüpft.
+   */
+  @Override
+  public QueryResults findAny(Collection<List<QueryPart>> queries)
+  {
+    List<Dataset> datasets = new ArrayList<>();
+    Set<String> keysOfPreviousStatements = new HashSet<>();
+    List<List<QueryPart>> batch = new ArrayList<>(MAX_QUERIES_PER_STATEMENT);
+    Iterator<List<QueryPart>> iter = queries.iterator();
+    while (iter.hasNext())
+    {
+      List<QueryPart> query = iter.next();
+      if (!query.isEmpty())
+      {
+        batch.add(query);
+      }
+      if (batch.size() == MAX_QUERIES_PER_STATEMENT || (!iter.hasNext() && !batch.isEmpty()))
+      {
+        StringBuilder buffy =
+            new StringBuilder(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName) + " WHERE ");
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < batch.size(); ++i)
+        {
+          if (i > 0) {
+            buffy.append(" OR ");
+          }
+          buffy.append('(');
+          appendCondition(buffy, params, batch.get(i));
+          buffy.append(')');
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (Dataset ds : sqlQuery(buffy.toString(), params))
+        {
+          keys.add(ds.getKey());
+          if (!keysOfPreviousStatements.contains(ds.getKey()))
+          {
+            datasets.add(ds);
+          }
+        }
+        keysOfPreviousStatements.addAll(keys);
+        batch.clear();
+      }
+    }
+    return new QueryResultsList(datasets);
+  }
+
+  /**
+   * Liefert das SQL-Statement für die Suche nach query. Die Werte der Parameter werden an params
+   * angehängt.
+   */
+  private String findStatement(List<QueryPart> query, List<Object> params)
+  {
     StringBuilder buffy =
         new StringBuilder(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName) + " WHERE ");
+    appendCondition(buffy, params, query);
+    return buffy.toString();
+  }
 
+  /**
+   * Hängt die Bedingung für die Suche nach query an buffy und die Werte ihrer Parameter an params
+   * an.
+   */
+  private void appendCondition(StringBuilder buffy, List<Object> params, List<QueryPart> query)
+  {
     Iterator<QueryPart> iter = query.iterator();
     boolean first = true;
     while (iter.hasNext())
@@ -473,122 +686,426 @@ public class OOoDatasource extends Datasource
           // Die Inhalte der zu durchsuchenden Spalte können wiederum mit lcase/lower
           // behandelt werden. Somit ist sichergestellt, dass der durchsuchende und der zu
           // suchende String nur Kleinbuchstaben enthält.
-          buffy.append(sqlLiteral(sqlSearchPattern(part.getSearchString())).toLowerCase());
+          buffy.append('?');
+          params.add(sqlSearchPattern(part.getSearchString()).toLowerCase());
       } else {
         buffy.append(sqlLower());
-        buffy.append('(');
-        buffy.append(sqlLiteral(sqlSearchPattern(part.getSearchString())));
-        buffy.append(") ESCAPE '|'");
+        buffy.append("(?) ESCAPE '|'");
+        params.add(sqlSearchPattern(part.getSearchString()));
       }
 
       buffy.append(')');
     }
-
-    buffy.append(';');
-    return sqlQuery(buffy.toString());
   }
 
   @Override
   public QueryResults getContents()
   {
-    return sqlQuery(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName) + ";");
+    return sqlQuery(SQL_SELECT_COMMAND + sqlIdentifier(oooTableName), List.of());
   }
 
   /**
-   * Setzt die SQL-Anfrage query an die Datenbank ab und liefert die Resultate.
+   * Setzt die SQL-Anfrage query mit den Parametern params an die Datenbank ab und liefert die
+   * Resultate.
    */
-  private QueryResults sqlQuery(String query)
+  private QueryResults sqlQuery(String query, List<Object> params)
   {
-    LOGGER.debug("sqlQuery(\"{}\")", query);
+    List<Dataset> datasets = new ArrayList<>();
+    try (DatasetCursor cursor = sqlCursor(query, params))
+    {
+      cursor.forEachRemaining(datasets::add);
+    }
+    return new QueryResultsList(datasets);
+  }
 
-    List<OOoDataset> datasets = new ArrayList<>();
+  /**
+   * Setzt die SQL-Anfrage query mit den Parametern params an die Datenbank ab. Die Resultate
+   * werden erst beim Iterieren über den Cursor gelesen. Ist {@link #pageSize} gesetzt, wird die
+   * Anfrage seitenweise ausgeführt.
+   */
+  private DatasetCursor sqlCursor(String query, List<Object> params)
+  {
+    if (pageSize > 0 && sqlSyntax != SQL_SYNTAX_PERVASIVESQL && keyColumns != null
+        && keyColumns.length > 0)
+    {
+      PageIterator pages = new PageIterator(query, params);
+      return DatasetCursor.of(pages, pages::close);
+    }
 
-    XRowSet results = null;
-    XConnection conn = null;
-    try
+    OpenStatement statement = execute(query + ";", params);
+    if (statement == null)
     {
+      return DatasetCursor.of(null);
+    }
+    return DatasetCursor.of(new RowIterator(statement.results, getColumnMapping(statement.results)),
+        statement::close);
+  }
 
+  /**
+   * Führt das SQL-Statement query mit den Parametern params aus. Geht dabei die Verbindung zur
+   * Datenbank verloren, wird sie neu aufgebaut und das Statement noch einmal ausgeführt.
+   *
+   * @return Das ausgeführte Statement oder null, falls ein Fehler aufgetreten ist.
+   */
+  private OpenStatement execute(String query, List<Object> params)
+  {
+    LOGGER.debug("sqlQuery(\"{}\", {})", query, params);
+
+    for (int attempt = 0;; ++attempt)
+    {
+      XConnection conn = null;
+      XPreparedStatement statement = null;
       try
       {
-        XDataSource ds =
-          UNO.XDataSource(UNO.dbContext.getRegisteredObject(oooDatasourceName));
+        synchronized (statements)
+        {
+          conn = getConnection();
+          statement = statements.remove(query);
+        }
+        if (statement == null)
+        {
+          statement = conn.prepareStatement(query);
+          /*
+           * EscapeProcessing == false bedeutet, dass OOo die Query nicht selbst anfassen darf,
+           * sondern direkt an die Datenbank weiterleiten soll. Entspricht dem Button SQL mit
+           * grünem Haken (SQL-Kommando direkt ausführen) im Base-Abfrageentwurf.
+           */
+          UnoProperty.setProperty(statement, UnoProperty.ESCAPE_PROCESSING, Boolean.FALSE);
+          if (pageSize > 0)
+          {
+            UnoProperty.setProperty(statement, FETCH_SIZE, Integer.valueOf(pageSize));
+          }
+        }
 
-        ds.setLoginTimeout((int) Datasource.getDatasourceTimeout());
-        conn = ds.getConnection(userName, password);
+        XParameters parameters = UnoRuntime.queryInterface(XParameters.class, statement);
+        parameters.clearParameters();
+        for (int i = 0; i < params.size(); ++i)
+        {
+          Object param = params.get(i);
+          if (param instanceof Integer)
+          {
+            parameters.setInt(i + 1, ((Integer) param).intValue());
+          } else
+          {
+            parameters.setString(i + 1, (String) param);
+          }
+        }
+        return new OpenStatement(query, conn, statement, statement.executeQuery());
       }
-      catch (SQLException x)
+      catch (Exception x)
       {
-        LOGGER.error("Kann keine Verbindung zur Datenquelle herstellen", x);
+        close(statement);
+        if (attempt == 0 && isConnectionLost(conn, x))
+        {
+          LOGGER.debug("Verbindung zur Datenquelle {} verloren", oooDatasourceName, x);
+          resetConnection(conn);
+        } else
+        {
+          LOGGER.error("Fehler beim Absetzen der Anfrage", x);
+          return null;
+        }
       }
+    }
+  }
 
-      results = UNO.XRowSet(UnoComponent.createComponentWithContext(UnoComponent.CSS_SDB_ROW_SET));
+  /**
+   * Liefert die Verbindung zur Datenbank. Besteht noch keine Verbindung, wird sie aufgebaut. Muss
+   * mit dem Lock auf {@link #statements} aufgerufen werden.
+   */
+  private XConnection getConnection() throws com.sun.star.uno.Exception
+  {
+    if (connection == null)
+    {
+      connection = connect();
+    }
+    return connection;
+  }
 
-      if (results == null)
-        throw new NullPointerException(L.m("Could not create RowSet"));
+  /**
+   * Baut eine neue Verbindung zur OpenOffice-Datenquelle auf.
+   */
+  XConnection connect() throws com.sun.star.uno.Exception
+  {
+    XDataSource ds = UNO.XDataSource(UNO.dbContext.getRegisteredObject(oooDatasourceName));
+    ds.setLoginTimeout((int) Datasource.getDatasourceTimeout());
+    return ds.getConnection(userName, password);
+  }
 
-      UnoProperty.setProperty(results, UnoProperty.ACTIVE_CONNECTION, conn);
+  /**
+   * Prüft, ob der Fehler x durch eine abgebrochene Verbindung conn verursacht wurde.
+   */
+  private static boolean isConnectionLost(XConnection conn, Exception x)
+  {
+    if (conn == null)
+    {
+      return false;
+    }
+    if (x instanceof DisposedException || (x instanceof SQLException
+        && ((SQLException) x).SQLState != null
+        && ((SQLException) x).SQLState.startsWith(SQL_STATE_CONNECTION_EXCEPTION)))
+    {
+      return true;
+    }
+    try
+    {
+      return conn.isClosed();
+    }
+    catch (Exception e)
+    {
+      LOGGER.trace("", e);
+      return true;
+    }
+  }
 
-      /*
-       * EscapeProcessing == false bedeutet, dass OOo die Query nicht selbst anfassen
-       * darf, sondern direkt an die Datenbank weiterleiten soll. Wird dies verwendet
-       * ist das Ergebnis (derzeit) immer read-only, da OOo keine Updates von
-       * Statements durchführen kann, die es nicht geparst hat. Siehe Kommentar zu
-       * http://qa.openoffice.org/issues/show_bug.cgi?id=78522 Entspricht dem Button
-       * SQL mit grünem Haken (SQL-Kommando direkt ausführen) im Base-Abfrageentwurf.
-       */
-      UnoProperty.setProperty(results, UnoProperty.ESCAPE_PROCESSING, Boolean.FALSE);
+  /**
+   * Schließt die Verbindung conn und alle vorbereiteten Statements, falls conn die aktuelle
+   * Verbindung ist. Die nächste Anfrage baut eine neue Verbindung auf.
+   */
+  private void resetConnection(XConnection conn)
+  {
+    synchronized (statements)
+    {
+      if (conn != connection)
+      {
+        return;
+      }
+      statements.values().forEach(OOoDatasource::close);
+      statements.clear();
+      connection = null;
+    }
+    try
+    {
+      conn.close();
+    }
+    catch (Exception e)
+    {
+      LOGGER.trace("", e);
+    }
+  }
 
-      UnoProperty.setProperty(results, UnoProperty.COMMAND_TYPE, CommandType.COMMAND);
-      UnoProperty.setProperty(results, UnoProperty.COMMAND, query);
+  /**
+   * Schließt ein Statement oder ein Resultat.
+   */
+  private static void close(Object closeable)
+  {
+    XCloseable c = UnoRuntime.queryInterface(XCloseable.class, closeable);
+    if (c != null) {
+      try
+      {
+        c.close();
+      }
+      catch (Exception e)
+      {
+        LOGGER.trace("", e);
+      }
+    }
+  }
 
-      results.execute();
+  /**
+   * Ein ausgeführtes Statement, dessen Resultate gelesen werden. Beim Schließen wird das
+   * Statement wieder in den Cache gelegt.
+   */
+  private class OpenStatement
+  {
+    private final String query;
+
+    private final XConnection conn;
+
+    private final XPreparedStatement statement;
 
-      Map<String, Integer> mapColumnNameToIndex = getColumnMapping(results);
-      XRow row = UNO.XRow(results);
+    private final XResultSet results;
 
-      while (results.next())
+    public OpenStatement(String query, XConnection conn, XPreparedStatement statement,
+        XResultSet results)
+    {
+      this.query = query;
+      this.conn = conn;
+      this.statement = statement;
+      this.results = results;
+    }
+
+    public void close()
+    {
+      OOoDatasource.close(results);
+      synchronized (statements)
       {
-        Map<String, String> data = new HashMap<>();
-        Iterator<Map.Entry<String, Integer>> iter =
-          mapColumnNameToIndex.entrySet().iterator();
-        while (iter.hasNext())
+        if (conn == connection && !statements.containsKey(query))
         {
-          Map.Entry<String, Integer> entry = iter.next();
-          String column = entry.getKey();
-          int idx = entry.getValue().intValue();
-          String value = null;
-          if (idx > 0) {
-            value = row.getString(idx);
-          }
-          data.put(column, value);
+          statements.put(query, statement);
+          return;
         }
-        datasets.add(new OOoDataset(data));
       }
-
+      OOoDatasource.close(statement);
     }
-    catch (Exception x)
+  }
+
+  /**
+   * Führt eine Anfrage seitenweise aus. Die nächste Seite wird erst abgefragt, wenn alle Zeilen
+   * der aktuellen Seite gelesen wurden. Damit die Seiten eindeutig sind, werden die Zeilen nach
+   * den Schlüsselspalten sortiert.
+   */
+  private class PageIterator implements Iterator<Dataset>
+  {
+    private final String query;
+
+    private final List<Object> params;
+
+    private OpenStatement page;
+
+    private RowIterator rows;
+
+    private int offset = 0;
+
+    private int rowsOfPage = 0;
+
+    public PageIterator(String query, List<Object> params)
     {
-      LOGGER.error("Fehler beim Absetzen der Anfrage", x);
+      StringBuilder buffy = new StringBuilder(query);
+      buffy.append(" ORDER BY ");
+      for (int i = 0; i < keyColumns.length; ++i)
+      {
+        if (i > 0) {
+          buffy.append(", ");
+        }
+        buffy.append(sqlIdentifier(keyColumns[i]));
+      }
+      if (SQL_SYNTAX_MYSQL == sqlSyntax)
+      {
+        buffy.append(" LIMIT ? OFFSET ?");
+      } else
+      {
+        buffy.append(" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+      }
+      buffy.append(';');
+      this.query = buffy.toString();
+      this.params = params;
     }
-    finally
+
+    @Override
+    public boolean hasNext()
     {
-      if (results != null) {
-        UNO.XComponent(results).dispose();
-      }
-      if (conn != null) {
-        try
+      while (rows == null || !rows.hasNext())
+      {
+        if (rows != null && rowsOfPage < pageSize)
         {
-          conn.close();
+          return false;
         }
-        catch (Exception e)
+        close();
+        List<Object> pageParams = new ArrayList<>(params);
+        if (SQL_SYNTAX_MYSQL == sqlSyntax)
         {
-          LOGGER.trace("", e);
+          pageParams.add(Integer.valueOf(pageSize));
+          pageParams.add(Integer.valueOf(offset));
+        } else
+        {
+          pageParams.add(Integer.valueOf(offset));
+          pageParams.add(Integer.valueOf(pageSize));
+        }
+        page = execute(query, pageParams);
+        if (page == null)
+        {
+          return false;
         }
+        rows = new RowIterator(page.results, getColumnMapping(page.results));
+        offset += pageSize;
+        rowsOfPage = 0;
       }
+      return true;
     }
 
-    return new QueryResultsList(datasets);
+    @Override
+    public Dataset next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      ++rowsOfPage;
+      return rows.next();
+    }
+
+    public void close()
+    {
+      if (page != null)
+      {
+        page.close();
+        page = null;
+      }
+    }
+  }
+
+  /**
+   * Liest die Zeilen eines Resultats erst, wenn sie benötigt werden.
+   */
+  private class RowIterator implements Iterator<Dataset>
+  {
+    private final XResultSet results;
+
+    private final XRow row;
+
+    private final Map<String, Integer> mapColumnNameToIndex;
+
+    private OOoDataset next;
+
+    private boolean done = false;
+
+    public RowIterator(XResultSet results, Map<String, Integer> mapColumnNameToIndex)
+    {
+      this.results = results;
+      this.row = UNO.XRow(results);
+      this.mapColumnNameToIndex = mapColumnNameToIndex;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      if (next == null && !done)
+      {
+        next = fetch();
+        done = next == null;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Dataset next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      Dataset ds = next;
+      next = null;
+      return ds;
+    }
 
+    private OOoDataset fetch()
+    {
+      try
+      {
+        if (!results.next())
+        {
+          return null;
+        }
+        Map<String, String> data = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : mapColumnNameToIndex.entrySet())
+        {
+          String column = entry.getKey();
+          int idx = entry.getValue().intValue();
+          String value = null;
+          if (idx > 0) {
+            value = row.getString(idx);
+          }
+          data.put(column, value);
+        }
+        return new OOoDataset(data);
+      }
+      catch (Exception x)
+      {
+        LOGGER.error("Fehler beim Absetzen der Anfrage", x);
+        return null;
+      }
+    }
   }
 
   /**
@@ -631,18 +1148,6 @@ public class OOoDatasource extends Datasource
     }
   }
 
-  /**
-   * Liefert str zurück, als String-Literal vorbereitet für das Einfügen in
-   * SQL-Statements.
-   *
-   * @param str
-   *          beginnt und endet immer mit einem Apostroph.
-   */
-  private static String sqlLiteral(String str)
-  {
-    return "'" + str.replaceAll("'", "''") + "'";
-  }
-
   /**
    * Liefert str zurück, als Identifier-Name vorbereitet für das Einfügen in
    * SQL-Statements.
@@ -338,7 +338,7 @@ public class OverlayDatasource extends Datasource
 
       List<Dataset> finalResults = new ArrayList<>(results1.size() + results2.size());
 
-      List<String> dupKeys = new ArrayList<>();
+      Set<String> dupKeys = new HashSet<>();
       Iterator<Dataset> iter = results2.iterator();
       while (iter.hasNext())
       {
@@ -422,32 +422,27 @@ public class OverlayDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source1, source2);
+  }
+
   private QueryResults overlayColumns(QueryResults results, Predicate<Dataset> filter)
   {
     List<Dataset> resultsWithOverlayments = new ArrayList<>(results.size());
+    MatchIndex overlays = new MatchIndex(results, match1, source2, match2);
 
     Iterator<Dataset> iter = results.iterator();
     while (iter.hasNext())
     {
       Dataset ds = iter.next();
 
-      List<QueryPart> query = new ArrayList<>(match1.length);
-      for (int i = 0; i < match1.length; ++i)
-      {
-        try
-        {
-          query.add(new QueryPart(match2[i], ds.get(match1[i])));
-        } catch (ColumnNotFoundException x)
-        {
-          LOGGER.error("", x);
-        }
-      }
-
-      QueryResults appendix = source2.find(query);
+      Iterator<Dataset> appendixIter = overlays.get(ds).iterator();
 
       Dataset newDataset;
 
-      if (appendix.size() == 0)
+      if (!appendixIter.hasNext())
       {
         newDataset = new ConcatDataset(ds, null);
         if (filter.test(newDataset))
@@ -456,7 +451,6 @@ public class OverlayDatasource extends Datasource
         }
       } else
       {
-        Iterator<Dataset> appendixIter = appendix.iterator();
         while (appendixIter.hasNext())
         {
           newDataset = new ConcatDataset(ds, appendixIter.next());
@@ -475,24 +469,11 @@ public class OverlayDatasource extends Datasource
   private QueryResults overlayColumnsReversed(QueryResults results, Predicate<Dataset> filter)
   {
     List<ConcatDataset> resultsWithOverlayments = new ArrayList<>(results.size());
+    MatchIndex sources = new MatchIndex(results, match2, source1, match1);
 
     for (Dataset ds : results)
     {
-      List<QueryPart> query = new ArrayList<>(match1.length);
-      for (int i = 0; i < match1.length; ++i)
-      {
-        try
-        {
-          query.add(new QueryPart(match1[i], ds.get(match2[i])));
-        } catch (ColumnNotFoundException x)
-        {
-          LOGGER.error("", x);
-        }
-      }
-
-      QueryResults prependix = source1.find(query);
-
-      for (Dataset prepend : prependix)
+      for (Dataset prepend : sources.get(ds))
       {
         ConcatDataset newDataset = new ConcatDataset(prepend, ds);
         if (filter.test(newDataset))
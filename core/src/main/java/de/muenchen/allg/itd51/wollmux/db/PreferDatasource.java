@@ -167,6 +167,12 @@ public class PreferDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source1, source2);
+  }
+
   private static class QueryResultsOverride implements QueryResults
   {
     private int size;
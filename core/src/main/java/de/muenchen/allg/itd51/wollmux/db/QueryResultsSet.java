@@ -24,8 +24,11 @@ package de.muenchen.allg.itd51.wollmux.db;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Stellt die Vereinigung mehrerer QueryResults dar.
@@ -43,6 +46,15 @@ public class QueryResultsSet implements QueryResults
    * Anhand dieses Comparators wird die Gleichheit zweiter Datasets erkannt.
    */
   private final Comparator<Dataset> comparator;
+  /**
+   * Anhand dieser Funktion wird die Gleichheit zweier Datasets erkannt, falls kein Comparator
+   * angegeben ist.
+   */
+  private final Function<Dataset, ?> keyExtractor;
+  /**
+   * Die Schlüssel (siehe {@link #keyExtractor}) der enthaltenen Datensätze.
+   */
+  private final Set<Object> keys = new HashSet<>();
 
   /**
    * Erstellt eine leere Menge.
@@ -51,6 +63,23 @@ public class QueryResultsSet implements QueryResults
   public QueryResultsSet(Comparator<Dataset> comparator)
   {
     this.comparator = comparator;
+    this.keyExtractor = null;
+  }
+
+  /**
+   * Erstellt eine leere Menge, in der zwei Datensätze gleich sind, wenn die von keyExtractor
+   * gelieferten Objekte gleich sind (siehe {@link Object#equals(Object)}). Das Hinzufügen eines
+   * Datensatzes benötigt dadurch nur konstante Zeit.
+   *
+   * @param keyExtractor
+   *          Liefert zu einem Datensatz das Objekt, das beim Hinzufügen für Vergleiche verwendet
+   *          wird. Muss {@link Object#hashCode()} passend zu {@link Object#equals(Object)}
+   *          implementieren.
+   */
+  public QueryResultsSet(Function<Dataset, ?> keyExtractor)
+  {
+    this.comparator = null;
+    this.keyExtractor = keyExtractor;
   }
 
   /**
@@ -70,6 +99,15 @@ public class QueryResultsSet implements QueryResults
    */
   public void add(Dataset dataset)
   {
+    if (keyExtractor != null)
+    {
+      if (keys.add(keyExtractor.apply(dataset)))
+      {
+        results.add(dataset);
+      }
+      return;
+    }
+
     boolean present = false;
     for (Dataset ds : results)
     {
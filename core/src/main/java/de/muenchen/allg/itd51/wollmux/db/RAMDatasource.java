@@ -49,6 +49,11 @@ public class RAMDatasource extends Datasource
    */
   private String name;
 
+  /**
+   * Index über die Datensätze oder null, falls nicht indiziert wird.
+   */
+  private RAMDatasourceIndex index;
+
   /**
    * Erzeugt eine neue RAMDatasource mit Namen name. data und schema werden direkt als Referenz
    * eingebunden, nicht kopiert.
@@ -65,6 +70,25 @@ public class RAMDatasource extends Datasource
     init(name, schema, data);
   }
 
+  /**
+   * Erzeugt eine neue RAMDatasource mit Namen name. data und schema werden direkt als Referenz
+   * eingebunden, nicht kopiert.
+   *
+   * @param name
+   *          der Name der Datenquelle
+   * @param schema
+   *          das Schema der Datenquelle
+   * @param data
+   *          die Datensätze der Datenquelle
+   * @param indexed
+   *          falls true, wird ein Index über Schlüssel und Spalten aufgebaut. Die Datensätze dürfen
+   *          danach nicht mehr verändert werden.
+   */
+  public RAMDatasource(String name, List<String> schema, List<Dataset> data, boolean indexed)
+  {
+    init(name, schema, data, indexed);
+  }
+
   /**
    * Erzeugt eine uninitialisierte RAMDatasource. Eine abgeleitete Klasse, die diesen Konstruktor
    * verwendet sollte init() aufrufen, um die nötigen Initialisierungen zu erledigen.
@@ -79,10 +103,20 @@ public class RAMDatasource extends Datasource
    * Argumente verwenden.
    */
   protected void init(String name, List<String> schema, List<Dataset> data)
+  {
+    init(name, schema, data, false);
+  }
+
+  /**
+   * Wie {@link #init(String, List, List)}. Falls indexed true ist, wird zusätzlich ein Index über
+   * Schlüssel und Spalten aufgebaut. Die Datensätze dürfen danach nicht mehr verändert werden.
+   */
+  protected void init(String name, List<String> schema, List<Dataset> data, boolean indexed)
   {
     this.schema = schema;
     this.data = data;
     this.name = name;
+    this.index = indexed ? new RAMDatasourceIndex(schema, data) : null;
   }
 
   @Override
@@ -94,6 +128,11 @@ public class RAMDatasource extends Datasource
   @Override
   public QueryResults getDatasetsByKey(Collection<String> keys)
   {
+    if (index != null)
+    {
+      return new QueryResultsList(index.getDatasetsByKey(keys));
+    }
+
     List<Dataset> res = new ArrayList<>();
     Iterator<Dataset> iter = data.iterator();
     while (iter.hasNext())
@@ -121,6 +160,11 @@ public class RAMDatasource extends Datasource
       return new QueryResultsList(new Vector<Dataset>(0));
     }
 
+    if (index != null)
+    {
+      return new QueryResultsList(index.find(query));
+    }
+
     Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
 
     List<Dataset> results = new ArrayList<>();
@@ -135,6 +179,23 @@ public class RAMDatasource extends Datasource
     return new QueryResultsList(results);
   }
 
+  /**
+   * Liefert die Ergebnisse der Suche nach query, während über den {@link DatasetCursor} iteriert
+   * wird. Ohne Index werden die Datensätze erst beim Iterieren gefiltert.
+   */
+  @Override
+  public DatasetCursor findCursor(List<QueryPart> query)
+  {
+    if (query.isEmpty() || index != null)
+    {
+      return super.findCursor(query);
+    }
+
+    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
+    return DatasetCursor.of(data.stream().filter(pred).iterator(), () -> {
+    });
+  }
+
   @Override
   public QueryResults getContents()
   {
@@ -0,0 +1,327 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index over the datasets of a {@link RAMDatasource}. It consists of a hash index on the
+ * key and trigram posting lists for every column of the schema.
+ *
+ * A search string without regular expression characters and with at least three characters can
+ * only match datasets which contain all of its trigrams. The candidates are computed by
+ * intersecting the posting lists and are afterwards checked with the {@link DatasetPredicate}.
+ * All other query parts are checked on the candidates only.
+ *
+ * The index is a snapshot of the datasets. It must not be used if the datasets change.
+ */
+class RAMDatasourceIndex
+{
+  private static final int NGRAM = 3;
+
+  private final List<Dataset> data;
+
+  /**
+   * Mapping from key to the positions of the datasets with this key.
+   */
+  private final Map<String, IntList> keyIndex = new HashMap<>();
+
+  /**
+   * Mapping from column name to the trigram index of the column.
+   */
+  private final Map<String, Map<Long, IntList>> columnIndex = new HashMap<>();
+
+  /**
+   * Create the index.
+   *
+   * @param schema
+   *          The columns to index.
+   * @param data
+   *          The datasets.
+   */
+  RAMDatasourceIndex(List<String> schema, List<Dataset> data)
+  {
+    this.data = data;
+    for (String column : schema)
+    {
+      columnIndex.put(column, new HashMap<>());
+    }
+
+    for (int row = 0; row < data.size(); row++)
+    {
+      Dataset ds = data.get(row);
+      if (ds == null)
+      {
+        continue;
+      }
+      keyIndex.computeIfAbsent(ds.getKey(), k -> new IntList()).add(row);
+      for (Map.Entry<String, Map<Long, IntList>> entry : columnIndex.entrySet())
+      {
+        try
+        {
+          String value = ds.get(entry.getKey());
+          if (value != null)
+          {
+            addTrigrams(entry.getValue(), value, row);
+          }
+        } catch (ColumnNotFoundException ex)
+        {
+          // dataset has no such column, so there is nothing to index
+        }
+      }
+    }
+
+    keyIndex.values().forEach(IntList::trim);
+    columnIndex.values().forEach(index -> index.values().forEach(IntList::trim));
+  }
+
+  /**
+   * Get all datasets with one of the keys.
+   *
+   * @param keys
+   *          The keys.
+   * @return The datasets in the order of the datasource.
+   */
+  List<Dataset> getDatasetsByKey(Collection<String> keys)
+  {
+    IntList rows = new IntList();
+    for (String key : keys)
+    {
+      IntList positions = keyIndex.get(key);
+      if (positions != null)
+      {
+        rows.addAll(positions);
+      }
+    }
+    return toDatasets(rows.sortedDistinct());
+  }
+
+  /**
+   * Get all datasets matching the query.
+   *
+   * @param query
+   *          The query, not empty.
+   * @return The datasets in the order of the datasource.
+   */
+  List<Dataset> find(List<QueryPart> query)
+  {
+    int[] candidates = null;
+    for (QueryPart part : query)
+    {
+      Map<Long, IntList> index = columnIndex.get(part.getColumnName());
+      String literal = DatasetPredicate.getLiteral(part.getSearchString());
+      if (index == null || literal == null || literal.length() < NGRAM)
+      {
+        continue;
+      }
+
+      candidates = intersect(candidates, lookup(index, literal));
+      if (candidates.length == 0)
+      {
+        return new ArrayList<>(0);
+      }
+    }
+
+    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
+    List<Dataset> results = new ArrayList<>();
+    if (candidates == null)
+    {
+      data.forEach(ds -> {
+        if (pred.test(ds))
+        {
+          results.add(ds);
+        }
+      });
+    } else
+    {
+      for (int row : candidates)
+      {
+        Dataset ds = data.get(row);
+        if (pred.test(ds))
+        {
+          results.add(ds);
+        }
+      }
+    }
+    return results;
+  }
+
+  private List<Dataset> toDatasets(int[] rows)
+  {
+    List<Dataset> res = new ArrayList<>(rows.length);
+    for (int row : rows)
+    {
+      res.add(data.get(row));
+    }
+    return res;
+  }
+
+  /**
+   * Intersect the posting lists of all trigrams of the literal.
+   */
+  private static int[] lookup(Map<Long, IntList> index, String literal)
+  {
+    int[] result = null;
+    for (int i = 0; i + NGRAM <= literal.length(); i++)
+    {
+      IntList postings = index.get(trigram(literal, i));
+      if (postings == null)
+      {
+        return new int[0];
+      }
+      result = intersect(result, postings.toArray());
+      if (result.length == 0)
+      {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Intersect two sorted arrays without duplicates. A null array is treated as the set of all
+   * rows.
+   */
+  private static int[] intersect(int[] a, int[] b)
+  {
+    if (a == null)
+    {
+      return b;
+    }
+    int[] res = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < a.length && j < b.length)
+    {
+      if (a[i] < b[j])
+      {
+        i++;
+      } else if (a[i] > b[j])
+      {
+        j++;
+      } else
+      {
+        res[k++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(res, k);
+  }
+
+  private static void addTrigrams(Map<Long, IntList> index, String value, int row)
+  {
+    for (int i = 0; i + NGRAM <= value.length(); i++)
+    {
+      IntList postings = index.computeIfAbsent(trigram(value, i), k -> new IntList());
+      // rows are added in ascending order, so only the last entry can be a duplicate
+      if (postings.isEmpty() || postings.last() != row)
+      {
+        postings.add(row);
+      }
+    }
+  }
+
+  /**
+   * Compute a case-insensitive trigram starting at the given position.
+   */
+  private static long trigram(String s, int start)
+  {
+    long gram = 0;
+    for (int i = start; i < start + NGRAM; i++)
+    {
+      gram = (gram << 16) | fold(s.charAt(i));
+    }
+    return gram;
+  }
+
+  /**
+   * Fold a character the same way {@link String#regionMatches(boolean, int, String, int, int)}
+   * compares characters ignoring case.
+   */
+  private static char fold(char c)
+  {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  /**
+   * A growable list of primitive integers.
+   */
+  private static class IntList
+  {
+    private int[] values = new int[4];
+
+    private int size = 0;
+
+    void add(int value)
+    {
+      if (size == values.length)
+      {
+        values = Arrays.copyOf(values, Math.max(4, size * 2));
+      }
+      values[size++] = value;
+    }
+
+    void addAll(IntList other)
+    {
+      for (int i = 0; i < other.size; i++)
+      {
+        add(other.values[i]);
+      }
+    }
+
+    boolean isEmpty()
+    {
+      return size == 0;
+    }
+
+    int last()
+    {
+      return values[size - 1];
+    }
+
+    void trim()
+    {
+      values = Arrays.copyOf(values, size);
+    }
+
+    int[] toArray()
+    {
+      return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    int[] sortedDistinct()
+    {
+      int[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+      return Arrays.stream(sorted).distinct().toArray();
+    }
+  }
+}
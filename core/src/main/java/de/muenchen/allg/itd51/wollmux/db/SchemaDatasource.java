@@ -233,6 +233,12 @@ public class SchemaDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source);
+  }
+
   private QueryResults wrapDatasets(QueryResults res)
   {
     List<RenameDataset> wrappedRes = new ArrayList<>(res.size());
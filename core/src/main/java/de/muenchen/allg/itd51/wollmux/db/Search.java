@@ -27,9 +27,21 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.util.L;
 
 /**
  * Diese Klasse stellt Methoden zur Verfügung um in Datenquellen Suchen durchzuführen.
@@ -37,6 +49,12 @@ import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
 public class Search
 {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(Search.class);
+
+  /** Führt die Anfragen einer Suchstrategie parallel aus. */
+  private static final ExecutorService QUERY_EXECUTOR = Executors
+      .newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("wollmux-search-%d").setDaemon(true).build());
+
   private Search()
   {
     // hide implicit public constructor
@@ -48,6 +66,11 @@ public class Search
    * <code>null</code> ist oder falls der queryString leer ist, wird <code>null</code>
    * zurückgeliefert.
    *
+   * Besteht die Suchstrategie aus mehreren Anfragen, werden diese parallel ausgeführt. Für jede
+   * Anfrage gilt {@link Datasource#getDatasourceTimeout()} als Zeitlimit. Die Ergebnisse einer
+   * Anfrage, die das Zeitlimit überschreitet, werden verworfen. Die Reihenfolge der Ergebnisse
+   * entspricht der Reihenfolge der Anfragen in der Suchstrategie.
+   *
    * @param queryString
    *          die Suchanfrage
    * @param searchStrategy
@@ -67,50 +90,86 @@ public class Search
     }
 
     List<Query> queries = parseQuery(searchStrategy, queryString);
+    for (Query query : queries)
+    {
+      if (datasources.get(query.getDatasourceName()) == null)
+      {
+        throw new IllegalArgumentException(
+            L.m("Datasource \"{0}\" does not exist", query.getDatasourceName()));
+      }
+    }
 
-    QueryResults results = null;
-    List<QueryResults> listOfQueryResultsList = new ArrayList<>();
+    if (queries.size() == 1)
+    {
+      return search(queries.get(0), datasources);
+    }
 
-    for (Query query : queries)
+    List<Future<QueryResults>> futures = new ArrayList<>(queries.size());
+    List<QueryResults> listOfQueryResultsList = new ArrayList<>();
+    try
     {
-      if (query.numberOfQueryParts() == 0)
+      for (Query query : queries)
+      {
+        futures.add(QUERY_EXECUTOR.submit(() -> search(query, datasources)));
+      }
+      long deadline = System.currentTimeMillis() + Datasource.getDatasourceTimeout();
+      for (int i = 0; i < futures.size(); i++)
       {
-        results = datasources.get(query.getDatasourceName()).getContents();
-      } else
+        try
+        {
+          long remaining = Math.max(0, deadline - System.currentTimeMillis());
+          listOfQueryResultsList.add(futures.get(i).get(remaining, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e)
+        {
+          LOGGER.error(L.m("Timeout while searching in datasource \"{0}\"",
+              queries.get(i).getDatasourceName()));
+        }
+      }
+    } catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof RuntimeException)
       {
-        results = datasources.get(query.getDatasourceName()).find(query.getQueryParts());
+        throw (RuntimeException) e.getCause();
       }
-      listOfQueryResultsList.add(results);
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    } finally
+    {
+      futures.forEach(f -> f.cancel(true));
     }
     return mergeListOfQueryResultsList(listOfQueryResultsList);
   }
 
+  private static QueryResults search(Query query, Map<String, Datasource> datasources)
+  {
+    Datasource datasource = datasources.get(query.getDatasourceName());
+    if (query.numberOfQueryParts() == 0)
+    {
+      return datasource.getContents();
+    }
+    return datasource.find(query.getQueryParts());
+  }
+
   /**
-   * Führt die Ergenismengen zusammen. Dabei werden mehrfache Ergebnisse ausgefiltert.
+   * Führt die Ergenismengen zusammen. Dabei werden mehrfache Ergebnisse ausgefiltert. Zwei
+   * Ergebnisse sind gleich, wenn sie den gleichen Typ und den gleichen Schlüssel haben.
    *
    * @return bereinigte Ergebnisliste.
    */
   private static QueryResults mergeListOfQueryResultsList(List<QueryResults> listOfQueryResultsList)
   {
-    QueryResultsSet results = new QueryResultsSet((o1, o2) -> {
-      if (o1.getClass() == o2.getClass() && o1.getKey() == o2.getKey())
-      {
-        return 0;
-      }
-      return 1;
-    });
-
     if (listOfQueryResultsList.size() == 1)
     {
       return listOfQueryResultsList.get(0);
-    } else
-    {
-      for (QueryResults queryResults : listOfQueryResultsList)
-      {
-        results.addAll(queryResults);
-      }
     }
 
+    QueryResultsSet results = new QueryResultsSet(ds -> Arrays.asList(ds.getClass(), ds.getKey()));
+    for (QueryResults queryResults : listOfQueryResultsList)
+    {
+      results.addAll(queryResults);
+    }
     return results;
   }
 
@@ -99,7 +99,7 @@ public class ThingyDatasource extends RAMDatasource
       List<Dataset> data = parseData(conf, name, schema, schemaOrdered,
           keyCols);
 
-      init(name, schema, data);
+      init(name, schema, data, Boolean.parseBoolean(sourceDesc.getString("INDEX", "false")));
     }
     catch (NodeNotFoundException x)
     {
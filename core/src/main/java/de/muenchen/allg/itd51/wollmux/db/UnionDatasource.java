@@ -163,4 +163,10 @@ public class UnionDatasource extends Datasource
     return name;
   }
 
+  @Override
+  public List<Datasource> getSources()
+  {
+    return List.of(source1, source2);
+  }
+
 }
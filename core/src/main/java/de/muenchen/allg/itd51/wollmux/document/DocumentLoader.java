@@ -22,42 +22,134 @@
  */
 package de.muenchen.allg.itd51.wollmux.document;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
-import java.util.concurrent.ExecutionException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
 import com.sun.star.beans.PropertyState;
 import com.sun.star.beans.PropertyValue;
 import com.sun.star.io.XInputStream;
 import com.sun.star.lang.IllegalArgumentException;
 import com.sun.star.lang.XComponent;
-import com.sun.star.uno.Exception;
 
 import org.libreoffice.ext.unohelper.common.UNO;
 import org.libreoffice.ext.unohelper.common.UnoHelperException;
+import de.muenchen.allg.itd51.wollmux.WollMuxFiles;
 import de.muenchen.allg.itd51.wollmux.util.L;
 
 /**
  * Funktionen zum Laden und Einfügen von Dokumenten. Geladene Dokumente werden
  * gecacht.
+ *
+ * Der Cache hat zwei Stufen: Im Speicher liegen Dokumente bis zu einer Gesamtgröße
+ * von {@link #MAX_HEAP_BYTES}. Zusätzlich werden Dokumente, die nicht über file:
+ * geladen werden, im Verzeichnis {@link #CACHE_DIR} des WollMux-Verzeichnisses
+ * abgelegt, so dass sie auch nach einem Neustart verfügbar sind. Die Dateinamen
+ * sind die Hashwerte des Inhalts, so dass gleiche Dokumente nur einmal abgelegt
+ * werden.
+ *
+ * Ein Dokument, das länger als {@link #FRESHNESS} nicht geprüft wurde, wird mit
+ * einer bedingten Anfrage (ETag/Last-Modified, bei file: das Änderungsdatum)
+ * erneut geprüft und nur übertragen, wenn es sich geändert hat. Fehlgeschlagene
+ * Downloads werden für {@link #NEGATIVE_TTL} gemerkt.
+ *
+ * Ein Dokument wird immer nur von einem Thread geladen. Dokumente mit
+ * unterschiedlichen URLs können gleichzeitig geladen werden.
  */
 public class DocumentLoader
 {
   private static final Logger LOGGER = LoggerFactory
     .getLogger(DocumentLoader.class);
 
+  /**
+   * Name des Cache-Verzeichnisses im WollMux-Verzeichnis.
+   */
+  private static final String CACHE_DIR = "documents";
+
+  /**
+   * Maximale Größe aller Dokumente im Speicher in Bytes.
+   */
+  private static final long MAX_HEAP_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Maximale Größe aller Dokumente im Cache-Verzeichnis in Bytes.
+   */
+  static final long MAX_DISK_BYTES = 256L * 1024 * 1024;
+
+  /**
+   * Zeit in Millisekunden, in der ein Dokument ohne erneute Prüfung verwendet wird.
+   */
+  private static final long FRESHNESS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Zeit in Millisekunden, in der ein fehlgeschlagener Download nicht wiederholt
+   * wird.
+   */
+  static final long NEGATIVE_TTL = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * Zeit in Millisekunden, die auf den Aufbau einer Verbindung gewartet wird.
+   */
+  private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Zeit in Millisekunden, die beim Lesen eines Dokuments auf Daten gewartet wird.
+   */
+  private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
+  private static final String PROP_URL = "url";
+
+  private static final String PROP_CONTENT = "content";
+
+  private static final String PROP_ETAG = "etag";
+
+  private static final String PROP_LAST_MODIFIED = "lastModified";
+
+  private static final String METADATA_SUFFIX = ".properties";
+
   private static DocumentLoader instance;
-  private LoadingCache<String, ByteBuffer> cache;
+
+  private final Cache<String, Entry> cache;
+
+  private final File cacheDir;
+
+  private final long freshness;
+
+  private final long maxDiskBytes;
+
+  /**
+   * Sperren für das Laden der Dokumente, ausgewählt nach der URL.
+   */
+  private final Striped<Lock> locks = Striped.lock(64);
 
   /**
    * Zugriff auf den DocumentLoader als Singleton.
@@ -68,40 +160,33 @@ public class DocumentLoader
   {
     if (instance == null)
     {
-      instance = new DocumentLoader();
+      instance = new DocumentLoader(new File(WollMuxFiles.getWollMuxDir(), CACHE_DIR),
+          FRESHNESS, MAX_DISK_BYTES);
     }
     return instance;
   }
 
-  private DocumentLoader()
+  /**
+   * Erzeugt einen neuen DocumentLoader.
+   *
+   * @param cacheDir
+   *          Das Cache-Verzeichnis.
+   * @param freshness
+   *          Zeit in Millisekunden, in der ein Dokument ohne erneute Prüfung
+   *          verwendet wird.
+   * @param maxDiskBytes
+   *          Maximale Größe des Cache-Verzeichnisses in Bytes.
+   */
+  DocumentLoader(File cacheDir, long freshness, long maxDiskBytes)
   {
+    this.cacheDir = cacheDir;
+    this.freshness = freshness;
+    this.maxDiskBytes = maxDiskBytes;
     cache = CacheBuilder.newBuilder()
-      .maximumSize(50)
+      .maximumWeight(MAX_HEAP_BYTES)
+      .weigher((String url, Entry entry) -> entry.content == null ? 1 : entry.content.length)
       .expireAfterAccess(8, TimeUnit.HOURS)
-        .build(new CacheLoader<String, ByteBuffer>()
-      {
-        @Override
-          public ByteBuffer load(String url) throws Exception
-        {
-          return downloadDocument(url);
-        }
-      });
-  }
-
-  private ByteBuffer downloadDocument(String url)
-  {
-    byte[] buf = null;
-    try (InputStream in = new URL(url).openStream())
-    {
-      buf = IOUtils.toByteArray(in);
-    } catch (IOException e)
-    {
-      LOGGER.error(
-        L.m("The template with the URL \"{0}\" could not be opened.", url),
-        e);
-    }
-
-    return ByteBuffer.wrap(buf);
+      .build();
   }
 
   /**
@@ -122,7 +207,7 @@ public class DocumentLoader
           new PropertyValue("FilterName", -1, "StarOffice XML (Writer)",
             PropertyState.DIRECT_VALUE)
         });
-    } catch (IllegalArgumentException | com.sun.star.io.IOException | ExecutionException e)
+    } catch (IllegalArgumentException | com.sun.star.io.IOException | IOException e)
     {
       LOGGER.error("", e);
     }
@@ -148,7 +233,7 @@ public class DocumentLoader
       XInputStream in = getDocumentStream(path);
       return UNO.loadComponentFromURL(path, asTemplate, allowMacros,
           new PropertyValue("InputStream", -1, in, PropertyState.DIRECT_VALUE));
-    } catch (UnoHelperException | ExecutionException e)
+    } catch (UnoHelperException | IOException e)
     {
       LOGGER.error("", e);
     }
@@ -156,14 +241,376 @@ public class DocumentLoader
     return null;
   }
 
-  public boolean hasDocument(String path)
+  /**
+   * Prüft, ob ein Dokument geladen werden kann. Das Dokument wird dabei in den
+   * Cache aufgenommen, so dass es beim anschließenden Öffnen nicht erneut geladen
+   * wird.
+   *
+   * @param path
+   *          URL des Dokuments
+   * @throws IOException
+   *           falls das Dokument nicht geladen werden kann.
+   */
+  public void checkDocument(String path) throws IOException
+  {
+    getDocument(path);
+  }
+
+  public XInputStream getDocumentStream(String path) throws IOException
+  {
+    return new ByteBufferInputStream(ByteBuffer.wrap(getDocument(path)));
+  }
+
+  /**
+   * Liefert den Inhalt eines Dokuments aus dem Cache. Ist das Dokument nicht im
+   * Cache oder ist es länger nicht geprüft worden, wird es geladen bzw. geprüft.
+   *
+   * @param path
+   *          URL des Dokuments
+   * @return Der Inhalt des Dokuments.
+   * @throws IOException
+   *           falls das Dokument nicht geladen werden kann.
+   */
+  byte[] getDocument(String path) throws IOException
   {
-    return cache.getIfPresent(path) != null;
+    Lock lock = locks.get(path);
+    lock.lock();
+    try
+    {
+      long now = System.currentTimeMillis();
+      Entry entry = cache.getIfPresent(path);
+      if (entry != null && now - entry.checked < (entry.content == null ? NEGATIVE_TTL : freshness))
+      {
+        return entry.get();
+      }
+
+      if (entry == null || entry.content == null)
+      {
+        entry = readFromDisk(path);
+      }
+      entry = fetch(path, entry, now);
+      cache.put(path, entry);
+      return entry.get();
+    } finally
+    {
+      lock.unlock();
+    }
   }
 
-  public XInputStream getDocumentStream(String path) throws ExecutionException
+  /**
+   * Lädt ein Dokument. Ist eine ältere Version bekannt, wird das Dokument nur
+   * übertragen, wenn es sich geändert hat.
+   *
+   * @param path
+   *          URL des Dokuments
+   * @param cached
+   *          Die bekannte Version oder null.
+   * @param now
+   *          Zeitpunkt der Prüfung.
+   * @return Die aktuelle Version oder der Fehler.
+   */
+  private Entry fetch(String path, Entry cached, long now)
   {
-    ByteBuffer buf = cache.get(path);
-    return new ByteBufferInputStream(buf);
+    try
+    {
+      URL url = new URL(path);
+      URLConnection conn = url.openConnection();
+      conn.setConnectTimeout(CONNECT_TIMEOUT);
+      conn.setReadTimeout(READ_TIMEOUT);
+      if (cached != null)
+      {
+        if (cached.lastModified != 0)
+        {
+          conn.setIfModifiedSince(cached.lastModified);
+        }
+        if (cached.etag != null)
+        {
+          conn.setRequestProperty("If-None-Match", cached.etag);
+        }
+      }
+
+      if (isNotModified(conn, cached))
+      {
+        LOGGER.debug("Das Dokument {} ist unverändert.", path);
+        return new Entry(cached.content, cached.etag, cached.lastModified, now, null);
+      }
+
+      byte[] content;
+      try (InputStream in = conn.getInputStream())
+      {
+        content = IOUtils.toByteArray(in);
+      }
+      Entry entry = new Entry(content, conn.getHeaderField("ETag"), conn.getLastModified(), now,
+          null);
+      if (!"file".equals(url.getProtocol()))
+      {
+        writeToDisk(path, entry);
+      }
+      return entry;
+    } catch (FileNotFoundException e)
+    {
+      LOGGER.error(
+        L.m("The template with the URL \"{0}\" could not be opened.", path),
+        e);
+      return new Entry(null, null, 0, now, e);
+    } catch (IOException e)
+    {
+      if (cached != null)
+      {
+        LOGGER.info("Das Dokument {} konnte nicht geprüft werden. Es wird die gespeicherte Version verwendet.",
+            path, e);
+        return new Entry(cached.content, cached.etag, cached.lastModified, now, null);
+      }
+      LOGGER.error(
+        L.m("The template with the URL \"{0}\" could not be opened.", path),
+        e);
+      return new Entry(null, null, 0, now, e);
+    }
+  }
+
+  /**
+   * Prüft, ob sich ein Dokument gegenüber der bekannten Version nicht geändert
+   * hat.
+   */
+  private static boolean isNotModified(URLConnection conn, Entry cached) throws IOException
+  {
+    if (cached == null)
+    {
+      return false;
+    }
+
+    boolean notModified;
+    if (conn instanceof HttpURLConnection)
+    {
+      notModified = ((HttpURLConnection) conn)
+          .getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+    } else
+    {
+      long lastModified = conn.getLastModified();
+      notModified = lastModified != 0 && lastModified == cached.lastModified;
+    }
+
+    if (notModified)
+    {
+      conn.getInputStream().close();
+    }
+    return notModified;
+  }
+
+  /**
+   * Liest ein Dokument aus dem Cache-Verzeichnis.
+   *
+   * @param path
+   *          URL des Dokuments
+   * @return Das Dokument, das noch geprüft werden muss, oder null, falls es nicht
+   *         im Cache-Verzeichnis ist.
+   */
+  private Entry readFromDisk(String path)
+  {
+    File metadata = new File(cacheDir, key(path) + METADATA_SUFFIX);
+    if (!metadata.isFile())
+    {
+      return null;
+    }
+
+    try (InputStream in = Files.newInputStream(metadata.toPath()))
+    {
+      Properties props = new Properties();
+      props.load(in);
+      String hash = props.getProperty(PROP_CONTENT);
+      if (!path.equals(props.getProperty(PROP_URL)) || hash == null)
+      {
+        return null;
+      }
+
+      Path file = cacheDir.toPath().resolve(hash);
+      byte[] content = Files.readAllBytes(file);
+      if (!hash.equals(Hashing.sha256().hashBytes(content).toString()))
+      {
+        LOGGER.debug("Die Datei {} im Cache ist beschädigt.", file);
+        return null;
+      }
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return new Entry(content, props.getProperty(PROP_ETAG),
+          Long.parseLong(props.getProperty(PROP_LAST_MODIFIED, "0")), 0, null);
+    } catch (IOException | NumberFormatException e)
+    {
+      LOGGER.debug("Das Dokument {} konnte nicht aus dem Cache gelesen werden.", path, e);
+      return null;
+    }
+  }
+
+  /**
+   * Speichert ein Dokument im Cache-Verzeichnis.
+   *
+   * @param path
+   *          URL des Dokuments
+   * @param entry
+   *          Das Dokument.
+   */
+  private void writeToDisk(String path, Entry entry)
+  {
+    try
+    {
+      Files.createDirectories(cacheDir.toPath());
+      String hash = Hashing.sha256().hashBytes(entry.content).toString();
+      Path file = cacheDir.toPath().resolve(hash);
+      if (Files.exists(file))
+      {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      } else
+      {
+        write(file, out -> out.write(entry.content));
+      }
+
+      Properties props = new Properties();
+      props.setProperty(PROP_URL, path);
+      props.setProperty(PROP_CONTENT, hash);
+      props.setProperty(PROP_LAST_MODIFIED, Long.toString(entry.lastModified));
+      if (entry.etag != null)
+      {
+        props.setProperty(PROP_ETAG, entry.etag);
+      }
+      write(cacheDir.toPath().resolve(key(path) + METADATA_SUFFIX), out -> props.store(out, null));
+
+      prune();
+    } catch (IOException e)
+    {
+      LOGGER.debug("Das Dokument {} konnte nicht im Cache gespeichert werden.", path, e);
+    }
+  }
+
+  /**
+   * Löscht die am längsten nicht verwendeten Dokumente aus dem Cache-Verzeichnis,
+   * bis es nicht größer als {@link #maxDiskBytes} ist. Die Metadaten der
+   * gelöschten Dokumente werden mit gelöscht.
+   */
+  private synchronized void prune() throws IOException
+  {
+    List<File> files;
+    List<File> metadataFiles;
+    try (Stream<Path> list = Files.list(cacheDir.toPath()))
+    {
+      files = list.map(Path::toFile).filter(File::isFile).collect(Collectors.toList());
+    }
+    metadataFiles = files.stream().filter(f -> f.getName().endsWith(METADATA_SUFFIX))
+        .collect(Collectors.toList());
+    files = files.stream()
+        .filter(f -> !f.getName().endsWith(METADATA_SUFFIX) && !f.getName().endsWith(".tmp"))
+        .sorted(Comparator.comparingLong(File::lastModified))
+        .collect(Collectors.toCollection(ArrayList::new));
+
+    Map<String, List<File>> metadataByContent = new HashMap<>();
+    for (File metadata : metadataFiles)
+    {
+      metadataByContent.computeIfAbsent(readContentHash(metadata), k -> new ArrayList<>())
+          .add(metadata);
+    }
+
+    long size = files.stream().mapToLong(File::length).sum();
+    for (File file : files)
+    {
+      if (size <= maxDiskBytes)
+      {
+        break;
+      }
+      size -= file.length();
+      Files.deleteIfExists(file.toPath());
+      for (File metadata : metadataByContent.getOrDefault(file.getName(), List.of()))
+      {
+        Files.deleteIfExists(metadata.toPath());
+      }
+    }
+  }
+
+  /**
+   * Liest den Hashwert des Inhalts aus einer Metadaten-Datei.
+   *
+   * @return Der Hashwert oder ein leerer String, falls die Datei nicht gelesen
+   *         werden kann.
+   */
+  private static String readContentHash(File metadata)
+  {
+    try (InputStream in = Files.newInputStream(metadata.toPath()))
+    {
+      Properties props = new Properties();
+      props.load(in);
+      return props.getProperty(PROP_CONTENT, "");
+    } catch (IOException e)
+    {
+      LOGGER.trace("", e);
+      return "";
+    }
+  }
+
+  /**
+   * Schreibt eine Datei über eine temporäre Datei, damit nie eine halb
+   * geschriebene Datei im Cache liegt.
+   */
+  private void write(Path file, Writer writer) throws IOException
+  {
+    Path tmp = Files.createTempFile(cacheDir.toPath(), null, ".tmp");
+    try
+    {
+      try (OutputStream out = Files.newOutputStream(tmp))
+      {
+        writer.write(out);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally
+    {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static String key(String path)
+  {
+    return Hashing.sha256().hashString(path, StandardCharsets.UTF_8).toString();
+  }
+
+  @FunctionalInterface
+  private interface Writer
+  {
+    void write(OutputStream out) throws IOException;
+  }
+
+  /**
+   * Ein Dokument im Cache oder ein fehlgeschlagener Download.
+   */
+  private static class Entry
+  {
+    /**
+     * Der Inhalt oder null, falls das Dokument nicht geladen werden konnte.
+     */
+    private final byte[] content;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    /**
+     * Zeitpunkt der letzten Prüfung.
+     */
+    private final long checked;
+
+    private final IOException error;
+
+    private Entry(byte[] content, String etag, long lastModified, long checked, IOException error)
+    {
+      this.content = content;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.checked = checked;
+      this.error = error;
+    }
+
+    private byte[] get() throws IOException
+    {
+      if (content == null)
+      {
+        throw new IOException(error.getLocalizedMessage(), error);
+      }
+      return content;
+    }
   }
 }
@@ -60,7 +60,9 @@ import de.muenchen.allg.itd51.wollmux.document.nodes.GroupBookmarkNode;
 import de.muenchen.allg.itd51.wollmux.document.nodes.InputNode;
 import de.muenchen.allg.itd51.wollmux.document.nodes.InsertionBookmarkNode;
 import de.muenchen.allg.itd51.wollmux.document.nodes.Node;
+import de.muenchen.allg.itd51.wollmux.document.nodes.OtherPortionNode;
 import de.muenchen.allg.itd51.wollmux.document.nodes.ParagraphNode;
+import de.muenchen.allg.itd51.wollmux.document.nodes.TableNode;
 import de.muenchen.allg.itd51.wollmux.document.nodes.TextRangeNode;
 import de.muenchen.allg.itd51.wollmux.util.Utils;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
@@ -192,7 +194,7 @@ public class DocumentTree
   }
 
   /**
-   * Fügt nodes einen neuen {@link ContainerNode} hinzu, der die Zellen von table
+   * Fügt nodes einen neuen {@link TableNode} hinzu, der die Zellen von table
    * enthält.
    *
    * @param doc
@@ -212,7 +214,7 @@ public class DocumentTree
       cells.add(new ContainerNode(cellContents));
     }
 
-    nodes.add(new ContainerNode(cells));
+    nodes.add(new TableNode(cells));
   }
 
   /**
@@ -359,11 +361,16 @@ public class DocumentTree
       else if (info.supportsService("com.sun.star.text.TextField.Input"))
         textfieldType = TEXFIELD_TYPE_INPUT;
       else
-        return; // sonstiges TextField
+      {
+        // sonstiges TextField
+        textPortions.add(new OtherPortionNode("TextField"));
+        return;
+      }
     }
     catch (Exception x)
     {
       LOGGER.trace("", x);
+      textPortions.add(new OtherPortionNode("TextField"));
       return;
     }
 
@@ -407,6 +414,7 @@ public class DocumentTree
     catch (Exception x)
     {
       LOGGER.trace("", x);
+      textPortions.add(new OtherPortionNode("Frame"));
       return;
     }
 
@@ -414,6 +422,10 @@ public class DocumentTree
     {
       textPortions.add(new CheckboxNode(shape, model, doc));
     }
+    else
+    {
+      textPortions.add(new OtherPortionNode("Frame"));
+    }
   }
 
   /**
@@ -26,6 +26,7 @@ import com.sun.star.text.XTextDocument;
 
 import de.muenchen.allg.itd51.wollmux.document.nodes.Container;
 import de.muenchen.allg.itd51.wollmux.document.nodes.FormControl;
+import de.muenchen.allg.itd51.wollmux.document.nodes.OtherPortionNode;
 
 
 /**
@@ -83,6 +84,17 @@ public interface DocumentTreeVisitor
     return true;
   }
 
+  /**
+   * Wird für Textfelder und Rahmen aufgerufen, die kein Formularsteuerelement
+   * darstellen.
+   *
+   * @return false, wenn keine weiteren Knoten besucht werden sollen.
+   */
+  public default boolean otherPortion(OtherPortionNode portion)
+  {
+    return true;
+  }
+
   /**
    * Wird für Knoten aufgerufen, die Textabschnitte repräsentieren.
    *
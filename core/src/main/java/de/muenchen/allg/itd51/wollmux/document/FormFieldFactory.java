@@ -22,7 +22,13 @@
  */
 package de.muenchen.allg.itd51.wollmux.document;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -47,6 +53,11 @@ import org.libreoffice.ext.unohelper.common.UnoCollection;
 import org.libreoffice.ext.unohelper.common.UnoIterator;
 import org.libreoffice.ext.unohelper.document.text.Bookmark;
 import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand.InsertFormValue;
+import de.muenchen.allg.itd51.wollmux.document.nodes.CheckboxNode;
+import de.muenchen.allg.itd51.wollmux.document.nodes.Container;
+import de.muenchen.allg.itd51.wollmux.document.nodes.FormControl;
+import de.muenchen.allg.itd51.wollmux.document.nodes.OtherPortionNode;
+import de.muenchen.allg.itd51.wollmux.document.nodes.TextFieldNode;
 import de.muenchen.allg.itd51.wollmux.util.Utils;
 import org.libreoffice.ext.unohelper.util.UnoProperty;
 import org.libreoffice.ext.unohelper.util.UnoService;
@@ -94,6 +105,37 @@ public final class FormFieldFactory
     return bookmarkNameToFormField.get(bookmarkName);
   }
 
+  /**
+   * Create the form fields of several InsertFormValue-commands with a single pass through the
+   * document (body text, tables and frames, see {@link DocumentTree}). The form fields are created
+   * like in {@link #createFormField(XTextDocument, InsertFormValue, Map)}, which only enumerates the
+   * range of one command. Commands, whose book marks aren't found (e.g. in headers or footers), and
+   * commands, which already have a form field, are left untouched.
+   *
+   * @param doc
+   *          The document.
+   * @param cmds
+   *          The InsertFormValue-commands.
+   * @param bookmarkNameToFormField
+   *          Mapping from book marks to form fields. The new form fields are added.
+   */
+  public static void createFormFields(XTextDocument doc, Collection<InsertFormValue> cmds,
+      Map<String, FormField> bookmarkNameToFormField)
+  {
+    FormFieldScanner scanner = new FormFieldScanner(doc, bookmarkNameToFormField);
+    for (InsertFormValue cmd : cmds)
+    {
+      if (!bookmarkNameToFormField.containsKey(cmd.getBookmarkName()))
+      {
+        scanner.commands.put(cmd.getBookmarkName(), cmd);
+      }
+    }
+    if (!scanner.commands.isEmpty())
+    {
+      scanner.visit(doc);
+    }
+  }
+
   /**
    * Create a form field in a document for a mail merge field.
    *
@@ -423,6 +465,126 @@ public final class FormFieldFactory
   }
 
 
+  /**
+   * Visitor, which tracks the book marks of InsertFormValue-commands while the document tree is
+   * visited and creates a form field for each command.
+   */
+  private static class FormFieldScanner implements DocumentTreeVisitor
+  {
+    private final XTextDocument doc;
+
+    private final Map<String, FormField> bookmarkNameToFormField;
+
+    /**
+     * The commands to scan by the names of their book marks.
+     */
+    private final Map<String, InsertFormValue> commands = new HashMap<>();
+
+    /**
+     * Commands, whose book mark has been started but not ended yet.
+     */
+    private Set<InsertFormValue> open = new LinkedHashSet<>();
+
+    /**
+     * The open commands outside of the tables, which are currently visited. The range of a book
+     * mark is enumerated without the contents of tables, so the form elements of a table don't
+     * belong to book marks around the table.
+     */
+    private final Deque<Set<InsertFormValue>> outerOpen = new ArrayDeque<>();
+
+    /**
+     * Commands, whose book mark has been started in the current paragraph and which haven't found a
+     * form element since.
+     */
+    private final Set<InsertFormValue> started = new LinkedHashSet<>();
+
+    private FormFieldScanner(XTextDocument doc, Map<String, FormField> bookmarkNameToFormField)
+    {
+      this.doc = doc;
+      this.bookmarkNameToFormField = bookmarkNameToFormField;
+    }
+
+    @Override
+    public boolean insertionBookmark(InsertionBookmark bookmark)
+    {
+      InsertFormValue cmd = commands.get(bookmark.getName());
+      if (cmd == null)
+      {
+        return true;
+      }
+
+      if (bookmark.isStart())
+      {
+        open.add(cmd);
+        started.add(cmd);
+      } else
+      {
+        open.remove(cmd);
+        if (started.remove(cmd))
+        {
+          handleNewInputField(bookmarkNameToFormField, doc, cmd);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean formControl(FormControl control)
+    {
+      for (InsertFormValue cmd : open)
+      {
+        switch (control.getType())
+        {
+        case INPUT_CONTROL:
+          handleInputField(((TextFieldNode) control).getTextField(), bookmarkNameToFormField, doc, cmd);
+          break;
+        case DROPDOWN_CONTROL:
+          handleDropdown(((TextFieldNode) control).getTextField(), bookmarkNameToFormField, doc, cmd);
+          break;
+        case CHECKBOX_CONTROL:
+          handleCheckbox(((CheckboxNode) control).getControlModel(), bookmarkNameToFormField, doc, cmd);
+          break;
+        default:
+          break;
+        }
+      }
+      started.clear();
+      return true;
+    }
+
+    @Override
+    public boolean otherPortion(OtherPortionNode portion)
+    {
+      // like any text field or frame in handleParagraph
+      started.clear();
+      return true;
+    }
+
+    @Override
+    public boolean container(Container container, int count)
+    {
+      if (count == 1 && container.getType() == Container.Type.PARAGRAPH)
+      {
+        for (InsertFormValue cmd : started)
+        {
+          handleNewInputField(bookmarkNameToFormField, doc, cmd);
+        }
+        started.clear();
+      } else if (container.getType() == Container.Type.TABLE)
+      {
+        if (count == 0)
+        {
+          outerOpen.push(open);
+          open = new LinkedHashSet<>();
+        } else
+        {
+          open = outerOpen.pop();
+        }
+      }
+      return true;
+    }
+  }
+
   /**
    * A form field describes the properties of a form element of an InsertFromValue-command.
    */
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -63,10 +64,11 @@ import de.muenchen.allg.itd51.wollmux.dialog.DialogLibrary;
 import de.muenchen.allg.itd51.wollmux.document.FormFieldFactory.FormField;
 import de.muenchen.allg.itd51.wollmux.document.PersistentDataContainer.DataID;
 import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand;
+import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormChanged;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormValueChanged;
-import de.muenchen.allg.itd51.wollmux.event.handlers.OnSetVisibleState;
 import de.muenchen.allg.itd51.wollmux.form.config.FormConfig;
 import de.muenchen.allg.itd51.wollmux.form.control.FormController;
+import de.muenchen.allg.itd51.wollmux.form.model.FormChangeSet;
 import de.muenchen.allg.itd51.wollmux.form.model.FormModel;
 import de.muenchen.allg.itd51.wollmux.form.model.FormModelException;
 import de.muenchen.allg.itd51.wollmux.func.Function;
@@ -442,6 +444,35 @@ public class TextDocumentController
     updateDocumentFormFields(id);
   }
 
+  /**
+   * Set several form values of the form model and document. The persistent data is written once
+   * for all values.
+   *
+   * @param values
+   *          Mapping from the name of the form element to its value.
+   */
+  public synchronized void addFormFieldValues(Map<String, String> values)
+  {
+    setFormFieldValues(values);
+    values.keySet().forEach(this::updateDocumentFormFields);
+  }
+
+  /**
+   * Apply all changes of the form model to the document. The persistent data is written once for
+   * all values and each visibility group is only updated once.
+   *
+   * @param changes
+   *          The changes of the form model.
+   */
+  public synchronized void applyFormChanges(FormChangeSet changes)
+  {
+    Map<String, String> values = new LinkedHashMap<>(changes.getValues());
+    values.remove("");
+    setFormFieldValues(values);
+    values.keySet().forEach(this::updateDocumentFormFields);
+    changes.getVisibilities().forEach(this::setVisibleState);
+  }
+
   /**
    * Execute all functions until one returns with an non-empty String. This String is the action to
    * be executed on the document. Supported actions are:
@@ -1432,21 +1463,44 @@ public class TextDocumentController
    */
   public void setFormFieldValue(String fieldId, String value)
   {
+    setFormFieldValues(Collections.singletonMap(fieldId, value));
+  }
+
+  /**
+   * Set new values for several form fields and store the persistend data once. The new values are
+   * visible after a call of {@link #updateDocumentFormFields(String)}.
+   *
+   * If simulation has beeen startet with {@link #startSimulation()}, the persistend data isn't
+   * modified.
+   *
+   * @param fieldValues
+   *          Mapping from field id to the new value. If a value is null the field is deleted from
+   *          the persistend data.
+   */
+  public void setFormFieldValues(Map<String, String> fieldValues)
+  {
+    if (fieldValues.isEmpty())
+    {
+      return;
+    }
     if (simulationResult == null)
     {
       model.updateLastTouchedByVersionInfo();
-      if (value == null)
-      {
-        model.getFormFieldValues().remove(fieldId);
-      }
-      else
+      for (Map.Entry<String, String> entry : fieldValues.entrySet())
       {
-        model.getFormFieldValues().put(fieldId, value);
+        if (entry.getValue() == null)
+        {
+          model.getFormFieldValues().remove(entry.getKey());
+        }
+        else
+        {
+          model.getFormFieldValues().put(entry.getKey(), entry.getValue());
+        }
       }
       model.getPersistentData().setData(DataID.FORMULARWERTE, getFormFieldValuesString());
     } else
     {
-      simulationResult.setFormFieldValue(fieldId, value);
+      fieldValues.forEach(simulationResult::setFormFieldValue);
     }
   }
 
@@ -1934,16 +1988,14 @@ public class TextDocumentController
     }
   }
   /**
-   * Set the visibility of a group.
+   * Apply all changes of the form model to the document.
    *
-   * @param groupId
-   *          The id of the group.
-   * @param visible
-   *          True if the group should be visible, false otherwise.
+   * @param changes
+   *          The changes of the form model.
    */
-  public void setVisibilityChanged(String groupId, boolean visible)
+  public void setFormChanged(FormChangeSet changes)
   {
-    new OnSetVisibleState(this, groupId, visible, null).emit();
+    new OnFormChanged(this, changes).emit();
   }
 
 }
@@ -23,13 +23,15 @@
 package de.muenchen.allg.itd51.wollmux.document;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +61,11 @@ public class VisibleTextFragmentList
    */
   private static final int MAXCOUNT = 100;
 
+  /**
+   * Der Resolver der zuletzt verwendeten Konfiguration.
+   */
+  private static volatile Resolver resolver;
+
   private VisibleTextFragmentList() {}
 
   /**
@@ -143,75 +150,200 @@ public class VisibleTextFragmentList
   public static List<String> getURLsByID(ConfigThingy conf, String fragId)
       throws InvalidIdentifierException
   {
-    ConfigThingy.checkIdentifier(fragId);
+    Resolver current = resolver;
+    if (current == null || current.conf != conf)
+    {
+      current = new Resolver(conf);
+      resolver = current;
+    }
+    return new ArrayList<>(current.resolve(fragId));
+  }
 
-    LinkedList<ConfigThingy> tfListe = new LinkedList<>();
-    ConfigThingy tfConf = conf.query("Textfragmente");
-    Iterator<ConfigThingy> iter = tfConf.iterator();
-    while (iter.hasNext())
+  /**
+   * Eine einzelne FRAG_ID-Zuordnung mit ihren bereits expandierten URLs.
+   */
+  private static class Mapping
+  {
+    private final String fragIdConf;
+
+    private final Pattern pattern;
+
+    private final List<String> urls;
+
+    private Mapping(String fragIdConf, Pattern pattern, List<String> urls)
     {
-      ConfigThingy confTextfragmente = iter.next();
-      tfListe.addFirst(confTextfragmente);
+      this.fragIdConf = fragIdConf;
+      this.pattern = pattern;
+      this.urls = urls;
     }
+  }
+
+  /**
+   * Der Resolver wertet die Textfragmente-Abschnitte einer Konfiguration einmalig
+   * aus. FRAG_IDs ohne reguläre Ausdrücke werden über eine Hashtabelle gefunden,
+   * die übrigen Muster sind vorkompiliert. Die Variablen in den URLs sind bereits
+   * ersetzt und die Ergebnisse werden pro ID gemerkt.
+   */
+  private static class Resolver
+  {
+    /**
+     * FRAG_IDs, die nur aus diesen Zeichen bestehen, passen nur auf sich selbst.
+     */
+    private static final Pattern LITERAL = Pattern.compile("[a-zA-Z_0-9]+");
 
-    Iterator<ConfigThingy> iterTbListe = tfListe.iterator();
-    List<String> urls = new ArrayList<>();
-    while (iterTbListe.hasNext())
+    private final ConfigThingy conf;
+
+    /**
+     * Alle Zuordnungen in der Reihenfolge ihres Vorrangs.
+     */
+    private final List<Mapping> mappings = new ArrayList<>();
+
+    /**
+     * Abbildung von literalen FRAG_IDs auf die Positionen ihrer Zuordnungen in
+     * {@link #mappings}.
+     */
+    private final Map<String, List<Integer>> literals = new HashMap<>();
+
+    /**
+     * Positionen der Zuordnungen mit regulären Ausdrücken in {@link #mappings}.
+     */
+    private final List<Integer> patterns = new ArrayList<>();
+
+    private final Map<String, List<String>> resolved = new ConcurrentHashMap<>();
+
+    private Resolver(ConfigThingy conf)
     {
-      ConfigThingy textfragmente = iterTbListe.next();
+      this.conf = conf;
 
-      ConfigThingy mappingsConf = textfragmente.queryByChild("FRAG_ID");
+      LinkedList<ConfigThingy> tfListe = new LinkedList<>();
+      for (ConfigThingy confTextfragmente : conf.query("Textfragmente"))
+      {
+        tfListe.addFirst(confTextfragmente);
+      }
 
-      for (ConfigThingy mappingConf : mappingsConf)
+      for (ConfigThingy textfragmente : tfListe)
       {
+        for (ConfigThingy mappingConf : textfragmente.queryByChild("FRAG_ID"))
+        {
+          Mapping mapping = createMapping(mappingConf);
+          if (mapping == null)
+          {
+            continue;
+          }
+          int index = mappings.size();
+          mappings.add(mapping);
+          if (mapping.pattern == null)
+          {
+            literals.computeIfAbsent(mapping.fragIdConf, k -> new ArrayList<>(1)).add(index);
+          } else
+          {
+            patterns.add(index);
+          }
+        }
+      }
+    }
 
-        String fragIdConf = null;
+    private Mapping createMapping(ConfigThingy mappingConf)
+    {
+      String fragIdConf = null;
+      try
+      {
+        fragIdConf = mappingConf.get("FRAG_ID").toString();
+        // Typischen Konfigurationsfehler korrigieren
+        if (".*".equals(fragIdConf)) {
+          fragIdConf = ".+";
+        }
+      }
+      catch (NodeNotFoundException e)
+      {
+        LOGGER.error("FRAG_ID specification is missing in '{}'", mappingConf.stringRepresentation(), e);
+        return null;
+      }
+
+      ConfigThingy url = null;
+      try
+      {
+        url = mappingConf.get("URL");
+      }
+      catch (NodeNotFoundException e)
+      {
+        LOGGER.trace("", e);
+        // kommt nicht vor, da obiger queryByChild immer URL liefert
+        return null;
+      }
+
+      Pattern pattern = null;
+      if (!LITERAL.matcher(fragIdConf).matches())
+      {
         try
         {
-          fragIdConf = mappingConf.get("FRAG_ID").toString();
-          // Typischen Konfigurationsfehler korrigieren
-          if (".*".equals(fragIdConf)) {
-            fragIdConf = ".+";
-          }
+          pattern = Pattern.compile(fragIdConf);
         }
-        catch (NodeNotFoundException e)
+        catch (PatternSyntaxException e)
         {
-          LOGGER.error("FRAG_ID specification is missing in '{}'", mappingConf.stringRepresentation(), e);
-          continue;
+          LOGGER.error("The FRAG_ID '{}' is not a valid regular expression.", fragIdConf, e);
+          return null;
         }
+      }
 
-        ConfigThingy url = null;
+      List<String> urls = new ArrayList<>();
+      for (ConfigThingy urlNext : url)
+      {
         try
         {
-          url = mappingConf.get("URL");
+          urls.add(expandVariable(urlNext, conf));
         }
-        catch (NodeNotFoundException e)
+        catch (EndlessLoopException e)
         {
-          LOGGER.trace("", e);
-          // kommt nicht vor, da obiger queryByChild immer URL liefert
-          continue;
+          LOGGER.error("The URL for text fragment '{}' is incorrect.",
+              mappingConf.stringRepresentation(), e);
         }
+      }
+      return new Mapping(fragIdConf, pattern, urls);
+    }
+
+    private List<String> resolve(String fragId) throws InvalidIdentifierException
+    {
+      List<String> urls = resolved.get(fragId);
+      if (urls == null)
+      {
+        ConfigThingy.checkIdentifier(fragId);
+        urls = lookup(fragId);
+        resolved.put(fragId, urls);
+      }
+      return urls;
+    }
+
+    private List<String> lookup(String fragId)
+    {
+      List<Integer> matches = new ArrayList<>(literals.getOrDefault(fragId, List.of()));
+      for (int index : patterns)
+      {
+        if (mappings.get(index).pattern.matcher(fragId).matches())
+        {
+          matches.add(index);
+        }
+      }
+      Collections.sort(matches);
 
-        if (fragId.matches(fragIdConf))
+      List<String> urls = new ArrayList<>();
+      for (int index : matches)
+      {
+        Mapping mapping = mappings.get(index);
+        for (String url : mapping.urls)
         {
-          for (ConfigThingy urlNext : url)
+          if (mapping.pattern == null && url.indexOf('$') < 0 && url.indexOf('\\') < 0)
           {
-            try
-            {
-              String urlStr = expandVariable(urlNext, conf);
-              urlStr = fragId.replaceAll(fragIdConf, urlStr);
-              urls.add(urlStr);
-            }
-            catch (EndlessLoopException e)
-            {
-              LOGGER.error("The URL for text fragment '{}' with the FRAG_ID '{}' is incorrect.",
-                  mappingConf.stringRepresentation(), fragId, e);
-            }
+            urls.add(url);
+          } else
+          {
+            Pattern pattern = mapping.pattern == null ? Pattern.compile(mapping.fragIdConf)
+                : mapping.pattern;
+            urls.add(pattern.matcher(fragId).replaceAll(url));
           }
         }
       }
+      return Collections.unmodifiableList(urls);
     }
-    return urls;
   }
-
 }
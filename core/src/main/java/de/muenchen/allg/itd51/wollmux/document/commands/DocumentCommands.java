@@ -24,6 +24,8 @@ package de.muenchen.allg.itd51.wollmux.document.commands;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -112,7 +114,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    * (setGroups-Kommando und TextSection mit GROUPS-Attribut) des Dokuments und wird
    * über update() aktualisiert.
    */
-  private LinkedList<VisibilityElement> visibilityElements;
+  private VisibilityIndex visibilityElements;
 
   /**
    * Enthält eine nach Position sortierte Liste aller setJumpMark-Kommandos und wird
@@ -126,6 +128,18 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    */
   private HashSet<PrintBlockCommand> printBlocks;
 
+  /**
+   * Die Namen aller Bookmarks beim letzten update() sowie der seitdem über
+   * registerBookmark() eingefügten Bookmarks. Sind die Namen unverändert, muss
+   * nichts abgeglichen werden.
+   */
+  private Set<String> lastBookmarkNames;
+
+  /**
+   * Die Namen aller TextSections beim letzten update().
+   */
+  private Set<String> lastTextSectionNames;
+
   /**
    * Pattern zum Erkennen von insertValue und insertFormValue-Bookmarks.
    */
@@ -142,10 +156,12 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     this.doc = doc;
     this.allCommands = new HashSet<>();
 
-    this.visibilityElements = new LinkedList<>();
+    this.visibilityElements = new VisibilityIndex();
     this.setJumpMarkCommands = new LinkedList<>();
     this.printBlocks = new HashSet<>();
     this.allTextSectionsWithGROUPS = new HashSet<>();
+    this.lastBookmarkNames = new HashSet<>();
+    this.lastTextSectionNames = new HashSet<>();
   }
 
   /**
@@ -207,7 +223,8 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     }
     try
     {
-      new Bookmark(cmdStr, UNO.XTextDocument(doc), r);
+      Bookmark bookmark = new Bookmark(cmdStr, UNO.XTextDocument(doc), r);
+      registerBookmark(bookmark.getName());
     } catch (UnoHelperException e)
     {
       LOGGER.debug("", e);
@@ -215,6 +232,31 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     update();
   }
 
+  /**
+   * Registriert ein von WollMux selbst eingefügtes Bookmark direkt als
+   * Dokumentkommando, so dass update() es nicht erst über den Abgleich der
+   * Bookmarknamen finden muss. Der Name wird in lastBookmarkNames aufgenommen,
+   * so dass das nächste update() das Bookmark als bekannt ansieht.
+   *
+   * @param name
+   *          Der Name des neuen Bookmarks.
+   */
+  private void registerBookmark(String name)
+  {
+    Matcher m = wmCmdPattern.matcher(name);
+    if (m.find())
+    {
+      DocumentCommand cmd = createCommand(name, m.group(1), doc);
+      if (cmd != null)
+      {
+        HashSet<DocumentCommand> newDocumentCommands = new HashSet<>();
+        newDocumentCommands.add(cmd);
+        addNewDocumentCommands(newDocumentCommands);
+      }
+    }
+    lastBookmarkNames.add(name);
+  }
+
   /**
    * Diese Methode aktualisiert die Dokumentkommandos, so dass neue und entfernte
    * Dokumentkommandos im Dokument erkannt und mit den Datenstrukturen abgeglichen
@@ -232,28 +274,53 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     }
     long startTime = System.currentTimeMillis();
 
+    Set<String> bookmarkNames;
+    try
+    {
+      bookmarkNames = new HashSet<>(Arrays.asList(doc.getBookmarks().getElementNames()));
+    }
+    catch (Exception e)
+    {
+      LOGGER.trace("", e);
+      return false;
+    }
+
+    // Sind die Namen unverändert, wurden keine Bookmarks hinzugefügt, entfernt
+    // oder umbenannt und es muss nichts abgeglichen werden.
+    if (bookmarkNames.equals(lastBookmarkNames))
+    {
+      return false;
+    }
+    Set<String> previousNames = lastBookmarkNames;
+    lastBookmarkNames = bookmarkNames;
+
     // HashSets mit den Namen der bekannten, gültigen Dokumentkommandos
-    // und den ungültigen Dokumentkommandos erstellen:
+    // und den ungültigen Dokumentkommandos erstellen. Ein Dokumentkommando ist
+    // ungültig, wenn sein Bookmark nicht mehr existiert.
     HashSet<String> knownBookmarks = new HashSet<>();
     HashSet<DocumentCommand> retiredDocumentCommands =
       new HashSet<>();
     for (Iterator<DocumentCommand> iter = allCommands.iterator(); iter.hasNext();)
     {
       DocumentCommand cmd = iter.next();
-      if (cmd.isRetired())
+      String name = cmd.getBookmarkName();
+      if (!bookmarkNames.contains(name) || cmd.isRetired())
         retiredDocumentCommands.add(cmd);
       else
-        knownBookmarks.add(cmd.getBookmarkName());
+        knownBookmarks.add(name);
     }
 
-    // Bookmarks scannen und HashSet mit allen neuen Dokumentkommandos aufbauen:
+    // Nur die seit dem letzten update() hinzugekommenen Bookmarks prüfen und
+    // HashSet mit allen neuen Dokumentkommandos aufbauen:
     HashSet<DocumentCommand> newDocumentCommands = new HashSet<>();
     try
     {
-      String[] bookmarkNames = doc.getBookmarks().getElementNames();
-      for (int i = 0; i < bookmarkNames.length; i++)
+      for (String name : bookmarkNames)
       {
-        String name = bookmarkNames[i];
+        if (previousNames.contains(name))
+        {
+          continue;
+        }
         Matcher m = wmCmdPattern.matcher(name);
 
         if (m.find() && !knownBookmarks.contains(name))
@@ -297,6 +364,14 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     }
     long startTime = System.currentTimeMillis();
 
+    String[] textSectionNames = supp.getTextSections().getElementNames();
+    Set<String> names = new HashSet<>(Arrays.asList(textSectionNames));
+    if (names.equals(lastTextSectionNames))
+    {
+      return false;
+    }
+    lastTextSectionNames = names;
+
     // HashSets mit den Namen der bekannten, gültigen TextSections
     // und den ungültigen TextSections erstellen:
     HashSet<String> knownTextSections = new HashSet<>();
@@ -312,7 +387,6 @@ public class DocumentCommands implements Iterable<DocumentCommand>
 
     // TextSections scannen und HashSet mit allen TextSections aufbauen:
     HashSet<TextSection> newTextSections = new HashSet<>();
-    String[] textSectionNames = supp.getTextSections().getElementNames();
     for (int i = 0; i < textSectionNames.length; i++)
     {
       String name = textSectionNames[i];
@@ -354,6 +428,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
         0, 0, 0, 0, };
     LOGGER.trace("addNewDocumentCommands");
 
+    List<SetGroups> newSetGroups = new ArrayList<>();
     long lastTime = System.currentTimeMillis();
     for (Iterator<DocumentCommand> iter = newDocumentCommands.iterator(); iter.hasNext();)
     {
@@ -364,7 +439,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
 
       if (cmd instanceof SetGroups)
       {
-        addNewVisibilityElement((SetGroups) cmd);
+        newSetGroups.add((SetGroups) cmd);
         id = 1;
       }
       else if (cmd instanceof SetJumpMark)
@@ -386,6 +461,8 @@ public class DocumentCommands implements Iterable<DocumentCommand>
       }
       lastTime = currentTime;
     }
+    visibilityElements.addAll(newSetGroups);
+    times[1] += System.currentTimeMillis() - lastTime;
 
     LOGGER.trace("addNewDocumentCommands statistics (number of elements, overalltime to add):");
     LOGGER.trace("- SetGroups:     {}, {} ms", counters[1], times[1]);
@@ -409,63 +486,8 @@ public class DocumentCommands implements Iterable<DocumentCommand>
       TextSection s = iter.next();
 
       allTextSectionsWithGROUPS.add(s);
-
-      addNewVisibilityElement(s);
-    }
-  }
-
-  /**
-   * Fügt das neue Sichtbarkeitselement (SetGroups-Kommando bzw. Textbereich mit
-   * GROUPS im Namen) sortiert in die bereits vorsortierte LinkedList aller
-   * Sichtbarkeitselemente hinzu, wobei die Gruppenzuordnung von verschachtelten
-   * Sichtbarkeitselementen gemäß der Vererbungsstruktur der Sichtbarkeitsgruppen auf
-   * untergeordnete Sichtbarkeitselemente übertragen werden.
-   *
-   * @param element
-   *          das hinzuzufügende Sichtbarkeitselement.
-   */
-  private void addNewVisibilityElement(VisibilityElement element)
-  {
-    boolean inserted = false;
-    XTextRange anchor = element.getAnchor();
-    if (anchor == null) {
-      return;
-    }
-
-    ListIterator<VisibilityElement> iter = visibilityElements.listIterator();
-    while (iter.hasNext())
-    {
-      VisibilityElement current = iter.next();
-
-      TreeRelation rel = new TreeRelation(current.getAnchor(), anchor);
-
-      // setzen der Gruppen:
-      if (rel.isAEqualB())
-      {
-        element.addGroups(current.getGroups());
-        current.addGroups(element.getGroups());
-      }
-      else if (rel.isAChildOfB())
-      {
-        current.addGroups(element.getGroups());
-      }
-      else if (rel.isBChildOfA())
-      {
-        element.addGroups(current.getGroups());
-      }
-
-      // sortiertes Einfügen:
-      if (!inserted && (rel.isAGreaterThanB() || rel.isAEqualB()))
-      {
-        iter.previous();
-        iter.add(element);
-        inserted = true;
-        iter.next();
-      }
-    }
-    if (!inserted) {
-      visibilityElements.add(element);
     }
+    visibilityElements.addAll(newElements);
   }
 
   /**
@@ -504,6 +526,18 @@ public class DocumentCommands implements Iterable<DocumentCommand>
     allCommands.removeAll(retired);
     setJumpMarkCommands.removeAll(retired);
     printBlocks.removeAll(retired);
+
+    // Die Anker im Sichtbarkeitsindex werden nicht neu bestimmt, daher müssen
+    // SetGroups-Kommandos ohne Bookmark dort entfernt werden.
+    List<SetGroups> retiredSetGroups = new ArrayList<>();
+    for (DocumentCommand cmd : retired)
+    {
+      if (cmd instanceof SetGroups)
+      {
+        retiredSetGroups.add((SetGroups) cmd);
+      }
+    }
+    visibilityElements.removeAll(retiredSetGroups);
   }
 
   /**
@@ -547,7 +581,7 @@ public class DocumentCommands implements Iterable<DocumentCommand>
    */
   public List<VisibilityElement> getSetGroups()
   {
-    return visibilityElements;
+    return visibilityElements.getElements();
   }
 
   /**
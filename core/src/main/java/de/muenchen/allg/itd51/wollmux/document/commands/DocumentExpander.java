@@ -27,7 +27,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -372,7 +371,7 @@ class DocumentExpander extends AbstractExecutor
       props.setPropertyValue(UnoProperty.INPUT_STREAM, stream);
       loader.loadStylesFromURL("private:stream", props.getProps());
     }
-    catch (NullPointerException | ExecutionException e)
+    catch (NullPointerException | java.io.IOException e)
     {
       LOGGER.error("", e);
     }
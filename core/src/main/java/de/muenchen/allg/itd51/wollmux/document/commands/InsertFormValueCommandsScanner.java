@@ -22,6 +22,7 @@
  */
 package de.muenchen.allg.itd51.wollmux.document.commands;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,6 +40,12 @@ import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand.InsertFo
  */
 class InsertFormValueCommandsScanner extends AbstractExecutor
 {
+  /**
+   * Ab dieser Anzahl von insertFormValue-Kommandos werden die FormFields aller Kommandos mit einem
+   * einzigen Durchlauf durch das Dokument erzeugt.
+   */
+  static final int BULK_SCAN_THRESHOLD = 16;
+
   /**
    *
    */
@@ -65,6 +72,23 @@ class InsertFormValueCommandsScanner extends AbstractExecutor
 
   public int execute(DocumentCommands commands)
   {
+    List<InsertFormValue> cmds = new ArrayList<>();
+    for (DocumentCommand cmd : commands)
+    {
+      if (cmd instanceof InsertFormValue && !cmd.isDone() && !cmd.hasError())
+      {
+        cmds.add((InsertFormValue) cmd);
+      }
+    }
+
+    // Bei vielen Kommandos ist ein einziger Durchlauf durch das Dokument günstiger als das
+    // Enumerieren der Bereiche der einzelnen Bookmarks. Kommandos, deren Bookmarks dabei nicht
+    // gefunden werden (z.B. in Kopf- und Fußzeilen), werden in executeCommand einzeln behandelt.
+    if (cmds.size() >= BULK_SCAN_THRESHOLD)
+    {
+      FormFieldFactory.createFormFields(this.documentCommandInterpreter.getModel().doc, cmds,
+          bookmarkNameToFormField);
+    }
     return executeAll(commands);
   }
 
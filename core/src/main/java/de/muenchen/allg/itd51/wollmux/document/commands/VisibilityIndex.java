@@ -0,0 +1,378 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document.commands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.star.lang.IllegalArgumentException;
+import com.sun.star.text.XTextRange;
+import com.sun.star.text.XTextRangeCompare;
+import com.sun.star.uno.UnoRuntime;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import de.muenchen.allg.itd51.wollmux.document.VisibilityElement;
+
+/**
+ * Nach Position sortierte Liste der Sichtbarkeitselemente eines Dokuments, die die
+ * Gruppenzuordnung verschachtelter Sichtbarkeitselemente gemäß der
+ * Vererbungsstruktur der Sichtbarkeitsgruppen auf untergeordnete Elemente
+ * überträgt.
+ *
+ * Textbereiche sind nur innerhalb desselben Text-Objekts (Haupttext, Tabellenzelle,
+ * Kopfzeile, ...) vergleichbar. Die Elemente werden daher pro Text-Objekt sortiert
+ * gehalten. Der Anker eines Elements wird nur beim Hinzufügen einmal bestimmt.
+ * Beim Hinzufügen werden nur die neuen Elemente sortiert und in die bestehende
+ * Liste eingefügt. Die Verschachtelung wird in einem Durchlauf über die jeweils
+ * offenen Elemente bestimmt, wobei nur Paare mit mindestens einem neuen Element
+ * verglichen werden.
+ */
+class VisibilityIndex
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(VisibilityIndex.class);
+
+  /**
+   * Vergleich von Textbereichen über UNO.
+   */
+  static final RangeOrder UNO_ORDER = new RangeOrder()
+  {
+    @Override
+    public Object getText(XTextRange range)
+    {
+      return range.getText();
+    }
+
+    @Override
+    public Object getKey(Object text)
+    {
+      return UnoRuntime.generateOid(text);
+    }
+
+    @Override
+    public int compareStarts(Object text, XTextRange a, XTextRange b)
+    {
+      return compare(text, a, b, true);
+    }
+
+    @Override
+    public int compareEnds(Object text, XTextRange a, XTextRange b)
+    {
+      return compare(text, a, b, false);
+    }
+
+    @Override
+    public int compareEndToStart(Object text, XTextRange a, XTextRange b)
+    {
+      return compare(text, a.getEnd(), b, true);
+    }
+
+    /**
+     * UNO liefert 1, wenn a vor b liegt. Das Vorzeichen wird für Java umgedreht.
+     */
+    private int compare(Object text, XTextRange a, XTextRange b, boolean starts)
+    {
+      XTextRangeCompare compare = UNO.XTextRangeCompare(text);
+      try
+      {
+        return -(starts ? compare.compareRegionStarts(a, b) : compare.compareRegionEnds(a, b));
+      } catch (IllegalArgumentException e)
+      {
+        LOGGER.trace("", e);
+        return 0;
+      }
+    }
+  };
+
+  /**
+   * Bestimmt die Lage von Textbereichen.
+   */
+  interface RangeOrder
+  {
+    /**
+     * Liefert das Text-Objekt, in dem range liegt.
+     */
+    Object getText(XTextRange range);
+
+    /**
+     * Liefert einen Schlüssel für das Text-Objekt text, der für dasselbe Objekt
+     * immer gleich ist.
+     */
+    Object getKey(Object text);
+
+    /**
+     * Vergleicht die Anfänge von a und b im Text-Objekt text. Das Ergebnis ist
+     * negativ, wenn a vor b beginnt, 0 bei gleichem Anfang und sonst positiv.
+     */
+    int compareStarts(Object text, XTextRange a, XTextRange b);
+
+    /**
+     * Vergleicht die Enden von a und b im Text-Objekt text. Das Ergebnis ist
+     * negativ, wenn a vor b endet, 0 bei gleichem Ende und sonst positiv.
+     */
+    int compareEnds(Object text, XTextRange a, XTextRange b);
+
+    /**
+     * Vergleicht das Ende von a mit dem Anfang von b im Text-Objekt text. Das
+     * Ergebnis ist negativ, wenn a endet bevor b beginnt, 0 wenn beide
+     * Positionen gleich sind und sonst positiv.
+     */
+    int compareEndToStart(Object text, XTextRange a, XTextRange b);
+  }
+
+  private final RangeOrder order;
+
+  /**
+   * Die sortierten Elemente pro Text-Objekt.
+   */
+  private final Map<Object, List<Entry>> texts = new LinkedHashMap<>();
+
+  /**
+   * Alle Sichtbarkeitselemente in der Reihenfolge von {@link #texts}.
+   */
+  private List<VisibilityElement> elements = new ArrayList<>();
+
+  VisibilityIndex()
+  {
+    this(UNO_ORDER);
+  }
+
+  VisibilityIndex(RangeOrder order)
+  {
+    this.order = order;
+  }
+
+  /**
+   * Liefert alle Sichtbarkeitselemente sortiert nach ihrer Position.
+   *
+   * @return Eine nicht veränderbare Liste der Sichtbarkeitselemente.
+   */
+  List<VisibilityElement> getElements()
+  {
+    return Collections.unmodifiableList(elements);
+  }
+
+  /**
+   * Fügt neue Sichtbarkeitselemente sortiert hinzu und überträgt die Gruppen der
+   * umschließenden Elemente auf die verschachtelten Elemente. Elemente ohne Anker
+   * werden ignoriert.
+   *
+   * @param newElements
+   *          Die neuen Sichtbarkeitselemente.
+   */
+  void addAll(Collection<? extends VisibilityElement> newElements)
+  {
+    if (newElements.isEmpty())
+    {
+      return;
+    }
+
+    Map<Object, List<Entry>> added = new LinkedHashMap<>();
+    for (VisibilityElement element : newElements)
+    {
+      XTextRange anchor = element.getAnchor();
+      if (anchor == null)
+      {
+        continue;
+      }
+      Object text = order.getText(anchor);
+      added.computeIfAbsent(order.getKey(text), k -> new ArrayList<>())
+          .add(new Entry(element, anchor, text));
+    }
+
+    for (Map.Entry<Object, List<Entry>> e : added.entrySet())
+    {
+      List<Entry> newEntries = e.getValue();
+      newEntries.sort(this::compare);
+      List<Entry> merged = merge(texts.getOrDefault(e.getKey(), Collections.emptyList()),
+          newEntries);
+      inheritGroups(merged);
+      newEntries.forEach(entry -> entry.added = false);
+      texts.put(e.getKey(), merged);
+    }
+    updateElements();
+  }
+
+  /**
+   * Entfernt Sichtbarkeitselemente.
+   *
+   * @param removed
+   *          Die zu entfernenden Sichtbarkeitselemente.
+   */
+  void removeAll(Collection<? extends VisibilityElement> removed)
+  {
+    if (removed.isEmpty())
+    {
+      return;
+    }
+    Set<VisibilityElement> set = new HashSet<>(removed);
+    for (Iterator<List<Entry>> iter = texts.values().iterator(); iter.hasNext();)
+    {
+      List<Entry> entries = iter.next();
+      entries.removeIf(entry -> set.contains(entry.element));
+      if (entries.isEmpty())
+      {
+        iter.remove();
+      }
+    }
+    updateElements();
+  }
+
+  private void updateElements()
+  {
+    List<VisibilityElement> all = new ArrayList<>(elements.size());
+    texts.values().forEach(entries -> entries.forEach(entry -> all.add(entry.element)));
+    elements = all;
+  }
+
+  /**
+   * Fügt die sortierten neuen Elemente in die sortierten bisherigen Elemente ein.
+   * Bei gleicher Position steht das bisherige Element zuerst.
+   */
+  private List<Entry> merge(List<Entry> entries, List<Entry> newEntries)
+  {
+    List<Entry> merged = new ArrayList<>(entries.size() + newEntries.size());
+    int i = 0;
+    int j = 0;
+    while (i < entries.size() && j < newEntries.size())
+    {
+      if (compare(entries.get(i), newEntries.get(j)) <= 0)
+      {
+        merged.add(entries.get(i++));
+      } else
+      {
+        merged.add(newEntries.get(j++));
+      }
+    }
+    merged.addAll(entries.subList(i, entries.size()));
+    merged.addAll(newEntries.subList(j, newEntries.size()));
+    return merged;
+  }
+
+  /**
+   * Sortiert nach dem Anfang und bei gleichem Anfang das umschließende Element
+   * zuerst.
+   */
+  private int compare(Entry a, Entry b)
+  {
+    int result = order.compareStarts(a.text, a.anchor, b.anchor);
+    if (result == 0)
+    {
+      result = order.compareEnds(a.text, b.anchor, a.anchor);
+    }
+    return result;
+  }
+
+  /**
+   * Überträgt die Gruppen aller umschließenden Elemente auf die enthaltenen
+   * Elemente. Elemente an der selben Position erhalten gegenseitig ihre Gruppen.
+   * Die bisherigen Elemente untereinander wurden bereits beim früheren Hinzufügen
+   * abgeglichen, daher werden nur Paare mit einem neuen Element verglichen.
+   *
+   * @param entries
+   *          Die sortierten Elemente eines Text-Objekts.
+   */
+  private void inheritGroups(List<Entry> entries)
+  {
+    // Die Elemente, die vor dem aktuellen Element beginnen und nicht vor ihm
+    // enden. Nur diese können das aktuelle Element umschließen. Bisherige
+    // Elemente werden nur für neue Elemente geprüft.
+    LinkedList<Entry> openAdded = new LinkedList<>();
+    LinkedList<Entry> openExisting = new LinkedList<>();
+    for (Entry entry : entries)
+    {
+      inheritGroups(openAdded, entry);
+      if (entry.added)
+      {
+        inheritGroups(openExisting, entry);
+        openAdded.add(entry);
+      } else
+      {
+        openExisting.add(entry);
+      }
+    }
+  }
+
+  private void inheritGroups(List<Entry> open, Entry entry)
+  {
+    for (Iterator<Entry> iter = open.iterator(); iter.hasNext();)
+    {
+      Entry parent = iter.next();
+      if (contains(parent, entry))
+      {
+        if (order.compareStarts(entry.text, parent.anchor, entry.anchor) == 0
+            && order.compareEnds(entry.text, parent.anchor, entry.anchor) == 0)
+        {
+          parent.element.addGroups(entry.element.getGroups());
+        }
+        entry.element.addGroups(parent.element.getGroups());
+      } else if (order.compareEndToStart(entry.text, parent.anchor, entry.anchor) < 0)
+      {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Prüft, ob parent das Element entry umschließt. Dabei wird vorausgesetzt,
+   * dass parent nicht nach entry beginnt.
+   */
+  private boolean contains(Entry parent, Entry entry)
+  {
+    return order.compareEnds(entry.text, entry.anchor, parent.anchor) <= 0;
+  }
+
+  /**
+   * Ein Sichtbarkeitselement mit dem beim Hinzufügen bestimmten Anker.
+   */
+  private static class Entry
+  {
+    private final VisibilityElement element;
+
+    private final XTextRange anchor;
+
+    private final Object text;
+
+    /**
+     * Gesetzt, solange das Element beim Hinzufügen abgeglichen wird.
+     */
+    private boolean added = true;
+
+    private Entry(VisibilityElement element, XTextRange anchor, Object text)
+    {
+      this.element = element;
+      this.anchor = anchor;
+      this.text = text;
+    }
+  }
+}
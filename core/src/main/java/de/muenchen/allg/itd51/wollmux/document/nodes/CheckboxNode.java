@@ -59,6 +59,14 @@ public class CheckboxNode implements FormControl, Node
     this.doc = doc;
   }
 
+  /**
+   * Liefert das Model der Checkbox.
+   */
+  public XControlModel getControlModel()
+  {
+    return model;
+  }
+
   public boolean isChecked()
   {
     return CHECKED_STATE.equals(Utils.getProperty(model, UnoProperty.STATE));
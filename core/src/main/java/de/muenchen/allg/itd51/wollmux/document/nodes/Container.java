@@ -40,7 +40,12 @@ public interface Container
     /**
      * Rückgabewert für {@link #getType()} falls der Container ein Absatz ist.
      */
-    PARAGRAPH;
+    PARAGRAPH,
+
+    /**
+     * Rückgabewert für {@link #getType()} falls der Container eine Tabelle ist.
+     */
+    TABLE;
   }
 
   /**
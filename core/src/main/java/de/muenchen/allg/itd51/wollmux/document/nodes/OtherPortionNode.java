@@ -0,0 +1,60 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document.nodes;
+
+import de.muenchen.allg.itd51.wollmux.document.DocumentTreeVisitor;
+
+/**
+ * Knoten für ein Textfeld oder einen Rahmen, der kein Formularsteuerelement
+ * darstellt, z.B. ein Datumsfeld oder ein Rahmen ohne Checkbox.
+ */
+public class OtherPortionNode implements Node
+{
+  private String textPortionType;
+
+  public OtherPortionNode(String textPortionType)
+  {
+    super();
+    this.textPortionType = textPortionType;
+  }
+
+  /**
+   * Liefert den TextPortionType, z.B. "TextField" oder "Frame".
+   */
+  public String getTextPortionType()
+  {
+    return textPortionType;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "<" + textPortionType + ">";
+  }
+
+  @Override
+  public boolean visit(DocumentTreeVisitor visit)
+  {
+    return visit.otherPortion(this);
+  }
+}
@@ -37,4 +37,12 @@ public class TextFieldNode implements Node
     this.textfield = textField;
     this.doc = doc;
   }
+
+  /**
+   * Liefert das Textfeld, das dieser Knoten repräsentiert.
+   */
+  public XDependentTextField getTextField()
+  {
+    return textfield;
+  }
 }
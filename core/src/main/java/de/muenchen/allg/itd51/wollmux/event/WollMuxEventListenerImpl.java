@@ -32,6 +32,7 @@ import de.muenchen.allg.itd51.wollmux.event.handlers.OnCloseTextDocument;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnCollectNonWollMuxFormFieldsViaPrintModel;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnDumpInfo;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnExecutePrintFunction;
+import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormChanged;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormValueChanged;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormularMax4000Show;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnFunctionDialog;
@@ -243,6 +244,18 @@ public class WollMuxEventListenerImpl implements WollMuxEventListener
     event.process();
   }
 
+  /**
+   * Execute the event
+   *
+   * @param event
+   *          The event.
+   */
+  @Subscribe
+  public void onFormChanged(OnFormChanged event)
+  {
+    event.process();
+  }
+
   /**
    * Execute the event
    *
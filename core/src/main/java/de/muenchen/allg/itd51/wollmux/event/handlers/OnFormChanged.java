@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.event.handlers;
+
+import de.muenchen.allg.itd51.wollmux.document.TextDocumentController;
+import de.muenchen.allg.itd51.wollmux.form.model.FormChangeSet;
+
+/**
+ * Event for applying all changes of one modification of the form model to the document. Form
+ * fields and visibilities are updated in one pass.
+ */
+public class OnFormChanged extends WollMuxEvent
+{
+  private FormChangeSet changes;
+
+  private TextDocumentController documentController;
+
+  /**
+   * Create this event.
+   *
+   * @param documentController
+   *          The document.
+   * @param changes
+   *          The changes of the form model.
+   */
+  public OnFormChanged(TextDocumentController documentController, FormChangeSet changes)
+  {
+    this.documentController = documentController;
+    this.changes = changes;
+  }
+
+  public TextDocumentController getDocumentController()
+  {
+    return documentController;
+  }
+
+  public FormChangeSet getChanges()
+  {
+    return changes;
+  }
+
+  @Override
+  protected void doit()
+  {
+    documentController.applyFormChanges(changes);
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getClass().getSimpleName() + "(" + changes + ")";
+  }
+}
@@ -37,7 +37,6 @@ import com.sun.star.lang.XComponent;
 import org.libreoffice.ext.unohelper.common.UNO;
 import de.muenchen.allg.itd51.wollmux.WollMuxFehlerException;
 import de.muenchen.allg.itd51.wollmux.WollMuxFiles;
-import de.muenchen.allg.itd51.wollmux.WollMuxSingleton;
 import de.muenchen.allg.itd51.wollmux.config.ConfigurationErrorException;
 import de.muenchen.allg.itd51.wollmux.config.InvalidIdentifierException;
 import de.muenchen.allg.itd51.wollmux.document.DocumentLoader;
@@ -140,13 +139,8 @@ public class OnOpenDocument extends WollMuxEvent
         {
           URL url = WollMuxFiles.makeURL(urlStr);
           urlStr = UNO.getParsedUNOUrl(url.toExternalForm()).Complete;
-          url = WollMuxFiles.makeURL(urlStr);
-          found = DocumentLoader.getInstance().hasDocument(urlStr);
-          if (!found)
-          {
-            WollMuxSingleton.checkURL(url);
-            found = true;
-          }
+          DocumentLoader.getInstance().checkDocument(urlStr);
+          found = true;
         } catch (MalformedURLException e)
         {
           LOGGER.info("", e);
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.event.handlers;
+
+import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.star.text.XTextDocument;
+
+import de.muenchen.allg.itd51.wollmux.WollMuxFehlerException;
+import de.muenchen.allg.itd51.wollmux.document.DocumentManager;
+import de.muenchen.allg.itd51.wollmux.document.TextDocumentController;
+import de.muenchen.allg.itd51.wollmux.form.control.FormController;
+
+/**
+ * Event for setting several form values in a document at once. Values of fields of the form model
+ * are processed by the form model of the document, which updates all dependent fields once. All
+ * other values are written to the document at once.
+ */
+public class OnSetFormValues extends WollMuxEvent
+{
+  private XTextDocument doc;
+
+  private Map<String, String> values;
+
+  private final ActionListener listener;
+
+  /**
+   * Create this event.
+   *
+   * @param doc
+   *          The document.
+   * @param values
+   *          Mapping from the ID of a field to its new value.
+   * @param listener
+   *          A listener to notify after processing is finished.
+   */
+  public OnSetFormValues(XTextDocument doc, Map<String, String> values, ActionListener listener)
+  {
+    this.doc = doc;
+    this.values = values;
+    this.listener = listener;
+  }
+
+  @Override
+  protected void doit() throws WollMuxFehlerException
+  {
+    TextDocumentController documentController = DocumentManager.getTextDocumentController(doc);
+
+    FormController formModel = DocumentManager.getDocumentManager().getFormController(doc);
+    Map<String, String> formValues = new LinkedHashMap<>();
+    Map<String, String> documentValues = new LinkedHashMap<>();
+    for (Map.Entry<String, String> value : values.entrySet())
+    {
+      if (formModel != null && formModel.hasFieldId(value.getKey()))
+      {
+        formValues.put(value.getKey(), value.getValue());
+      } else
+      {
+        documentValues.put(value.getKey(), value.getValue());
+      }
+    }
+
+    documentController.addFormFieldValues(documentValues);
+    if (!formValues.isEmpty())
+    {
+      formModel.setValues(formValues, e -> new OnSetFormValueFinished(listener).emit());
+    } else if (listener != null)
+    {
+      listener.actionPerformed(null);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getClass().getSimpleName() + "(#" + doc.hashCode() + ", values=" + values + ")";
+  }
+}
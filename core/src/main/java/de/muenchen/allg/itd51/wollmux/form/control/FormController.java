@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -197,6 +198,24 @@ public class FormController
     }
   }
 
+  /**
+   * Setzt die Werte mehrerer Formularfelder. Abhängige Felder und Sichtbarkeiten werden nur einmal
+   * für alle Werte aktualisiert.
+   *
+   * @param values
+   *          Abbildung von Feld-ID auf den neuen Wert.
+   * @param listener
+   *          Wird benachrichtigt, wenn alle Werte gesetzt sind.
+   */
+  public void setValues(Map<String, String> values, ActionListener listener)
+  {
+    model.setValues(values);
+    if (listener != null)
+    {
+      listener.actionPerformed(null);
+    }
+  }
+
   /**
    * Öffnet einen Funktionsdialog.
    *
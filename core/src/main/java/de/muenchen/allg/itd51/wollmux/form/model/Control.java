@@ -33,7 +33,6 @@ import de.muenchen.allg.itd51.wollmux.func.Function;
 import de.muenchen.allg.itd51.wollmux.func.FunctionFactory;
 import de.muenchen.allg.itd51.wollmux.func.FunctionLibrary;
 import de.muenchen.allg.itd51.wollmux.func.Values;
-import de.muenchen.allg.itd51.wollmux.func.Values.SimpleMap;
 import de.muenchen.allg.itd51.wollmux.ui.UIElementConfig;
 import de.muenchen.allg.itd51.wollmux.ui.UIElementType;
 
@@ -116,7 +115,8 @@ public class Control
     type = conf.getType();
     try
     {
-      plausi = FunctionFactory.parseGrandchildren(conf.getPlausi(), funcLib, dialogLib, functionContext);
+      plausi = FunctionFactory
+          .memoize(FunctionFactory.parseGrandchildren(conf.getPlausi(), funcLib, dialogLib, functionContext));
       if (plausi == null)
       {
         plausi = FunctionFactory.alwaysTrueFunction();
@@ -128,7 +128,8 @@ public class Control
     try
     {
       autofill = Optional
-          .ofNullable(FunctionFactory.parseGrandchildren(conf.getAutofill(), funcLib, dialogLib, functionContext));
+          .ofNullable(FunctionFactory.memoize(
+              FunctionFactory.parseGrandchildren(conf.getAutofill(), funcLib, dialogLib, functionContext)));
     } catch (ConfigurationErrorException e)
     {
       autofill = Optional.empty();
@@ -220,6 +221,16 @@ public class Control
     }
   }
 
+  public List<Control> getDependingAutoFillFormFields()
+  {
+    return dependingAutoFillFormFields;
+  }
+
+  public List<Control> getDependingPlausiFormFields()
+  {
+    return dependingPlausiFormFields;
+  }
+
   /**
    * Add a dependency for an AUTOFILL function.
    *
@@ -242,34 +253,6 @@ public class Control
     dependingPlausiFormFields.add(control);
   }
 
-  /**
-   * Compute the value of all dependent fields. The value is only computed once for each control.
-   *
-   * @param value
-   *          The new value of this control.
-   * @param values
-   *          The values of all fields.
-   * @param modified
-   *          Already computed fields.
-   */
-  public void computeNewValues(String value, SimpleMap values, SimpleMap modified)
-  {
-    modified.put(id, value);
-    SimpleMap newValues = new SimpleMap(values);
-    newValues.putAll(modified);
-    for (Control control : dependingAutoFillFormFields)
-    {
-      if (!modified.hasValue(control.id))
-      {
-        String v = control.computeValue(newValues);
-        if (v != null)
-        {
-          control.computeNewValues(v, newValues, modified);
-        }
-      }
-    }
-  }
-
   /**
    * Compute the value of the control based on {@link #autofill} and the provided values. The value
    * has to be set with {@link #setValue(String)}.
@@ -279,7 +262,7 @@ public class Control
    * @return The result of the AUTOFILL function if there's one. Otherwise the first option if it's
    *         a {@link UIElementType#COMBOBOX} or the empty string.
    */
-  public String computeValue(SimpleMap values)
+  public String computeValue(Values values)
   {
     if (autofill.isPresent())
       return autofill.get().getResult(values);
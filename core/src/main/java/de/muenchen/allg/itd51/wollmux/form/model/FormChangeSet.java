@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.form.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of all changes of a form caused by one modification. Each control and each
+ * visibility group is contained at most once with its final state, so that listeners can update
+ * the user interface and the document in one pass.
+ */
+public final class FormChangeSet
+{
+  /**
+   * Mapping from control ID to the new value.
+   */
+  private final Map<String, String> values;
+
+  /**
+   * Mapping from control ID to the new PLAUSI state.
+   */
+  private final Map<String, Boolean> plausiStates;
+
+  /**
+   * Mapping from group ID to the new visibility.
+   */
+  private final Map<String, Boolean> visibilities;
+
+  /**
+   * Create a new change set. The maps are copied.
+   *
+   * @param values
+   *          Mapping from control ID to the new value.
+   * @param plausiStates
+   *          Mapping from control ID to the new PLAUSI state.
+   * @param visibilities
+   *          Mapping from group ID to the new visibility.
+   */
+  FormChangeSet(Map<String, String> values, Map<String, Boolean> plausiStates,
+      Map<String, Boolean> visibilities)
+  {
+    this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    this.plausiStates = Collections.unmodifiableMap(new LinkedHashMap<>(plausiStates));
+    this.visibilities = Collections.unmodifiableMap(new LinkedHashMap<>(visibilities));
+  }
+
+  /**
+   * Get the changed values in the order they have been changed.
+   *
+   * @return Unmodifiable mapping from control ID to the new value.
+   */
+  public Map<String, String> getValues()
+  {
+    return values;
+  }
+
+  /**
+   * Get the changed PLAUSI states.
+   *
+   * @return Unmodifiable mapping from control ID to the new state.
+   */
+  public Map<String, Boolean> getPlausiStates()
+  {
+    return plausiStates;
+  }
+
+  /**
+   * Get the changed visibilities.
+   *
+   * @return Unmodifiable mapping from group ID to the new visibility.
+   */
+  public Map<String, Boolean> getVisibilities()
+  {
+    return visibilities;
+  }
+
+  /**
+   * Has anything changed?
+   *
+   * @return True if there are no changes, false otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return values.isEmpty() && plausiStates.isEmpty() && visibilities.isEmpty();
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getClass().getSimpleName() + "(values=" + values + ", plausi=" + plausiStates
+        + ", visibilities=" + visibilities + ")";
+  }
+}
@@ -0,0 +1,195 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.form.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import de.muenchen.allg.itd51.wollmux.func.Values;
+
+/**
+ * Dependency graph of the controls of a form. The controls are ordered topologically by their
+ * AUTOFILL dependencies, so that a control is computed after all controls it depends on.
+ *
+ * Cyclic dependencies are allowed. The controls of a cycle are ordered by their position in the
+ * form and each control is computed at most once per change.
+ */
+class FormDependencyGraph
+{
+  /**
+   * Position of each control in the topological order.
+   */
+  private final Map<Control, Integer> order = new HashMap<>();
+
+  /**
+   * Create the graph. The dependencies of the controls have to be known.
+   *
+   * @param controls
+   *          All controls of the form in the order of the form.
+   */
+  FormDependencyGraph(Collection<Control> controls)
+  {
+    Map<Control, Integer> inDegree = new HashMap<>();
+    controls.forEach(c -> inDegree.put(c, 0));
+    for (Control control : controls)
+    {
+      for (Control dependent : new LinkedHashSet<>(control.getDependingAutoFillFormFields()))
+      {
+        inDegree.merge(dependent, 1, Integer::sum);
+      }
+    }
+
+    Deque<Control> ready = new ArrayDeque<>();
+    controls.stream().filter(c -> inDegree.get(c) == 0).forEach(ready::add);
+    while (!ready.isEmpty())
+    {
+      Control control = ready.poll();
+      order.put(control, order.size());
+      for (Control dependent : new LinkedHashSet<>(control.getDependingAutoFillFormFields()))
+      {
+        if (inDegree.merge(dependent, -1, Integer::sum) == 0)
+        {
+          ready.add(dependent);
+        }
+      }
+    }
+
+    // controls in cycles
+    controls.forEach(c -> order.putIfAbsent(c, order.size()));
+  }
+
+  /**
+   * Set the value of a control and recompute all controls whose AUTOFILL depends directly or
+   * indirectly on it. Only controls whose value changed propagate the change further.
+   *
+   * @param source
+   *          The control.
+   * @param value
+   *          The new value of the control.
+   * @param values
+   *          The values of the form. It has to reflect the current values of the controls.
+   * @param beforeChange
+   *          Called for each control before its value is changed.
+   * @return All controls with changed values in the order they have been changed, starting with
+   *         source.
+   */
+  List<Control> propagate(Control source, String value, Values values,
+      Consumer<Control> beforeChange)
+  {
+    return propagate(Collections.singletonMap(source, value), values, beforeChange);
+  }
+
+  /**
+   * Set the values of several controls and recompute all controls whose AUTOFILL depends directly
+   * or indirectly on one of them. Each depending control is computed at most once. The given values
+   * aren't overwritten by AUTOFILLs.
+   *
+   * @param sources
+   *          Mapping from control to its new value.
+   * @param values
+   *          The values of the form. It has to reflect the current values of the controls.
+   * @param beforeChange
+   *          Called for each control before its value is changed.
+   * @return All controls with changed values in the order they have been changed, starting with
+   *         the sources.
+   */
+  List<Control> propagate(Map<Control, String> sources, Values values,
+      Consumer<Control> beforeChange)
+  {
+    List<Control> changed = new ArrayList<>();
+    Set<Control> visited = new HashSet<>(sources.keySet());
+    PriorityQueue<Control> dirty = new PriorityQueue<>(Comparator.comparing(order::get));
+    for (Map.Entry<Control, String> source : sources.entrySet())
+    {
+      beforeChange.accept(source.getKey());
+      source.getKey().setValue(source.getValue());
+      changed.add(source.getKey());
+      markDirty(source.getKey(), visited, dirty);
+    }
+
+    while (!dirty.isEmpty())
+    {
+      Control control = dirty.poll();
+      String newValue = control.computeValue(values);
+      if (newValue != null && !newValue.equals(control.getValue()))
+      {
+        beforeChange.accept(control);
+        control.setValue(newValue);
+        changed.add(control);
+        markDirty(control, visited, dirty);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Get the controls and all controls whose PLAUSI depends on one of the controls.
+   *
+   * @param controls
+   *          The controls.
+   * @return The controls and their depending controls without duplicates.
+   */
+  Set<Control> getPlausiDependents(Collection<Control> controls)
+  {
+    Set<Control> dependents = new LinkedHashSet<>(controls);
+    controls.forEach(c -> dependents.addAll(c.getDependingPlausiFormFields()));
+    return dependents;
+  }
+
+  /**
+   * Get all visibility groups whose condition depends on one of the controls.
+   *
+   * @param controls
+   *          The controls.
+   * @return The depending groups without duplicates.
+   */
+  Set<VisibilityGroup> getGroupDependents(Collection<Control> controls)
+  {
+    Set<VisibilityGroup> dependents = new LinkedHashSet<>();
+    controls.forEach(c -> dependents.addAll(c.getDependingGroups()));
+    return dependents;
+  }
+
+  private static void markDirty(Control control, Set<Control> visited, PriorityQueue<Control> dirty)
+  {
+    for (Control dependent : control.getDependingAutoFillFormFields())
+    {
+      if (visited.add(dependent))
+      {
+        dirty.add(dependent);
+      }
+    }
+  }
+}
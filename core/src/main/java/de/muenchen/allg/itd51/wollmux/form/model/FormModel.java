@@ -43,7 +43,6 @@ import de.muenchen.allg.itd51.wollmux.form.config.VisibilityGroupConfig;
 import de.muenchen.allg.itd51.wollmux.form.sidebar.FormSidebarController;
 import de.muenchen.allg.itd51.wollmux.func.FunctionLibrary;
 import de.muenchen.allg.itd51.wollmux.func.Values;
-import de.muenchen.allg.itd51.wollmux.func.Values.SimpleMap;
 import de.muenchen.allg.itd51.wollmux.ui.UIElementConfig;
 
 /**
@@ -84,6 +83,16 @@ public class FormModel
    */
   private Map<String, List<Control>> mapDialogNameToListOfControlsWithDependingAutofill = new HashMap<>();
 
+  /**
+   * Live view on the values of all controls.
+   */
+  private final Values values = new ControlValues();
+
+  /**
+   * The dependencies between the controls.
+   */
+  private final FormDependencyGraph dependencies;
+
   /**
    * Instance of TextDocumentController.
    */
@@ -145,6 +154,7 @@ public class FormModel
     {
       storeDepsForFormField(control);
     }
+    dependencies = new FormDependencyGraph(formControls.values());
 
     this.initControls(presetValues);
   }
@@ -157,7 +167,6 @@ public class FormModel
   private void initControls(Map<String, String> presetValues)
   {
     // Initialize controls with preset values or AUTOFILL function
-    SimpleMap values = idToValue();
     for (Control control : formControls.values())
     {
       String value = "";
@@ -172,7 +181,6 @@ public class FormModel
       {
         txtDocController.setValueChanged(control.getId(), value);
         control.setValue(value);
-        values.put(control.getId(), value);
       }
     }
 
@@ -256,8 +264,9 @@ public class FormModel
   }
 
   /**
-   * Set the value of a control and notify the listeners. All depending controls are updated. For
-   * all changed controls the state is computed.
+   * Set the value of a control and notify the listeners. All depending controls are updated in
+   * topological order. Changes are only propagated and notified if a value, state or visibility
+   * really changed.
    *
    * @param id
    *          The ID of the control.
@@ -266,39 +275,105 @@ public class FormModel
    */
   public void setValue(final String id, final String value)
   {
-    if (formControls.containsKey(id) && !formControls.get(id).getValue().equals(value))
+    ChangeCollector changes = new ChangeCollector();
+    setValue(id, value, changes);
+    fireChanges(changes.toChangeSet());
+  }
+
+  /**
+   * Set the value of a control and collect all changes.
+   *
+   * @param id
+   *          The ID of the control.
+   * @param value
+   *          The value of the control.
+   * @param changes
+   *          The collector of the changes.
+   */
+  private void setValue(final String id, final String value, ChangeCollector changes)
+  {
+    Control field = formControls.get(id);
+    if (field == null || field.getValue().equals(value))
     {
-      Control field = formControls.get(id);
-      SimpleMap modified = new SimpleMap();
+      return;
+    }
 
-      // compute dependent controls
-      field.computeNewValues(value, idToValue(), modified);
-      SimpleMap newValues = idToValue();
-      newValues.putAll(modified);
-      List<VisibilityGroup> modifiedGroups = new ArrayList<>();
+    List<Control> changed = dependencies.propagate(field, value, values, changes::valueChanging);
+    updateDependents(changed, changes);
+  }
 
-      // update values and notify listener
-      for (Map.Entry<String, String> changedEntries : modified)
+  /**
+   * Set the values of several controls and notify the listeners once. All depending controls,
+   * states and visibilities are computed once for all values.
+   *
+   * @param newValues
+   *          Mapping from control ID to value. IDs without a control are ignored.
+   */
+  public void setValues(Map<String, String> newValues)
+  {
+    Map<Control, String> sources = new LinkedHashMap<>();
+    newValues.forEach((id, value) -> {
+      Control field = formControls.get(id);
+      if (field != null && !field.getValue().equals(value))
       {
-        Control control = formControls.get(changedEntries.getKey());
-        control.setValue(changedEntries.getValue());
-        control.setOkay(newValues);
-        formSidebarController.setFormUiValue(control.getId(), control.getValue());
-        formSidebarController.setControlBackground(control.getId(), control.isOkay(), false);
-        txtDocController.setValueChanged(control.getId(), control.getValue());
-        modifiedGroups.addAll(control.getDependingGroups());
+        sources.put(field, value);
       }
-      modifiedGroups.forEach(g -> g.computeVisibility(newValues));
+    });
+    if (sources.isEmpty())
+    {
+      return;
+    }
 
-        for (VisibilityGroup g : modifiedGroups)
-        {
-          if (txtDocController != null && formSidebarController != null) {
-            //update vis. in doc
-            txtDocController.setVisibilityChanged(g.getGroupId(), g.isVisible());
-            //update vis in form-ui
-            formSidebarController.visibilityChanged(g.getGroupId());
-          }
-        }
+    ChangeCollector changes = new ChangeCollector();
+    List<Control> changed = dependencies.propagate(sources, values, changes::valueChanging);
+    updateDependents(changed, changes);
+    fireChanges(changes.toChangeSet());
+  }
+
+  /**
+   * Compute the state of all controls and the visibility of all groups, which depend on the
+   * changed controls.
+   *
+   * @param changed
+   *          The controls with changed values.
+   * @param changes
+   *          The collector of the changes.
+   */
+  private void updateDependents(List<Control> changed, ChangeCollector changes)
+  {
+    for (Control control : dependencies.getPlausiDependents(changed))
+    {
+      changes.plausiChanging(control);
+      control.setOkay(values);
+    }
+
+    for (VisibilityGroup g : dependencies.getGroupDependents(changed))
+    {
+      changes.visibilityChanging(g);
+      g.computeVisibility(values);
+    }
+  }
+
+  /**
+   * Notify the form UI and the document about all changes in one pass.
+   *
+   * @param changes
+   *          The changes.
+   */
+  private void fireChanges(FormChangeSet changes)
+  {
+    if (changes.isEmpty())
+    {
+      return;
+    }
+    LOGGER.trace("{}", changes);
+    if (formSidebarController != null)
+    {
+      formSidebarController.applyChanges(changes);
+    }
+    if (txtDocController != null)
+    {
+      txtDocController.setFormChanged(changes);
     }
   }
 
@@ -371,11 +446,13 @@ public class FormModel
    */
   public void setDialogAutofills(String dialogName)
   {
+    ChangeCollector changes = new ChangeCollector();
     for (Control c : mapDialogNameToListOfControlsWithDependingAutofill.get(dialogName))
     {
       c.getAutofill()
-          .ifPresent(autofill -> setValue(c.getId(), autofill.getResult(idToValue())));
+          .ifPresent(autofill -> setValue(c.getId(), autofill.getResult(values), changes));
     }
+    fireChanges(changes.toChangeSet());
   }
 
   /**
@@ -390,21 +467,6 @@ public class FormModel
     return formControls.containsKey(fieldId);
   }
 
-  /**
-   * Create a mapping from control ID to control value.
-   *
-   * @return A mapping which can be used as function parameter.
-   */
-  private SimpleMap idToValue()
-  {
-    SimpleMap values = new Values.SimpleMap();
-    for (Map.Entry<String, Control> entry : formControls.entrySet())
-    {
-      values.put(entry.getKey(), entry.getValue().getValue());
-    }
-    return values;
-  }
-
   /**
    * Add a dependencies for all function dialogs which are referenced by the AUTOFILL function.
    *
@@ -474,7 +536,7 @@ public class FormModel
       }
     }
 
-    group.computeVisibility(idToValue());
+    group.computeVisibility(values);
   }
 
   /**
@@ -537,4 +599,90 @@ public class FormModel
   {
     visiblities.values().forEach(g -> l.visibilityChanged(g.getGroupId(), g.isVisible()));
   }
+
+  /**
+   * {@link Values} backed by the current values of the controls.
+   */
+  private class ControlValues implements Values
+  {
+    @Override
+    public boolean hasValue(String id)
+    {
+      return formControls.containsKey(id);
+    }
+
+    @Override
+    public String getString(String id)
+    {
+      Control control = formControls.get(id);
+      return control == null ? "" : control.getValue();
+    }
+
+    @Override
+    public boolean getBoolean(String id)
+    {
+      return "true".equalsIgnoreCase(getString(id));
+    }
+  }
+
+  /**
+   * Collects the states of controls and groups before they are modified. Controls or groups which
+   * are modified several times are only recorded once, so that only the final state is compared to
+   * the original state.
+   */
+  private static class ChangeCollector
+  {
+    private final Map<Control, String> oldValues = new LinkedHashMap<>();
+
+    private final Map<Control, Boolean> oldPlausiStates = new LinkedHashMap<>();
+
+    private final Map<VisibilityGroup, Boolean> oldVisibilities = new LinkedHashMap<>();
+
+    void valueChanging(Control control)
+    {
+      oldValues.putIfAbsent(control, control.getValue());
+    }
+
+    void plausiChanging(Control control)
+    {
+      oldPlausiStates.putIfAbsent(control, control.isOkay());
+    }
+
+    void visibilityChanging(VisibilityGroup group)
+    {
+      oldVisibilities.putIfAbsent(group, group.isVisible());
+    }
+
+    /**
+     * Create a change set with all controls and groups whose state differs from the original
+     * state.
+     *
+     * @return The change set.
+     */
+    FormChangeSet toChangeSet()
+    {
+      Map<String, String> newValues = new LinkedHashMap<>();
+      oldValues.forEach((c, v) -> {
+        if (!c.getValue().equals(v))
+        {
+          newValues.put(c.getId(), c.getValue());
+        }
+      });
+      Map<String, Boolean> newPlausiStates = new LinkedHashMap<>();
+      oldPlausiStates.forEach((c, okay) -> {
+        if (c.isOkay() != okay)
+        {
+          newPlausiStates.put(c.getId(), c.isOkay());
+        }
+      });
+      Map<String, Boolean> newVisibilities = new LinkedHashMap<>();
+      oldVisibilities.forEach((g, visible) -> {
+        if (g.isVisible() != visible)
+        {
+          newVisibilities.put(g.getGroupId(), g.isVisible());
+        }
+      });
+      return new FormChangeSet(newValues, newPlausiStates, newVisibilities);
+    }
+  }
 }
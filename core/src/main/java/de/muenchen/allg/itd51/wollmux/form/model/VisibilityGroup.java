@@ -70,7 +70,8 @@ public class VisibilityGroup
     groupId = conf.getGroupId();
     try
     {
-      condition = FunctionFactory.parseChildren(conf.getCondition(), funcLib, dialogLib, functionContext);
+      condition = FunctionFactory
+          .memoize(FunctionFactory.parseChildren(conf.getCondition(), funcLib, dialogLib, functionContext));
       if (condition == null)
       {
         condition = FunctionFactory.alwaysTrueFunction();
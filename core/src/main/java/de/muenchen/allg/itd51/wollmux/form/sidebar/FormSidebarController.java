@@ -25,9 +25,11 @@ package de.muenchen.allg.itd51.wollmux.form.sidebar;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -64,6 +66,7 @@ import de.muenchen.allg.itd51.wollmux.event.handlers.OnTextDocumentControllerIni
 import de.muenchen.allg.itd51.wollmux.form.config.FormConfig;
 import de.muenchen.allg.itd51.wollmux.form.control.FormController;
 import de.muenchen.allg.itd51.wollmux.form.model.Control;
+import de.muenchen.allg.itd51.wollmux.form.model.FormChangeSet;
 import de.muenchen.allg.itd51.wollmux.form.model.FormModel;
 import de.muenchen.allg.itd51.wollmux.form.model.FormModelException;
 import de.muenchen.allg.itd51.wollmux.form.model.VisibilityGroup;
@@ -541,6 +544,45 @@ public class FormSidebarController
     formSidebarPanel.setBackgroundColor(id, okay, formConfig.getPlausiMarkerColor().getRGB() & ~0xFF000000, init);
   }
 
+  /**
+   * Apply all changes of one modification of the form model. Values of the control which triggered
+   * the modification aren't set. Each control is updated at most once and the panel is only
+   * repainted once.
+   *
+   * @param changes
+   *          The changes of the form model.
+   */
+  public void applyChanges(FormChangeSet changes)
+  {
+    boolean process = processUIElementEvents;
+    processUIElementEvents = false;
+    try
+    {
+      changes.getValues().forEach((id, value) -> {
+        if (!noProcessValueChangedEvents.contains(id))
+        {
+          formSidebarPanel.setText(id, value);
+        }
+      });
+
+      changes.getPlausiStates().forEach((id, okay) -> setControlBackground(id, okay, false));
+
+      if (!changes.getVisibilities().isEmpty())
+      {
+        Set<Control> controls = new LinkedHashSet<>();
+        changes.getVisibilities().keySet().forEach(groupId -> controls.addAll(formModel.getControlsByGroupId(groupId)));
+        for (Control control : controls)
+        {
+          formSidebarPanel.setVisible(control.getId(), control.getGroups().stream().allMatch(VisibilityGroup::isVisible));
+        }
+        formSidebarPanel.paint();
+      }
+    } finally
+    {
+      processUIElementEvents = process;
+    }
+  }
+
   /**
    * Hide / Show form controls by its new visibility changed status.
    *
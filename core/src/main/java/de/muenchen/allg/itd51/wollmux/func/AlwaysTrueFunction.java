@@ -51,4 +51,10 @@ public class AlwaysTrueFunction implements Function
   {
     return true;
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return true;
+  }
 }
@@ -128,6 +128,12 @@ public class BindFunction implements Function
     return res;
   }
 
+  @Override
+  public boolean isPure()
+  {
+    return func.isPure() && mapParamNameToSetFunction.values().stream().allMatch(Function::isPure);
+  }
+
   private class TranslatedValues implements Values
   {
     private Values values;
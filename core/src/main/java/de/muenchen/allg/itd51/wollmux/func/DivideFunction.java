@@ -163,4 +163,10 @@ public class DivideFunction implements Function
   {
     return false;
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return dividendFunction.isPure() && (divisorFunction == null || divisorFunction.isPure());
+  }
 }
@@ -64,4 +64,17 @@ public interface Function
    */
   public boolean getBoolean(Values parameters);
 
+  /**
+   * Liefert true, wenn das Ergebnis der Funktion ausschließlich von den Werten der
+   * in {@link #parameters()} genannten Parameter abhängt. Solche Funktionen
+   * enthalten insbesondere keine {@link DialogFunction} und keine
+   * {@link ExternalFunctionFunction} und ihre Ergebnisse können zwischengespeichert
+   * werden (siehe {@link FunctionFactory#memoize(Function)}). Im Zweifel wird false
+   * geliefert.
+   */
+  public default boolean isPure()
+  {
+    return false;
+  }
+
 }
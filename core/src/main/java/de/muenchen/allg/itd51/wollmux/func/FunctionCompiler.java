@@ -0,0 +1,511 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiles a function tree into a tree of specialized closures. Intermediate results are passed in
+ * their natural type: numbers of nested SUM, DIFF, PRODUCT, MINUS, ABS and SIGN functions stay
+ * {@link BigDecimal}s and aren't formatted and parsed again, conditions of AND, OR, NOT, IF and
+ * MATCH are passed as tri-state values instead of the strings "true", "false" or
+ * {@link FunctionLibrary#ERROR}. Number literals are parsed at compile time.
+ *
+ * Functions which aren't known to the compiler (e.g. {@link DialogFunction},
+ * {@link ExternalFunctionFunction}, BIND or SELECT) are called as before. The compiled function
+ * returns the same results as the original function.
+ */
+final class FunctionCompiler
+{
+  private static final int TRUE = 1;
+
+  private static final int FALSE = 0;
+
+  private static final int ERROR = -1;
+
+  /**
+   * A compiled function returning a string or {@link FunctionLibrary#ERROR}.
+   */
+  @FunctionalInterface
+  interface StringExpr
+  {
+    String eval(Values values);
+  }
+
+  /**
+   * A compiled function returning a number or null in case of an error.
+   */
+  @FunctionalInterface
+  interface NumberExpr
+  {
+    BigDecimal eval(Values values);
+  }
+
+  /**
+   * A compiled function returning {@link FunctionCompiler#TRUE}, {@link FunctionCompiler#FALSE} or
+   * {@link FunctionCompiler#ERROR}.
+   */
+  @FunctionalInterface
+  interface ConditionExpr
+  {
+    int eval(Values values);
+  }
+
+  /**
+   * A compiled {@link Function#getBoolean(Values)}.
+   */
+  @FunctionalInterface
+  interface BooleanExpr
+  {
+    boolean eval(Values values);
+  }
+
+  private FunctionCompiler()
+  {
+    // hide public ctor
+  }
+
+  /**
+   * Compile a function.
+   *
+   * @param func
+   *          The function.
+   * @return A function with the same results as func. If there's nothing to compile func is
+   *         returned.
+   */
+  static Function compile(Function func)
+  {
+    if (func == null || func instanceof CompiledFunction || !isCompilable(func))
+    {
+      return func;
+    }
+    return new CompiledFunction(func, string(func), bool(func));
+  }
+
+  private static boolean isCompilable(Function func)
+  {
+    return func instanceof CatFunction || func instanceof AndFunction || func instanceof OrFunction
+        || func instanceof NotFunction || func instanceof IfFunction || func instanceof MatchFunction
+        || isNumeric(func);
+  }
+
+  /**
+   * Is the function one of the number functions, whose result can be computed as a
+   * {@link BigDecimal}?
+   */
+  private static boolean isNumeric(Function func)
+  {
+    Class<?> c = func.getClass();
+    return c == SumFunction.class || c == MinusFunction.class || c == AbsFunction.class
+        || c == SignFunction.class || c == DiffFunction.class || c == ProductFunction.class;
+  }
+
+  /**
+   * Compile {@link Function#getResult(Values)}.
+   */
+  static StringExpr string(Function func)
+  {
+    Class<?> c = func.getClass();
+    if (c == StringLiteralFunction.class)
+    {
+      String literal = func.getResult(null);
+      return values -> literal;
+    } else if (c == ValueFunction.class)
+    {
+      String id = func.parameters()[0];
+      return values -> values.hasValue(id) ? values.getString(id) : FunctionLibrary.ERROR;
+    } else if (c == CatFunction.class)
+    {
+      return cat(strings(((CatFunction) func).subFunction));
+    } else if (c == LengthFunction.class)
+    {
+      StringExpr cat = cat(strings(((LengthFunction) func).subFunction));
+      return values -> {
+        String res = cat.eval(values);
+        if (res == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        return Integer.toString(res.length());
+      };
+    } else if (c == AndFunction.class || c == OrFunction.class || c == NotFunction.class
+        || c == MatchFunction.class)
+    {
+      ConditionExpr condition = condition(func);
+      return values -> {
+        switch (condition.eval(values))
+        {
+        case TRUE:
+          return "true";
+        case FALSE:
+          return "false";
+        default:
+          return FunctionLibrary.ERROR;
+        }
+      };
+    } else if (c == IfFunction.class)
+    {
+      IfFunction f = (IfFunction) func;
+      ConditionExpr condition = condition(f.ifFunction);
+      StringExpr thenExpr = string(f.thenFunction);
+      StringExpr elseExpr = string(f.elseFunction);
+      return values -> {
+        switch (condition.eval(values))
+        {
+        case TRUE:
+          return thenExpr.eval(values);
+        case FALSE:
+          return elseExpr.eval(values);
+        default:
+          return FunctionLibrary.ERROR;
+        }
+      };
+    } else if (isNumeric(func))
+    {
+      NumberFunction f = (NumberFunction) func;
+      NumberExpr number = number(f);
+      if (c == SignFunction.class)
+      {
+        return values -> {
+          BigDecimal num = number.eval(values);
+          return num == null ? FunctionLibrary.ERROR : Integer.toString(num.signum());
+        };
+      }
+      return values -> {
+        BigDecimal num = number.eval(values);
+        return num == null ? FunctionLibrary.ERROR : f.formatBigDecimal(num);
+      };
+    }
+    return func::getResult;
+  }
+
+  /**
+   * Compile {@link Function#getBoolean(Values)}.
+   */
+  static BooleanExpr bool(Function func)
+  {
+    Class<?> c = func.getClass();
+    if (c == IfFunction.class)
+    {
+      IfFunction f = (IfFunction) func;
+      ConditionExpr condition = condition(f.ifFunction);
+      BooleanExpr thenExpr = bool(f.thenFunction);
+      BooleanExpr elseExpr = bool(f.elseFunction);
+      return values -> {
+        switch (condition.eval(values))
+        {
+        case TRUE:
+          return thenExpr.eval(values);
+        case FALSE:
+          return elseExpr.eval(values);
+        default:
+          return false;
+        }
+      };
+    } else if (c == LengthFunction.class)
+    {
+      return values -> false;
+    } else if (c == CatFunction.class || c == AndFunction.class || c == OrFunction.class
+        || c == NotFunction.class || c == MatchFunction.class || c == StringLiteralFunction.class
+        || c == ValueFunction.class || isNumeric(func))
+    {
+      // these functions compute the boolean from their result
+      ConditionExpr condition = condition(func);
+      return values -> condition.eval(values) == TRUE;
+    }
+    return func::getBoolean;
+  }
+
+  /**
+   * Compile the interpretation of {@link Function#getResult(Values)} as condition.
+   */
+  static ConditionExpr condition(Function func)
+  {
+    Class<?> c = func.getClass();
+    if (c == AndFunction.class)
+    {
+      ConditionExpr[] conditions = conditions(((AndFunction) func).subFunction);
+      return values -> {
+        for (ConditionExpr condition : conditions)
+        {
+          int res = condition.eval(values);
+          if (res != TRUE)
+          {
+            return res;
+          }
+        }
+        return TRUE;
+      };
+    } else if (c == OrFunction.class)
+    {
+      ConditionExpr[] conditions = conditions(((OrFunction) func).subFunction);
+      return values -> {
+        for (ConditionExpr condition : conditions)
+        {
+          int res = condition.eval(values);
+          if (res != FALSE)
+          {
+            return res;
+          }
+        }
+        return FALSE;
+      };
+    } else if (c == NotFunction.class)
+    {
+      ConditionExpr[] conditions = conditions(((NotFunction) func).subFunction);
+      return values -> {
+        for (ConditionExpr condition : conditions)
+        {
+          int res = condition.eval(values);
+          if (res == ERROR)
+          {
+            return ERROR;
+          }
+          if (res == FALSE)
+          {
+            return TRUE;
+          }
+        }
+        return FALSE;
+      };
+    } else if (c == MatchFunction.class)
+    {
+      MatchFunction f = (MatchFunction) func;
+      StringExpr input = string(f.input);
+      LiteralPattern pattern = f.pattern;
+      return values -> {
+        String str = input.eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return ERROR;
+        }
+        return pattern.matches(str) ? TRUE : FALSE;
+      };
+    }
+    StringExpr string = string(func);
+    return values -> {
+      String str = string.eval(values);
+      if (str == FunctionLibrary.ERROR)
+      {
+        return ERROR;
+      }
+      return str.equalsIgnoreCase("true") ? TRUE : FALSE;
+    };
+  }
+
+  /**
+   * Compile the numeric result of a number function.
+   */
+  static NumberExpr number(NumberFunction func)
+  {
+    NumberExpr[] numbers = new NumberExpr[func.subFunction.size()];
+    int i = 0;
+    for (Function sub : func.subFunction)
+    {
+      numbers[i++] = operand(func, sub);
+    }
+    Class<?> c = func.getClass();
+    if (c == DiffFunction.class)
+    {
+      return values -> {
+        BigDecimal diff = BigDecimal.ZERO;
+        for (int j = 0; j < numbers.length; j++)
+        {
+          BigDecimal num = numbers[j].eval(values);
+          if (num == null)
+          {
+            return null;
+          }
+          diff = j == 0 ? diff.add(num) : diff.subtract(num);
+        }
+        return diff;
+      };
+    } else if (c == ProductFunction.class)
+    {
+      return values -> {
+        BigDecimal prod = BigDecimal.ONE;
+        for (NumberExpr number : numbers)
+        {
+          BigDecimal num = number.eval(values);
+          if (num == null)
+          {
+            return null;
+          }
+          prod = prod.multiply(num);
+        }
+        return prod;
+      };
+    }
+    NumberExpr sum = values -> {
+      BigDecimal s = BigDecimal.ZERO;
+      for (NumberExpr number : numbers)
+      {
+        BigDecimal num = number.eval(values);
+        if (num == null)
+        {
+          return null;
+        }
+        s = s.add(num);
+      }
+      return s;
+    };
+    if (c == MinusFunction.class)
+    {
+      return values -> {
+        BigDecimal s = sum.eval(values);
+        return s == null ? null : s.negate();
+      };
+    } else if (c == AbsFunction.class)
+    {
+      return values -> {
+        BigDecimal s = sum.eval(values);
+        return s == null ? null : s.abs();
+      };
+    } else if (c == SignFunction.class)
+    {
+      return values -> {
+        BigDecimal s = sum.eval(values);
+        return s == null ? null : BigDecimal.valueOf(s.signum());
+      };
+    }
+    return sum;
+  }
+
+  /**
+   * Compile an operand of a number function. Nested number functions are evaluated numerically,
+   * literals are parsed once, everything else is parsed after evaluation like
+   * {@link NumberFunction#getResult(Values)} does.
+   */
+  private static NumberExpr operand(NumberFunction parent, Function sub)
+  {
+    if (isNumeric(sub))
+    {
+      return number((NumberFunction) sub);
+    }
+    if (sub.getClass() == StringLiteralFunction.class)
+    {
+      BigDecimal constant = parse(parent, sub.getResult(null));
+      return values -> constant;
+    }
+    StringExpr string = string(sub);
+    return values -> parse(parent, string.eval(values));
+  }
+
+  private static BigDecimal parse(NumberFunction parent, String str)
+  {
+    if (str.equals(FunctionLibrary.ERROR))
+    {
+      return null;
+    }
+    try
+    {
+      return parent.makeBigDecimal(str);
+    } catch (Exception x)
+    {
+      return null;
+    }
+  }
+
+  private static StringExpr[] strings(Collection<Function> functions)
+  {
+    List<StringExpr> strings = new ArrayList<>(functions.size());
+    functions.forEach(f -> strings.add(string(f)));
+    return strings.toArray(new StringExpr[0]);
+  }
+
+  private static ConditionExpr[] conditions(Collection<Function> functions)
+  {
+    List<ConditionExpr> conditions = new ArrayList<>(functions.size());
+    functions.forEach(f -> conditions.add(condition(f)));
+    return conditions.toArray(new ConditionExpr[0]);
+  }
+
+  private static StringExpr cat(StringExpr[] parts)
+  {
+    return values -> {
+      StringBuilder res = new StringBuilder();
+      for (StringExpr part : parts)
+      {
+        String str = part.eval(values);
+        if (str == FunctionLibrary.ERROR)
+        {
+          return FunctionLibrary.ERROR;
+        }
+        res.append(str);
+      }
+      return res.toString();
+    };
+  }
+
+  /**
+   * A function evaluated by compiled expressions.
+   */
+  static final class CompiledFunction implements Function
+  {
+    private final Function func;
+
+    private final StringExpr result;
+
+    private final BooleanExpr bool;
+
+    private CompiledFunction(Function func, StringExpr result, BooleanExpr bool)
+    {
+      this.func = func;
+      this.result = result;
+      this.bool = bool;
+    }
+
+    @Override
+    public String[] parameters()
+    {
+      return func.parameters();
+    }
+
+    @Override
+    public void getFunctionDialogReferences(Collection<String> set)
+    {
+      func.getFunctionDialogReferences(set);
+    }
+
+    @Override
+    public String getResult(Values parameters)
+    {
+      return result.eval(parameters);
+    }
+
+    @Override
+    public boolean getBoolean(Values parameters)
+    {
+      return bool.eval(parameters);
+    }
+
+    @Override
+    public boolean isPure()
+    {
+      return func.isPure();
+    }
+  }
+}
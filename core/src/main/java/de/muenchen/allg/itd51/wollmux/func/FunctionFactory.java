@@ -69,6 +69,42 @@ public class FunctionFactory
     return myAlwaysTrueFunction;
   }
 
+  /**
+   * Liefert eine Funktion, die die Ergebnisse von func in Abhängigkeit von den Werten
+   * ihrer Parameter zwischenspeichert, falls func {@link Function#isPure() rein} ist.
+   * Ansonsten oder falls die Auswertung von func trivial ist, wird func unverändert
+   * geliefert.
+   *
+   * @param func
+   *          Die Funktion, kann null sein.
+   * @return Eine Funktion mit dem selben Verhalten wie func.
+   */
+  public static Function memoize(Function func)
+  {
+    if (func == null || !func.isPure() || func instanceof MemoizingFunction
+        || func instanceof StringLiteralFunction || func instanceof ValueFunction
+        || func instanceof AlwaysTrueFunction)
+    {
+      return func;
+    }
+    return new MemoizingFunction(func);
+  }
+
+  /**
+   * Liefert eine kompilierte Version von func, die die selben Ergebnisse liefert,
+   * aber Zwischenergebnisse (Zahlen, Wahrheitswerte) nicht als Strings
+   * weiterreicht. Funktionen, die nicht kompiliert werden können (z.B. DIALOG oder
+   * EXTERN), werden wie bisher ausgewertet.
+   *
+   * @param func
+   *          Die Funktion, kann null sein.
+   * @return Eine Funktion mit dem selben Verhalten wie func.
+   */
+  public static Function compile(Function func)
+  {
+    return FunctionCompiler.compile(func);
+  }
+
   /**
    * Erzeugt ein Function-Objekt aus den ENKELN von conf. Hat conf keine Enkel, so
    * wird null geliefert. Hat conf genau einen Enkel, so wird eine Funktion
@@ -478,7 +514,7 @@ public class FunctionFactory
     {
       throw new ConfigurationErrorException(L.m("Error in regex \"{0}\"", regex), x);
     }
-    return new ReplaceFunction(strFun, p, repFun);
+    return foldConstant(new ReplaceFunction(strFun, p, repFun), strFun, repFun);
   }
 
   private static Function parseSPLIT(ConfigThingy conf, FunctionLibrary funcLib,
@@ -525,7 +561,7 @@ public class FunctionFactory
     {
       throw new ConfigurationErrorException(L.m("Error in regex \"{0}\"", regex), x);
     }
-    return new SplitFunction(strFun, p, idx);
+    return foldConstant(new SplitFunction(strFun, p, idx), strFun);
   }
 
   private static Function parseMATCH(ConfigThingy conf, FunctionLibrary funcLib,
@@ -556,7 +592,24 @@ public class FunctionFactory
     {
       throw new ConfigurationErrorException(L.m("Error in regex \"{0}\"", regex), x);
     }
-    return new MatchFunction(strFun, p);
+    return foldConstant(new MatchFunction(strFun, p), strFun);
+  }
+
+  /**
+   * Liefert das Ergebnis von func als {@link StringLiteralFunction}, falls alle
+   * args StringLiteralFunctions sind. Ansonsten wird func geliefert. func muss
+   * rein sein und darf keine weiteren Argumente haben.
+   */
+  private static Function foldConstant(Function func, Function... args)
+  {
+    for (Function arg : args)
+    {
+      if (!(arg instanceof StringLiteralFunction))
+      {
+        return func;
+      }
+    }
+    return new StringLiteralFunction(func.getResult(new Values.None()));
   }
 
   private static Function parseVALUE(ConfigThingy conf, FunctionLibrary funcLib,
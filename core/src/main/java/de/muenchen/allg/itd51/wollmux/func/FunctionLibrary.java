@@ -44,6 +44,11 @@ public class FunctionLibrary implements Iterable<Function>
 
   private FunctionLibrary baselib;
 
+  /**
+   * Falls true, werden alle Funktionen kompiliert.
+   */
+  private boolean compiled;
+
   /**
    * Erzeugt eine leere Funktionsbibliothek.
    */
@@ -67,7 +72,9 @@ public class FunctionLibrary implements Iterable<Function>
   /**
    * Erzeugt eine Funktionsbibliothek, die baselib referenziert (nicht kopiert!).
    * baselib wird immer dann befragt, wenn die Funktionsbibliothek selbst keine
-   * Funktion des entsprechenden Namens enthält. baselib darf null sein.
+   * Funktion des entsprechenden Namens enthält. baselib darf null sein. Ist
+   * baselib kompiliert (siehe {@link #compile()}), so wird auch diese
+   * Funktionsbibliothek kompiliert.
    *
    * @param ordered
    *          Falls true liefert der Iterator dieser Funktionsbibliothek die
@@ -82,6 +89,7 @@ public class FunctionLibrary implements Iterable<Function>
     else
       mapIdToFunction = new HashMap<>();
     this.baselib = baselib;
+    this.compiled = baselib != null && baselib.compiled;
   }
 
   /**
@@ -93,7 +101,28 @@ public class FunctionLibrary implements Iterable<Function>
     if (func == null || funcName == null)
       throw new NullPointerException(
         L.m("Neither function name nor function may be null"));
-    mapIdToFunction.put(funcName, func);
+    mapIdToFunction.put(funcName, compiled ? FunctionFactory.compile(func) : func);
+  }
+
+  /**
+   * Ersetzt alle Funktionen dieser Funktionsbibliothek durch kompilierte Versionen
+   * (siehe {@link FunctionFactory#compile(Function)}). Später hinzugefügte
+   * Funktionen und Funktionsbibliotheken, die diese referenzieren, werden ebenfalls
+   * kompiliert. Funktionen einer verlinkten Funktionsbibliothek werden nicht
+   * verändert.
+   */
+  public void compile()
+  {
+    compiled = true;
+    mapIdToFunction.replaceAll((name, func) -> FunctionFactory.compile(func));
+  }
+
+  /**
+   * Liefert true, wenn die Funktionen dieser Funktionsbibliothek kompiliert werden.
+   */
+  public boolean isCompiled()
+  {
+    return compiled;
   }
 
   /**
@@ -29,11 +29,11 @@ import java.util.Set;
 
 public class IfFunction implements Function
 {
-  private Function ifFunction;
+  Function ifFunction;
 
-  private Function thenFunction;
+  Function thenFunction;
 
-  private Function elseFunction;
+  Function elseFunction;
 
   private String[] params;
 
@@ -85,4 +85,10 @@ public class IfFunction implements Function
     else
       return elseFunction.getBoolean(parameters);
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return ifFunction.isPure() && thenFunction.isPure() && elseFunction.isPure();
+  }
 }
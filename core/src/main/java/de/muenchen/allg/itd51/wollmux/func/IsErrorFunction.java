@@ -92,4 +92,9 @@ public class IsErrorFunction implements Function
     }
   }
 
+  @Override
+  public boolean isPure()
+  {
+    return func.isPure();
+  }
 }
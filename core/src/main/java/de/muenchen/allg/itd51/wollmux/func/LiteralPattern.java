@@ -0,0 +1,221 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import java.util.regex.Pattern;
+
+/**
+ * A compiled regular expression with fast paths for patterns without regex meta characters.
+ * Patterns like "abc", "abc.*", ".*abc" or ".*abc.*" are evaluated with
+ * {@link String#equals(Object)}, {@link String#startsWith(String)}, {@link String#endsWith(String)}
+ * and {@link String#contains(CharSequence)}. All other patterns are evaluated by the regex engine.
+ * The results are always the same as those of the regex engine.
+ */
+final class LiteralPattern
+{
+  private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+  private static final String ANY = ".*";
+
+  /**
+   * How a pattern can be matched without the regex engine.
+   */
+  private enum Kind
+  {
+    EQUALS,
+    STARTS_WITH,
+    ENDS_WITH,
+    CONTAINS,
+    REGEX
+  }
+
+  private final Pattern pattern;
+
+  /**
+   * The pattern without leading and trailing {@link #ANY}.
+   */
+  private final String literal;
+
+  private final Kind kind;
+
+  /**
+   * Analyze a pattern.
+   *
+   * @param pattern
+   *          The pattern.
+   */
+  LiteralPattern(Pattern pattern)
+  {
+    this.pattern = pattern;
+    String regex = pattern.pattern();
+    boolean leadingAny = false;
+    boolean trailingAny = false;
+    String lit = regex;
+    if (lit.startsWith(ANY))
+    {
+      leadingAny = true;
+      lit = lit.substring(ANY.length());
+    }
+    if (lit.endsWith(ANY))
+    {
+      trailingAny = true;
+      lit = lit.substring(0, lit.length() - ANY.length());
+    }
+
+    if (pattern.flags() != 0 || !isLiteral(lit) || ((leadingAny || trailingAny) && hasLineTerminator(lit)))
+    {
+      kind = Kind.REGEX;
+      literal = regex;
+    } else
+    {
+      literal = lit;
+      if (leadingAny && trailingAny)
+      {
+        kind = Kind.CONTAINS;
+      } else if (leadingAny)
+      {
+        kind = Kind.ENDS_WITH;
+      } else if (trailingAny)
+      {
+        kind = Kind.STARTS_WITH;
+      } else
+      {
+        kind = Kind.EQUALS;
+      }
+    }
+  }
+
+  Pattern getPattern()
+  {
+    return pattern;
+  }
+
+  /**
+   * Does the whole string match the pattern?
+   *
+   * @param str
+   *          The string.
+   * @return True if the string matches, false otherwise.
+   */
+  boolean matches(String str)
+  {
+    switch (kind)
+    {
+    case EQUALS:
+      return literal.equals(str);
+    case STARTS_WITH:
+      // '.' doesn't match line terminators
+      return str.startsWith(literal) && !hasLineTerminator(str);
+    case ENDS_WITH:
+      return str.endsWith(literal) && !hasLineTerminator(str);
+    case CONTAINS:
+      return str.contains(literal) && !hasLineTerminator(str);
+    default:
+      return pattern.matcher(str).matches();
+    }
+  }
+
+  /**
+   * Replace all occurrences of the pattern.
+   *
+   * @param str
+   *          The string.
+   * @param replacement
+   *          The replacement as in {@link java.util.regex.Matcher#replaceAll(String)}.
+   * @return The string with all replacements.
+   */
+  String replaceAll(String str, String replacement)
+  {
+    if (kind == Kind.EQUALS && !literal.isEmpty() && replacement.indexOf('$') < 0
+        && replacement.indexOf('\\') < 0)
+    {
+      return str.replace(literal, replacement);
+    }
+    return pattern.matcher(str).replaceAll(replacement);
+  }
+
+  /**
+   * Split the string around matches of the pattern as {@link String#split(String)} does and get one
+   * part.
+   *
+   * @param str
+   *          The string.
+   * @param index
+   *          The index of the part.
+   * @return The part or the empty string if there's no such part.
+   */
+  String split(String str, int index)
+  {
+    if (index < 0)
+    {
+      return "";
+    }
+    if (kind == Kind.EQUALS && !literal.isEmpty())
+    {
+      // Trailing empty parts are removed by split. They can be treated as existing empty parts.
+      int start = 0;
+      for (int i = 0; i < index; i++)
+      {
+        int pos = str.indexOf(literal, start);
+        if (pos < 0)
+        {
+          return "";
+        }
+        start = pos + literal.length();
+      }
+      int end = str.indexOf(literal, start);
+      return end < 0 ? str.substring(start) : str.substring(start, end);
+    }
+    String[] parts = pattern.split(str);
+    if (index >= parts.length)
+    {
+      return "";
+    }
+    return parts[index];
+  }
+
+  private static boolean isLiteral(String str)
+  {
+    for (int i = 0; i < str.length(); i++)
+    {
+      if (META_CHARACTERS.indexOf(str.charAt(i)) >= 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasLineTerminator(String str)
+  {
+    for (int i = 0; i < str.length(); i++)
+    {
+      char c = str.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+}
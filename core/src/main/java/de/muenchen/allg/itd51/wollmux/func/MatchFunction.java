@@ -27,13 +27,13 @@ import java.util.regex.Pattern;
 
 public class MatchFunction implements Function
 {
-  private Pattern pattern;
+  LiteralPattern pattern;
 
-  private Function input;
+  Function input;
 
   public MatchFunction(Function input, Pattern p)
   {
-    pattern = p;
+    pattern = new LiteralPattern(p);
     this.input = input;
   }
 
@@ -42,7 +42,7 @@ public class MatchFunction implements Function
   {
     String str = input.getResult(parameters);
     if (str == FunctionLibrary.ERROR) return FunctionLibrary.ERROR;
-    if (pattern.matcher(str).matches()) return "true";
+    if (pattern.matches(str)) return "true";
     return "false";
   }
 
@@ -63,4 +63,10 @@ public class MatchFunction implements Function
   {
     return getResult(parameters).equalsIgnoreCase("true");
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return input.isPure();
+  }
 }
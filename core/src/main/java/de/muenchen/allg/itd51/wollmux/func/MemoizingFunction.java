@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the results of a pure function (see {@link Function#isPure()}). The results are stored
+ * per combination of the values of the parameters of the function. Only the
+ * {@link #MAX_ENTRIES} most recently used combinations are kept.
+ *
+ * It's assumed that {@link Values#getBoolean(String)} is consistent with
+ * {@link Values#getString(String)}.
+ */
+class MemoizingFunction implements Function
+{
+  /**
+   * Maximum number of cached parameter combinations.
+   */
+  static final int MAX_ENTRIES = 32;
+
+  private final Function func;
+
+  private final String[] params;
+
+  private final Map<List<String>, Result> cache = new LinkedHashMap<>(16, 0.75f, true)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<List<String>, Result> eldest)
+    {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Create a cache for a function.
+   *
+   * @param func
+   *          A pure function.
+   */
+  MemoizingFunction(Function func)
+  {
+    this.func = func;
+    this.params = func.parameters();
+  }
+
+  @Override
+  public String[] parameters()
+  {
+    return params;
+  }
+
+  @Override
+  public void getFunctionDialogReferences(Collection<String> set)
+  {
+    func.getFunctionDialogReferences(set);
+  }
+
+  @Override
+  public String getResult(Values parameters)
+  {
+    List<String> key = key(parameters);
+    synchronized (cache)
+    {
+      Result result = cache.get(key);
+      if (result != null && result.value != null)
+      {
+        return result.value;
+      }
+    }
+    String value = func.getResult(parameters);
+    synchronized (cache)
+    {
+      cache.computeIfAbsent(key, k -> new Result()).value = value;
+    }
+    return value;
+  }
+
+  @Override
+  public boolean getBoolean(Values parameters)
+  {
+    List<String> key = key(parameters);
+    synchronized (cache)
+    {
+      Result result = cache.get(key);
+      if (result != null && result.bool != null)
+      {
+        return result.bool;
+      }
+    }
+    boolean bool = func.getBoolean(parameters);
+    synchronized (cache)
+    {
+      cache.computeIfAbsent(key, k -> new Result()).bool = bool;
+    }
+    return bool;
+  }
+
+  @Override
+  public boolean isPure()
+  {
+    return true;
+  }
+
+  /**
+   * Collect the values of all parameters. Missing values are represented by null.
+   */
+  private List<String> key(Values parameters)
+  {
+    String[] values = new String[params.length];
+    for (int i = 0; i < params.length; i++)
+    {
+      if (parameters.hasValue(params[i]))
+      {
+        values[i] = parameters.getString(params[i]);
+      }
+    }
+    return Arrays.asList(values);
+  }
+
+  /**
+   * The cached results for one combination of parameter values.
+   */
+  private static class Result
+  {
+    private String value;
+
+    private Boolean bool;
+  }
+}
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
 
@@ -95,6 +96,12 @@ public abstract class MultiFunction implements Function
   private void init(Collection<Function> subFunction)
   {
     this.subFunction = subFunction;
+    if (!subFunction.stream().allMatch(Function::isPure))
+    {
+      // reine Unterfunktionen einer nicht reinen Funktion werden einzeln gecacht
+      this.subFunction = subFunction.stream().map(FunctionFactory::memoize)
+          .collect(Collectors.toList());
+    }
 
     // Ein Set wäre performanter, aber so wird die Reihenfolge beibehalten. Evtl.
     // macht es Sinn, auch die anderen Function-Klassen, die im Moment Sets
@@ -125,6 +132,12 @@ public abstract class MultiFunction implements Function
     params = deps.toArray(params);
   }
 
+  @Override
+  public boolean isPure()
+  {
+    return subFunction.stream().allMatch(Function::isPure);
+  }
+
   @Override
   public boolean getBoolean(Values parameters)
   {
@@ -181,4 +181,10 @@ public class NumberCompareFunction extends NumberFunction
         return "true";
     }
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return super.isPure() && (marginFun == null || marginFun.isPure());
+  }
 }
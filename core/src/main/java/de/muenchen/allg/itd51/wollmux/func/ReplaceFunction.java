@@ -30,7 +30,7 @@ import java.util.regex.Pattern;
 
 public class ReplaceFunction implements Function
 {
-  private Pattern pattern;
+  private LiteralPattern pattern;
 
   private Function input;
 
@@ -40,7 +40,7 @@ public class ReplaceFunction implements Function
 
   public ReplaceFunction(Function input, Pattern p, Function replace)
   {
-    pattern = p;
+    pattern = new LiteralPattern(p);
     this.input = input;
     this.replace = replace;
     Set<String> paramset = new HashSet<>();
@@ -55,7 +55,7 @@ public class ReplaceFunction implements Function
     String str = input.getResult(parameters);
     String repStr = replace.getResult(parameters);
     if (str == FunctionLibrary.ERROR || repStr == FunctionLibrary.ERROR) return FunctionLibrary.ERROR;
-    return pattern.matcher(str).replaceAll(repStr);
+    return pattern.replaceAll(str, repStr);
   }
 
   @Override
@@ -76,4 +76,10 @@ public class ReplaceFunction implements Function
   {
     return getResult(parameters).equalsIgnoreCase("true");
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return input.isPure() && replace.isPure();
+  }
 }
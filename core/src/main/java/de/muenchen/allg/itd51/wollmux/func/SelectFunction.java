@@ -95,4 +95,10 @@ public class SelectFunction extends MultiFunction
     }
     return result;
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return super.isPure() && (onErrorFunction == null || onErrorFunction.isPure());
+  }
 }
@@ -27,7 +27,7 @@ import java.util.regex.Pattern;
 
 public class SplitFunction implements Function
 {
-  private String regex;
+  private LiteralPattern pattern;
 
   private Function input;
 
@@ -37,7 +37,7 @@ public class SplitFunction implements Function
 
   public SplitFunction(Function input, Pattern p, int idx)
   {
-    this.regex = p.toString();
+    this.pattern = new LiteralPattern(p);
     this.input = input;
     this.index = idx;
     this.params = input.parameters();
@@ -48,9 +48,7 @@ public class SplitFunction implements Function
   {
     String str = input.getResult(parameters);
     if (str == FunctionLibrary.ERROR) return FunctionLibrary.ERROR;
-    String[] a = str.split(regex);
-    if (index < 0 || index >= a.length) return "";
-    return a[index];
+    return pattern.split(str, index);
   }
 
   @Override
@@ -70,4 +68,10 @@ public class SplitFunction implements Function
   {
     return getResult(parameters).equalsIgnoreCase("true");
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return input.isPure();
+  }
 }
@@ -61,4 +61,10 @@ public class StringLiteralFunction implements Function
   {
     return bool;
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return true;
+  }
 }
@@ -57,4 +57,10 @@ public class ValueFunction implements Function
   {
     return getResult(parameters).equalsIgnoreCase("true");
   }
+
+  @Override
+  public boolean isPure()
+  {
+    return true;
+  }
 }
@@ -23,6 +23,7 @@
 package de.muenchen.allg.itd51.wollmux.mailmerge;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -44,6 +45,7 @@ import de.muenchen.allg.itd51.wollmux.func.print.PrintFunction;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
 import de.muenchen.allg.itd51.wollmux.mailmerge.ds.DatasourceModel;
 import de.muenchen.allg.itd51.wollmux.mailmerge.mail.EMailSender;
+import de.muenchen.allg.itd51.wollmux.mailmerge.mail.MailDelivery;
 import de.muenchen.allg.itd51.wollmux.mailmerge.mail.MailServerSettings;
 import de.muenchen.allg.itd51.wollmux.mailmerge.print.MailMergePrintFunction;
 import de.muenchen.allg.itd51.wollmux.mailmerge.print.PrintToEmail;
@@ -104,20 +106,28 @@ public class MailMergeRunner implements Runnable
   }
 
   /**
-   * If mail merge is send via mail, send list of recipients and number of sent mails to sender
-   * address.
+   * If mail merge is send via mail, wait until all mails are sent and send list of recipients,
+   * number of sent mails and failed mails to sender address.
    */
   private void sendMailSummary()
   {
     String eMailFrom = pmod.getProp(PrintToEmail.PROP_EMAIL_FROM, "").toString();
 
-    @SuppressWarnings("unchecked")
-    List<String> recipintList = (List<String>) pmod
-        .getProp(PrintToEmail.PROP_EMAIL_REPORT_RECIPIENT_LIST, null);
-    int mailsSentCount = (int) pmod.getProp(PrintToEmail.PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, 0);
+    MailDelivery delivery = (MailDelivery) pmod.getProp(PrintToEmail.PROP_EMAIL_DELIVERY, null);
+    if (delivery == null)
+      return;
 
-    if (recipintList == null)
+    try
+    {
+      delivery.close();
+    } catch (InterruptedException e)
+    {
+      LOGGER.error("", e);
+      Thread.currentThread().interrupt();
       return;
+    }
+    List<String> recipintList = delivery.getSentRecipients();
+    List<Map.Entry<String, String>> failedList = delivery.getFailedRecipients();
 
     EMailSender mail = new EMailSender();
     StringBuilder buildMessage = new StringBuilder();
@@ -133,7 +143,21 @@ public class MailMergeRunner implements Runnable
 
     buildMessage.append("\r\n");
     buildMessage.append("Anzahl gesendeter E-Mails: ");
-    buildMessage.append(mailsSentCount);
+    buildMessage.append(recipintList.size());
+
+    if (!failedList.isEmpty())
+    {
+      buildMessage.append("\r\n\r\n");
+      buildMessage.append("Folgende E-Mails konnten nicht versandt werden:");
+      buildMessage.append("\r\n");
+      for (Map.Entry<String, String> failure : failedList)
+      {
+        buildMessage.append(failure.getKey());
+        buildMessage.append(": ");
+        buildMessage.append(failure.getValue());
+        buildMessage.append("\r\n");
+      }
+    }
 
     buildMessage.append("\r\n");
     buildMessage.append(
@@ -26,12 +26,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -39,8 +45,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.collect.ForwardingTable;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import com.sun.star.awt.XTopWindow;
 import com.sun.star.container.NoSuchElementException;
 import com.sun.star.frame.XModel;
@@ -48,12 +56,20 @@ import com.sun.star.lang.EventObject;
 import com.sun.star.lang.IllegalArgumentException;
 import com.sun.star.lang.IndexOutOfBoundsException;
 import com.sun.star.lang.WrappedTargetException;
+import com.sun.star.sheet.CellFlags;
+import com.sun.star.sheet.XCellRangeAddressable;
 import com.sun.star.sheet.XCellRangesQuery;
 import com.sun.star.sheet.XSheetCellRanges;
 import com.sun.star.sheet.XSpreadsheetDocument;
 import com.sun.star.sheet.XSpreadsheets;
 import com.sun.star.table.CellRangeAddress;
 import com.sun.star.table.XCellRange;
+import com.sun.star.uno.AnyConverter;
+import com.sun.star.uno.UnoRuntime;
+import com.sun.star.util.ChangesEvent;
+import com.sun.star.util.ElementChange;
+import com.sun.star.util.XChangesListener;
+import com.sun.star.util.XChangesNotifier;
 import com.sun.star.util.XCloseListener;
 import com.sun.star.util.XModifyListener;
 
@@ -65,11 +81,44 @@ import org.libreoffice.ext.unohelper.util.UnoProperty;
 
 /**
  * A {@link DatasourceModel} using a calc file as source.
+ *
+ * Changes of the calc file aren't read immediately. The sheet is read again when the data is
+ * accessed the next time. If the calc file reports which cells have changed, only the rows of these
+ * cells and the cells with formulas are read again. Listeners are notified once after a series of
+ * changes.
+ *
+ * The listeners on the calc file only record the changes, because they are called while LibreOffice
+ * is locked. The sheet is read without holding a lock and the result is published as a whole. If
+ * two threads read the sheet at the same time, the result of the first one wins and the sheet is
+ * read completely on the next access.
  */
 public class CalcModel implements DatasourceModel
 {
   private static final Logger LOGGER = LoggerFactory.getLogger(CalcModel.class);
 
+  /**
+   * Delay in milliseconds between the last change of the calc file and the notification of the
+   * listeners.
+   */
+  private static final int NOTIFICATION_DELAY = 300;
+
+  /**
+   * Maximum number of changed ranges, which are recorded. If there are more changes, the whole sheet
+   * is read again.
+   */
+  static final int MAX_CHANGED_RANGES = 1000;
+
+  /**
+   * Name of the change operation for cells, whose content has changed.
+   */
+  private static final String CELL_CHANGE = "cell-change";
+
+  /**
+   * Content types of cells, which contain data.
+   */
+  private static final short CONTENT_FLAGS = (short) (CellFlags.VALUE | CellFlags.DATETIME
+      | CellFlags.STRING | CellFlags.FORMULA);
+
   /**
    * The name of this database. It's the window title without Office.
    */
@@ -81,34 +130,66 @@ public class CalcModel implements DatasourceModel
   private XSpreadsheetDocument spreadSheetDocument;
 
   /**
-   * The data of one sheet.
+   * The name of the sheet.
    */
-  HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+  private volatile String sheetName;
 
   /**
-   * The name of the sheet.
+   * The content of the sheet, when it was read the last time.
    */
-  private String sheetName;
+  private final AtomicReference<SheetContent> content = new AtomicReference<>(
+      new SheetContent(null));
 
   /**
-   * Set of columns, which contain data.
+   * True if the calc file has been modified since the sheet was read.
    */
-  private SortedSet<Integer> columnIndexes = new TreeSet<>();
+  private volatile boolean modified = false;
 
   /**
-   * Set or rows, which contain data.
+   * True if the structure of the calc file has changed since the sheet was read (e.g. rows were
+   * inserted). The whole sheet has to be read again.
    */
-  private SortedSet<Integer> rowIndexes = new TreeSet<>();
+  private final AtomicBoolean structureChanged = new AtomicBoolean(false);
 
   /**
-   * Mapping from column name to column indexes.
+   * Cells, whose content has changed since the sheet was read.
    */
-  private Map<String, String> mapColumnNameToCalcColumnName = new HashMap<>();
+  private final Queue<CellRangeAddress> changedRanges = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Number of elements in {@link #changedRanges}.
+   */
+  private final AtomicInteger changedRangesCount = new AtomicInteger();
+
+  /**
+   * Read only view of the data, which is updated on access.
+   */
+  private final Table<Integer, String, String> dataView = new ForwardingTable<Integer, String, String>()
+  {
+    @Override
+    protected Table<Integer, String, String> delegate()
+    {
+      try
+      {
+        return Tables.unmodifiableTable(update().data);
+      } catch (NoTableSelectedException ex)
+      {
+        LOGGER.debug("", ex);
+        return Tables.unmodifiableTable(content.get().data);
+      }
+    }
+  };
 
   /**
    * Listener on this model.
    */
-  private Set<DatasourceModelListener> listener = new HashSet<>();
+  private Set<DatasourceModelListener> listener = new CopyOnWriteArraySet<>();
+
+  /**
+   * Notifies the listeners after a series of changes.
+   */
+  private DelayedNotifier notifier = new DelayedNotifier(NOTIFICATION_DELAY,
+      () -> listener.forEach(DatasourceModelListener::datasourceChanged));
 
   /**
    * Listener for changes in the calc file.
@@ -125,13 +206,45 @@ public class CalcModel implements DatasourceModel
     @Override
     public void modified(EventObject event)
     {
-      try
-      {
-        readTable();
-        listener.forEach(DatasourceModelListener::datasourceChanged);
-      } catch (NoTableSelectedException ex)
+      modified = true;
+      notifier.trigger();
+    }
+  };
+
+  /**
+   * Listener for the cells, which have changed in the calc file.
+   */
+  private XChangesListener changesListener = new XChangesListener()
+  {
+
+    @Override
+    public void disposing(EventObject arg0)
+    {
+      // nothing to do
+    }
+
+    @Override
+    public void changesOccurred(ChangesEvent event)
+    {
+      for (ElementChange change : event.Changes)
       {
-        LOGGER.debug("", ex);
+        XCellRangeAddressable range = UnoRuntime.queryInterface(XCellRangeAddressable.class,
+            change.ReplacedElement);
+        if (range != null && CELL_CHANGE.equals(getOperation(change)))
+        {
+          if (changedRangesCount.incrementAndGet() <= MAX_CHANGED_RANGES)
+          {
+            changedRanges.add(range.getRangeAddress());
+          } else
+          {
+            // too many changes, the range isn't queued
+            changedRangesCount.decrementAndGet();
+            structureChanged.set(true);
+          }
+        } else
+        {
+          structureChanged.set(true);
+        }
       }
     }
   };
@@ -149,6 +262,12 @@ public class CalcModel implements DatasourceModel
     this.datasourceName = UNO.stripOpenOfficeFromWindowName(title);
     this.spreadSheetDocument = spreadSheetDocument;
     UNO.XModifiable(spreadSheetDocument).addModifyListener(modifyListener);
+    XChangesNotifier changesNotifier = UnoRuntime.queryInterface(XChangesNotifier.class,
+        spreadSheetDocument);
+    if (changesNotifier != null)
+    {
+      changesNotifier.addChangesListener(changesListener);
+    }
   }
 
   @Override
@@ -166,7 +285,14 @@ public class CalcModel implements DatasourceModel
   @Override
   public void dispose()
   {
+    notifier.cancel();
     UNO.XModifiable(spreadSheetDocument).removeModifyListener(modifyListener);
+    XChangesNotifier changesNotifier = UnoRuntime.queryInterface(XChangesNotifier.class,
+        spreadSheetDocument);
+    if (changesNotifier != null)
+    {
+      changesNotifier.removeChangesListener(changesListener);
+    }
   }
 
   @Override
@@ -178,9 +304,14 @@ public class CalcModel implements DatasourceModel
   @Override
   public void activateTable(String tableName) throws NoTableSelectedException
   {
+    if (tableName == null)
+    {
+      throw new NoTableSelectedException();
+    }
     this.sheetName = tableName;
-    readTable();
-    LOGGER.debug("Tabelle {} wurde ausgewählt", sheetName);
+    takeChanges();
+    content.set(readTable(tableName));
+    LOGGER.debug("Tabelle {} wurde ausgewählt", tableName);
   }
 
   @Override
@@ -207,11 +338,7 @@ public class CalcModel implements DatasourceModel
     {
       return Collections.emptySet();
     }
-    if (sheetName == null)
-    {
-      throw new NoTableSelectedException();
-    }
-    return mapColumnNameToCalcColumnName.keySet();
+    return Collections.unmodifiableSet(update().mapColumnNameToCalcColumnName.keySet());
   }
 
   @Override
@@ -243,31 +370,20 @@ public class CalcModel implements DatasourceModel
   @Override
   public Table<Integer, String, String> getData() throws NoTableSelectedException
   {
-    if (sheetName == null)
-    {
-      throw new NoTableSelectedException();
-    }
-    return data;
+    update();
+    return dataView;
   }
 
   @Override
   public int getNumberOfRecords() throws NoTableSelectedException
   {
-    if (sheetName == null)
-    {
-      throw new NoTableSelectedException();
-    }
-    return data.rowKeySet().size();
+    return update().data.rowKeySet().size();
   }
 
   @Override
   public Map<String, String> getRecord(int rowIndex) throws NoTableSelectedException
   {
-    if (sheetName == null)
-    {
-      throw new NoTableSelectedException();
-    }
-    return data.row(rowIndex);
+    return Collections.unmodifiableMap(update().data.row(rowIndex));
   }
 
   @Override
@@ -298,14 +414,11 @@ public class CalcModel implements DatasourceModel
   public void addColumns(Map<String, FieldSubstitution> mapIdToSubstitution)
       throws NoTableSelectedException
   {
-    if (sheetName == null)
-    {
-      throw new NoTableSelectedException();
-    }
+    SheetContent current = update();
     XCellRangesQuery sheet;
     try
     {
-      sheet = UNO.XCellRangesQuery(spreadSheetDocument.getSheets().getByName(sheetName));
+      sheet = UNO.XCellRangesQuery(spreadSheetDocument.getSheets().getByName(current.name));
     } catch (Exception x)
     {
       return;
@@ -313,9 +426,9 @@ public class CalcModel implements DatasourceModel
 
     // add column after last column
     int newColumnX = 0;
-    if (!columnIndexes.isEmpty())
+    if (!current.columnIndexes.isEmpty())
     {
-      newColumnX = columnIndexes.last() + 1;
+      newColumnX = current.columnIndexes.last() + 1;
     }
 
     // Placeholder for the row number in the formula. It's hopefully never used
@@ -325,7 +438,7 @@ public class CalcModel implements DatasourceModel
     {
       String fieldId = ent.getKey();
       FieldSubstitution subst = ent.getValue();
-      String formulaStr = buildFormula(rowNumPlaceholder, subst);
+      String formulaStr = buildFormula(rowNumPlaceholder, subst, current.mapColumnNameToCalcColumnName);
       if (formulaStr == null)
       {
         continue;
@@ -335,12 +448,12 @@ public class CalcModel implements DatasourceModel
       {
         XCellRange sheetCellRange = UNO.XCellRange(sheet);
         int ymin = 0;
-        if (!rowIndexes.isEmpty())
+        if (!current.rowIndexes.isEmpty())
         {
-          ymin = rowIndexes.first();
+          ymin = current.rowIndexes.first();
 
           // only write rows which already have data.
-          for (int y : rowIndexes)
+          for (int y : current.rowIndexes)
           {
             UNO.XCell(sheetCellRange.getCellByPosition(newColumnX, y))
                 .setFormula(formulaStr.replace(rowNumPlaceholder, "" + (y + 1)));
@@ -388,53 +501,118 @@ public class CalcModel implements DatasourceModel
   }
 
   /**
-   * Read the data from the currently selected sheet.
+   * Read the changes of the calc file since the sheet was read. If it's unknown which cells have
+   * changed the whole sheet is read.
    *
+   * @return The current content of the sheet.
    * @throws NoTableSelectedException
    *           No sheet is selected.
    */
-  private void readTable() throws NoTableSelectedException
+  private SheetContent update() throws NoTableSelectedException
   {
-    if (sheetName == null)
+    String name = sheetName;
+    if (name == null)
     {
       throw new NoTableSelectedException();
     }
+    SheetContent current = content.get();
+    if (name.equals(current.name) && !modified && !structureChanged.get() && changedRanges.isEmpty())
+    {
+      return current;
+    }
 
-    data.clear();
-    mapColumnNameToCalcColumnName.clear();
+    boolean readAll = takeChanges() || !name.equals(current.name);
+    List<CellRangeAddress> changes = new ArrayList<>();
+    for (CellRangeAddress change; (change = changedRanges.poll()) != null;)
+    {
+      changedRangesCount.decrementAndGet();
+      changes.add(change);
+    }
+    SheetContent next = null;
+    if (!readAll && !changes.isEmpty())
+    {
+      next = readChanges(current, changes);
+    }
+    if (next == null)
+    {
+      next = readTable(name);
+    }
+    if (!content.compareAndSet(current, next))
+    {
+      // the sheet has been read by another thread, which may not know our changes
+      structureChanged.set(true);
+    }
+    return next;
+  }
+
+  /**
+   * Number of changed ranges, which haven't been read yet.
+   */
+  int getChangedRangesCount()
+  {
+    return changedRangesCount.get();
+  }
+
+  /**
+   * Reset the markers of changes of the calc file. The changed ranges aren't removed.
+   *
+   * @return True if the whole sheet has to be read again.
+   */
+  private boolean takeChanges()
+  {
+    modified = false;
+    return structureChanged.getAndSet(false);
+  }
+
+  /**
+   * Get the name of the operation, which caused a change.
+   *
+   * @param change
+   *          The change.
+   * @return The name of the operation or null.
+   */
+  private static String getOperation(ElementChange change)
+  {
+    try
+    {
+      return AnyConverter.toString(change.Accessor);
+    } catch (IllegalArgumentException ex)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Read the data from a sheet.
+   *
+   * @param name
+   *          The name of the sheet.
+   * @return The content of the sheet.
+   */
+  private SheetContent readTable(String name)
+  {
+    SheetContent next = new SheetContent(name);
     if (spreadSheetDocument != null)
     {
       try
       {
-        XCellRangesQuery sheet = UNO
-            .XCellRangesQuery(spreadSheetDocument.getSheets().getByName(sheetName));
+        XCellRangesQuery sheet = UNO.XCellRangesQuery(spreadSheetDocument.getSheets().getByName(name));
         if (sheet != null)
         {
-          XSheetCellRanges visibleCellRanges = sheet.queryVisibleCells();
-          XSheetCellRanges nonEmptyCellRanges = sheet.queryContentCells(
-              (short) (com.sun.star.sheet.CellFlags.VALUE | com.sun.star.sheet.CellFlags.DATETIME
-                  | com.sun.star.sheet.CellFlags.STRING | com.sun.star.sheet.CellFlags.FORMULA));
-          CellRangeAddress[] nonEmptyCellRangeAddresses = nonEmptyCellRanges.getRangeAddresses();
-          columnIndexes = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
-              .flatMap(nonEmptyCells -> Arrays.stream(UNO.XCellRangesQuery(visibleCellRanges)
-                  .queryIntersection(nonEmptyCells).getRangeAddresses()))
-              .flatMap(addr -> IntStream.rangeClosed(addr.StartColumn, addr.EndColumn).boxed())
-              .distinct().sorted().collect(Collectors.toSet()));
-          rowIndexes = new TreeSet<>(Arrays.stream(nonEmptyCellRangeAddresses)
-              .flatMap(nonEmptyCells -> Arrays.stream(UNO.XCellRangesQuery(visibleCellRanges)
-                  .queryIntersection(nonEmptyCells).getRangeAddresses()))
-              .flatMap(addr -> IntStream.rangeClosed(addr.StartRow, addr.EndRow).boxed()).distinct()
-              .sorted().collect(Collectors.toSet()));
-          if (!rowIndexes.isEmpty() && !columnIndexes.isEmpty())
+          readIndexes(sheet, next);
+          if (!next.rowIndexes.isEmpty() && !next.columnIndexes.isEmpty())
           {
-            int startRow = rowIndexes.first();
-            int endRow = rowIndexes.last();
-            int startColumn = columnIndexes.first();
-            int endColumn = columnIndexes.last();
-            XCellRange range = UNO.XCellRange(sheet).getCellRangeByPosition(startColumn, startRow,
-                endColumn, endRow);
-            Object[][] cellData = UNO.XCellRangeData(range).getDataArray();
-            readRowData(cellData, range);
+            XCellRange sheetRange = UNO.XCellRange(sheet);
+            readHeader(sheetRange, next);
+            int record = 0;
+            for (int row : next.rowIndexes)
+            {
+              next.rowToRecord.put(row, record++);
+            }
+            for (int row : next.rowIndexes.tailSet(next.rowIndexes.first() + 1))
+            {
+              readRow(sheetRange, row, next);
+            }
           }
         }
       } catch (Exception e)
@@ -442,39 +620,158 @@ public class CalcModel implements DatasourceModel
         LOGGER.debug("", e);
       }
     }
+    return next;
   }
 
   /**
-   * Read the data of row and put it into the data table. If row doesn't contain data nothing is
-   * done.
+   * Read the rows of the changed cells and the cells with formulas again.
    *
-   * @param cellData
-   *          The data of the whole sheet..
-   * @throws IndexOutOfBoundsException
+   * @param current
+   *          The content of the sheet before the changes.
+   * @param changes
+   *          The changed cells.
+   * @return The new content or null if the changes can't be read this way, because the visible rows
+   *         or columns or the header have changed. The whole sheet has to be read.
    */
-  private void readRowData(Object[][] cellData, XCellRange range) throws IndexOutOfBoundsException
+  private SheetContent readChanges(SheetContent current, List<CellRangeAddress> changes)
   {
-    List<Integer> rows = new ArrayList<>(rowIndexes);
-    for (int record = 0; record < rowIndexes.size(); record++)
+    try
     {
-      int row = rows.get(record);
-      for (int j = 0; j < cellData[0].length; j++)
+      Object sheetObject = spreadSheetDocument.getSheets().getByName(current.name);
+      XCellRangesQuery sheet = UNO.XCellRangesQuery(sheetObject);
+      short sheetIndex = UnoRuntime.queryInterface(XCellRangeAddressable.class, sheetObject)
+          .getRangeAddress().Sheet;
+      SheetContent next = new SheetContent(current.name);
+      readIndexes(sheet, next);
+      if (next.rowIndexes.isEmpty() || !next.rowIndexes.equals(current.rowIndexes)
+          || !next.columnIndexes.equals(current.columnIndexes))
+      {
+        return null;
+      }
+      next.data.putAll(current.data);
+      next.mapColumnNameToCalcColumnName.putAll(current.mapColumnNameToCalcColumnName);
+      next.columnNames.putAll(current.columnNames);
+      next.rowToRecord.putAll(current.rowToRecord);
+
+      int header = next.rowIndexes.first();
+      XCellRange sheetRange = UNO.XCellRange(sheet);
+      SortedSet<Integer> rows = new TreeSet<>();
+      for (CellRangeAddress change : changes)
       {
-        if (columnIndexes.contains(j + columnIndexes.first()))
+        if (change.Sheet != sheetIndex)
         {
-          String column = UNO.XTextRange(range.getCellByPosition(j, rows.get(0))).getString();
-          column = CharMatcher.breakingWhitespace().replaceFrom(column, " ");
-          // first row contains the header
-          if (record == 0)
-          {
-            mapColumnNameToCalcColumnName.put(column, getCalcColumnNameForColumnIndex(j + 1));
-          } else
+          continue;
+        }
+        if (change.StartRow <= header && header <= change.EndRow)
+        {
+          return null;
+        }
+        rows.addAll(next.rowIndexes.subSet(change.StartRow, change.EndRow + 1));
+      }
+      for (int row : rows)
+      {
+        readRow(sheetRange, row, next);
+      }
+
+      // the results of formulas may depend on any of the changed cells
+      for (CellRangeAddress formulas : sheet.queryContentCells((short) CellFlags.FORMULA)
+          .getRangeAddresses())
+      {
+        if (formulas.StartRow <= header && header <= formulas.EndRow)
+        {
+          return null;
+        }
+        Map<Integer, String> columns = next.columnNames.subMap(formulas.StartColumn, true,
+            formulas.EndColumn, true);
+        for (int row : next.rowIndexes.subSet(formulas.StartRow, formulas.EndRow + 1))
+        {
+          if (!rows.contains(row))
           {
-            String value = UNO.XTextRange(range.getCellByPosition(j, row)).getString();
-            data.put(record, column, value);
+            for (Map.Entry<Integer, String> column : columns.entrySet())
+            {
+              next.data.put(next.rowToRecord.get(row), column.getValue(), UNO
+                  .XTextRange(sheetRange.getCellByPosition(column.getKey(), row)).getString());
+            }
           }
         }
       }
+      return next;
+    } catch (Exception e)
+    {
+      LOGGER.debug("", e);
+      return null;
+    }
+  }
+
+  /**
+   * Compute the visible rows and columns, which contain data.
+   *
+   * @param sheet
+   *          The sheet.
+   * @param next
+   *          The content, which is read.
+   */
+  private void readIndexes(XCellRangesQuery sheet, SheetContent next)
+  {
+    XSheetCellRanges visibleCellRanges = sheet.queryVisibleCells();
+    XSheetCellRanges nonEmptyCellRanges = sheet.queryContentCells(CONTENT_FLAGS);
+    List<CellRangeAddress> visibleNonEmptyCells = Arrays
+        .stream(nonEmptyCellRanges.getRangeAddresses())
+        .flatMap(nonEmptyCells -> Arrays.stream(UNO.XCellRangesQuery(visibleCellRanges)
+            .queryIntersection(nonEmptyCells).getRangeAddresses()))
+        .collect(Collectors.toList());
+    next.columnIndexes.addAll(visibleNonEmptyCells.stream()
+        .flatMap(addr -> IntStream.rangeClosed(addr.StartColumn, addr.EndColumn).boxed())
+        .collect(Collectors.toList()));
+    next.rowIndexes.addAll(visibleNonEmptyCells.stream()
+        .flatMap(addr -> IntStream.rangeClosed(addr.StartRow, addr.EndRow).boxed())
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Read the column names from the first row, which contains data.
+   *
+   * @param sheetRange
+   *          The sheet.
+   * @param next
+   *          The content, which is read.
+   * @throws IndexOutOfBoundsException
+   */
+  private void readHeader(XCellRange sheetRange, SheetContent next) throws IndexOutOfBoundsException
+  {
+    int header = next.rowIndexes.first();
+    int firstColumn = next.columnIndexes.first();
+    for (int column : next.columnIndexes)
+    {
+      String name = UNO.XTextRange(sheetRange.getCellByPosition(column, header)).getString();
+      name = CharMatcher.breakingWhitespace().replaceFrom(name, " ");
+      next.mapColumnNameToCalcColumnName.put(name,
+          getCalcColumnNameForColumnIndex(column - firstColumn + 1));
+      // if several columns have the same name, the last one is used
+      next.columnNames.values().remove(name);
+      next.columnNames.put(column, name);
+    }
+  }
+
+  /**
+   * Read the data of row and put it into the data table.
+   *
+   * @param sheetRange
+   *          The sheet.
+   * @param row
+   *          The index of the row in the sheet.
+   * @param next
+   *          The content, which is read.
+   * @throws IndexOutOfBoundsException
+   */
+  private void readRow(XCellRange sheetRange, int row, SheetContent next)
+      throws IndexOutOfBoundsException
+  {
+    int record = next.rowToRecord.get(row);
+    for (Map.Entry<Integer, String> column : next.columnNames.entrySet())
+    {
+      String value = UNO.XTextRange(sheetRange.getCellByPosition(column.getKey(), row)).getString();
+      next.data.put(record, column.getValue(), value);
     }
   }
 
@@ -485,9 +782,12 @@ public class CalcModel implements DatasourceModel
    *          The placeholder for row numbers.
    * @param subst
    *          List of substitutions.
+   * @param mapColumnNameToCalcColumnName
+   *          Mapping from column name to column indexes.
    * @return A formula as string.
    */
-  private String buildFormula(String rowNumPlaceholder, FieldSubstitution subst)
+  private String buildFormula(String rowNumPlaceholder, FieldSubstitution subst,
+      Map<String, String> mapColumnNameToCalcColumnName)
   {
     StringBuilder formula = new StringBuilder();
     for (FieldSubstitution.SubstElement substEle : subst)
@@ -529,4 +829,51 @@ public class CalcModel implements DatasourceModel
     formula.append(')');
     return formula.toString();
   }
+
+  /**
+   * The content of a sheet. It isn't modified after it has been published by {@link #content}.
+   */
+  private static class SheetContent
+  {
+    /**
+     * The name of the sheet.
+     */
+    private final String name;
+
+    /**
+     * The data of the sheet.
+     */
+    private final HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+
+    /**
+     * Set of columns, which contain data.
+     */
+    private final SortedSet<Integer> columnIndexes = new TreeSet<>();
+
+    /**
+     * Set or rows, which contain data.
+     */
+    private final SortedSet<Integer> rowIndexes = new TreeSet<>();
+
+    /**
+     * Mapping from column name to column indexes.
+     */
+    private final Map<String, String> mapColumnNameToCalcColumnName = new HashMap<>();
+
+    /**
+     * Mapping from column index in the sheet to column name. If several columns have the same
+     * name, only the last one is contained.
+     */
+    private final TreeMap<Integer, String> columnNames = new TreeMap<>();
+
+    /**
+     * Mapping from row index in the sheet to record number.
+     */
+    private final Map<Integer, Integer> rowToRecord = new HashMap<>();
+
+    SheetContent(String name)
+    {
+      this.name = name;
+    }
+  }
 }
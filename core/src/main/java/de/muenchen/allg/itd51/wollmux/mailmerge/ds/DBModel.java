@@ -24,15 +24,23 @@ package de.muenchen.allg.itd51.wollmux.mailmerge.ds;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ForwardingTable;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import com.sun.star.awt.XTopWindow;
 import com.sun.star.frame.XModel;
 import com.sun.star.lang.EventObject;
@@ -59,6 +67,14 @@ import org.libreoffice.ext.unohelper.util.UnoProperty;
 
 /**
  * A data source model based on LibreOffice Base.
+ *
+ * The records of the selected table are read in pages of {@link #PAGE_SIZE} records, when they are
+ * accessed for the first time. If the Base document is modified, the table is queried again on the
+ * next access.
+ *
+ * No lock is held while the database is accessed, because the listener on the Base document is
+ * called while LibreOffice is locked. Every query has its own row set. If its cursor is used by
+ * another thread, the page is read with a temporary row set.
  */
 public class DBModel implements DatasourceModel
 {
@@ -70,11 +86,6 @@ public class DBModel implements DatasourceModel
    */
   private String datasourceName;
 
-  /**
-   * The row set for executing queries.
-   */
-  private XRowSet results;
-
   /**
    * The database connection.
    */
@@ -88,17 +99,76 @@ public class DBModel implements DatasourceModel
   /**
    * The name of the currently selected table.
    */
-  private String tableName = null;
+  private volatile String tableName = null;
 
   /**
-   * The data of the currently selected table.
+   * Login timeout in seconds.
    */
-  HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+  private static final int MAILMERGE_LOGIN_TIMEOUT = 30;
 
   /**
-   * Login timeout in seconds.
+   * Number of records, which are read at once.
    */
-  private static final int MAILMERGE_LOGIN_TIMEOUT = 30;
+  static final int PAGE_SIZE = 100;
+
+  /**
+   * The query of the currently selected table.
+   */
+  private final AtomicReference<Query> query = new AtomicReference<>(
+      new Query(null, null, null, Collections.emptyMap(), 0));
+
+  /**
+   * True if the table has to be queried again.
+   */
+  private volatile boolean modified = false;
+
+  /**
+   * View of the data, which reads the records on access.
+   */
+  private final Table<Integer, String, String> dataView = new ForwardingTable<Integer, String, String>()
+  {
+    @Override
+    protected Table<Integer, String, String> delegate()
+    {
+      return readAll();
+    }
+
+    @Override
+    public Map<String, String> row(Integer rowKey)
+    {
+      Query q = update();
+      readPage(q, rowKey);
+      return q.records.getOrDefault(rowKey, Collections.emptyMap());
+    }
+
+    @Override
+    public String get(Object rowKey, Object columnKey)
+    {
+      if (rowKey instanceof Integer)
+      {
+        return row((Integer) rowKey).get(columnKey);
+      }
+      return null;
+    }
+
+    @Override
+    public boolean containsRow(Object rowKey)
+    {
+      if (rowKey instanceof Integer)
+      {
+        Query q = update();
+        readPage(q, (Integer) rowKey);
+        return q.records.containsKey(rowKey);
+      }
+      return false;
+    }
+
+    @Override
+    public Set<String> columnKeySet()
+    {
+      return Collections.unmodifiableSet(update().columns.keySet());
+    }
+  };
 
   /**
    * Listener for changes in the base file.
@@ -115,13 +185,7 @@ public class DBModel implements DatasourceModel
     @Override
     public void modified(EventObject event)
     {
-      try
-      {
-        readTable();
-      } catch (NoTableSelectedException e)
-      {
-        LOGGER.debug("", e);
-      }
+      modified = true;
     }
   };
 
@@ -133,7 +197,6 @@ public class DBModel implements DatasourceModel
    */
   public DBModel(XOfficeDatabaseDocument ds)
   {
-    results = UNO.XRowSet(UnoComponent.createComponentWithContext(UnoComponent.CSS_SDB_ROW_SET));
     try
     {
       this.datasourceName = UnoProperty.getProperty(ds.getDataSource(), UnoProperty.NAME).toString();
@@ -142,10 +205,6 @@ public class DBModel implements DatasourceModel
 
       ds.getDataSource().setLoginTimeout(DBModel.MAILMERGE_LOGIN_TIMEOUT);
       conn = ds.getDataSource().getConnection("", "");
-
-      UnoProperty.setProperty(results, UnoProperty.ACTIVE_CONNECTION, conn);
-      UnoProperty.setProperty(results, UnoProperty.ESCAPE_PROCESSING, false);
-      UnoProperty.setProperty(results, UnoProperty.COMMAND_TYPE, CommandType.COMMAND);
     } catch (SQLException x)
     {
       LOGGER.error("Kann keine Verbindung zur Datenquelle {} herstellen", datasourceName);
@@ -176,8 +235,13 @@ public class DBModel implements DatasourceModel
   @Override
   public void activateTable(String tableName) throws NoTableSelectedException
   {
+    if (tableName == null)
+    {
+      throw new NoTableSelectedException();
+    }
     this.tableName = tableName;
-    readTable();
+    modified = false;
+    query.getAndSet(readTable(tableName)).replace();
     LOGGER.debug("Tabelle {} wurde ausgewählt", tableName);
   }
 
@@ -185,6 +249,7 @@ public class DBModel implements DatasourceModel
   public void dispose()
   {
     UNO.XModifiable(document).removeModifyListener(modifyListener);
+    query.get().replace();
     if (conn != null)
     {
       try
@@ -195,10 +260,6 @@ public class DBModel implements DatasourceModel
         LOGGER.error("", e);
       }
     }
-    if (results != null)
-    {
-      UNO.XComponent(results).dispose();
-    }
   }
 
   @Override
@@ -234,7 +295,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    return data.columnKeySet();
+    return Collections.unmodifiableSet(update().columns.keySet());
   }
 
   @Override
@@ -245,7 +306,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    return data;
+    return dataView;
   }
 
   @Override
@@ -256,7 +317,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    return data.rowMap().size();
+    return update().numberOfRecords;
   }
 
   @Override
@@ -316,11 +377,7 @@ public class DBModel implements DatasourceModel
       throw new NoTableSelectedException();
     }
 
-    if (!data.containsRow(index))
-    {
-      Collections.emptyMap();
-    }
-    return data.row(index);
+    return dataView.row(index);
   }
 
   @Override
@@ -336,50 +393,209 @@ public class DBModel implements DatasourceModel
   }
 
   /**
-   * Read the data from the currently selected table.
+   * Query the currently selected table again, if the Base document has been modified.
    *
-   * @throws NoTableSelectedException
-   *           No sheet is selected.
+   * @return The current query.
    */
-  private void readTable() throws NoTableSelectedException
+  private Query update()
   {
-    if (tableName == null)
+    String name = tableName;
+    Query current = query.get();
+    if (name == null || (!modified && Objects.equals(name, current.table)))
     {
-      throw new NoTableSelectedException();
+      return current;
     }
 
-    data.clear();
+    modified = false;
+    Query next = readTable(name);
+    if (query.compareAndSet(current, next))
+    {
+      current.replace();
+      return next;
+    }
+    // another thread has queried the table at the same time
+    next.replace();
+    return query.get();
+  }
+
+  /**
+   * Query a table. The records are read by {@link #readPage(Query, int)}.
+   *
+   * @param name
+   *          The name of the table.
+   * @return The query.
+   */
+  private Query readTable(String name)
+  {
+    XRowSet rowSet = null;
     try
     {
       UnoDictionary<XColumnsSupplier> tables = UnoDictionary.create(UNO.XTablesSupplier(conn)
           .getTables(), XColumnsSupplier.class);
-      XColumnsSupplier columnsSupplier = tables.get(tableName);
+      XColumnsSupplier columnsSupplier = tables.get(name);
 
       if (columnsSupplier == null)
-        return;
-      UnoDictionary<Object> columns = UnoDictionary.create(columnsSupplier.getColumns(), Object.class);
-      Set<String> columnNames = columns.keySet();
-
-      UnoProperty.setProperty(results, UnoProperty.COMMAND, "SELECT * FROM " + sqlIdentifier(tableName) + ";");
-      results.execute();
-      XRow row = UNO.XRow(results);
-      XColumnLocate locate = UNO.XColumnLocate(results);
-      int id = 1;
-      while (results.next())
+        return new Query(name, null, null, Collections.emptyMap(), 0);
+      UnoDictionary<Object> tableColumns = UnoDictionary.create(columnsSupplier.getColumns(), Object.class);
+
+      String command = "SELECT * FROM " + sqlIdentifier(name) + ";";
+      rowSet = createRowSet(command);
+      rowSet.execute();
+      XColumnLocate locate = UNO.XColumnLocate(rowSet);
+      Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+      for (String column : tableColumns.keySet())
+      {
+        columnIndexes.put(column, locate.findColumn(column));
+      }
+      int numberOfRecords = 0;
+      if (rowSet.last())
       {
-        for (String column : columnNames)
+        numberOfRecords = rowSet.getRow();
+      }
+      return new Query(name, command, rowSet, columnIndexes, numberOfRecords);
+    } catch (SQLException | IllegalArgumentException | UnoHelperException e)
+    {
+      LOGGER.error("", e);
+      if (rowSet != null)
+      {
+        UNO.XComponent(rowSet).dispose();
+      }
+      return new Query(name, null, null, Collections.emptyMap(), 0);
+    }
+  }
+
+  /**
+   * Create a row set for a SQL statement.
+   *
+   * @param command
+   *          The SQL statement.
+   * @return The row set, which hasn't been executed yet.
+   * @throws UnoHelperException
+   *           The row set can't be configured.
+   */
+  private XRowSet createRowSet(String command) throws UnoHelperException
+  {
+    XRowSet rowSet = UNO.XRowSet(UnoComponent.createComponentWithContext(UnoComponent.CSS_SDB_ROW_SET));
+    UnoProperty.setProperty(rowSet, UnoProperty.ACTIVE_CONNECTION, conn);
+    UnoProperty.setProperty(rowSet, UnoProperty.ESCAPE_PROCESSING, false);
+    UnoProperty.setProperty(rowSet, UnoProperty.COMMAND_TYPE, CommandType.COMMAND);
+    UnoProperty.setProperty(rowSet, UnoProperty.COMMAND, command);
+    return rowSet;
+  }
+
+  /**
+   * Read the page of a record, if it hasn't been read yet.
+   *
+   * @param q
+   *          The query.
+   * @param record
+   *          The number of the record, starting with 1.
+   */
+  private void readPage(Query q, int record)
+  {
+    int page = (record - 1) / PAGE_SIZE;
+    if (record < 1 || record > q.numberOfRecords || q.pages.contains(page))
+    {
+      return;
+    }
+
+    int first = page * PAGE_SIZE + 1;
+    int last = Math.min(first + PAGE_SIZE - 1, q.numberOfRecords);
+    try
+    {
+      if (q.cursor.tryLock())
+      {
+        try
+        {
+          if (!q.disposed.get())
+          {
+            readRecords(q, q.rowSet, first, last);
+            return;
+          }
+        } finally
         {
-          String value = row.getString(locate.findColumn(column));
-          data.put(id, column, value);
+          q.cursor.unlock();
+          q.disposeIfReplaced();
         }
-        id++;
       }
-    } catch (SQLException | IllegalArgumentException | UnoHelperException e)
+
+      // the row set of the query is used by another thread or has been disposed
+      XRowSet rowSet = createRowSet(q.command);
+      try
+      {
+        rowSet.execute();
+        readRecords(q, rowSet, first, last);
+      } finally
+      {
+        UNO.XComponent(rowSet).dispose();
+      }
+    } catch (SQLException | UnoHelperException e)
     {
       LOGGER.error("", e);
     }
   }
 
+  /**
+   * Read records and add them to a query.
+   *
+   * @param q
+   *          The query.
+   * @param rowSet
+   *          The executed row set.
+   * @param first
+   *          The number of the first record, starting with 1. It has to be the first record of a
+   *          page.
+   * @param last
+   *          The number of the last record.
+   * @throws SQLException
+   *           The records can't be read.
+   */
+  private void readRecords(Query q, XRowSet rowSet, int first, int last) throws SQLException
+  {
+    XRow row = UNO.XRow(rowSet);
+    int id = first;
+    if (rowSet.absolute(id))
+    {
+      do
+      {
+        Map<String, String> record = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> column : q.columns.entrySet())
+        {
+          record.put(column.getKey(), row.getString(column.getValue()));
+        }
+        q.records.put(id, Collections.unmodifiableMap(record));
+      } while (++id <= last && rowSet.next());
+    }
+    q.pages.add((first - 1) / PAGE_SIZE);
+  }
+
+  /**
+   * Read all records, which haven't been read yet.
+   *
+   * @return All records of the current query.
+   */
+  private Table<Integer, String, String> readAll()
+  {
+    Query q = update();
+    Table<Integer, String, String> all = q.all;
+    if (all != null)
+    {
+      return all;
+    }
+    for (int record = 1; record <= q.numberOfRecords; record += PAGE_SIZE)
+    {
+      readPage(q, record);
+    }
+    HashBasedTable<Integer, String, String> data = HashBasedTable.create();
+    q.records.forEach((id, record) -> record.forEach((column, value) -> data.put(id, column, value)));
+    all = Tables.unmodifiableTable(data);
+    if (q.pages.size() * PAGE_SIZE >= q.numberOfRecords)
+    {
+      q.all = all;
+    }
+    return all;
+  }
+
   /**
    * Escapes a string to be used in SQL statements.
    *
@@ -391,4 +607,105 @@ public class DBModel implements DatasourceModel
   {
     return "\"" + str.replaceAll("\"", "\"\"") + "\"";
   }
+
+  /**
+   * The query of a table and the records, which have already been read. The records of a query
+   * don't change. If the Base document is modified, a new query is created.
+   */
+  private static class Query
+  {
+    /**
+     * The name of the table.
+     */
+    private final String table;
+
+    /**
+     * The SQL statement.
+     */
+    private final String command;
+
+    /**
+     * The executed row set. Its cursor may only be moved by the owner of {@link #cursor}.
+     */
+    private final XRowSet rowSet;
+
+    /**
+     * Mapping from column name to column index in the query results.
+     */
+    private final Map<String, Integer> columns;
+
+    /**
+     * Number of records of the table.
+     */
+    private final int numberOfRecords;
+
+    /**
+     * The records, which have already been read, by their number.
+     */
+    private final Map<Integer, Map<String, String>> records = new ConcurrentHashMap<>();
+
+    /**
+     * The pages, which have already been read.
+     */
+    private final Set<Integer> pages = ConcurrentHashMap.newKeySet();
+
+    /**
+     * All records, once they have been read.
+     */
+    private volatile Table<Integer, String, String> all;
+
+    /**
+     * Owner of the cursor of {@link #rowSet}. It's never waited for.
+     */
+    private final ReentrantLock cursor = new ReentrantLock();
+
+    /**
+     * True if this query isn't used anymore.
+     */
+    private volatile boolean replaced = false;
+
+    /**
+     * True if {@link #rowSet} has been disposed.
+     */
+    private final AtomicBoolean disposed = new AtomicBoolean(false);
+
+    Query(String table, String command, XRowSet rowSet, Map<String, Integer> columns,
+        int numberOfRecords)
+    {
+      this.table = table;
+      this.command = command;
+      this.rowSet = rowSet;
+      this.columns = columns;
+      this.numberOfRecords = numberOfRecords;
+    }
+
+    /**
+     * Mark the query as unused. Its row set is disposed as soon as no thread reads from it.
+     */
+    void replace()
+    {
+      replaced = true;
+      disposeIfReplaced();
+    }
+
+    /**
+     * Dispose the row set, if the query isn't used anymore and no thread reads from it.
+     */
+    void disposeIfReplaced()
+    {
+      if (replaced && rowSet != null && cursor.tryLock())
+      {
+        try
+        {
+          if (disposed.compareAndSet(false, true))
+          {
+            UNO.XComponent(rowSet).dispose();
+          }
+        } finally
+        {
+          cursor.unlock();
+        }
+      }
+    }
+  }
 }
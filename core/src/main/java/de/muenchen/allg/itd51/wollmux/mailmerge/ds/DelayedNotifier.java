@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.ds;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Executes an action once after a series of triggers. Every trigger postpones the action by the
+ * delay, so it's executed when there hasn't been a trigger for the delay.
+ *
+ * The action runs on a background thread and never while the trigger is processed, so triggers can
+ * be sent by listeners of LibreOffice.
+ */
+class DelayedNotifier
+{
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("wollmux-datasource-%d").setDaemon(true).build());
+
+  private final ScheduledExecutorService scheduler;
+
+  private final long delay;
+
+  private final Runnable action;
+
+  /**
+   * The scheduled execution of the action.
+   */
+  private final AtomicReference<ScheduledFuture<?>> pending = new AtomicReference<>();
+
+  /**
+   * Create a new notifier, which executes the action on a shared background thread.
+   *
+   * @param delay
+   *          The delay in milliseconds.
+   * @param action
+   *          The action.
+   */
+  DelayedNotifier(long delay, Runnable action)
+  {
+    this(SCHEDULER, delay, action);
+  }
+
+  /**
+   * Create a new notifier.
+   *
+   * @param scheduler
+   *          The executor of the action.
+   * @param delay
+   *          The delay in milliseconds.
+   * @param action
+   *          The action.
+   */
+  DelayedNotifier(ScheduledExecutorService scheduler, long delay, Runnable action)
+  {
+    this.scheduler = scheduler;
+    this.delay = delay;
+    this.action = action;
+  }
+
+  /**
+   * Schedule the action. An action, which has been scheduled but hasn't started yet, is replaced.
+   */
+  void trigger()
+  {
+    ScheduledFuture<?> previous = pending.getAndSet(scheduler.schedule(action, delay, TimeUnit.MILLISECONDS));
+    if (previous != null)
+    {
+      previous.cancel(false);
+    }
+  }
+
+  /**
+   * Cancel the scheduled action.
+   */
+  void cancel()
+  {
+    ScheduledFuture<?> previous = pending.getAndSet(null);
+    if (previous != null)
+    {
+      previous.cancel(false);
+    }
+  }
+}
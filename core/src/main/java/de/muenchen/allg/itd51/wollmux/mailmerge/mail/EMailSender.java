@@ -128,13 +128,9 @@ public class EMailSender
   {
     // Necessary for mapping MIME types to Java classes.
     Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-    try (Transport tr = session.getTransport("smtp");)
+    try (Transport tr = connect(mailServerSettings))
     {
-      // Empty String activates AUTH so use null if no authentication is required.
-      tr.connect(mailServerSettings.getMailserver(), mailServerSettings.getMailserverport(),
-          mailServerSettings.getUsername(), mailServerSettings.getPassword());
-      email.saveChanges();
-      tr.sendMessage(email, email.getAllRecipients());
+      sendMessage(tr);
     }
     catch (MessagingException e)
     {
@@ -142,6 +138,38 @@ public class EMailSender
     }
   }
 
+  /**
+   * Open a connection to a mail server. The connection can be used to send several messages.
+   *
+   * @param mailServerSettings
+   *          The mail server to use.
+   * @return The connection, which has to be closed by the caller.
+   * @throws MessagingException
+   *           Can't connect to the mail server.
+   */
+  public Transport connect(MailServerSettings mailServerSettings) throws MessagingException
+  {
+    Transport tr = session.getTransport("smtp");
+    // Empty String activates AUTH so use null if no authentication is required.
+    tr.connect(mailServerSettings.getMailserver(), mailServerSettings.getMailserverport(),
+        mailServerSettings.getUsername(), mailServerSettings.getPassword());
+    return tr;
+  }
+
+  /**
+   * Send the message over an open connection.
+   *
+   * @param transport
+   *          The connection to the mail server.
+   * @throws MessagingException
+   *           Problems while sending the mail.
+   */
+  public void sendMessage(Transport transport) throws MessagingException
+  {
+    email.saveChanges();
+    transport.sendMessage(email, email.getAllRecipients());
+  }
+
   /**
    * Get the mail server settings from the configuration and set them.
    *
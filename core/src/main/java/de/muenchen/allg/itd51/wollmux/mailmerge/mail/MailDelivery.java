@@ -0,0 +1,362 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.mail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends mails in the background. The mails are queued and sent by one thread over one connection
+ * to the mail server, which is reused for all mails. If a mail can't be sent, it's retried with a
+ * new connection. The result is recorded for each recipient.
+ *
+ * The queue is bounded, so that {@link #send(EMailSender, String, File)} blocks if the mails are
+ * created faster than the mail server accepts them. The connection is closed if there haven't been
+ * any mails for {@link #IDLE_TIMEOUT} seconds.
+ *
+ * No lock is held while waiting for the queue, so the sending thread never blocks the worker.
+ */
+public class MailDelivery implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(MailDelivery.class);
+
+  /**
+   * Maximum number of mails waiting to be sent.
+   */
+  static final int QUEUE_SIZE = 10;
+
+  /**
+   * Maximum number of attempts to send a mail.
+   */
+  static final int MAX_ATTEMPTS = 3;
+
+  /**
+   * Seconds to wait for new mails, before the connection is closed.
+   */
+  private static final long IDLE_TIMEOUT = 60;
+
+  /**
+   * Marks the end of the queue.
+   */
+  private static final Delivery END = new Delivery(null, null, null);
+
+  private final MailServerSettings settings;
+
+  private final long retryDelay;
+
+  private final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+
+  private final List<Map.Entry<String, String>> failed = new CopyOnWriteArrayList<>();
+
+  /**
+   * Guards {@link #worker}. It's never held while waiting for the queue.
+   */
+  private final Object workerLock = new Object();
+
+  private Thread worker;
+
+  /**
+   * Create a new delivery.
+   *
+   * @param settings
+   *          The mail server.
+   */
+  public MailDelivery(MailServerSettings settings)
+  {
+    this(settings, 1000);
+  }
+
+  /**
+   * Create a new delivery.
+   *
+   * @param settings
+   *          The mail server.
+   * @param retryDelay
+   *          Milliseconds to wait before the first retry. The delay increases with each retry.
+   */
+  MailDelivery(MailServerSettings settings, long retryDelay)
+  {
+    this.settings = settings;
+    this.retryDelay = retryDelay;
+  }
+
+  /**
+   * Queue a mail. The attachment is added to the mail before it's sent and deleted afterwards.
+   *
+   * @param mail
+   *          The mail.
+   * @param recipient
+   *          The recipient of the mail, used in the report.
+   * @param attachment
+   *          The attachment of the mail.
+   * @throws InterruptedException
+   *           Interrupted while waiting for space in the queue.
+   */
+  public void send(EMailSender mail, String recipient, File attachment)
+      throws InterruptedException
+  {
+    startWorker();
+    queue.put(new Delivery(mail, recipient, attachment));
+    // the worker may have stopped because it was idle while we were waiting
+    startWorker();
+  }
+
+  /**
+   * Wait until all queued mails have been sent.
+   *
+   * @throws InterruptedException
+   *           Interrupted while waiting.
+   */
+  @Override
+  public void close() throws InterruptedException
+  {
+    Thread current;
+    synchronized (workerLock)
+    {
+      current = worker;
+    }
+    if (current != null)
+    {
+      queue.put(END);
+      current.join();
+      // the worker may have stopped because it was idle before it took the end
+      queue.remove(END);
+    }
+  }
+
+  /**
+   * The recipients of the mails, which have been sent.
+   *
+   * @return List of recipients.
+   */
+  public List<String> getSentRecipients()
+  {
+    return new ArrayList<>(sent);
+  }
+
+  /**
+   * The recipients of the mails, which couldn't be sent. A recipient is contained once for each
+   * mail, which couldn't be sent.
+   *
+   * @return List of recipients and the reasons.
+   */
+  public List<Map.Entry<String, String>> getFailedRecipients()
+  {
+    return new ArrayList<>(failed);
+  }
+
+  /**
+   * Start the worker, if it isn't running.
+   */
+  private void startWorker()
+  {
+    synchronized (workerLock)
+    {
+      if (worker == null)
+      {
+        worker = new Thread(this::deliver, "WollMux mail delivery");
+        worker.start();
+      }
+    }
+  }
+
+  /**
+   * Open a connection to the mail server.
+   *
+   * @param mail
+   *          The mail, which is sent first.
+   * @return The connection.
+   * @throws MessagingException
+   *           Can't connect to the mail server.
+   */
+  Transport connect(EMailSender mail) throws MessagingException
+  {
+    return mail.connect(settings);
+  }
+
+  /**
+   * Send the queued mails until the end of the queue or until there haven't been new mails for some
+   * time.
+   */
+  private void deliver()
+  {
+    // Necessary for mapping MIME types to Java classes.
+    Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+    Transport transport = null;
+    try
+    {
+      while (true)
+      {
+        Delivery delivery = queue.poll(IDLE_TIMEOUT, TimeUnit.SECONDS);
+        synchronized (workerLock)
+        {
+          if (delivery == END || (delivery == null && queue.isEmpty()))
+          {
+            worker = null;
+            return;
+          }
+        }
+        if (delivery != null)
+        {
+          transport = deliver(transport, delivery);
+        }
+      }
+    } catch (InterruptedException e)
+    {
+      LOGGER.error("Mail delivery interrupted", e);
+      Thread.currentThread().interrupt();
+    } finally
+    {
+      synchronized (workerLock)
+      {
+        // the worker may have been stopped by an unexpected error
+        if (worker == Thread.currentThread())
+        {
+          worker = null;
+        }
+      }
+      disconnect(transport);
+    }
+  }
+
+  /**
+   * Send a mail. Failed mails are retried up to {@link #MAX_ATTEMPTS} times with a new connection,
+   * unless the recipient was rejected or the authentication failed. Unexpected runtime exceptions
+   * are recorded as failure of the mail, so that the worker continues with the next mail.
+   *
+   * @param transport
+   *          The current connection or null.
+   * @param delivery
+   *          The mail.
+   * @return The connection for the next mail or null.
+   * @throws InterruptedException
+   *           Interrupted while waiting for a retry.
+   */
+  private Transport deliver(Transport transport, Delivery delivery) throws InterruptedException
+  {
+    try
+    {
+      delivery.mail.addAttachment(delivery.attachment);
+      MessagingException error = null;
+      for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++)
+      {
+        try
+        {
+          if (transport == null || !transport.isConnected())
+          {
+            transport = connect(delivery.mail);
+          }
+          delivery.mail.sendMessage(transport);
+          sent.add(delivery.recipient);
+          return transport;
+        } catch (SendFailedException | AuthenticationFailedException e)
+        {
+          error = e;
+          break;
+        } catch (MessagingException e)
+        {
+          error = e;
+          LOGGER.debug("Attempt {} to send mail to {} failed", attempt, delivery.recipient, e);
+          disconnect(transport);
+          transport = null;
+          if (attempt < MAX_ATTEMPTS)
+          {
+            Thread.sleep(retryDelay * attempt);
+          }
+        }
+      }
+      fail(delivery, error);
+    } catch (IOException | MessagingException | RuntimeException e)
+    {
+      fail(delivery, e);
+    } finally
+    {
+      try
+      {
+        Files.delete(delivery.attachment.toPath());
+      } catch (IOException e)
+      {
+        LOGGER.trace("Couldn't delete temporary document", e);
+      }
+    }
+    return transport;
+  }
+
+  private void fail(Delivery delivery, Exception error)
+  {
+    LOGGER.error("Couldn't send mail to {}", delivery.recipient, error);
+    failed.add(new AbstractMap.SimpleImmutableEntry<>(delivery.recipient, error.getMessage()));
+  }
+
+  private static void disconnect(Transport transport)
+  {
+    if (transport != null)
+    {
+      try
+      {
+        transport.close();
+      } catch (MessagingException e)
+      {
+        LOGGER.debug("", e);
+      }
+    }
+  }
+
+  /**
+   * A queued mail.
+   */
+  private static class Delivery
+  {
+    private final EMailSender mail;
+
+    private final String recipient;
+
+    private final File attachment;
+
+    private Delivery(EMailSender mail, String recipient, File attachment)
+    {
+      this.mail = mail;
+      this.recipient = recipient;
+      this.attachment = attachment;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.print;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes records to a CSV-file as soon as they are added. All values are quoted.
+ */
+class CSVRecordWriter implements Closeable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(CSVRecordWriter.class);
+
+  /**
+   * The CSV-file.
+   */
+  private final File csvFile;
+
+  /**
+   * The columns of the CSV-file in the order of the header line.
+   */
+  private final List<String> columns;
+
+  /**
+   * The columns of {@link #columns} for fast lookup.
+   */
+  private final Set<String> knownColumns;
+
+  /**
+   * Number of columns in the header line, which has already been written.
+   */
+  private final int columnsInHeader;
+
+  /**
+   * The writer of the CSV-file until {@link #flushAndClose()} is called.
+   */
+  private final Writer out;
+
+  /**
+   * Number of written records.
+   */
+  private int size = 0;
+
+  /**
+   * Create a new CSV-file and write the header line.
+   *
+   * @param csvFile
+   *          The CSV-file.
+   * @param columns
+   *          The columns of the records. Records are written as soon as they are added, so the
+   *          columns should be known before.
+   * @throws IOException
+   *           The file can't be created.
+   */
+  CSVRecordWriter(File csvFile, Collection<String> columns) throws IOException
+  {
+    this.csvFile = csvFile;
+    this.columns = new ArrayList<>(columns);
+    Collections.sort(this.columns);
+    this.knownColumns = new HashSet<>(this.columns);
+    this.columnsInHeader = this.columns.size();
+    out = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8);
+    out.write(line(this.columns));
+  }
+
+  /**
+   * Get the number of available records.
+   *
+   * @return Number of records.
+   */
+  public int getSize()
+  {
+    return size;
+  }
+
+  /**
+   * Add a new record. The record is written to the file immediately. Columns, which weren't known
+   * at creation time, are added to the end of the header in {@link #flushAndClose()}.
+   *
+   * @param ds
+   *          Key/Value pair defining a record.
+   * @throws IOException
+   *           Data can't be written.
+   */
+  public void addRecord(Map<String, String> ds) throws IOException
+  {
+    for (String column : ds.keySet())
+    {
+      if (knownColumns.add(column))
+      {
+        LOGGER.debug("Column {} isn't part of the mail merge schema", column);
+        columns.add(column);
+      }
+    }
+
+    List<String> entries = new ArrayList<>(columns.size());
+    for (String key : columns)
+    {
+      String val = ds.get(key);
+      if (val == null)
+        val = "";
+      entries.add(val);
+    }
+    out.write(line(entries));
+    ++size;
+  }
+
+  /**
+   * After all records where added with {@link #addRecord(Map)}. This method closes the file.
+   * Later calls of {@link #addRecord(Map)} fail.
+   *
+   * @throws IOException
+   *           Data can't be written.
+   */
+  public void flushAndClose() throws IOException
+  {
+    out.close();
+    if (columns.size() > columnsInHeader)
+    {
+      rewriteWithAllColumns();
+    }
+  }
+
+  /**
+   * Close the file without completing it. Does nothing, if {@link #flushAndClose()} has already
+   * been called.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    out.close();
+  }
+
+  /**
+   * Rewrite the file with a header of all columns. Records written before a column was added get
+   * empty values for the missing columns. All values are quoted, so the end of a record is the
+   * first line break outside of quotes.
+   *
+   * @throws IOException
+   *           Data can't be written.
+   */
+  private void rewriteWithAllColumns() throws IOException
+  {
+    Path incomplete = csvFile.toPath().resolveSibling(csvFile.getName() + ".incomplete");
+    Files.move(csvFile.toPath(), incomplete);
+    try (Reader in = Files.newBufferedReader(incomplete, StandardCharsets.UTF_8);
+        Writer w = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8))
+    {
+      w.write(line(columns));
+      boolean header = true;
+      boolean quoted = false;
+      int fields = 1;
+      int c;
+      while ((c = in.read()) >= 0)
+      {
+        if (c == '\n' && !quoted)
+        {
+          if (!header)
+          {
+            for (; fields < columns.size(); ++fields)
+            {
+              w.write(",\"\"");
+            }
+            w.write('\n');
+          }
+          header = false;
+          fields = 1;
+          continue;
+        }
+        if (c == '"')
+        {
+          quoted = !quoted;
+        } else if (c == ',' && !quoted)
+        {
+          ++fields;
+        }
+        if (!header)
+        {
+          w.write(c);
+        }
+      }
+    }
+    Files.delete(incomplete);
+  }
+
+  /**
+   * Create a line from a record.
+   *
+   * @param list
+   *          The record
+   * @return String representing one line terminated by '\n'.
+   */
+  private static String line(List<String> list)
+  {
+    StringBuilder buf = new StringBuilder();
+    for (String el : list)
+    {
+      if (buf.length() != 0)
+        buf.append(",");
+      buf.append(escape(el));
+    }
+    buf.append("\n");
+    return buf.toString();
+  }
+
+  /**
+   * Escape Strings so that they can be used in a CSV-file.
+   *
+   * @param value
+   *          String to be escaped
+   * @return Escaped String
+   */
+  private static String escape(String value)
+  {
+    String esc = value.replaceAll("\"", "\"\"");
+    return "\"" + esc + "\"";
+  }
+}
@@ -23,21 +23,24 @@
 package de.muenchen.allg.itd51.wollmux.mailmerge.print;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.print.PrintException;
 
@@ -46,6 +49,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 import com.sun.star.beans.NamedValue;
 import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
@@ -61,13 +66,16 @@ import com.sun.star.lang.XMultiServiceFactory;
 import com.sun.star.lang.XSingleServiceFactory;
 import com.sun.star.sdb.CommandType;
 import com.sun.star.sdb.XDocumentDataSource;
+import com.sun.star.style.BreakType;
 import com.sun.star.task.XJob;
+import com.sun.star.text.ControlCharacter;
 import com.sun.star.text.MailMergeEvent;
 import com.sun.star.text.MailMergeType;
 import com.sun.star.text.XDependentTextField;
 import com.sun.star.text.XMailMergeBroadcaster;
 import com.sun.star.text.XMailMergeListener;
 import com.sun.star.text.XTextContent;
+import com.sun.star.text.XTextCursor;
 import com.sun.star.text.XTextDocument;
 import com.sun.star.text.XTextField;
 import com.sun.star.text.XTextRange;
@@ -86,6 +94,7 @@ import org.libreoffice.ext.unohelper.common.UnoDictionary;
 import org.libreoffice.ext.unohelper.common.UnoHelperException;
 import org.libreoffice.ext.unohelper.common.UnoProps;
 import org.libreoffice.ext.unohelper.document.text.Bookmark;
+import de.muenchen.allg.itd51.wollmux.WollMuxFiles;
 import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
 import de.muenchen.allg.itd51.wollmux.config.NodeNotFoundException;
 import de.muenchen.allg.itd51.wollmux.config.SyntaxErrorException;
@@ -99,6 +108,7 @@ import de.muenchen.allg.itd51.wollmux.document.PersistentDataContainer.DataID;
 import de.muenchen.allg.itd51.wollmux.document.SimulationResults;
 import de.muenchen.allg.itd51.wollmux.document.SimulationResults.SimulationResultsProcessor;
 import de.muenchen.allg.itd51.wollmux.document.TextDocumentModel;
+import de.muenchen.allg.itd51.wollmux.document.VisibilityElement;
 import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand;
 import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand.InsertFormValue;
 import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommands;
@@ -136,6 +146,17 @@ public class OOoBasedMailMerge implements AutoCloseable
 
   private static final String TABLE_NAME = "data";
 
+  /**
+   * Name of the option in the WollMux configuration, which defines the number of records merged by
+   * one mail merge job. If it isn't defined or 0, all records are merged by one job.
+   */
+  public static final String MAILMERGE_CHUNK_SIZE = "MAILMERGE_CHUNK_SIZE";
+
+  /**
+   * Property of the mail merge job with the numbers of the records to merge.
+   */
+  private static final String SELECTION = "Selection";
+
   private XPrintModel pmod;
   private CSVDataSourceWriter ds;
   private File tmpDir;
@@ -191,38 +212,37 @@ public class OOoBasedMailMerge implements AutoCloseable
     }
     PrintModels.setStage(pmod, L.m("Generating full document"));
 
+    int nextSets = countNextSets();
+    int chunkSize = getChunkSize(nextSets);
+    if (chunkSize <= 0 || type == MailMergeType.FILE || ds.getSize() <= chunkSize)
+    {
+      doSingleMailMerge(nextSets);
+    } else
+    {
+      doChunkedMailMerge(nextSets, chunkSize);
+    }
+  }
+
+  /**
+   * Merge all records with one mail merge job.
+   *
+   * @param nextSets
+   *          Number of records per document.
+   * @throws PrintException
+   *           Something went wrong.
+   */
+  private void doSingleMailMerge(int nextSets) throws PrintException
+  {
     try
     {
-      final XJob mailMerge = createMailMergeJob();
-
-      final ArrayList<NamedValue> mmProps = new ArrayList<>();
-      mmProps.add(new NamedValue(UnoProperty.DATA_SOURCE_NAME, dbName));
-      mmProps.add(new NamedValue(UnoProperty.COMMAND_TYPE, CommandType.TABLE));
-      mmProps.add(new NamedValue(UnoProperty.COMMAND, TABLE_NAME));
-      mmProps.add(new NamedValue(
-          UnoProperty.DOCUMENT_URL,
-          UNO.getParsedUNOUrl(inputFile.toURI().toString()).Complete));
-      mmProps.add(new NamedValue(
-          UnoProperty.OUTPUT_URL,
-          UNO.getParsedUNOUrl(tmpDir.toURI().toString()).Complete));
-      mmProps.add(new NamedValue(UnoProperty.OUTPUT_TYPE, type));
-      if (type == MailMergeType.FILE)
-      {
-        mmProps.add(new NamedValue(UnoProperty.SAVE_AS_SINGLE_FILE, Boolean.TRUE));
-        mmProps.add(new NamedValue(UnoProperty.FILE_NAME_FROM_COLUMN, Boolean.FALSE));
-        mmProps.add(new NamedValue(UnoProperty.FILE_NAME_PREFIX, "output"));
-      } else if (type == MailMergeType.SHELL)
-      {
-        mmProps.add(new NamedValue(UnoProperty.SAVE_AS_SINGLE_FILE, Boolean.TRUE));
-        mmProps.add(new NamedValue(UnoProperty.FILE_NAME_FROM_COLUMN, Boolean.FALSE));
-      } else if (type == MailMergeType.PRINTER)
-      {
-        mmProps.add(new NamedValue(UnoProperty.SINGLE_PRINT_JOBS, Boolean.FALSE));
-      }
+      int maxDatasets = (int) Math.ceil((double) ds.getSize() / nextSets);
+      pmod.setPrintProgressMaxValue((short) maxDatasets);
+      pmod.setPrintProgressValue((short) 0);
+      final XJob mailMerge = createMailMergeJob(0, maxDatasets);
 
       LOGGER.debug("Starting OOo-MailMerge in directory {}", tmpDir);
 
-      Object result = mailMerge.execute(mmProps.toArray(new NamedValue[mmProps.size()]));
+      Object result = mailMerge.execute(createMailMergeProperties(null, "output"));
 
       // continue if not canceled or returned with error
       if (!pmod.isCanceled())
@@ -243,6 +263,255 @@ public class OOoBasedMailMerge implements AutoCloseable
     }
   }
 
+  /**
+   * Merge the records in chunks of chunkSize records. Each chunk is merged by its own mail merge
+   * job, so that the documents of a chunk can be released before the next chunk is merged. The
+   * jobs run one after another, because LibreOffice executes mail merges exclusively. The results
+   * of {@link MailMergeType#SHELL} jobs are appended to the result of the first chunk, the jobs of
+   * {@link MailMergeType#PRINTER} create one print job per chunk.
+   *
+   * A chunk, which fails, doesn't cancel the mail merge. The other chunks are merged and the failed
+   * records are reported at the end.
+   *
+   * @param nextSets
+   *          Number of records per document.
+   * @param chunkSize
+   *          Number of records per chunk, a multiple of nextSets.
+   * @throws PrintException
+   *           Some chunks couldn't be merged.
+   */
+  private void doChunkedMailMerge(int nextSets, int chunkSize) throws PrintException
+  {
+    int[][] chunks = getChunks(ds.getSize(), chunkSize);
+    int maxDatasets = (int) Math.ceil((double) ds.getSize() / nextSets);
+    pmod.setPrintProgressMaxValue((short) maxDatasets);
+    pmod.setPrintProgressValue((short) 0);
+
+    XTextDocument result = null;
+    boolean printed = false;
+    List<String> failed = new ArrayList<>();
+    try
+    {
+      for (int chunk = 0; chunk < chunks.length && !pmod.isCanceled(); ++chunk)
+      {
+        int first = chunks[chunk][0];
+        int last = chunks[chunk][1];
+        PrintModels.setStage(pmod, L.m("Generating part {0} of {1}", chunk + 1, chunks.length));
+        LOGGER.debug("Starting OOo-MailMerge of records {} to {} in directory {}", first, last, tmpDir);
+        try
+        {
+          Object[] selection = IntStream.rangeClosed(first, last).boxed().toArray();
+          XJob mailMerge = createMailMergeJob((first - 1) / nextSets,
+              (int) Math.ceil((double) last / nextSets));
+          Object partial = mailMerge.execute(createMailMergeProperties(selection, "part" + chunk + "_"));
+          if (type == MailMergeType.SHELL && UNO.XTextDocument(partial) != null)
+          {
+            if (pmod.isCanceled())
+            {
+              close(UNO.XTextDocument(partial));
+            } else
+            {
+              result = appendChunk(result, UNO.XTextDocument(partial),
+                  new File(tmpDir, "part" + chunk + ".odt"));
+            }
+          }
+        } catch (Exception e)
+        {
+          LOGGER.error("OOo-MailMerge of records {} to {} failed", first, last, e);
+          failed.add(first + "-" + last);
+        }
+      }
+
+      if (type == MailMergeType.SHELL && result != null && !pmod.isCanceled())
+      {
+        try
+        {
+          pmod.setPropertyValue(PrintFunction.PRINT_RESULT, result);
+          pmod.printWithProps();
+          printed = true;
+        } catch (Exception e)
+        {
+          throw new PrintException("OOo-MailMergeService failed:", e);
+        }
+      }
+    } finally
+    {
+      if (!printed)
+      {
+        close(result);
+      }
+    }
+    if (!failed.isEmpty())
+    {
+      throw new PrintException(
+          L.m("The records {0} could not be merged.", String.join(", ", failed)));
+    }
+  }
+
+  /**
+   * Split the records into chunks.
+   *
+   * @param records
+   *          The number of records.
+   * @param chunkSize
+   *          The number of records per chunk.
+   * @return The first and last record of each chunk. The records are numbered from 1.
+   */
+  static int[][] getChunks(int records, int chunkSize)
+  {
+    int[][] chunks = new int[(int) Math.ceil((double) records / chunkSize)][];
+    for (int chunk = 0; chunk < chunks.length; ++chunk)
+    {
+      int first = chunk * chunkSize + 1;
+      chunks[chunk] = new int[] { first, Math.min(first + chunkSize - 1, records) };
+    }
+    return chunks;
+  }
+
+  /**
+   * Close a document without asking the user. Errors are only logged.
+   *
+   * @param doc
+   *          The document or null.
+   */
+  private static void close(XTextDocument doc)
+  {
+    if (doc == null)
+    {
+      return;
+    }
+    try
+    {
+      UNO.XCloseable(doc).close(true);
+    } catch (CloseVetoException e)
+    {
+      LOGGER.debug("", e);
+    }
+  }
+
+  /**
+   * Append the result of a chunk to the result of the previous chunks. The chunk is inserted on a
+   * new page and its document is closed afterwards.
+   *
+   * @param result
+   *          The result of the previous chunks or null.
+   * @param partial
+   *          The result of the chunk.
+   * @param partFile
+   *          The file in which the chunk is stored temporarily.
+   * @return The combined result.
+   * @throws Exception
+   *           The chunk couldn't be appended.
+   */
+  static XTextDocument appendChunk(XTextDocument result, XTextDocument partial, File partFile)
+      throws Exception
+  {
+    if (result == null)
+    {
+      return partial;
+    }
+
+    try
+    {
+      UNO.XStorable(partial).storeToURL(UNO.getParsedUNOUrl(partFile.toURI().toString()).Complete,
+          new PropertyValue[] {});
+    } finally
+    {
+      UNO.XCloseable(partial).close(true);
+    }
+
+    XTextCursor cursor = result.getText().createTextCursor();
+    cursor.gotoEnd(false);
+    result.getText().insertControlCharacter(cursor, ControlCharacter.PARAGRAPH_BREAK, false);
+    UnoProperty.setProperty(cursor, UnoProperty.BREAK_TYPE, BreakType.PAGE_BEFORE);
+    UNO.XDocumentInsertable(cursor).insertDocumentFromURL(
+        UNO.getParsedUNOUrl(partFile.toURI().toString()).Complete, new PropertyValue[] {});
+    Files.delete(partFile.toPath());
+    return result;
+  }
+
+  /**
+   * Create the properties of a mail merge job.
+   *
+   * @param selection
+   *          The numbers of the records to merge or null for all records.
+   * @param filePrefix
+   *          The prefix of the created files, if the type is {@link MailMergeType#FILE}.
+   * @return The properties.
+   */
+  private NamedValue[] createMailMergeProperties(Object[] selection, String filePrefix)
+  {
+    final ArrayList<NamedValue> mmProps = new ArrayList<>();
+    mmProps.add(new NamedValue(UnoProperty.DATA_SOURCE_NAME, dbName));
+    mmProps.add(new NamedValue(UnoProperty.COMMAND_TYPE, CommandType.TABLE));
+    mmProps.add(new NamedValue(UnoProperty.COMMAND, TABLE_NAME));
+    mmProps.add(new NamedValue(
+        UnoProperty.DOCUMENT_URL,
+        UNO.getParsedUNOUrl(inputFile.toURI().toString()).Complete));
+    mmProps.add(new NamedValue(
+        UnoProperty.OUTPUT_URL,
+        UNO.getParsedUNOUrl(tmpDir.toURI().toString()).Complete));
+    mmProps.add(new NamedValue(UnoProperty.OUTPUT_TYPE, type));
+    if (selection != null)
+    {
+      mmProps.add(new NamedValue(SELECTION, selection));
+    }
+    if (type == MailMergeType.FILE)
+    {
+      mmProps.add(new NamedValue(UnoProperty.SAVE_AS_SINGLE_FILE, Boolean.TRUE));
+      mmProps.add(new NamedValue(UnoProperty.FILE_NAME_FROM_COLUMN, Boolean.FALSE));
+      mmProps.add(new NamedValue(UnoProperty.FILE_NAME_PREFIX, filePrefix));
+    } else if (type == MailMergeType.SHELL)
+    {
+      mmProps.add(new NamedValue(UnoProperty.SAVE_AS_SINGLE_FILE, Boolean.TRUE));
+      mmProps.add(new NamedValue(UnoProperty.FILE_NAME_FROM_COLUMN, Boolean.FALSE));
+    } else if (type == MailMergeType.PRINTER)
+    {
+      mmProps.add(new NamedValue(UnoProperty.SINGLE_PRINT_JOBS, Boolean.FALSE));
+    }
+    return mmProps.toArray(new NamedValue[mmProps.size()]);
+  }
+
+  /**
+   * The number of records per chunk. It's configured by {@link #MAILMERGE_CHUNK_SIZE} in the
+   * WollMux configuration and rounded up to a multiple of the records per document.
+   *
+   * @param nextSets
+   *          Number of records per document.
+   * @return The number of records per chunk or 0, if the records shouldn't be chunked.
+   */
+  private int getChunkSize(int nextSets)
+  {
+    return getChunkSize(WollMuxFiles.getWollmuxConf().getString(MAILMERGE_CHUNK_SIZE, "0"), nextSets);
+  }
+
+  /**
+   * Parse the number of records per chunk and round it up to a multiple of the records per
+   * document.
+   *
+   * @param value
+   *          The value of {@link #MAILMERGE_CHUNK_SIZE}.
+   * @param nextSets
+   *          Number of records per document.
+   * @return The number of records per chunk or 0, if the records shouldn't be chunked.
+   */
+  static int getChunkSize(String value, int nextSets)
+  {
+    try
+    {
+      int chunkSize = Integer.parseInt(value);
+      if (chunkSize <= 0)
+      {
+        return 0;
+      }
+      return (int) Math.ceil((double) chunkSize / nextSets) * nextSets;
+    } catch (NumberFormatException e)
+    {
+      LOGGER.error("{} has to be a number: {}", MAILMERGE_CHUNK_SIZE, value);
+      return 0;
+    }
+  }
+
   // open file as template and delete afterwards
   private void handleFileResult(File outputFile)
   {
@@ -274,14 +543,14 @@ public class OOoBasedMailMerge implements AutoCloseable
 
   private void prepareDatasource() throws PrintException
   {
-    try
+    // Datenquelle mit über mailMergeNewSetFormValue simulierten Daten
+    // erstellen
+    try (CSVDataSourceWriter writer = new CSVDataSourceWriter(getColumns()))
     {
-      // Datenquelle mit über mailMergeNewSetFormValue simulierten Daten
-      // erstellen
-      ds = new CSVDataSourceWriter();
-      SetFormValue.mailMergeNewSetFormValue(pmod, ds);
-      ds.flushAndClose();
-    } catch (java.io.IOException ex)
+      ds = writer;
+      SetFormValue.mailMergeNewSetFormValue(pmod, writer);
+      writer.flushAndClose();
+    } catch (java.io.IOException | UncheckedIOException ex)
     {
       throw new PrintException(
           L.m("OOo-Based-MailMerge: cannot generate simulation data source."), ex);
@@ -293,6 +562,43 @@ public class OOoBasedMailMerge implements AutoCloseable
     }
   }
 
+  /**
+   * Collect the columns of the mail merge data source. These are the columns of the records, the
+   * form values of the document, the special columns of the form fields and the columns for the
+   * visibility groups.
+   *
+   * @return The column names.
+   */
+  private Set<String> getColumns()
+  {
+    Set<String> columns = new HashSet<>();
+    @SuppressWarnings("unchecked")
+    Table<Integer, String, String> data = (Table<Integer, String, String>) pmod
+        .getProp(SetFormValue.PROP_QUERYRESULTS, HashBasedTable.create());
+    columns.addAll(data.columnKeySet());
+    columns.add(SetFormValue.TAG_RECORD_ID);
+    columns.add(SetFormValue.TAG_MAILMERGE_ID);
+
+    TextDocumentModel model = DocumentManager.getTextDocumentController(pmod.getTextDocument())
+        .getModel();
+    columns.addAll(model.getFormFieldValuesMap().keySet());
+    Stream.of(model.getIdToFormFields().values().stream().flatMap(List::stream),
+        model.getIdToTextFieldFormFields().values().stream().flatMap(List::stream),
+        model.getStaticTextFieldFormFields().stream())
+        .flatMap(Function.identity())
+        .map(this::getSpecialColumnNameForFormField)
+        .filter(Objects::nonNull)
+        .forEach(columns::add);
+
+    Set<String> groups = new HashSet<>(model.getMapGroupIdToVisibilityState().keySet());
+    for (VisibilityElement element : model.getDocumentCommands().getSetGroups())
+    {
+      groups.addAll(element.getGroups());
+    }
+    groups.forEach(group -> columns.add(COLUMN_PREFIX_TEXTSECTION + group));
+    return columns;
+  }
+
   /**
    * Modifies the configuration option for loading print properties when files are opened.
    *
@@ -787,19 +1093,20 @@ public class OOoBasedMailMerge implements AutoCloseable
   /**
    * Create the mail merge job.
    *
+   * @param offset
+   *          The number of documents created by previous jobs.
+   * @param maxDatasets
+   *          The number of documents created after this job has finished.
    * @return The job.
    * @throws PrintException
    *           The job can't be created.
    */
-  private XJob createMailMergeJob() throws PrintException
+  private XJob createMailMergeJob(int offset, int maxDatasets) throws PrintException
   {
     try
     {
       final XJob mailMerge = UnoRuntime.queryInterface(XJob.class,
           UNO.xMCF.createInstanceWithContext("com.sun.star.text.MailMerge", UNO.defaultContext));
-      int maxDatasets = (int) Math.ceil((double) ds.getSize() / countNextSets());
-      pmod.setPrintProgressMaxValue((short) maxDatasets);
-      pmod.setPrintProgressValue((short) 0);
 
       XCancellable mailMergeCancellable = UNO.XCancellable(mailMerge);
 
@@ -808,7 +1115,7 @@ public class OOoBasedMailMerge implements AutoCloseable
           mailMerge);
       xmmb.addMailMergeEventListener(new XMailMergeListener()
       {
-        int count = 0;
+        int count = offset;
 
         final long start = System.currentTimeMillis();
 
@@ -825,7 +1132,7 @@ public class OOoBasedMailMerge implements AutoCloseable
               (System.currentTimeMillis() - start));
           if (count >= maxDatasets && type == MailMergeType.PRINTER)
           {
-            count = 0;
+            count = offset;
             pmod.setPrintMessage(L.m("Send print job - please wait..."));
           }
         }
@@ -858,9 +1165,10 @@ public class OOoBasedMailMerge implements AutoCloseable
   }
 
   /**
-   * Class for writing records in a CSV-file.
+   * Class for writing the simulated records in a CSV-file, which is used as data source of the mail
+   * merge.
    */
-  private class CSVDataSourceWriter implements SimulationResultsProcessor
+  private class CSVDataSourceWriter extends CSVRecordWriter implements SimulationResultsProcessor
   {
 
     private static final char OPENSYMBOL_CHECKED = 0xE4C4;
@@ -868,70 +1176,16 @@ public class OOoBasedMailMerge implements AutoCloseable
     private static final char OPENSYMBOL_UNCHECKED = 0xE470;
 
     /**
-     * The CSV-file.
-     */
-    File csvFile = new File(tmpDir, TABLE_NAME + ".csv");
-
-    /**
-     * Collection of all records.
-     */
-    ArrayList<Map<String, String>> records = new ArrayList<>();
-
-    /**
-     * Collection of all columns contained in {@link #records}.
-     */
-    HashSet<String> columns = new HashSet<>();
-
-    /**
-     * Get the number of available records.
-     *
-     * @return Number of records.
-     */
-    public int getSize()
-    {
-      return records.size();
-    }
-
-    /**
-     * Add a new record.
-     *
-     * @param ds
-     *          Key/Value pair defining a record.
-     */
-    public void addRecord(Map<String, String> ds)
-    {
-      records.add(ds);
-      columns.addAll(ds.keySet());
-    }
-
-    /**
-     * After all records where added with {@link #addRecord(Map)}. This method writes the file.
-     * Later calls of {@link #addRecord(Map)} have no impact.
+     * Create a new CSV-file in the temporary directory of the mail merge and write the header line.
      *
+     * @param columns
+     *          The columns of the records.
      * @throws java.io.IOException
-     *           Data can't be written.
+     *           The file can't be created.
      */
-    public void flushAndClose() throws java.io.IOException
+    public CSVDataSourceWriter(Collection<String> columns) throws java.io.IOException
     {
-      try (FileOutputStream fos = new FileOutputStream(csvFile);
-          PrintStream p = new PrintStream(fos, true, StandardCharsets.UTF_8))
-      {
-        List<String> headers = new ArrayList<>(columns);
-        Collections.sort(headers);
-        p.print(line(headers));
-        for (Map<String, String> record : records)
-        {
-          ArrayList<String> entries = new ArrayList<>();
-          for (String key : headers)
-          {
-            String val = record.get(key);
-            if (val == null)
-              val = "";
-            entries.add(val);
-          }
-          p.print(line(entries));
-        }
-      }
+      super(new File(tmpDir, TABLE_NAME + ".csv"), columns);
     }
 
     @Override
@@ -970,9 +1224,9 @@ public class OOoBasedMailMerge implements AutoCloseable
       try
       {
         addRecord(data);
-      } catch (Exception e)
+      } catch (java.io.IOException e)
       {
-        OOoBasedMailMerge.LOGGER.error("", e);
+        throw new UncheckedIOException(e);
       }
     }
 
@@ -1033,38 +1287,5 @@ public class OOoBasedMailMerge implements AutoCloseable
       }
       return dataSource;
     }
-
-    /**
-     * Create a line from a record.
-     *
-     * @param list
-     *          The record
-     * @return String representing one line terminated by '\n'.
-     */
-    private String line(List<String> list)
-    {
-      StringBuilder buf = new StringBuilder();
-      for (String el : list)
-      {
-        if (buf.length() != 0)
-          buf.append(",");
-        buf.append(escape(el));
-      }
-      buf.append("\n");
-      return buf.toString();
-    }
-
-    /**
-     * Escape Strings so that they can be used in a CSV-file.
-     *
-     * @param value
-     *          String to be escaped
-     * @return Escaped String
-     */
-    private String escape(String value)
-    {
-      String esc = value.replaceAll("\"", "\"\"");
-      return "\"" + esc + "\"";
-    }
   }
 }
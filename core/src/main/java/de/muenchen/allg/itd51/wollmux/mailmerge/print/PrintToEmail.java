@@ -23,11 +23,8 @@
 package de.muenchen.allg.itd51.wollmux.mailmerge.print;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.function.BiConsumer;
 
 import javax.mail.MessagingException;
@@ -48,6 +45,7 @@ import de.muenchen.allg.itd51.wollmux.func.print.PrintException;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
 import de.muenchen.allg.itd51.wollmux.mailmerge.mail.AuthenticationDialog;
 import de.muenchen.allg.itd51.wollmux.mailmerge.mail.EMailSender;
+import de.muenchen.allg.itd51.wollmux.mailmerge.mail.MailDelivery;
 import de.muenchen.allg.itd51.wollmux.mailmerge.mail.MailServerSettings;
 import de.muenchen.allg.itd51.wollmux.print.PrintModels;
 import de.muenchen.allg.itd51.wollmux.util.L;
@@ -90,18 +88,12 @@ public abstract class PrintToEmail extends MailMergePrintFunction
   public static final String PROP_EMAIL_MESSAGE_TEXTTAGS = "MailMergeNew_EMailMessageTextTags";
 
   /**
-   * Key for saving the list of recipient mails as a property of a {@link XPrintModel}.
+   * Key for saving the delivery of the mails as a property of a {@link XPrintModel}. The delivery
+   * knows which mails have been sent and which failed.
    *
-   * The property type is a {@link List} of Strings.
+   * The property type is a {@link MailDelivery}.
    */
-  public static final String PROP_EMAIL_REPORT_RECIPIENT_LIST = "MailMergeNew_EMailReportReciptienList";
-
-  /**
-   * Key for saving the number of sent email as a property of a {@link XPrintModel}.
-   *
-   * The property type is a {@link String}.
-   */
-  public static final String PROP_EMAIL_REPORT_EMAILS_SENT_COUNT = "MailMergeNew_EMailReportEMailsSentCount";
+  public static final String PROP_EMAIL_DELIVERY = "MailMergeNew_EMailDelivery";
 
   /**
    * Key for saving the mail server settings as a property of a {@link XPrintModel}.
@@ -177,33 +169,16 @@ public abstract class PrintToEmail extends MailMergePrintFunction
       {
         pmod.setPropertyValue(PROP_TARGETDIR, Files.createTempDirectory("MailMerge").toString());
       }
+      MailDelivery delivery = getMailDelivery(pmod, smtpSettings);
       File document = saveOutputFile(createTempDocument(pmod, isODT), pmod.getTextDocument());
 
-      sendMail(mail, smtpSettings, document);
-
-      // Initialize properties if not already set.
-      if (!pmod.getPropertySetInfo().hasPropertyByName(PROP_EMAIL_REPORT_RECIPIENT_LIST))
-      {
-        pmod.setPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST, new ArrayList<String>());
-      }
-
-      if (!pmod.getPropertySetInfo().hasPropertyByName(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT))
-      {
-        pmod.setPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, 0);
-      }
-
-      @SuppressWarnings("unchecked")
-      List<String> reportRecipientList = (List<String>) pmod.getPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST);
-      int mailsSentCount = (int) pmod.getPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT);
-
-      if (reportRecipientList == null)
-        reportRecipientList = new ArrayList<>();
-
-      reportRecipientList.add(to);
-      mailsSentCount++;
-
-      pmod.setPropertyValue(PROP_EMAIL_REPORT_RECIPIENT_LIST, reportRecipientList);
-      pmod.setPropertyValue(PROP_EMAIL_REPORT_EMAILS_SENT_COUNT, mailsSentCount);
+      // The next document is created while this one is sent.
+      delivery.send(mail, to, getAttachment(document));
+    } catch (InterruptedException e)
+    {
+      LOGGER.error("Send email interrupted", e);
+      Thread.currentThread().interrupt();
+      pmod.cancel();
     } catch (ConfigurationErrorException e)
     {
       LOGGER.error("Kein Mailserver", e);
@@ -281,6 +256,36 @@ public abstract class PrintToEmail extends MailMergePrintFunction
     return smtpSettings;
   }
 
+  /**
+   * Get the delivery of this mailmerge. The delivery is created on first use.
+   *
+   * @param pmod
+   *          The {@link XPrintModel}
+   * @param smtpSettings
+   *          The settings of the mail server.
+   * @return {@link MailDelivery} for this mailmerge
+   * @throws PrintException
+   *           Could not set the delivery.
+   */
+  private MailDelivery getMailDelivery(XPrintModel pmod, MailServerSettings smtpSettings)
+      throws PrintException
+  {
+    MailDelivery delivery = (MailDelivery) pmod.getProp(PROP_EMAIL_DELIVERY, null);
+    if (delivery == null)
+    {
+      delivery = new MailDelivery(smtpSettings);
+      try
+      {
+        pmod.setPropertyValue(PROP_EMAIL_DELIVERY, delivery);
+      } catch (IllegalArgumentException | UnknownPropertyException | PropertyVetoException
+          | WrappedTargetException e)
+      {
+        throw new PrintException("Could not set mail delivery", e);
+      }
+    }
+    return delivery;
+  }
+
   /**
    * Test if mail is a valid mail address.
    *
@@ -302,41 +307,22 @@ public abstract class PrintToEmail extends MailMergePrintFunction
   }
 
   /**
-   * Send a document by mail.
+   * Get the file of a document, which can be attached to a mail.
    *
-   * @param mail
-   *          The email, to which the document is attached, and than send.
-   * @param smtpSettings
-   *          The settings of the mail server.
    * @param document
    *          The document to send.
+   * @return The file of the document.
    */
-  private void sendMail(EMailSender mail, MailServerSettings smtpSettings, File document)
+  private File getAttachment(File document)
   {
-    try
-    {
-      String path = document.getPath();
-      if (!document.isAbsolute())
-      {
-        // fix path for windows systems
-        path = path.replaceFirst("file:\\\\", "");
-        // fix path for unix systems
-        path = path.replaceFirst("file:", "");
-      }
-      mail.addAttachment(new File(path));
-      mail.sendMessage(smtpSettings);
-    } catch (ConfigurationErrorException | MessagingException | IOException e)
+    String path = document.getPath();
+    if (!document.isAbsolute())
     {
-      LOGGER.error("", e);
-    } finally
-    {
-      try
-      {
-        Files.delete(document.toPath());
-      } catch (IOException e)
-      {
-        LOGGER.trace("Couldn't delete temporary document", e);
-      }
+      // fix path for windows systems
+      path = path.replaceFirst("file:\\\\", "");
+      // fix path for unix systems
+      path = path.replaceFirst("file:", "");
     }
+    return new File(path);
   }
 }
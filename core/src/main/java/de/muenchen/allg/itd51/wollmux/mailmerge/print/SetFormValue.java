@@ -22,6 +22,7 @@
  */
 package de.muenchen.allg.itd51.wollmux.mailmerge.print;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +33,8 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import com.sun.star.beans.PropertyState;
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.lang.IllegalArgumentException;
@@ -146,44 +149,51 @@ public class SetFormValue extends PrintFunction
 
     int mailMergeNumber = 1;
     documentController.setFormFieldsPreviewMode(true);
-    for (int sel : selection)
+    try
     {
-      if (pmod.isCanceled())
-      {
-        documentController.setFormFieldsPreviewMode(false);
-        return;
-      }
-
-      if (simProc != null)
-      {
-        documentController.startSimulation();
-      }
-
-      Map<String, String> record = data.row(sel);
-      for (Map.Entry<String, String> entry : record.entrySet())
+      for (int sel : selection)
       {
-        pmod.setFormValue(entry.getKey(), entry.getValue());
-        dataSetExport.put(entry.getKey(), entry.getValue());
+        if (pmod.isCanceled())
+        {
+          return;
+        }
+
+        if (simProc != null)
+        {
+          documentController.startSimulation();
+        }
+
+        Map<String, String> record = data.row(sel);
+        List<PropertyValue> formValues = new ArrayList<>(record.size() + 2);
+        for (Map.Entry<String, String> entry : record.entrySet())
+        {
+          formValues.add(new PropertyValue(entry.getKey(), -1, entry.getValue(),
+              PropertyState.DIRECT_VALUE));
+          dataSetExport.put(entry.getKey(), entry.getValue());
+        }
+        formValues.add(new PropertyValue(TAG_RECORD_ID, -1, "" + sel, PropertyState.DIRECT_VALUE));
+        dataSetExport.put(TAG_RECORD_ID, "" + sel);
+        formValues.add(new PropertyValue(TAG_MAILMERGE_ID, -1, "" + mailMergeNumber,
+            PropertyState.DIRECT_VALUE));
+        dataSetExport.put(TAG_MAILMERGE_ID, "" + mailMergeNumber);
+        pmod.setFormValues(formValues.toArray(new PropertyValue[formValues.size()]));
+
+        // Pass to next print function, if there is no simProc. Otherwise
+        // processing is done by simProc.
+        if (simProc == null)
+        {
+          pmod.printWithProps();
+        } else
+        {
+          simProc.processSimulationResults(documentController.stopSimulation());
+        }
+
+        pmod.setPrintProgressValue((short) mailMergeNumber);
+        ++mailMergeNumber;
       }
-      pmod.setFormValue(TAG_RECORD_ID, "" + sel);
-      dataSetExport.put(TAG_RECORD_ID, "" + sel);
-      pmod.setFormValue(TAG_MAILMERGE_ID, "" + mailMergeNumber);
-      dataSetExport.put(TAG_MAILMERGE_ID, "" + mailMergeNumber);
-
-      // Pass to next print function, if there is no simProc. Otherwise
-      // processing is done by simProc.
-      if (simProc == null)
-      {
-        pmod.printWithProps();
-      } else
-      {
-        simProc.processSimulationResults(documentController.stopSimulation());
-      }
-
-      pmod.setPrintProgressValue((short) mailMergeNumber);
-      ++mailMergeNumber;
+    } finally
+    {
+      documentController.setFormFieldsPreviewMode(false);
     }
-
-    documentController.setFormFieldsPreviewMode(false);
   }
 }
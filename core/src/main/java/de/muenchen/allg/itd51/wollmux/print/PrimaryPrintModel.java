@@ -24,6 +24,8 @@ package de.muenchen.allg.itd51.wollmux.print;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -31,6 +33,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import com.sun.star.beans.Property;
 import com.sun.star.beans.PropertyAttribute;
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.beans.XPropertyChangeListener;
@@ -41,6 +44,7 @@ import com.sun.star.lang.IllegalArgumentException;
 import com.sun.star.lang.NoSuchMethodException;
 import com.sun.star.lang.WrappedTargetException;
 import com.sun.star.text.XTextDocument;
+import com.sun.star.uno.AnyConverter;
 import com.sun.star.uno.Type;
 
 import org.libreoffice.ext.unohelper.common.UNO;
@@ -50,6 +54,7 @@ import de.muenchen.allg.itd51.wollmux.SyncActionListener;
 import de.muenchen.allg.itd51.wollmux.document.TextDocumentController;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnCollectNonWollMuxFormFieldsViaPrintModel;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnSetFormValue;
+import de.muenchen.allg.itd51.wollmux.event.handlers.OnSetFormValues;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnSetVisibleState;
 import de.muenchen.allg.itd51.wollmux.func.print.PrintFunction;
 import de.muenchen.allg.itd51.wollmux.interfaces.XPrintModel;
@@ -325,6 +330,25 @@ class PrimaryPrintModel implements XPrintModel
     s.synchronize();
   }
 
+  @Override
+  public void setFormValues(PropertyValue[] values)
+  {
+    Map<String, String> formValues = new LinkedHashMap<>();
+    for (PropertyValue value : values)
+    {
+      try
+      {
+        formValues.put(value.Name, AnyConverter.toString(value.Value));
+      } catch (IllegalArgumentException e)
+      {
+        PrintModels.LOGGER.error("Value of form field {} is not a string", value.Name, e);
+      }
+    }
+    SyncActionListener s = new SyncActionListener();
+    new OnSetFormValues(documentController.getModel().doc, formValues, s).emit();
+    s.synchronize();
+  }
+
   @Override
   public boolean getDocumentModified()
   {
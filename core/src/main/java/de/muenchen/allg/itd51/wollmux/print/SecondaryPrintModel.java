@@ -22,6 +22,7 @@
  */
 package de.muenchen.allg.itd51.wollmux.print;
 
+import com.sun.star.beans.PropertyValue;
 import com.sun.star.beans.PropertyVetoException;
 import com.sun.star.beans.UnknownPropertyException;
 import com.sun.star.beans.XPropertyChangeListener;
@@ -118,6 +119,12 @@ class SecondaryPrintModel extends WeakBase implements XPrintModel
     primary.setFormValue(arg0, arg1);
   }
 
+  @Override
+  public void setFormValues(PropertyValue[] values)
+  {
+    primary.setFormValues(values);
+  }
+
   @Override
   public boolean getDocumentModified()
   {
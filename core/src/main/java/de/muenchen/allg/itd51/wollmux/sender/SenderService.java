@@ -693,6 +693,23 @@ public class SenderService implements XPALProvider
         .thenApply(res -> StreamSupport.stream(res.spliterator(), false).map(Sender::new).collect(Collectors.toList()));
   }
 
+  /**
+   * Find matches in the main datasource by a List of {@link QueryPart}. Only the first results are
+   * fetched from the datasource.
+   *
+   * @param searchQuery
+   *          Query to search against the main datasource.
+   * @param limit
+   *          The maximum number of results.
+   * @return At most limit search results.
+   */
+  public CompletableFuture<List<Sender>> find(Map<String, String> searchQuery, int limit)
+  {
+    AsyncSearch searchAsync = new AsyncSearch(searchQuery, mainDatasource);
+    return searchAsync.runSearchAsync(limit)
+        .thenApply(res -> StreamSupport.stream(res.spliterator(), false).map(Sender::new).collect(Collectors.toList()));
+  }
+
   /**
    * Get all datasets from the local override storage.
    *
@@ -63,6 +63,11 @@ public class PersoenlicheAbsenderlisteVerwalten
 {
   private static final Logger LOGGER = LoggerFactory.getLogger(PersoenlicheAbsenderlisteVerwalten.class);
 
+  /**
+   * Maximum number of shown search results. Further results aren't fetched.
+   */
+  private static final int MAX_SEARCH_RESULTS = 500;
+
   private List<Sender> searchSenderList = null;
 
   private List<Sender> senderList = new ArrayList<>();
@@ -126,7 +131,7 @@ public class PersoenlicheAbsenderlisteVerwalten
     searchResultList.setMultipleMode(true);
 
     XButton searchBtn = UNO.XButton(controlContainer.getControl("btnSearch"));
-    AbstractActionListener startSearchBtnActionListener = event -> SenderService.getInstance().find(buildSearchQuery())
+    AbstractActionListener startSearchBtnActionListener = event -> SenderService.getInstance().find(buildSearchQuery(), MAX_SEARCH_RESULTS + 1)
         .thenAccept(result -> {
           setLdapSearchResults(result);
           showInfoDialog(result);
@@ -147,7 +152,7 @@ public class PersoenlicheAbsenderlisteVerwalten
           if (xWnd != null)
           {
             xWnd.setFocus();
-            SenderService.getInstance().find(buildSearchQuery()).thenAcceptAsync(result -> {
+            SenderService.getInstance().find(buildSearchQuery(), MAX_SEARCH_RESULTS + 1).thenAcceptAsync(result -> {
               setLdapSearchResults(result);
               showInfoDialog(result);
             });
@@ -328,7 +333,7 @@ public class PersoenlicheAbsenderlisteVerwalten
 
     searchSenderList = new ArrayList<>();
 
-    data.forEach(item -> searchSenderList.add(item));
+    data.stream().limit(MAX_SEARCH_RESULTS).forEach(item -> searchSenderList.add(item));
 
     Collections.sort(searchSenderList, Sender.comparatorByColumn("Nachname"));
 
@@ -388,6 +393,11 @@ public class PersoenlicheAbsenderlisteVerwalten
     } else if (ldapSearchResults.isEmpty())
     {
       InfoDialog.showInfoModal(L.m("Search results"), L.m("No results."));
+    } else if (ldapSearchResults.size() > MAX_SEARCH_RESULTS)
+    {
+      InfoDialog.showInfoModal(L.m("Search results"),
+          L.m("There are more than {0} results. Only the first {0} results are shown.\n"
+              + "Please try a more precise search query.", MAX_SEARCH_RESULTS));
     }
   }
 
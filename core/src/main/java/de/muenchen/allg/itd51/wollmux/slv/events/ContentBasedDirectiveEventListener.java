@@ -25,6 +25,7 @@ package de.muenchen.allg.itd51.wollmux.slv.events;
 import com.google.common.eventbus.Subscribe;
 
 import de.muenchen.allg.itd51.wollmux.event.WollMuxEventListener;
+import de.muenchen.allg.itd51.wollmux.event.handlers.OnFormChanged;
 import de.muenchen.allg.itd51.wollmux.event.handlers.OnSetVisibleState;
 import de.muenchen.allg.itd51.wollmux.slv.ContentBasedDirectiveModel;
 
@@ -114,4 +115,20 @@ public class ContentBasedDirectiveEventListener implements WollMuxEventListener
   {
     ContentBasedDirectiveModel.createModel(event.getDocumentController()).adoptNumbers();
   }
+
+  /**
+   * Event handler for {@link OnFormChanged} event. Numbers are only adopted if a visibility has
+   * changed.
+   *
+   * @param event
+   *          A {@link OnFormChanged} event.
+   */
+  @Subscribe
+  public void onFormChanged(OnFormChanged event)
+  {
+    if (!event.getChanges().getVisibilities().isEmpty())
+    {
+      ContentBasedDirectiveModel.createModel(event.getDocumentController()).adoptNumbers();
+    }
+  }
 }
@@ -25,11 +25,14 @@ package de.muenchen.allg.itd51.wollmux.db;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.Test;
 
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDataset;
 import de.muenchen.allg.itd51.wollmux.db.mock.MockDatasource;
 
 public class AsyncSearchTest
@@ -49,4 +52,24 @@ public class AsyncSearchTest
     assertTrue(search.runSearchAsync().get().isEmpty());
   }
 
+  @Test
+  public void testAsyncSearchWithLimit() throws Exception
+  {
+    AsyncSearch search = new AsyncSearch(Map.of("column", "value*"), createDatasource(10));
+    assertEquals(10, search.runSearchAsync().get().size());
+    assertEquals(3, search.runSearchAsync(3).get().size());
+    assertEquals(10, search.runSearchAsync(20).get().size());
+    assertTrue(new AsyncSearch(null, createDatasource(1)).runSearchAsync(3).get().isEmpty());
+  }
+
+  private static Datasource createDatasource(int size)
+  {
+    List<Dataset> datasets = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+    {
+      datasets.add(new MockDataset("ds" + i, "column", "value" + i));
+    }
+    return new RAMDatasource("ram", List.of("column"), datasets);
+  }
+
 }
@@ -26,7 +26,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -63,6 +66,44 @@ public class AttachDatasourceTest
     assertEquals(1, results.size());
   }
 
+  @Test
+  public void testMatchWithOneQuery() throws Exception
+  {
+    List<Integer> queries = new ArrayList<>();
+    Map<String, Datasource> nameToDatasource = new HashMap<>();
+    nameToDatasource.put("mock", new MockDatasource("mock", List.of("column", "join"),
+        List.of(new MockDataset("ds1", Map.of("column", "value", "join", "a")),
+            new MockDataset("ds2", Map.of("column", "value", "join", "b")),
+            new MockDataset("ds3", Map.of("column", "value", "join", "a")),
+            new MockDataset("ds4", Map.of("column", "value", "join", "")))));
+    nameToDatasource.put("mock2", new MockDatasource("mock2", List.of("column2", "join"),
+        List.of(new MockDataset("p1", Map.of("column2", "value1", "join", "a")),
+            new MockDataset("p2", Map.of("column2", "value2", "join", "b"))))
+    {
+      @Override
+      public QueryResults findAny(Collection<List<QueryPart>> query)
+      {
+        queries.add(query.size());
+        return super.findAny(query);
+      }
+    });
+    Datasource ds = new AttachDatasource(nameToDatasource,
+        new ConfigThingy("", "NAME \"attach\" SOURCE \"mock\" ATTACH \"mock2\" MATCH (\"join\", \"join\")"), null);
+    QueryResults results = ds.find(List.of(new QueryPart("column", "value")));
+    assertEquals(List.of(2), queries);
+    assertEquals(4, results.size());
+    Iterator<Dataset> iter = results.iterator();
+    assertEquals("value1", iter.next().get("mock2__column2"));
+    assertEquals("value2", iter.next().get("mock2__column2"));
+    assertEquals("value1", iter.next().get("mock2__column2"));
+    assertNull(iter.next().get("mock2__column2"));
+
+    queries.clear();
+    results = ds.find(List.of(new QueryPart("mock2__join", "a")));
+    assertEquals(List.of(), queries);
+    assertEquals(2, results.size());
+  }
+
   @Test
   public void testInvalidAttachDatasource() throws Exception
   {
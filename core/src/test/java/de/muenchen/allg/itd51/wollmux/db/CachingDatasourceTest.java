@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDataset;
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDatasource;
+
+public class CachingDatasourceTest
+{
+
+  @Test
+  public void testCachedFind()
+  {
+    CountingDatasource source = new CountingDatasource();
+    CachingDatasource cache = new CachingDatasource(source, 600, 10);
+    assertEquals("test", cache.getName());
+    assertEquals(List.of("column", "column2"), cache.getSchema());
+    assertEquals(List.of(source), cache.getSources());
+
+    QueryPart part1 = new QueryPart("column", "value");
+    QueryPart part2 = new QueryPart("column2", "value2");
+    assertEquals(1, cache.find(List.of(part1, part2)).size());
+    assertEquals(1, cache.find(List.of(part2, part1)).size());
+    assertEquals(1, source.calls);
+    assertEquals(1, cache.find(List.of(part1)).size());
+    assertEquals(2, source.calls);
+
+    assertTrue(cache.find(List.of(new QueryPart("column", "unknown"))).isEmpty());
+    assertTrue(cache.find(List.of(new QueryPart("column", "unknown"))).isEmpty());
+    assertEquals(4, source.calls);
+
+    cache.invalidateCache();
+    assertEquals(0, cache.size());
+    assertEquals(1, source.invalidations);
+    assertEquals(1, cache.find(List.of(part1)).size());
+    assertEquals(5, source.calls);
+  }
+
+  @Test
+  public void testCachedDatasetsByKey()
+  {
+    CountingDatasource source = new CountingDatasource();
+    CachingDatasource cache = new CachingDatasource(source, 600, 10);
+    assertEquals(2, cache.getDatasetsByKey(List.of("ds", "ds2")).size());
+    assertEquals(2, cache.getDatasetsByKey(List.of("ds2", "ds")).size());
+    assertEquals(1, source.calls);
+    assertEquals(1, cache.getDatasetsByKey(List.of("ds")).size());
+    assertEquals(2, source.calls);
+    assertEquals(2, cache.getContents().size());
+    assertEquals(2, cache.getContents().size());
+    assertEquals(3, source.calls);
+  }
+
+  @Test
+  public void testCacheBounded()
+  {
+    CountingDatasource source = new CountingDatasource();
+    CachingDatasource cache = new CachingDatasource(source, 600, 2);
+    cache.getDatasetsByKey(List.of("ds"));
+    cache.getDatasetsByKey(List.of("ds2"));
+    cache.getDatasetsByKey(List.of("ds", "ds2"));
+    assertEquals(2, cache.size());
+  }
+
+  private static class CountingDatasource extends MockDatasource
+  {
+    private int calls = 0;
+
+    private int invalidations = 0;
+
+    public CountingDatasource()
+    {
+      super("test", List.of("column", "column2"),
+          List.of(new MockDataset("ds", Map.of("column", "value", "column2", "value2")),
+              new MockDataset("ds2", Map.of("column", "value3", "column2", "value4"))));
+    }
+
+    @Override
+    public QueryResults find(List<QueryPart> query)
+    {
+      calls++;
+      return super.find(query);
+    }
+
+    @Override
+    public QueryResults getDatasetsByKey(Collection<String> keys)
+    {
+      calls++;
+      return super.getDatasetsByKey(keys);
+    }
+
+    @Override
+    public QueryResults getContents()
+    {
+      calls++;
+      return super.getContents();
+    }
+
+    @Override
+    public void invalidateCache()
+    {
+      invalidations++;
+    }
+  }
+}
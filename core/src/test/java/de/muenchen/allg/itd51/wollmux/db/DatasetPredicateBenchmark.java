@@ -0,0 +1,98 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of {@link RAMDatasource#find(List)} on a datasource with 100.000 datasets.
+ *
+ * Run it with {@link #main(String[])} from the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatasetPredicateBenchmark
+{
+  private static final int ROWS = 100_000;
+
+  private static final List<String> SCHEMA = List.of("Vorname", "Nachname", "Mail", "OrgaKurz");
+
+  @Param({ "Sheldon", "Shel*", "*don", "*eldo*", "Coop.r" })
+  private String searchString;
+
+  private RAMDatasource datasource;
+
+  private List<QueryPart> query;
+
+  @Setup
+  public void setup()
+  {
+    List<Dataset> data = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++)
+    {
+      Map<String, String> values = new HashMap<>();
+      values.put("Vorname", (i % 100 == 0 ? "Sheldon" : "Leonard") + i);
+      values.put("Nachname", (i % 7 == 0 ? "Cooper" : "Hofstadter") + i);
+      values.put("Mail", "user" + i + "@muenchen.de");
+      values.put("OrgaKurz", "ORG-" + (i % 250));
+      data.add(new SimpleDataset("key" + i, values));
+    }
+    datasource = new RAMDatasource("benchmark", SCHEMA, data);
+    query = List.of(new QueryPart(searchString.contains(".") ? "Nachname" : "Vorname", searchString),
+        new QueryPart("OrgaKurz", "ORG-*"));
+  }
+
+  @Benchmark
+  public QueryResults find()
+  {
+    return datasource.find(query);
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder().include(DatasetPredicateBenchmark.class.getSimpleName()).build()).run();
+  }
+}
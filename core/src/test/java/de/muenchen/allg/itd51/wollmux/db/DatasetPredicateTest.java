@@ -92,6 +92,27 @@ public class DatasetPredicateTest
     assertFalse(pred.test(ds), "Given dataset does not match with a given QueryPart:");
   }
 
+  @Test
+  public void makePredicateRegex()
+  {
+    List<QueryPart> query = List.of(new QueryPart("Vorname", "Sh.ld?on*"));
+    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
+    assertTrue(pred.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon"))));
+    assertTrue(pred.test(new SimpleDataset("Test", Map.of("Vorname", "SHELON"))));
+    assertFalse(pred.test(new SimpleDataset("Test", Map.of("Vorname", "Leonard"))));
+  }
+
+  @Test
+  public void makePredicateReusable()
+  {
+    List<QueryPart> query = List.of(new QueryPart("Vorname", "*eldo*"), new QueryPart("Nachname", "coop"));
+    Predicate<Dataset> pred = DatasetPredicate.makePredicate(query);
+    assertTrue(pred.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon", "Nachname", "Cooper"))));
+    assertFalse(pred.test(new SimpleDataset("Test", Map.of("Vorname", "Sheldon", "Nachname", "Hofstadter"))));
+    assertFalse(pred.test(new SimpleDataset("Test", Map.of("Vorname", "Sh", "Nachname", "Cooper"))));
+    assertTrue(DatasetPredicate.makePredicate(List.of()).test(new SimpleDataset("Test", Map.of())));
+  }
+
   @Test
   public void matchAll()
   {
@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDataset;
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDatasource;
+
+public class DatasourcesTest
+{
+
+  @Test
+  public void testInvalidate() throws Exception
+  {
+    Map<String, Datasource> nameToDatasource = new HashMap<>();
+    CachingDatasource base = new CachingDatasource(new MockDatasource("base", List.of("column", "join"),
+        List.of(new MockDataset("ds", Map.of("column", "value", "join", "join")))), 600, 10);
+    nameToDatasource.put("base", base);
+    nameToDatasource.put("other", new MockDatasource("other", List.of("column2", "join"),
+        List.of(new MockDataset("ds2", Map.of("column2", "value2", "join", "join")))));
+    CachingDatasource overlay = new CachingDatasource(new OverlayDatasource(nameToDatasource, new ConfigThingy("",
+        "NAME \"overlay\" SOURCE \"base\" OVERLAY \"other\" MODE \"so\" MATCH (\"join\" \"join\")"), null), 600, 10);
+    nameToDatasource.put("overlay", overlay);
+    CachingDatasource unrelated = new CachingDatasource(new MockDatasource(), 600, 10);
+    nameToDatasource.put("mock", unrelated);
+
+    assertEquals(1, overlay.find(List.of(new QueryPart("column", "value"))).size());
+    assertEquals(1, unrelated.find(List.of(new QueryPart("column", "value2"))).size());
+    assertEquals(1, overlay.size());
+    assertEquals(1, base.size());
+
+    Datasources.invalidate(nameToDatasource, "base");
+    assertEquals(0, overlay.size());
+    assertEquals(1, base.size());
+    assertEquals(1, unrelated.size());
+
+    Datasources.invalidate(nameToDatasource, "unknown");
+    assertEquals(1, unrelated.size());
+  }
+}
@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.db.mock.MockDataset;
+
+public class LDAPCacheTest
+{
+
+  @Test
+  public void testAttributes()
+  {
+    LDAPCache cache = new LDAPCache(60, 1024 * 1024, 10);
+    Attributes attributes = new BasicAttributes("ou", "Users");
+    assertNull(cache.getAttributes("ou=Users"));
+    cache.putAttributes("ou=Users", attributes);
+    assertSame(attributes, cache.getAttributes("ou=Users"));
+    assertEquals(1, cache.getAttributeStats().hitCount());
+    assertEquals(1, cache.getAttributeStats().missCount());
+    cache.invalidateAll();
+    assertNull(cache.getAttributes("ou=Users"));
+  }
+
+  @Test
+  public void testEviction()
+  {
+    LDAPCache cache = new LDAPCache(60, 1024, 1);
+    cache.putAttributes("ou=Users", new BasicAttributes("ou", "x".repeat(1024)));
+    assertNull(cache.getAttributes("ou=Users"));
+    cache.putDatasets("key1", List.of(new MockDataset()));
+    cache.putDatasets("key2", List.of(new MockDataset()));
+    assertNull(cache.getDatasets("key1"));
+    assertEquals(1, cache.getDatasets("key2").size());
+    assertTrue(cache.getDatasetStats().evictionCount() > 0);
+  }
+
+  @Test
+  public void testExpiry()
+  {
+    LDAPCache cache = new LDAPCache(0, 1024 * 1024, 10);
+    cache.putDatasets("key", List.of(new MockDataset()));
+    assertNull(cache.getDatasets("key"));
+  }
+
+  @Test
+  public void testSharedCache()
+  {
+    Properties properties = new Properties();
+    properties.put(Context.PROVIDER_URL, "ldap://localhost");
+    assertSame(LDAPCache.getCache(properties, 60), LDAPCache.getCache(properties, 60));
+  }
+
+  @Test
+  public void testCachePerPassword()
+  {
+    Properties oldPassword = new Properties();
+    oldPassword.put(Context.PROVIDER_URL, "ldap://localhost");
+    oldPassword.put(Context.SECURITY_CREDENTIALS, "secret");
+    Properties newPassword = new Properties();
+    newPassword.put(Context.PROVIDER_URL, "ldap://localhost");
+    newPassword.put(Context.SECURITY_CREDENTIALS, "changed");
+    assertNotSame(LDAPCache.getCache(oldPassword, 60), LDAPCache.getCache(newPassword, 60));
+  }
+
+  @Test
+  public void testPruneCaches()
+  {
+    Properties properties = new Properties();
+    properties.put(Context.PROVIDER_URL, "ldap://prune");
+    LDAPCache cache = LDAPCache.getCache(properties, 60);
+    cache.putDatasets("key", List.of(new MockDataset()));
+    long later = System.currentTimeMillis() + 61000;
+    LDAPCache.pruneCaches(later);
+    assertSame(cache, LDAPCache.getCache(properties, 60), "cache with entries discarded");
+
+    cache.invalidateAll();
+    LDAPCache.pruneCaches(System.currentTimeMillis());
+    assertSame(cache, LDAPCache.getCache(properties, 60), "recently used cache discarded");
+    LDAPCache.pruneCaches(later);
+    assertNotSame(cache, LDAPCache.getCache(properties, 60), "unused cache not discarded");
+  }
+
+  @Test
+  public void testExpiryListener() throws Exception
+  {
+    Properties properties = new Properties();
+    properties.put(Context.PROVIDER_URL, "ldap://expiry");
+    AtomicInteger notifications = new AtomicInteger();
+    LDAPCache.addExpiryListener(properties, 1, notifications::incrementAndGet);
+    LDAPCache cache = LDAPCache.getCache(properties, 1);
+    cache.putDatasets("key", List.of(new MockDataset()));
+    LDAPCache.pruneCaches(System.currentTimeMillis());
+    assertEquals(0, notifications.get());
+
+    Thread.sleep(1100);
+    LDAPCache.pruneCaches(System.currentTimeMillis());
+    assertEquals(1, notifications.get());
+    LDAPCache.pruneCaches(System.currentTimeMillis());
+    assertEquals(1, notifications.get(), "listener notified twice");
+  }
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import javax.naming.Context;
+import javax.naming.directory.DirContext;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+
+public class LDAPConnectionPoolTest
+{
+  private static InMemoryDirectoryServer server;
+  private static final String BASE_DN = "dc=myorg,dc=com";
+
+  @BeforeAll
+  public static void setup() throws Exception
+  {
+    InMemoryListenerConfig listener = InMemoryListenerConfig.createLDAPConfig("test");
+    InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+    config.setListenerConfigs(listener);
+    server = new InMemoryDirectoryServer(config);
+    server.applyChangesFromLDIF(Paths.get(LDAPConnectionPoolTest.class.getResource("users.ldif").toURI()).toFile());
+    server.startListening();
+  }
+
+  @AfterAll
+  public static void tearDown()
+  {
+    server.shutDown(true);
+  }
+
+  private Properties environment()
+  {
+    Properties properties = new Properties();
+    properties.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+    properties.put(Context.PROVIDER_URL, "ldap://localhost:" + server.getListenPort());
+    return properties;
+  }
+
+  @Test
+  public void testReuse() throws Exception
+  {
+    LDAPConnectionPool pool = new LDAPConnectionPool(environment(), 2, 60000, 60000);
+    DirContext first = pool.execute(ctx -> ctx);
+    assertEquals(1, pool.getIdleCount());
+    assertEquals(0, pool.getActiveCount());
+    DirContext second = pool.execute(ctx -> {
+      assertEquals(1, pool.getActiveCount());
+      return ctx;
+    });
+    assertSame(first, second);
+    assertEquals(1, pool.getCreatedCount());
+    assertEquals(2, pool.getBorrowCount());
+    assertTrue(pool.getAverageBorrowLatency() >= 0);
+    pool.clear();
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception
+  {
+    LDAPConnectionPool pool = new LDAPConnectionPool(environment(), 2, 0, 0);
+    DirContext first = pool.execute(ctx -> ctx);
+    DirContext second = pool.execute(ctx -> ctx);
+    assertNotSame(first, second);
+    assertEquals(2, pool.getCreatedCount());
+  }
+
+  @Test
+  public void testReconnect() throws Exception
+  {
+    LDAPConnectionPool pool = new LDAPConnectionPool(environment(), 2, 60000, 60000);
+    pool.execute(ctx -> ctx.getAttributes(BASE_DN));
+    server.closeAllConnections(false);
+    assertEquals("myorg", pool.execute(ctx -> ctx.getAttributes(BASE_DN)).get("dc").get());
+    assertEquals(2, pool.getCreatedCount());
+  }
+
+  @Test
+  public void testSharedPool()
+  {
+    assertSame(LDAPConnectionPool.getPool(environment()), LDAPConnectionPool.getPool(environment()));
+  }
+
+  @Test
+  public void testPoolPerPassword()
+  {
+    Properties oldPassword = environment();
+    oldPassword.put(Context.SECURITY_PRINCIPAL, "uid=user");
+    oldPassword.put(Context.SECURITY_CREDENTIALS, "secret");
+    Properties newPassword = environment();
+    newPassword.put(Context.SECURITY_PRINCIPAL, "uid=user");
+    newPassword.put(Context.SECURITY_CREDENTIALS, "changed");
+    assertNotSame(LDAPConnectionPool.getPool(oldPassword), LDAPConnectionPool.getPool(newPassword));
+    assertFalse(LDAPConnectionPool.key(newPassword).contains("changed"));
+  }
+
+  @Test
+  public void testPrunePools() throws Exception
+  {
+    Properties environment = environment();
+    environment.put(Context.SECURITY_PRINCIPAL, "uid=prune");
+    LDAPConnectionPool pool = LDAPConnectionPool.getPool(environment);
+    pool.execute(ctx -> ctx.getAttributes(BASE_DN));
+    assertEquals(1, pool.getIdleCount());
+
+    LDAPConnectionPool.prunePools(System.currentTimeMillis());
+    assertEquals(1, pool.getIdleCount(), "connection closed too early");
+    assertSame(pool, LDAPConnectionPool.getPool(environment), "used pool discarded");
+
+    LDAPConnectionPool.prunePools(System.currentTimeMillis() + LDAPConnectionPool.IDLE_TIMEOUT);
+    assertEquals(0, pool.getIdleCount(), "idle connection not closed");
+    assertNotSame(pool, LDAPConnectionPool.getPool(environment), "unused pool not discarded");
+  }
+}
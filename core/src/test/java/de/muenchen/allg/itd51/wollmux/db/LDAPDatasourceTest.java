@@ -118,4 +118,23 @@ public class LDAPDatasourceTest
     assertEquals(1, results.size());
   }
 
+  @Test
+  public void testLDAPDatasourceLevel() throws Exception
+  {
+    String url = "ldap://localhost:" + server.getListenPort();
+    for (String batch : List.of("false", "true"))
+    {
+      Datasource ds = new LDAPDatasource(null, new ConfigThingy("", "NAME \"ldap\" URL \"" + url + "\" BASE_DN \""
+          + BASE_DN + "\" OBJECT_CLASS \"person\" BATCH_LEVEL_SEARCH \"" + batch
+          + "\" Spalten ((DB_SPALTE \"column\" PATH \"0:sn\") (DB_SPALTE \"column2\" PATH \"-2:dc\")) Schluessel (\"column\")"),
+          null);
+      QueryResults results = ds.find(List.of(new QueryPart("column2", "myorg")));
+      assertEquals(1, results.size());
+      Dataset data = results.iterator().next();
+      assertEquals("Ldap", data.get("column"));
+      assertEquals("myorg", data.get("column2"));
+      assertEquals(0, ds.find(List.of(new QueryPart("column2", "other"))).size());
+    }
+  }
+
 }
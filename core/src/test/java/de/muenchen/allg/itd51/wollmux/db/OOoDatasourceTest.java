@@ -25,11 +25,28 @@ package de.muenchen.allg.itd51.wollmux.db;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import com.sun.star.beans.XPropertySet;
+import com.sun.star.sdbc.XCloseable;
+import com.sun.star.sdbc.XColumnLocate;
+import com.sun.star.sdbc.XConnection;
+import com.sun.star.sdbc.XParameters;
+import com.sun.star.sdbc.XPreparedStatement;
+import com.sun.star.sdbc.XResultSet;
+import com.sun.star.sdbc.XRow;
+
 import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
 import de.muenchen.allg.itd51.wollmux.test.OfficeTest;
 
@@ -57,4 +74,251 @@ public class OOoDatasourceTest extends OfficeTest
     assertEquals(5, results.size());
   }
 
+  @Test
+  public void testOOoDatasourceReusesStatements() throws Exception
+  {
+    List<String> prepared = new ArrayList<>();
+    Datasource ds = new OOoDatasource(null, new ConfigThingy("", "NAME \"ooo\" SOURCE \"Bibliography\" "
+        + "TABLE \"biblio\" Schema (\"Identifier\" \"Author\" \"Pages\") Schluessel (\"Identifier\")"))
+    {
+      @Override
+      XConnection connect() throws com.sun.star.uno.Exception
+      {
+        XConnection conn = super.connect();
+        return proxy((method, args) -> {
+          if ("prepareStatement".equals(method.getName()))
+          {
+            prepared.add((String) args[0]);
+          }
+          return method.invoke(conn, args);
+        }, XConnection.class);
+      }
+    };
+
+    List<String> keys = new ArrayList<>();
+    ds.getContents().forEach(data -> keys.add(data.getKey()));
+    assertEquals(20, keys.size());
+    QueryResults results = ds.getDatasetsByKey(keys);
+    assertEquals(20, results.size());
+    results = ds.getDatasetsByKey(keys.subList(0, 3));
+    assertEquals(3, results.size());
+    int statements = prepared.size();
+
+    for (int i = 0; i < 3; i++)
+    {
+      results = ds.find(List.of(new QueryPart("Author", "gris, myriam")));
+      assertEquals(5, results.size());
+    }
+    assertEquals(statements + 1, prepared.size(), "statement of find not reused");
+    assertEquals(20, ds.getContents().size());
+    assertEquals(statements + 1, prepared.size(), "statement of getContents not reused");
+    assertEquals(new HashSet<>(prepared).size(), prepared.size(), "statement prepared twice");
+  }
+
+  @Test
+  public void testStatementCacheIsBounded() throws Exception
+  {
+    FakeDatabase db = new FakeDatabase(3);
+    Datasource ds = db.datasource("ansi", 0);
+    for (int i = 1; i <= OOoDatasource.MAX_CACHED_STATEMENTS + 1; i++)
+    {
+      assertEquals(3, ds.find(query(i)).size());
+    }
+    assertEquals(OOoDatasource.MAX_CACHED_STATEMENTS + 1, db.prepared.size());
+
+    ds.find(query(OOoDatasource.MAX_CACHED_STATEMENTS + 1));
+    assertEquals(OOoDatasource.MAX_CACHED_STATEMENTS + 1, db.prepared.size(), "recent statement not reused");
+    ds.find(query(1));
+    assertEquals(OOoDatasource.MAX_CACHED_STATEMENTS + 2, db.prepared.size(), "eldest statement not evicted");
+  }
+
+  @Test
+  public void testPagesWithLimitOffset() throws Exception
+  {
+    FakeDatabase db = new FakeDatabase(23);
+    assertEquals(db.keys(), keys(db.datasource("mysql", 5).getContents()));
+    assertEquals(List.of(0, 5, 10, 15, 20), db.offsets);
+    assertEquals(1, db.prepared.size(), "statement not reused for all pages");
+    String query = db.prepared.get(0);
+    assertTrue(query.endsWith(" ORDER BY \"Key1\", \"Key2\" LIMIT ? OFFSET ?;"), query);
+  }
+
+  @Test
+  public void testPagesWithOffsetFetch() throws Exception
+  {
+    FakeDatabase db = new FakeDatabase(23);
+    assertEquals(db.keys(), keys(db.datasource("ansi", 5).getContents()));
+    assertEquals(List.of(0, 5, 10, 15, 20), db.offsets);
+    assertEquals(1, db.prepared.size(), "statement not reused for all pages");
+    String query = db.prepared.get(0);
+    assertTrue(query.endsWith(" ORDER BY \"Key1\", \"Key2\" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY;"), query);
+  }
+
+  @Test
+  public void testPagesWithMultipleOfPageSize() throws Exception
+  {
+    FakeDatabase db = new FakeDatabase(20);
+    assertEquals(db.keys(), keys(db.datasource("mysql", 5).getContents()));
+    assertEquals(List.of(0, 5, 10, 15, 20), db.offsets, "last empty page not read");
+
+    db = new FakeDatabase(20);
+    assertEquals(db.keys(), keys(db.datasource("ansi", 5).find(query(1))));
+    assertEquals(List.of(0, 5, 10, 15, 20), db.offsets, "last empty page not read");
+  }
+
+  private static List<QueryPart> query(int parts)
+  {
+    List<QueryPart> query = new ArrayList<>();
+    for (int i = 0; i < parts; i++)
+    {
+      query.add(new QueryPart("Value", "*"));
+    }
+    return query;
+  }
+
+  private static List<String> keys(QueryResults results)
+  {
+    List<String> keys = new ArrayList<>();
+    results.forEach(data -> keys.add(data.getKey()));
+    return keys;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Handler handler, Class<T> type, Class<?>... types)
+  {
+    Class<?>[] interfaces = new Class<?>[types.length + 1];
+    interfaces[0] = type;
+    System.arraycopy(types, 0, interfaces, 1, types.length);
+    InvocationHandler invocation = (p, method, args) -> {
+      try
+      {
+        Object result = handler.invoke(method, args);
+        if (result == null && method.getReturnType() == boolean.class)
+        {
+          return Boolean.FALSE;
+        }
+        if (result == null && method.getReturnType() == int.class)
+        {
+          return Integer.valueOf(0);
+        }
+        return result;
+      } catch (InvocationTargetException e)
+      {
+        throw e.getCause();
+      }
+    };
+    return (T) Proxy.newProxyInstance(OOoDatasourceTest.class.getClassLoader(), interfaces, invocation);
+  }
+
+  @FunctionalInterface
+  private interface Handler
+  {
+    Object invoke(java.lang.reflect.Method method, Object[] args) throws Exception;
+  }
+
+  /**
+   * A table with the columns Key1, Key2 and Value. Key1 and Key2 form the key. The rows are
+   * sorted by the key. All rows match every condition. Paged queries return the rows of the
+   * requested page.
+   */
+  private static class FakeDatabase
+  {
+    private final List<String[]> rows = new ArrayList<>();
+
+    private final List<String> prepared = new ArrayList<>();
+
+    private final List<Integer> offsets = new ArrayList<>();
+
+    FakeDatabase(int size)
+    {
+      for (int i = 0; i < size; i++)
+      {
+        rows.add(new String[] { "k" + (i / 10), String.format("%02d", i), "value" + i });
+      }
+    }
+
+    List<String> keys()
+    {
+      List<String> keys = new ArrayList<>();
+      rows.forEach(row -> keys.add("Key1#" + row[0] + "#Key2#" + row[1] + "#"));
+      return keys;
+    }
+
+    Datasource datasource(String syntax, int pageSize) throws Exception
+    {
+      return new OOoDatasource(null, new ConfigThingy("", "NAME \"fake\" SOURCE \"fake\" TABLE \"table\" "
+          + "SQL_SYNTAX \"" + syntax + "\" PAGE_SIZE \"" + pageSize + "\" "
+          + "Schema (\"Key1\" \"Key2\" \"Value\") Schluessel (\"Key1\" \"Key2\")"))
+      {
+        @Override
+        XConnection connect()
+        {
+          return proxy((method, args) -> {
+            if ("prepareStatement".equals(method.getName()))
+            {
+              prepared.add((String) args[0]);
+              return statement((String) args[0]);
+            }
+            return null;
+          }, XConnection.class);
+        }
+      };
+    }
+
+    private XPreparedStatement statement(String query)
+    {
+      Map<Integer, Object> params = new HashMap<>();
+      return proxy((method, args) -> {
+        switch (method.getName())
+        {
+        case "setInt":
+        case "setString":
+          params.put((Integer) args[0], args[1]);
+          return null;
+        case "clearParameters":
+          params.clear();
+          return null;
+        case "executeQuery":
+          return results(query, params);
+        default:
+          return null;
+        }
+      }, XPreparedStatement.class, XParameters.class, XPropertySet.class, XCloseable.class);
+    }
+
+    private XResultSet results(String query, Map<Integer, Object> params)
+    {
+      List<String[]> result = rows;
+      int size = params.size();
+      if (query.contains(" LIMIT ? OFFSET ?"))
+      {
+        result = page((Integer) params.get(size), (Integer) params.get(size - 1));
+      } else if (query.contains(" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY"))
+      {
+        result = page((Integer) params.get(size - 1), (Integer) params.get(size));
+      }
+      List<String[]> current = result;
+      List<String> columns = List.of("Key1", "Key2", "Value");
+      int[] cursor = { -1 };
+      return proxy((method, args) -> {
+        switch (method.getName())
+        {
+        case "next":
+          return ++cursor[0] < current.size();
+        case "findColumn":
+          return columns.indexOf(args[0]) + 1;
+        case "getString":
+          return current.get(cursor[0])[(Integer) args[0] - 1];
+        default:
+          return null;
+        }
+      }, XResultSet.class, XRow.class, XColumnLocate.class, XCloseable.class);
+    }
+
+    private List<String[]> page(int offset, int limit)
+    {
+      offsets.add(offset);
+      return rows.subList(Math.min(offset, rows.size()), Math.min(offset + limit, rows.size()));
+    }
+  }
 }
@@ -27,6 +27,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -70,6 +72,51 @@ public class OverlayDatasourceTest
     assertTrue(ds.find(List.of()).isEmpty());
   }
 
+  @Test
+  public void testMatchWithOneQuery() throws Exception
+  {
+    List<Integer> queries = new ArrayList<>();
+    Map<String, Datasource> nameToDatasource = new HashMap<>();
+    nameToDatasource.put("mock", new MockDatasource("mock", List.of("column", "join"),
+        List.of(new MockDataset("ds1", Map.of("column", "value", "join", "a")),
+            new MockDataset("ds2", Map.of("column", "value", "join", "b")),
+            new MockDataset("ds3", Map.of("column", "value", "join", "A"))))
+    {
+      @Override
+      public QueryResults findAny(Collection<List<QueryPart>> query)
+      {
+        queries.add(query.size());
+        return super.findAny(query);
+      }
+    });
+    nameToDatasource.put("mock2", new MockDatasource("mock2", List.of("column2", "join"),
+        List.of(new MockDataset("p1", Map.of("column2", "value1", "join", "a")),
+            new MockDataset("p2", Map.of("column2", "value1", "join", "b"))))
+    {
+      @Override
+      public QueryResults findAny(Collection<List<QueryPart>> query)
+      {
+        queries.add(query.size());
+        return super.findAny(query);
+      }
+    });
+    Datasource ds = new OverlayDatasource(nameToDatasource, new ConfigThingy("",
+        "NAME \"overlay\" SOURCE \"mock\" OVERLAY \"mock2\" MODE \"so\" MATCH (\"join\" \"join\")"), null);
+
+    QueryResults results = ds.find(List.of(new QueryPart("column", "value")));
+    assertEquals(List.of(3), queries);
+    assertEquals(3, results.size());
+    for (Dataset data : results)
+    {
+      assertEquals("value1", data.get("column2"));
+    }
+
+    queries.clear();
+    results = ds.find(List.of(new QueryPart("column2", "value1")));
+    assertEquals(List.of(2), queries);
+    assertEquals(2, results.size());
+  }
+
   @Test
   public void testInvalidOverlayDatasource() throws Exception
   {
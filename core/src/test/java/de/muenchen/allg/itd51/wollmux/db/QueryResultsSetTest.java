@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Comparator;
+import java.util.Iterator;
 
 import org.junit.jupiter.api.Test;
 
@@ -64,4 +65,19 @@ public class QueryResultsSetTest
     assertEquals(2, res.size());
   }
 
+  @Test
+  public void testQueryResultsSetWithKey()
+  {
+    QueryResultsSet res = new QueryResultsSet(Dataset::getKey);
+    assertTrue(res.isEmpty());
+    res.addAll(new MockQueryResults(new MockDataset(), new MockDataset("ds2", "column", "value2")));
+    res.addAll(new MockQueryResults(new MockDataset(new String("ds"), "column", "value3"),
+        new MockDataset("ds3", "column", "value4")));
+    assertEquals(3, res.size());
+    Iterator<Dataset> iter = res.iterator();
+    assertEquals("ds", iter.next().getKey());
+    assertEquals("ds2", iter.next().getKey());
+    assertEquals("ds3", iter.next().getKey());
+  }
+
 }
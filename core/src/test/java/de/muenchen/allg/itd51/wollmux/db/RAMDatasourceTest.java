@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -54,6 +55,26 @@ public class RAMDatasourceTest
     assertEquals(0, results.size());
   }
 
+  @Test
+  public void testIndexedRAMDatasource()
+  {
+    Datasource ds = new RAMDatasource("ram", List.of("column", "column2"),
+        List.of(new MockDataset(), new MockDataset("ds3", "column", "value3"),
+            new MockDataset("ds4", Map.of("column", "VALUE4", "column2", "other")),
+            new MockDataset("ds3", "column2", "value5")),
+        true);
+    assertEquals(4, ds.getContents().size());
+    assertEquals(1, ds.getDatasetsByKey(List.of("ds", "ds2")).size());
+    assertEquals(2, ds.getDatasetsByKey(List.of("ds3", "ds3")).size());
+    assertEquals(3, ds.find(List.of(new QueryPart("column", "value"))).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "*ue4"))).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "val*"), new QueryPart("column2", "oth"))).size());
+    assertEquals(3, ds.find(List.of(new QueryPart("column", "va"))).size());
+    assertEquals(1, ds.find(List.of(new QueryPart("column", "v.lue3"))).size());
+    assertEquals(0, ds.find(List.of(new QueryPart("column", "value2"))).size());
+    assertEquals(0, ds.find(List.of(new QueryPart("unknown", "value"))).size());
+  }
+
   @Test
   public void testUninitialized()
   {
@@ -24,7 +24,9 @@ package de.muenchen.allg.itd51.wollmux.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -75,4 +77,23 @@ public class SearchTest
     results = Search.search("value", strategy, datasources);
     assertEquals(2, results.size());
   }
+
+  @Test
+  public void testSearchInMultipleDatasources() throws Exception
+  {
+    SearchStrategy strategy = SearchStrategy.parse(new ConfigThingy("",
+        "Suchstrategie(first (column \"${suchanfrage1}\") second (column \"${suchanfrage1}\") first (column \"${suchanfrage1}2\"))"));
+    Map<String, Datasource> datasources = Map.of("first",
+        new MockDatasource("first", List.of("column"),
+            List.of(new MockDataset("ds1", "column", "value"), new MockDataset("ds2", "column", "value2"))),
+        "second", new MockDatasource("second", List.of("column"),
+            List.of(new MockDataset(new String("ds1"), "column", "value"), new MockDataset("ds3", "column", "value"))));
+    QueryResults results = Search.search("value", strategy, datasources);
+    List<String> keys = new ArrayList<>();
+    results.forEach(ds -> keys.add(ds.getKey()));
+    assertEquals(List.of("ds1", "ds3", "ds2"), keys);
+
+    Map<String, Datasource> missing = Map.of("first", datasources.get("first"));
+    assertThrows(IllegalArgumentException.class, () -> Search.search("value", strategy, missing));
+  }
 }
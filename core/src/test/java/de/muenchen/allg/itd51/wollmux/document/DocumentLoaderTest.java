@@ -0,0 +1,254 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class DocumentLoaderTest
+{
+  @TempDir
+  Path cacheDir;
+
+  private HttpServer server;
+
+  private ExecutorService executor;
+
+  private String url;
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final AtomicInteger conditionalRequests = new AtomicInteger();
+
+  private volatile byte[] content = bytes("version 1");
+
+  private volatile String etag = "\"1\"";
+
+  private final CountDownLatch slowResponse = new CountDownLatch(1);
+
+  @BeforeEach
+  public void startServer() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/template.ott";
+  }
+
+  @AfterEach
+  public void stopServer()
+  {
+    slowResponse.countDown();
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testFreshDocumentIsNotRequestedAgain() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 60000, DocumentLoader.MAX_DISK_BYTES);
+    loader.checkDocument(url);
+    assertArrayEquals(bytes("version 1"), loader.getDocument(url));
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void testRevalidation() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES);
+    assertArrayEquals(bytes("version 1"), loader.getDocument(url));
+    assertArrayEquals(bytes("version 1"), loader.getDocument(url));
+    assertEquals(2, requests.get());
+    assertEquals(1, conditionalRequests.get(), "second request is conditional");
+
+    content = bytes("version 2");
+    etag = "\"2\"";
+    assertArrayEquals(bytes("version 2"), loader.getDocument(url));
+  }
+
+  @Test
+  public void testDiskCacheSurvivesRestart() throws Exception
+  {
+    new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES).getDocument(url);
+
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES);
+    assertArrayEquals(bytes("version 1"), loader.getDocument(url));
+    assertEquals(1, conditionalRequests.get(), "document is revalidated, not downloaded");
+
+    server.stop(0);
+    loader = new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES);
+    assertArrayEquals(bytes("version 1"), loader.getDocument(url), "stale document if server is down");
+  }
+
+  @Test
+  public void testNegativeCaching() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES);
+    String missing = url.replace("template", "missing");
+    assertThrows(IOException.class, () -> loader.getDocument(missing));
+    assertThrows(IOException.class, () -> loader.checkDocument(missing));
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void testDiskCacheIsBounded() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, content.length);
+    loader.getDocument(url);
+    content = bytes("version 2");
+    etag = "\"2\"";
+    loader.getDocument(url);
+    long documents;
+    try (var files = Files.list(cacheDir))
+    {
+      documents = files.filter(f -> !f.toString().endsWith(".properties")).count();
+    }
+    assertEquals(1, documents);
+  }
+
+  @Test
+  public void testPruneDeletesMetadata() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, bytes("other document").length);
+    loader.getDocument(url);
+    loader.getDocument(url.replace("template", "other"));
+    long documents;
+    long metadata;
+    try (var files = Files.list(cacheDir))
+    {
+      metadata = files.filter(f -> f.toString().endsWith(".properties")).count();
+    }
+    try (var files = Files.list(cacheDir))
+    {
+      documents = files.filter(f -> !f.toString().endsWith(".properties")).count();
+    }
+    assertEquals(1, documents);
+    assertEquals(1, metadata, "metadata of the pruned document is deleted");
+  }
+
+  @Test
+  public void testSlowDocumentDoesntBlockOthers() throws Exception
+  {
+    DocumentLoader loader = new DocumentLoader(cacheDir.toFile(), 0, DocumentLoader.MAX_DISK_BYTES);
+    Future<byte[]> slow = executor.submit(() -> loader.getDocument(url.replace("template", "slow")));
+    Future<byte[]> fast = executor.submit(() -> loader.getDocument(url));
+    assertArrayEquals(bytes("version 1"), fast.get(10, TimeUnit.SECONDS));
+    slowResponse.countDown();
+    assertArrayEquals(bytes("slow document"), slow.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFileUrl() throws Exception
+  {
+    Path file = Files.write(cacheDir.resolve("template.ott"), bytes("version 1"));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1000000));
+    String fileUrl = file.toUri().toURL().toString();
+    DocumentLoader loader = new DocumentLoader(cacheDir.resolve("cache").toFile(), 0,
+        DocumentLoader.MAX_DISK_BYTES);
+    assertArrayEquals(bytes("version 1"), loader.getDocument(fileUrl));
+
+    Files.write(file, bytes("version 2"));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(2000000));
+    assertArrayEquals(bytes("version 2"), loader.getDocument(fileUrl));
+  }
+
+  private void handle(HttpExchange exchange) throws IOException
+  {
+    requests.incrementAndGet();
+    String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+    if (ifNoneMatch != null)
+    {
+      conditionalRequests.incrementAndGet();
+    }
+    String path = exchange.getRequestURI().getPath();
+    if (path.equals("/other.ott"))
+    {
+      respond(exchange, bytes("other document"));
+    } else if (path.equals("/slow.ott"))
+    {
+      try
+      {
+        slowResponse.await();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      respond(exchange, bytes("slow document"));
+    } else if (!path.equals("/template.ott"))
+    {
+      exchange.sendResponseHeaders(404, -1);
+    } else if (etag.equals(ifNoneMatch))
+    {
+      exchange.sendResponseHeaders(304, -1);
+    } else
+    {
+      exchange.getResponseHeaders().add("ETag", etag);
+      exchange.sendResponseHeaders(200, content.length);
+      try (OutputStream out = exchange.getResponseBody())
+      {
+        out.write(content);
+      }
+    }
+    exchange.close();
+  }
+
+  private void respond(HttpExchange exchange, byte[] body) throws IOException
+  {
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody())
+    {
+      out.write(body);
+    }
+    exchange.close();
+  }
+
+  private static byte[] bytes(String text)
+  {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
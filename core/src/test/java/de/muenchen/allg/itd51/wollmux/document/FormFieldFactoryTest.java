@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.ControlCharacter;
+import com.sun.star.text.TextContentAnchorType;
+import com.sun.star.text.XParagraphCursor;
+import com.sun.star.text.XText;
+import com.sun.star.text.XTextContent;
+import com.sun.star.text.XTextDocument;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.ext.unohelper.document.text.Bookmark;
+import de.muenchen.allg.itd51.wollmux.document.FormFieldFactory.FormField;
+import de.muenchen.allg.itd51.wollmux.document.FormFieldFactory.FormFieldType;
+import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand;
+import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand.InsertFormValue;
+import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommands;
+import de.muenchen.allg.itd51.wollmux.test.OfficeTest;
+import org.libreoffice.ext.unohelper.util.UnoProperty;
+import org.libreoffice.ext.unohelper.util.UnoService;
+
+public class FormFieldFactoryTest extends OfficeTest
+{
+  private XTextDocument xDoc;
+
+  @BeforeEach
+  public void setUp() throws Exception
+  {
+    xDoc = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception
+  {
+    UNO.XCloseable(xDoc).close(false);
+  }
+
+  @Test
+  public void testCreateFormFieldsLikeCreateFormField() throws Exception
+  {
+    insertCommand("text", "some text", null);
+    insertCommand("input", null, UnoService.CSS_TEXT_TEXT_FIELD_INPUT);
+    insertCommand("dropdown", null, UnoService.CSS_TEXT_TEXT_FIELD_DROP_DOWN);
+    insertCommand("date", null, "com.sun.star.text.TextField.DateTime");
+    insertCommand("textAndDate", "some text", "com.sun.star.text.TextField.DateTime");
+    insertCommand("dateAndText", null, "com.sun.star.text.TextField.DateTime");
+    insertCommand("frame", null, UnoService.CSS_TEXT_TEXT_FRAME);
+
+    DocumentCommands commands = new DocumentCommands(UNO.XBookmarksSupplier(xDoc));
+    commands.update();
+    List<InsertFormValue> cmds = new ArrayList<>();
+    for (DocumentCommand cmd : commands)
+    {
+      if (cmd instanceof InsertFormValue)
+      {
+        cmds.add((InsertFormValue) cmd);
+      }
+    }
+    assertEquals(7, cmds.size(), "wrong number of commands");
+
+    Map<String, FormField> single = new HashMap<>();
+    for (InsertFormValue cmd : cmds)
+    {
+      FormFieldFactory.createFormField(xDoc, cmd, single);
+    }
+    Map<String, FormField> bulk = new HashMap<>();
+    FormFieldFactory.createFormFields(xDoc, cmds, bulk);
+
+    Map<String, FormFieldType> expected = new HashMap<>();
+    expected.put("text", FormFieldType.DYNAMIC_INPUT_FORM_FIELD);
+    expected.put("input", FormFieldType.INPUT_FORM_FIELD);
+    expected.put("dropdown", FormFieldType.DROPDOWN_FORM_FIELD);
+    assertEquals(expected, getTypes(single, cmds), "wrong form fields of single commands");
+    assertEquals(getTypes(single, cmds), getTypes(bulk, cmds), "different form fields in one pass");
+  }
+
+  /**
+   * Append a paragraph with an insertFormValue-command around some text and a text field or frame.
+   */
+  private void insertCommand(String id, String string, String service) throws Exception
+  {
+    XText text = xDoc.getText();
+    if (text.getString().length() > 0)
+    {
+      text.insertControlCharacter(text.getEnd(), ControlCharacter.PARAGRAPH_BREAK, false);
+    }
+    if (string != null)
+    {
+      text.insertString(text.getEnd(), string, false);
+    }
+    if (service != null)
+    {
+      XTextContent content = UNO.XTextContent(UnoService.createService(service, xDoc));
+      if (UnoService.CSS_TEXT_TEXT_FRAME.equals(service))
+      {
+        UnoProperty.setProperty(content, UnoProperty.ANCHOR_TYPE, TextContentAnchorType.AS_CHARACTER);
+      }
+      text.insertTextContent(text.getEnd(), content, false);
+    }
+    if ("dateAndText".equals(id))
+    {
+      text.insertString(text.getEnd(), "some text", false);
+    }
+    XParagraphCursor cursor = UNO.XParagraphCursor(text.createTextCursorByRange(text.getEnd()));
+    cursor.gotoStartOfParagraph(true);
+    new Bookmark("WM(CMD 'insertFormValue' ID '" + id + "')", xDoc, cursor);
+  }
+
+  private Map<String, FormFieldType> getTypes(Map<String, FormField> formFields, List<InsertFormValue> cmds)
+  {
+    Map<String, FormFieldType> types = new HashMap<>();
+    for (InsertFormValue cmd : cmds)
+    {
+      FormField formField = formFields.get(cmd.getBookmarkName());
+      if (formField != null)
+      {
+        types.put(cmd.getID(), formField.getType());
+      }
+    }
+    return types;
+  }
+}
@@ -0,0 +1,65 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.config.InvalidIdentifierException;
+
+public class VisibleTextFragmentListTest
+{
+
+  @Test
+  public void testGetURLsByID() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("",
+        "VAR(NAME \"base\" VALUE \"file:/frag\") "
+            + "Textfragmente((FRAG_ID \"Kopf\" URL \"${base}/kopf_alt.odt\") (FRAG_ID \"Fuss_(.*)\" URL \"${base}/$1.odt\")) "
+            + "Textfragmente((FRAG_ID \"Kopf\" URL \"${base}/kopf.odt\" URL \"${base}/kopf2.odt\") "
+            + "(FRAG_ID \".*\" URL \"${base}/default.odt\"))");
+
+    assertEquals(List.of("file:/frag/kopf.odt", "file:/frag/kopf2.odt", "file:/frag/default.odt",
+        "file:/frag/kopf_alt.odt"), VisibleTextFragmentList.getURLsByID(conf, "Kopf"));
+    assertEquals(List.of("file:/frag/default.odt", "file:/frag/Brief.odt"),
+        VisibleTextFragmentList.getURLsByID(conf, "Fuss_Brief"));
+    assertEquals(VisibleTextFragmentList.getURLsByID(conf, "Fuss_Brief"),
+        VisibleTextFragmentList.getURLsByID(conf, "Fuss_Brief"));
+    assertThrows(InvalidIdentifierException.class, () -> VisibleTextFragmentList.getURLsByID(conf, "1abc"));
+  }
+
+  @Test
+  public void testNewConfiguration() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("", "Textfragmente((FRAG_ID \"Kopf\" URL \"file:/kopf.odt\"))");
+    assertEquals(List.of("file:/kopf.odt"), VisibleTextFragmentList.getURLsByID(conf, "Kopf"));
+
+    ConfigThingy other = new ConfigThingy("", "Textfragmente((FRAG_ID \"Kopf\" URL \"file:/other.odt\"))");
+    assertEquals(List.of("file:/other.odt"), VisibleTextFragmentList.getURLsByID(other, "Kopf"));
+  }
+}
@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.XTextCursor;
+import com.sun.star.text.XTextDocument;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import org.libreoffice.ext.unohelper.document.text.Bookmark;
+import de.muenchen.allg.itd51.wollmux.document.commands.DocumentCommand.SetJumpMark;
+import de.muenchen.allg.itd51.wollmux.test.OfficeTest;
+
+public class DocumentCommandsTest extends OfficeTest
+{
+  private static final String JUMP_MARK = "WM(CMD 'setJumpMark')";
+
+  private XTextDocument xDoc;
+
+  private XTextCursor cursor;
+
+  private DocumentCommands commands;
+
+  @BeforeEach
+  public void setUp() throws Exception
+  {
+    xDoc = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+    cursor = xDoc.getText().createTextCursor();
+    cursor.setString("ABC");
+    commands = new DocumentCommands(UNO.XBookmarksSupplier(xDoc));
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception
+  {
+    UNO.XCloseable(xDoc).close(false);
+  }
+
+  @Test
+  public void testUnchangedBookmarks() throws Exception
+  {
+    assertFalse(commands.update(), "empty document has commands");
+    new Bookmark(JUMP_MARK, xDoc, cursor);
+    assertTrue(commands.update(), "new bookmark not detected");
+    SetJumpMark cmd = commands.getFirstJumpMark();
+    assertFalse(commands.update(), "unchanged bookmarks should return early");
+    assertSame(cmd, commands.getFirstJumpMark(), "command was recreated");
+  }
+
+  @Test
+  public void testAddedBookmark() throws Exception
+  {
+    new Bookmark("no command", xDoc, cursor);
+    assertFalse(commands.update(), "bookmark without command detected");
+    new Bookmark(JUMP_MARK, xDoc, cursor);
+    assertTrue(commands.update(), "new bookmark not detected");
+    assertNotNull(commands.getFirstJumpMark(), "command not created");
+    assertEquals(1, getCommands().size(), "wrong number of commands");
+  }
+
+  @Test
+  public void testRemovedBookmark() throws Exception
+  {
+    Bookmark bookmark = new Bookmark(JUMP_MARK, xDoc, cursor);
+    commands.update();
+    bookmark.remove();
+    assertTrue(commands.update(), "removed bookmark not detected");
+    assertNull(commands.getFirstJumpMark(), "command not retired");
+    assertTrue(getCommands().isEmpty(), "command not retired");
+  }
+
+  @Test
+  public void testRenamedBookmark() throws Exception
+  {
+    new Bookmark(JUMP_MARK, xDoc, cursor);
+    commands.update();
+    SetJumpMark cmd = commands.getFirstJumpMark();
+    String name = cmd.getBookmarkName();
+    cmd.markDone(false);
+    assertNotEquals(name, cmd.getBookmarkName(), "bookmark not renamed");
+    assertFalse(commands.update(), "renamed bookmark is a new command");
+    assertEquals(List.of(cmd), getCommands(), "wrong commands after rename");
+  }
+
+  @Test
+  public void testRegisteredBookmark() throws Exception
+  {
+    commands.addNewDocumentCommand(cursor, JUMP_MARK);
+    SetJumpMark cmd = commands.getFirstJumpMark();
+    assertNotNull(cmd, "command not registered");
+    assertFalse(commands.update(), "registered bookmark detected again");
+    assertEquals(List.of(cmd), getCommands(), "wrong commands after update");
+  }
+
+  private List<DocumentCommand> getCommands()
+  {
+    List<DocumentCommand> result = new ArrayList<>();
+    commands.iterator().forEachRemaining(result::add);
+    return result;
+  }
+}
@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.document.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.star.text.XText;
+import com.sun.star.text.XTextRange;
+
+import de.muenchen.allg.itd51.wollmux.document.VisibilityElement;
+
+public class VisibilityIndexTest
+{
+  private static final VisibilityIndex.RangeOrder ORDER = new VisibilityIndex.RangeOrder()
+  {
+    @Override
+    public Object getText(XTextRange range)
+    {
+      return ((Range) range).text;
+    }
+
+    @Override
+    public Object getKey(Object text)
+    {
+      return text;
+    }
+
+    @Override
+    public int compareStarts(Object text, XTextRange a, XTextRange b)
+    {
+      return Integer.compare(((Range) a).start, ((Range) b).start);
+    }
+
+    @Override
+    public int compareEnds(Object text, XTextRange a, XTextRange b)
+    {
+      return Integer.compare(((Range) a).end, ((Range) b).end);
+    }
+
+    @Override
+    public int compareEndToStart(Object text, XTextRange a, XTextRange b)
+    {
+      return Integer.compare(((Range) a).end, ((Range) b).start);
+    }
+  };
+
+  @Test
+  public void testSortedByPosition()
+  {
+    Element a = new Element("body", 10, 20, "a");
+    Element b = new Element("body", 0, 30, "b");
+    Element c = new Element("cell", 0, 5, "c");
+    Element d = new Element("body", 25, 28, "d");
+    VisibilityIndex index = new VisibilityIndex(ORDER);
+    index.addAll(List.of(a, c));
+    index.addAll(List.of(d, b));
+    assertEquals(List.of(b, a, d, c), index.getElements());
+  }
+
+  @Test
+  public void testInheritGroups()
+  {
+    Element outer = new Element("body", 0, 100, "outer");
+    Element inner = new Element("body", 10, 50, "inner");
+    Element innermost = new Element("body", 20, 30, "innermost");
+    Element sibling = new Element("body", 60, 70, "sibling");
+    Element same = new Element("body", 10, 50, "same");
+    Element other = new Element("cell", 20, 30, "other");
+    VisibilityIndex index = new VisibilityIndex(ORDER);
+    index.addAll(List.of(innermost, sibling, other));
+    index.addAll(List.of(inner, outer, same));
+
+    assertEquals(Set.of("outer"), outer.getGroups());
+    assertEquals(Set.of("outer", "inner", "same"), inner.getGroups());
+    assertEquals(Set.of("outer", "inner", "same"), same.getGroups());
+    assertEquals(Set.of("outer", "inner", "same", "innermost"), innermost.getGroups());
+    assertEquals(Set.of("outer", "sibling"), sibling.getGroups());
+    assertEquals(Set.of("other"), other.getGroups());
+  }
+
+  @Test
+  public void testOverlappingElements()
+  {
+    Element outer = new Element("body", 0, 100, "outer");
+    Element overlap = new Element("body", 50, 150, "overlap");
+    Element inner = new Element("body", 60, 70, "inner");
+    VisibilityIndex index = new VisibilityIndex(ORDER);
+    index.addAll(List.of(outer, overlap, inner));
+
+    assertEquals(Set.of("overlap"), overlap.getGroups());
+    assertEquals(Set.of("outer", "overlap", "inner"), inner.getGroups());
+  }
+
+  @Test
+  public void testRemoveAndWithoutAnchor()
+  {
+    Element a = new Element("body", 0, 10, "a");
+    Element b = new Element("body", 20, 30, "b");
+    Element c = new Element("body", 40, 50, "c");
+    Element d = new Element("body", 5, 25, "d");
+    VisibilityIndex index = new VisibilityIndex(ORDER);
+    index.addAll(List.of(a, b));
+    c.anchor = null;
+    index.addAll(List.of(c, d));
+    assertEquals(List.of(a, d, b), index.getElements(), "element without anchor added");
+    index.removeAll(List.of(b, c));
+    assertEquals(List.of(a, d), index.getElements());
+  }
+
+  @Test
+  public void testOnlyNewElementsAreCompared()
+  {
+    List<Element> existing = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+    {
+      existing.add(new Element("body", i * 10, i * 10 + 5, "e" + i));
+    }
+    Element outer = new Element("body", 0, 2000, "outer");
+    Element inner = new Element("body", 501, 502, "inner");
+    CountingOrder counting = new CountingOrder();
+    VisibilityIndex index = new VisibilityIndex(counting);
+    index.addAll(existing);
+    existing.forEach(e -> e.anchorCalls = 0);
+    counting.comparisons = 0;
+
+    index.addAll(List.of(inner, outer));
+
+    // sorting and merging needs O(n) comparisons, nesting only pairs with a new element
+    assertTrue(counting.comparisons < 5 * existing.size(), "too many comparisons: " + counting.comparisons);
+    existing.forEach(e -> assertEquals(0, e.anchorCalls, "anchor of existing element read again"));
+    assertEquals(outer, index.getElements().get(0));
+    assertEquals(inner, index.getElements().get(52));
+    assertEquals(Set.of("outer", "e50", "inner"), inner.getGroups());
+    existing.forEach(e -> assertTrue(e.getGroups().contains("outer"), "group not inherited"));
+  }
+
+  private static class CountingOrder implements VisibilityIndex.RangeOrder
+  {
+    private int comparisons = 0;
+
+    @Override
+    public Object getText(XTextRange range)
+    {
+      return ORDER.getText(range);
+    }
+
+    @Override
+    public Object getKey(Object text)
+    {
+      return ORDER.getKey(text);
+    }
+
+    @Override
+    public int compareStarts(Object text, XTextRange a, XTextRange b)
+    {
+      comparisons++;
+      return ORDER.compareStarts(text, a, b);
+    }
+
+    @Override
+    public int compareEnds(Object text, XTextRange a, XTextRange b)
+    {
+      comparisons++;
+      return ORDER.compareEnds(text, a, b);
+    }
+
+    @Override
+    public int compareEndToStart(Object text, XTextRange a, XTextRange b)
+    {
+      comparisons++;
+      return ORDER.compareEndToStart(text, a, b);
+    }
+  }
+
+  private static class Element implements VisibilityElement
+  {
+    private Range anchor;
+
+    private int anchorCalls = 0;
+
+    private final Set<String> groups = new HashSet<>();
+
+    private Element(String text, int start, int end, String group)
+    {
+      anchor = new Range(text, start, end);
+      groups.add(group);
+    }
+
+    @Override
+    public boolean isVisible()
+    {
+      return true;
+    }
+
+    @Override
+    public void setVisible(boolean visible)
+    {
+      // not needed
+    }
+
+    @Override
+    public Set<String> getGroups()
+    {
+      return groups;
+    }
+
+    @Override
+    public void addGroups(Set<String> groups)
+    {
+      this.groups.addAll(groups);
+    }
+
+    @Override
+    public XTextRange getAnchor()
+    {
+      anchorCalls++;
+      return anchor;
+    }
+
+    @Override
+    public String toString()
+    {
+      return groups.toString();
+    }
+  }
+
+  private static class Range implements XTextRange
+  {
+    private final String text;
+
+    private final int start;
+
+    private final int end;
+
+    private Range(String text, int start, int end)
+    {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public XText getText()
+    {
+      return null;
+    }
+
+    @Override
+    public XTextRange getStart()
+    {
+      return new Range(text, start, start);
+    }
+
+    @Override
+    public XTextRange getEnd()
+    {
+      return new Range(text, end, end);
+    }
+
+    @Override
+    public String getString()
+    {
+      return "";
+    }
+
+    @Override
+    public void setString(String string)
+    {
+      // not needed
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.form.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.dialog.DialogLibrary;
+import de.muenchen.allg.itd51.wollmux.func.FunctionLibrary;
+import de.muenchen.allg.itd51.wollmux.func.Values;
+import de.muenchen.allg.itd51.wollmux.ui.UIElementConfig;
+
+public class TestFormDependencyGraph
+{
+
+  private final Map<String, Control> controls = new HashMap<>();
+
+  private final Values values = new Values()
+  {
+    @Override
+    public boolean hasValue(String id)
+    {
+      return controls.containsKey(id);
+    }
+
+    @Override
+    public String getString(String id)
+    {
+      return controls.containsKey(id) ? controls.get(id).getValue() : "";
+    }
+
+    @Override
+    public boolean getBoolean(String id)
+    {
+      return "true".equalsIgnoreCase(getString(id));
+    }
+  };
+
+  private Control control(String id, String autofill) throws Exception
+  {
+    String conf = "ID \"" + id + "\" TYPE \"textfield\"";
+    if (autofill != null)
+    {
+      conf += " AUTOFILL(" + autofill + ")";
+    }
+    Control control = new Control(new UIElementConfig(new ConfigThingy("", conf)), new FunctionLibrary(),
+        new DialogLibrary(), new HashMap<>());
+    control.setValue("");
+    controls.put(id, control);
+    return control;
+  }
+
+  @Test
+  public void testPropagateDiamond() throws Exception
+  {
+    // d depends on b and c, which both depend on a
+    Control d = control("d", "CAT(VALUE \"b\" VALUE \"c\")");
+    Control b = control("b", "CAT(VALUE \"a\" \"1\")");
+    Control c = control("c", "CAT(VALUE \"a\" \"2\")");
+    Control a = control("a", null);
+    a.addDependingAutoFillFormField(b);
+    a.addDependingAutoFillFormField(c);
+    b.addDependingAutoFillFormField(d);
+    c.addDependingAutoFillFormField(d);
+
+    FormDependencyGraph graph = new FormDependencyGraph(List.of(d, b, c, a));
+    List<String> oldValues = new ArrayList<>();
+    List<Control> changed = graph.propagate(a, "x", values, ctrl -> oldValues.add(ctrl.getValue()));
+    assertEquals(List.of(a, b, c, d), changed);
+    assertEquals(List.of("", "", "", ""), oldValues);
+    assertEquals("x1x2", d.getValue());
+  }
+
+  @Test
+  public void testPropagateUnchanged() throws Exception
+  {
+    Control b = control("b", "\"constant\"");
+    Control c = control("c", "VALUE \"b\"");
+    Control a = control("a", null);
+    a.addDependingAutoFillFormField(b);
+    b.addDependingAutoFillFormField(c);
+    b.setValue("constant");
+    c.setValue("constant");
+
+    FormDependencyGraph graph = new FormDependencyGraph(List.of(a, b, c));
+    assertEquals(List.of(a), graph.propagate(a, "x", values, ctrl -> {}));
+  }
+
+  @Test
+  public void testPropagateSeveralSources() throws Exception
+  {
+    // c depends on a and b, b depends on a
+    Control c = control("c", "CAT(VALUE \"a\" VALUE \"b\")");
+    Control b = control("b", "CAT(VALUE \"a\" \"1\")");
+    Control a = control("a", null);
+    a.addDependingAutoFillFormField(b);
+    a.addDependingAutoFillFormField(c);
+    b.addDependingAutoFillFormField(c);
+
+    FormDependencyGraph graph = new FormDependencyGraph(List.of(c, b, a));
+    Map<Control, String> sources = new LinkedHashMap<>();
+    sources.put(a, "x");
+    sources.put(b, "y");
+    List<Control> changed = graph.propagate(sources, values, ctrl -> {});
+    assertEquals(List.of(a, b, c), changed);
+    assertEquals("y", b.getValue());
+    assertEquals("xy", c.getValue());
+  }
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.dialog.DialogLibrary;
+
+/**
+ * Benchmark of the evaluation of all basic functions of {@link FunctionFactory} except EXTERN and
+ * DIALOG. Each invocation evaluates the function for the next of {@link #RECORDS} different
+ * records, like a mail merge does.
+ *
+ * Run it with {@link #main(String[])} from the test class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark
+{
+  private static final int RECORDS = 16;
+
+  private static final Map<String, String> FUNCTIONS = new HashMap<>();
+
+  static
+  {
+    FUNCTIONS.put("AND", "AND(MATCH(VALUE \"Nachname\" \".*mann\") NOT(VALUE \"Frau\"))");
+    FUNCTIONS.put("OR", "OR(MATCH(VALUE \"Nachname\" \"Mey.*\") VALUE \"Frau\")");
+    FUNCTIONS.put("VALUE", "VALUE \"Vorname\"");
+    FUNCTIONS.put("MATCH", "MATCH(VALUE \"Nachname\" \".*mann.*\")");
+    FUNCTIONS.put("MATCH_REGEX", "MATCH(VALUE \"Nachname\" \"[A-Z][a-z]+mann\")");
+    FUNCTIONS.put("REPLACE", "REPLACE(VALUE \"Nachname\" \"mann\" \"frau\")");
+    FUNCTIONS.put("REPLACE_REGEX", "REPLACE(VALUE \"Nachname\" \"m+an{2}\" \"frau\")");
+    FUNCTIONS.put("SPLIT", "SPLIT(VALUE \"Datum\" \"[-.]\" \"1\")");
+    FUNCTIONS.put("SPLIT_LITERAL", "SPLIT(VALUE \"Datum\" \"-\" \"1\")");
+    FUNCTIONS.put("IF", "IF(VALUE \"Frau\" THEN \"Sehr geehrte Frau\" ELSE \"Sehr geehrter Herr\")");
+    FUNCTIONS.put("BIND",
+        "BIND(FUNCTION(CAT(VALUE \"a\" \" \" VALUE \"b\")) SET(\"a\" VALUE \"Vorname\") SET(\"b\" VALUE \"Nachname\"))");
+    FUNCTIONS.put("SELECT", "SELECT(VALUE \"Titel\" VALUE \"Vorname\" ONERROR \"\")");
+    FUNCTIONS.put("CAT", "CAT(VALUE \"Vorname\" \" \" VALUE \"Nachname\")");
+    FUNCTIONS.put("LENGTH", "LENGTH(VALUE \"Nachname\")");
+    FUNCTIONS.put("DIVIDE", "DIVIDE(VALUE \"Betrag\" BY \"3\" MIN \"2\" MAX \"2\")");
+    FUNCTIONS.put("FORMAT", "FORMAT(VALUE \"Betrag\" MIN \"2\")");
+    FUNCTIONS.put("MINUS", "MINUS(VALUE \"Betrag\")");
+    FUNCTIONS.put("SUM", "SUM(VALUE \"Betrag\" \"100\" \"0.5\")");
+    FUNCTIONS.put("DIFF", "DIFF(VALUE \"Betrag\" \"100\")");
+    FUNCTIONS.put("PRODUCT", "PRODUCT(VALUE \"Betrag\" \"1.19\")");
+    FUNCTIONS.put("ABS", "ABS(DIFF(VALUE \"Betrag\" \"1000\"))");
+    FUNCTIONS.put("SIGN", "SIGN(DIFF(VALUE \"Betrag\" \"1000\"))");
+    FUNCTIONS.put("LT", "LT(VALUE \"Betrag\" \"1000\")");
+    FUNCTIONS.put("NUMCMP", "NUMCMP(VALUE \"Betrag\" \"1000\" MARGIN \"0.5\")");
+    FUNCTIONS.put("STRCMP", "STRCMP(VALUE \"Vorname\" \"Max\")");
+    FUNCTIONS.put("ISERROR", "ISERROR(DIVIDE(VALUE \"Betrag\" BY(VALUE \"Null\")))");
+  }
+
+  @Param({ "AND", "OR", "VALUE", "MATCH", "MATCH_REGEX", "REPLACE", "REPLACE_REGEX", "SPLIT", "SPLIT_LITERAL",
+      "IF", "BIND", "SELECT", "CAT", "LENGTH", "DIVIDE", "FORMAT", "MINUS", "SUM", "DIFF", "PRODUCT", "ABS",
+      "SIGN", "LT", "NUMCMP", "STRCMP", "ISERROR" })
+  private String function;
+
+  @Param({ "false", "true" })
+  private boolean memoize;
+
+  @Param({ "false", "true" })
+  private boolean compile;
+
+  private Function func;
+
+  private Values[] records;
+
+  private int next = 0;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    ConfigThingy conf = new ConfigThingy("Func", FUNCTIONS.get(function));
+    func = FunctionFactory.parseChildren(conf, new FunctionLibrary(), new DialogLibrary(), new HashMap<>());
+    if (compile)
+    {
+      func = FunctionFactory.compile(func);
+    }
+    if (memoize)
+    {
+      func = FunctionFactory.memoize(func);
+    }
+
+    records = new Values[RECORDS];
+    for (int i = 0; i < RECORDS; i++)
+    {
+      Values.SimpleMap values = new Values.SimpleMap();
+      values.put("Vorname", i % 2 == 0 ? "Max" : "Erika");
+      values.put("Nachname", (i % 3 == 0 ? "Mustermann" : "Meyer") + i);
+      values.put("Frau", Boolean.toString(i % 2 == 1));
+      values.put("Betrag", Integer.toString(i * 137));
+      values.put("Datum", "2023-0" + (i % 9 + 1) + "-1" + i % 10);
+      values.put("Null", "0");
+      records[i] = values;
+    }
+  }
+
+  @Benchmark
+  public String getResult()
+  {
+    next = (next + 1) % RECORDS;
+    return func.getResult(records[next]);
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    new Runner(new OptionsBuilder().include(FunctionBenchmark.class.getSimpleName()).build()).run();
+  }
+}
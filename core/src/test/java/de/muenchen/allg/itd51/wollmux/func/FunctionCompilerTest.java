@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.dialog.DialogLibrary;
+
+public class FunctionCompilerTest
+{
+  private static final String[][] EXPRESSIONS = {
+      { "SUM", "VALUE \"a\" \"2\" PRODUCT(VALUE \"b\" \"0,5\")" },
+      { "DIFF", "VALUE \"a\" SUM(VALUE \"b\" \"1\") MINUS(VALUE \"a\")" },
+      { "PRODUCT", "ABS(VALUE \"a\") SIGN(VALUE \"b\") \"3\"" },
+      { "SIGN", "DIFF(VALUE \"a\" VALUE \"b\")" },
+      { "CAT", "VALUE \"a\" \"-\" SUM(VALUE \"b\") LENGTH(VALUE \"c\")" },
+      { "AND", "MATCH(VALUE \"c\" \"x.*\") NOT(VALUE \"d\")" },
+      { "OR", "VALUE \"d\" MATCH(VALUE \"a\" \"[0-9]+\") AND(VALUE \"d\")" },
+      { "NOT", "OR(VALUE \"d\" \"false\") MATCH(VALUE \"c\" \".*z\")" },
+      { "IF", "AND(VALUE \"d\" MATCH(VALUE \"c\" \"xy.*\")) THEN(SUM(VALUE \"a\" \"1\")) "
+          + "ELSE(IF(VALUE \"d\" THEN(\"true\") ELSE(CAT(VALUE \"c\" VALUE \"a\"))))" },
+      { "LENGTH", "VALUE \"c\" SUM(VALUE \"a\" VALUE \"b\")" },
+      { "MATCH", "CAT(VALUE \"a\" VALUE \"c\") \"1.*\"" },
+      { "SUM", "SELECT(VALUE \"a\" ELSE(\"0\")) VALUE \"b\"" } };
+
+  private static final List<String[]> VALUES = List.of(new String[] { "a", "1", "b", "2,5", "c", "xyz", "d", "true" },
+      new String[] { "a", "-4", "b", "0", "c", "x", "d", "FALSE" },
+      new String[] { "a", "12", "b", "-3", "c", "", "d", "" },
+      new String[] { "a", "abc", "b", "1", "c", "xy", "d", "true" },
+      new String[] { "a", "1.000", "b", "7", "c", "yz", "d", "false" },
+      new String[] { "b", "1", "d", "true" },
+      new String[] { "a", "2", "c", "xyz" });
+
+  @Test
+  public void compiledEqualsInterpreted() throws Exception
+  {
+    for (String[] expr : EXPRESSIONS)
+    {
+      Function interpreted = parse(expr[0], expr[1]);
+      Function compiled = FunctionCompiler.compile(parse(expr[0], expr[1]));
+      assertTrue(compiled instanceof FunctionCompiler.CompiledFunction, expr[0] + expr[1]);
+      assertEquals(List.of(interpreted.parameters()), List.of(compiled.parameters()));
+      assertEquals(interpreted.isPure(), compiled.isPure());
+      for (String[] pairs : VALUES)
+      {
+        Values.SimpleMap values = new Values.SimpleMap();
+        for (int i = 0; i < pairs.length; i += 2)
+        {
+          values.put(pairs[i], pairs[i + 1]);
+        }
+        String message = expr[0] + "(" + expr[1] + ") with " + List.of(pairs);
+        String expected = interpreted.getResult(values);
+        String actual = compiled.getResult(values);
+        assertEquals(expected, actual, message);
+        assertEquals(expected == FunctionLibrary.ERROR, actual == FunctionLibrary.ERROR, message);
+        assertEquals(interpreted.getBoolean(values), compiled.getBoolean(values), message);
+      }
+    }
+  }
+
+  @Test
+  public void compileOnlyKnownFunctions() throws Exception
+  {
+    Function value = new ValueFunction("a");
+    assertSame(value, FunctionCompiler.compile(value));
+    Function literal = new StringLiteralFunction("a");
+    assertSame(literal, FunctionCompiler.compile(literal));
+    Function compiled = FunctionCompiler.compile(parse("NOT", "VALUE \"a\""));
+    assertSame(compiled, FunctionCompiler.compile(compiled));
+    assertSame(null, FunctionCompiler.compile(null));
+  }
+
+  @Test
+  public void compileLibrary() throws Exception
+  {
+    FunctionLibrary base = new FunctionLibrary();
+    base.add("f", parse("NOT", "VALUE \"a\""));
+    assertFalse(base.isCompiled());
+    base.compile();
+    assertTrue(base.isCompiled());
+    assertTrue(base.get("f") instanceof FunctionCompiler.CompiledFunction);
+
+    FunctionLibrary lib = new FunctionLibrary(base);
+    assertTrue(lib.isCompiled());
+    lib.add("g", parse("CAT", "VALUE \"a\" VALUE \"b\""));
+    assertTrue(lib.get("g") instanceof FunctionCompiler.CompiledFunction);
+    assertFalse(new FunctionLibrary().isCompiled());
+  }
+
+  private static Function parse(String name, String conf) throws Exception
+  {
+    return FunctionFactory.parse(new ConfigThingy(name, conf), new FunctionLibrary(), new DialogLibrary(),
+        new HashMap<>());
+  }
+}
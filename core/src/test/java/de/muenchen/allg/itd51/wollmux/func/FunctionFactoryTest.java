@@ -22,6 +22,7 @@
  */
 package de.muenchen.allg.itd51.wollmux.func;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -103,15 +104,29 @@ public class FunctionFactoryTest
     f = FunctionFactory.parse(new ConfigThingy("VALUE", "\"true\""), funcLib, dialogLib, context);
     assertTrue(f instanceof ValueFunction);
 
-    f = FunctionFactory.parse(new ConfigThingy("MATCH", "\"abs\" \"abc\""), funcLib, dialogLib, context);
+    f = FunctionFactory.parse(new ConfigThingy("MATCH", "VALUE \"abs\" \"abc\""), funcLib, dialogLib, context);
     assertTrue(f instanceof MatchFunction);
 
-    f = FunctionFactory.parse(new ConfigThingy("REPLACE", "\"abc\" \"abc\" \"def\""), funcLib, dialogLib, context);
+    f = FunctionFactory.parse(new ConfigThingy("REPLACE", "VALUE \"abc\" \"abc\" \"def\""), funcLib, dialogLib,
+        context);
     assertTrue(f instanceof ReplaceFunction);
 
-    f = FunctionFactory.parse(new ConfigThingy("SPLIT", "\"abc\" \"b\" \"0\""), funcLib, dialogLib, context);
+    f = FunctionFactory.parse(new ConfigThingy("SPLIT", "VALUE \"abc\" \"b\" \"0\""), funcLib, dialogLib, context);
     assertTrue(f instanceof SplitFunction);
 
+    // constant folding
+    f = FunctionFactory.parse(new ConfigThingy("MATCH", "\"abs\" \"abc\""), funcLib, dialogLib, context);
+    assertTrue(f instanceof StringLiteralFunction);
+    assertEquals("false", f.getResult(null));
+
+    f = FunctionFactory.parse(new ConfigThingy("REPLACE", "\"abc\" \"b\" \"def\""), funcLib, dialogLib, context);
+    assertTrue(f instanceof StringLiteralFunction);
+    assertEquals("adefc", f.getResult(null));
+
+    f = FunctionFactory.parse(new ConfigThingy("SPLIT", "\"abc\" \"b\" \"1\""), funcLib, dialogLib, context);
+    assertTrue(f instanceof StringLiteralFunction);
+    assertEquals("c", f.getResult(null));
+
     f = FunctionFactory.parse(new ConfigThingy("IF", "\"true\""), funcLib, dialogLib, context);
     assertTrue(f instanceof IfFunction);
 
@@ -0,0 +1,62 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+public class LiteralPatternTest
+{
+
+  private static final String[] INPUTS = { "", "ab", "xaby", "abab", "a,b,,", ",a", "ab\nc", "x\nab", "a.b",
+      "ab$" };
+
+  private static final String[] REGEX = { "", "ab", "ab.*", ".*ab", ".*ab.*", ".*", ",", "a\\.b", "a|b",
+      "(?i)AB" };
+
+  @Test
+  public void sameResultAsRegex()
+  {
+    for (String regex : REGEX)
+    {
+      Pattern p = Pattern.compile(regex);
+      LiteralPattern pattern = new LiteralPattern(p);
+      for (String input : INPUTS)
+      {
+        String msg = regex + " on " + input;
+        assertEquals(p.matcher(input).matches(), pattern.matches(input), msg);
+        assertEquals(p.matcher(input).replaceAll("-"), pattern.replaceAll(input, "-"), msg);
+        assertEquals(p.matcher(input).replaceAll("$0$0"), pattern.replaceAll(input, "$0$0"), msg);
+        String[] parts = input.split(regex);
+        for (int i = -1; i < 5; i++)
+        {
+          assertEquals(i >= 0 && i < parts.length ? parts[i] : "", pattern.split(input, i), msg);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.func;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import de.muenchen.allg.itd51.wollmux.config.ConfigThingy;
+import de.muenchen.allg.itd51.wollmux.dialog.DialogLibrary;
+
+public class MemoizingFunctionTest
+{
+
+  @Test
+  public void memoizeResult() throws Exception
+  {
+    CountingFunction counter = new CountingFunction(true);
+    Function f = FunctionFactory.memoize(counter);
+    Values.SimpleMap values = new Values.SimpleMap();
+    values.put("a", "x");
+    values.put("other", "1");
+    assertEquals("x", f.getResult(values));
+    values.put("other", "2");
+    assertEquals("x", f.getResult(values));
+    assertEquals(1, counter.count);
+
+    values.put("a", "true");
+    assertEquals("true", f.getResult(values));
+    assertTrue(f.getBoolean(values));
+    assertEquals(3, counter.count);
+    assertTrue(f.getBoolean(values));
+    assertEquals(3, counter.count);
+
+    values.remove("a");
+    assertSame(FunctionLibrary.ERROR, f.getResult(values));
+    values.put("a", "");
+    assertEquals("", f.getResult(values));
+    assertEquals(5, counter.count);
+  }
+
+  @Test
+  public void memoizeBounded() throws Exception
+  {
+    CountingFunction counter = new CountingFunction(true);
+    Function f = FunctionFactory.memoize(counter);
+    Values.SimpleMap values = new Values.SimpleMap();
+    for (int i = 0; i <= MemoizingFunction.MAX_ENTRIES; i++)
+    {
+      values.put("a", Integer.toString(i));
+      f.getResult(values);
+    }
+    values.put("a", "0");
+    f.getResult(values);
+    assertEquals(MemoizingFunction.MAX_ENTRIES + 2, counter.count);
+  }
+
+  @Test
+  public void memoizeOnlyPure() throws Exception
+  {
+    Function impure = new CountingFunction(false);
+    assertSame(impure, FunctionFactory.memoize(impure));
+    Function literal = new StringLiteralFunction("x");
+    assertSame(literal, FunctionFactory.memoize(literal));
+
+    Function f = new CatFunction(new ConfigThingy("CAT", "VALUE \"a\" MATCH(VALUE \"b\" \"b.*\")"),
+        new FunctionLibrary(), new DialogLibrary(), new HashMap<>());
+    assertTrue(f.isPure());
+    assertTrue(FunctionFactory.memoize(f) instanceof MemoizingFunction);
+
+    Function pure = new MatchFunction(new ValueFunction("b"), Pattern.compile("b.*"));
+    CatFunction cat = new CatFunction(List.of(impure, pure));
+    assertFalse(cat.isPure());
+    assertTrue(cat.subFunction.stream().skip(1).allMatch(MemoizingFunction.class::isInstance));
+  }
+
+  private static class CountingFunction implements Function
+  {
+    private final boolean pure;
+
+    private int count = 0;
+
+    public CountingFunction(boolean pure)
+    {
+      this.pure = pure;
+    }
+
+    @Override
+    public String[] parameters()
+    {
+      return new String[] { "a" };
+    }
+
+    @Override
+    public void getFunctionDialogReferences(Collection<String> set)
+    {
+      // no dialogs
+    }
+
+    @Override
+    public String getResult(Values parameters)
+    {
+      count++;
+      if (!parameters.hasValue("a"))
+      {
+        return FunctionLibrary.ERROR;
+      }
+      return parameters.getString("a");
+    }
+
+    @Override
+    public boolean getBoolean(Values parameters)
+    {
+      return getResult(parameters).equalsIgnoreCase("true");
+    }
+
+    @Override
+    public boolean isPure()
+    {
+      return pure;
+    }
+  }
+}
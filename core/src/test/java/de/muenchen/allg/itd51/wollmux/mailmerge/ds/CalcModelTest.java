@@ -146,4 +146,40 @@ public class CalcModelTest extends OfficeTest
     UNO.XModifiable(xDoc).setModified(false);
   }
 
+  @Test
+  public void readChangedCells() throws Exception
+  {
+    Table<Integer, String, String> data = model.getData();
+    XSpreadsheet sheet = UNO.XSpreadsheet(xDoc.getSheets().getByName("Tabelle1"));
+    UNO.XTextRange(sheet.getCellByPosition(2, 1)).setString("Erika");
+    UNO.XTextRange(sheet.getCellByPosition(3, 2)).setString("Mustermann");
+    assertEquals("Erika", data.get(1, "SGVorname"), "changed cell not read");
+    assertEquals("B", data.get(1, "SGNachname"), "wrong data");
+    assertEquals("Mustermann", data.get(2, "SGNachname"), "changed cell not read");
+    assertEquals(4, model.getNumberOfRecords(), "Different number of records");
+
+    UNO.XModifiable(xDoc).setModified(false);
+  }
+
+  @Test
+  public void readChangedCellsAfterTooManyChanges() throws Exception
+  {
+    CalcModel calcModel = (CalcModel) model;
+    Table<Integer, String, String> data = model.getData();
+    XSpreadsheet sheet = UNO.XSpreadsheet(xDoc.getSheets().getByName("Tabelle1"));
+    for (int i = 0; i < CalcModel.MAX_CHANGED_RANGES + 10; i++)
+    {
+      UNO.XTextRange(sheet.getCellByPosition(2, 1)).setString("Erika" + i);
+    }
+    assertEquals("Erika" + (CalcModel.MAX_CHANGED_RANGES + 9), data.get(1, "SGVorname"), "changed cell not read");
+    assertEquals(0, calcModel.getChangedRangesCount(), "changes counted after whole sheet was read");
+
+    UNO.XTextRange(sheet.getCellByPosition(3, 2)).setString("Mustermann");
+    assertEquals(1, calcModel.getChangedRangesCount(), "small change not recorded");
+    assertEquals("Mustermann", data.get(2, "SGNachname"), "changed cell not read");
+    assertEquals(0, calcModel.getChangedRangesCount());
+
+    UNO.XModifiable(xDoc).setModified(false);
+  }
+
 }
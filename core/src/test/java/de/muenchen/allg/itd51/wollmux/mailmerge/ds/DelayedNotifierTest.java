@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.ds;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DelayedNotifierTest
+{
+  private static final long DELAY = 200;
+
+  private ScheduledExecutorService scheduler;
+
+  private final AtomicInteger notifications = new AtomicInteger();
+
+  private DelayedNotifier notifier;
+
+  @BeforeEach
+  public void setUp()
+  {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    notifier = new DelayedNotifier(scheduler, DELAY, notifications::incrementAndGet);
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testTriggersAreCoalesced() throws Exception
+  {
+    for (int i = 0; i < 10; i++)
+    {
+      notifier.trigger();
+    }
+    Thread.sleep(3 * DELAY);
+    assertEquals(1, notifications.get(), "a series of triggers should notify once");
+
+    notifier.trigger();
+    Thread.sleep(3 * DELAY);
+    assertEquals(2, notifications.get(), "a later trigger should notify again");
+  }
+
+  @Test
+  public void testTriggerPostponesNotification() throws Exception
+  {
+    long start = System.nanoTime();
+    notifier.trigger();
+    Thread.sleep(DELAY / 2);
+    notifier.trigger();
+    while (notifications.get() == 0 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5))
+    {
+      Thread.sleep(10);
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertEquals(1, notifications.get());
+    assertTrue(elapsed >= DELAY + DELAY / 2, "notified " + elapsed + "ms after the first trigger");
+  }
+
+  @Test
+  public void testTriggerDoesntRunAction() throws Exception
+  {
+    notifier.trigger();
+    assertEquals(0, notifications.get(), "action should run on the scheduler");
+    notifier.cancel();
+    Thread.sleep(2 * DELAY);
+    assertEquals(0, notifications.get(), "canceled action shouldn't run");
+  }
+}
@@ -0,0 +1,277 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MailDeliveryTest
+{
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testOneConnectionForAllMails() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(0);
+    List<File> attachments = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+    {
+      File attachment = attachment(i);
+      attachments.add(attachment);
+      delivery.send(mail("to" + i + "@example.com"), "to" + i + "@example.com", attachment);
+    }
+    delivery.close();
+
+    assertEquals(1, delivery.transports.size(), "only one connection");
+    assertEquals(5, delivery.transports.get(0).sent.size());
+    assertEquals(List.of("to0@example.com", "to1@example.com", "to2@example.com", "to3@example.com",
+        "to4@example.com"), delivery.getSentRecipients());
+    assertTrue(delivery.getFailedRecipients().isEmpty());
+    assertFalse(delivery.transports.get(0).isConnected(), "connection closed");
+    attachments.forEach(a -> assertFalse(a.exists(), "attachment deleted"));
+  }
+
+  @Test
+  public void testRetry() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(MailDelivery.MAX_ATTEMPTS - 1);
+    delivery.send(mail("to@example.com"), "to@example.com", attachment(0));
+    delivery.close();
+
+    assertEquals(MailDelivery.MAX_ATTEMPTS, delivery.transports.size(), "new connection for each attempt");
+    assertEquals(List.of("to@example.com"), delivery.getSentRecipients());
+    assertTrue(delivery.getFailedRecipients().isEmpty());
+  }
+
+  @Test
+  public void testFailure() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(MailDelivery.MAX_ATTEMPTS);
+    delivery.send(mail("to@example.com"), "to@example.com", attachment(0));
+    delivery.send(mail("next@example.com"), "next@example.com", attachment(1));
+    delivery.close();
+
+    assertEquals(List.of("next@example.com"), delivery.getSentRecipients());
+    assertEquals(List.of(new AbstractMap.SimpleImmutableEntry<>("to@example.com", "server not available")),
+        delivery.getFailedRecipients());
+  }
+
+  @Test
+  public void testRepeatedFailuresOfOneRecipient() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(2 * MailDelivery.MAX_ATTEMPTS);
+    delivery.send(mail("to@example.com"), "to@example.com", attachment(0));
+    delivery.send(mail("to@example.com"), "to@example.com", attachment(1));
+    delivery.close();
+
+    List<Map.Entry<String, String>> failed = delivery.getFailedRecipients();
+    assertEquals(2, failed.size(), "each failed mail is reported");
+    failed.forEach(f -> assertEquals("to@example.com", f.getKey()));
+  }
+
+  @Test
+  public void testMoreMailsThanQueueSize() throws Exception
+  {
+    int mails = 3 * MailDelivery.QUEUE_SIZE;
+    TestDelivery delivery = new TestDelivery(0)
+    {
+      @Override
+      Transport connect(EMailSender mail) throws MessagingException
+      {
+        FakeTransport transport = new FakeTransport(false, 20);
+        transport.connect();
+        transports.add(transport);
+        return transport;
+      }
+    };
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+      for (int i = 0; i < mails; i++)
+      {
+        delivery.send(mail("to" + i + "@example.com"), "to" + i + "@example.com", attachment(i));
+      }
+      delivery.close();
+    });
+
+    assertEquals(mails, delivery.getSentRecipients().size());
+    assertEquals("to0@example.com", delivery.getSentRecipients().get(0));
+    assertTrue(delivery.getFailedRecipients().isEmpty());
+  }
+
+  @Test
+  public void testNoRetryOnAuthenticationFailure() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(0)
+    {
+      @Override
+      Transport connect(EMailSender mail) throws MessagingException
+      {
+        transports.add(null);
+        throw new AuthenticationFailedException("wrong password");
+      }
+    };
+    delivery.send(mail("to@example.com"), "to@example.com", attachment(0));
+    delivery.close();
+
+    assertEquals(1, delivery.transports.size(), "no retry");
+    assertEquals(List.of(new AbstractMap.SimpleImmutableEntry<>("to@example.com", "wrong password")),
+        delivery.getFailedRecipients());
+  }
+
+  @Test
+  public void testRuntimeException() throws Exception
+  {
+    TestDelivery delivery = new TestDelivery(0)
+    {
+      @Override
+      Transport connect(EMailSender mail) throws MessagingException
+      {
+        if (transports.isEmpty())
+        {
+          transports.add(null);
+          throw new IllegalStateException("no mail server");
+        }
+        return super.connect(mail);
+      }
+    };
+    File attachment = attachment(0);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      delivery.send(mail("to@example.com"), "to@example.com", attachment);
+      delivery.send(mail("next@example.com"), "next@example.com", attachment(1));
+      delivery.close();
+      delivery.send(mail("last@example.com"), "last@example.com", attachment(2));
+      delivery.close();
+    });
+
+    assertEquals(List.of("next@example.com", "last@example.com"), delivery.getSentRecipients());
+    assertEquals(List.of(new AbstractMap.SimpleImmutableEntry<>("to@example.com", "no mail server")),
+        delivery.getFailedRecipients());
+    assertFalse(attachment.exists(), "attachment deleted");
+  }
+
+  private EMailSender mail(String to) throws MessagingException
+  {
+    EMailSender mail = new EMailSender();
+    mail.createNewMultipartMail("from@example.com", to, "subject", "message");
+    return mail;
+  }
+
+  private File attachment(int i) throws IOException
+  {
+    return Files.writeString(tempDir.resolve("attachment" + i + ".txt"), "content").toFile();
+  }
+
+  /**
+   * Delivery with fake connections. The first connections fail to send.
+   */
+  private static class TestDelivery extends MailDelivery
+  {
+    final List<FakeTransport> transports = new ArrayList<>();
+
+    private int failures;
+
+    TestDelivery(int failures)
+    {
+      super(new MailServerSettings(), 0);
+      this.failures = failures;
+    }
+
+    @Override
+    Transport connect(EMailSender mail) throws MessagingException
+    {
+      FakeTransport transport = new FakeTransport(failures-- > 0);
+      transport.connect();
+      transports.add(transport);
+      return transport;
+    }
+  }
+
+  private static class FakeTransport extends Transport
+  {
+    final List<Message> sent = new ArrayList<>();
+
+    private final boolean fail;
+
+    private final long delay;
+
+    FakeTransport(boolean fail)
+    {
+      this(fail, 0);
+    }
+
+    FakeTransport(boolean fail, long delay)
+    {
+      super(Session.getInstance(new Properties()), new URLName("smtp://localhost"));
+      this.fail = fail;
+      this.delay = delay;
+    }
+
+    @Override
+    protected boolean protocolConnect(String host, int port, String user, String password)
+    {
+      return true;
+    }
+
+    @Override
+    public void sendMessage(Message msg, Address[] addresses) throws MessagingException
+    {
+      if (fail)
+      {
+        throw new MessagingException("server not available");
+      }
+      try
+      {
+        Thread.sleep(delay);
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new MessagingException("interrupted", e);
+      }
+      sent.add(msg);
+    }
+  }
+}
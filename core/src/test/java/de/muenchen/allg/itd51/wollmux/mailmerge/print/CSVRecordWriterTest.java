@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.print;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CSVRecordWriterTest
+{
+  @TempDir
+  Path tmpDir;
+
+  @Test
+  public void testQuotesAndSeparators() throws IOException
+  {
+    File csv = tmpDir.resolve("data.csv").toFile();
+    try (CSVRecordWriter writer = new CSVRecordWriter(csv, List.of("b", "a")))
+    {
+      writer.addRecord(Map.of("a", "say \"hi\"", "b", "x,y"));
+      writer.addRecord(Map.of("a", "line 1\nline 2"));
+      writer.flushAndClose();
+      assertEquals(2, writer.getSize());
+    }
+    assertEquals("\"a\",\"b\"\n\"say \"\"hi\"\"\",\"x,y\"\n\"line 1\nline 2\",\"\"\n", read(csv));
+  }
+
+  @Test
+  public void testLateColumns() throws IOException
+  {
+    File csv = tmpDir.resolve("data.csv").toFile();
+    try (CSVRecordWriter writer = new CSVRecordWriter(csv, List.of("a")))
+    {
+      writer.addRecord(Map.of("a", "1,\"\n"));
+      writer.addRecord(Map.of("a", "2", "b", "x"));
+      writer.addRecord(Map.of("c", "y\nz"));
+      writer.flushAndClose();
+    }
+    assertEquals("\"a\",\"b\",\"c\"\n" + "\"1,\"\"\n\",\"\",\"\"\n" + "\"2\",\"x\",\"\"\n"
+        + "\"\",\"\",\"y\nz\"\n", read(csv));
+    assertFalse(Files.exists(tmpDir.resolve("data.csv.incomplete")));
+  }
+
+  @Test
+  public void testCloseWithoutRecords() throws IOException
+  {
+    File csv = tmpDir.resolve("data.csv").toFile();
+    try (CSVRecordWriter writer = new CSVRecordWriter(csv, List.of("a")))
+    {
+      assertEquals(0, writer.getSize());
+    }
+    assertEquals("\"a\"\n", read(csv));
+  }
+
+  private static String read(File file) throws IOException
+  {
+    return Files.readString(file.toPath(), StandardCharsets.UTF_8);
+  }
+}
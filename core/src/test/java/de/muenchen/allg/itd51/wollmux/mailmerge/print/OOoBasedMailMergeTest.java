@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * WollMux
+ * %%
+ * Copyright (C) 2005 - 2023 Landeshauptstadt München
+ * %%
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be
+ * approved by the European Commission - subsequent versions of the
+ * EUPL (the "Licence");
+ *
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl5
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ * #L%
+ */
+package de.muenchen.allg.itd51.wollmux.mailmerge.print;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.star.text.XTextDocument;
+
+import org.libreoffice.ext.unohelper.common.UNO;
+import de.muenchen.allg.itd51.wollmux.test.OfficeTest;
+
+public class OOoBasedMailMergeTest extends OfficeTest
+{
+  @TempDir
+  Path tmpDir;
+
+  @Test
+  public void testGetChunkSize()
+  {
+    assertEquals(0, OOoBasedMailMerge.getChunkSize("0", 1));
+    assertEquals(0, OOoBasedMailMerge.getChunkSize("-5", 1));
+    assertEquals(0, OOoBasedMailMerge.getChunkSize("abc", 1));
+    assertEquals(0, OOoBasedMailMerge.getChunkSize("", 1));
+    assertEquals(100, OOoBasedMailMerge.getChunkSize("100", 1));
+    assertEquals(100, OOoBasedMailMerge.getChunkSize("100", 4));
+    assertEquals(102, OOoBasedMailMerge.getChunkSize("100", 3));
+    assertEquals(3, OOoBasedMailMerge.getChunkSize("1", 3));
+  }
+
+  @Test
+  public void testGetChunks()
+  {
+    assertEquals(0, OOoBasedMailMerge.getChunks(0, 10).length);
+
+    int[][] chunks = OOoBasedMailMerge.getChunks(10, 10);
+    assertEquals(1, chunks.length);
+    assertArrayEquals(new int[] { 1, 10 }, chunks[0]);
+
+    chunks = OOoBasedMailMerge.getChunks(25, 10);
+    assertEquals(3, chunks.length);
+    assertArrayEquals(new int[] { 1, 10 }, chunks[0]);
+    assertArrayEquals(new int[] { 11, 20 }, chunks[1]);
+    assertArrayEquals(new int[] { 21, 25 }, chunks[2]);
+
+    chunks = OOoBasedMailMerge.getChunks(21, 10);
+    assertEquals(3, chunks.length);
+    assertArrayEquals(new int[] { 21, 21 }, chunks[2]);
+  }
+
+  @Test
+  public void testAppendChunk() throws Exception
+  {
+    XTextDocument first = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+    first.getText().setString("first");
+    assertSame(first, OOoBasedMailMerge.appendChunk(null, first, tmpDir.resolve("part0.odt").toFile()));
+
+    XTextDocument second = UNO.XTextDocument(loadComponent("private:factory/swriter", false, true));
+    second.getText().setString("second");
+    File partFile = tmpDir.resolve("part1.odt").toFile();
+    XTextDocument result = OOoBasedMailMerge.appendChunk(first, second, partFile);
+    try
+    {
+      assertSame(first, result);
+      String text = result.getText().getString();
+      assertTrue(text.startsWith("first"), text);
+      assertTrue(text.endsWith("second"), text);
+      assertFalse(partFile.exists(), "Temporary file of the chunk wasn't deleted");
+    } finally
+    {
+      UNO.XCloseable(result).close(true);
+    }
+  }
+}